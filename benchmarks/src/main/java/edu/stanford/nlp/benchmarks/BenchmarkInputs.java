@@ -0,0 +1,105 @@
+package edu.stanford.nlp.benchmarks;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import edu.stanford.nlp.io.IOUtils;
+import edu.stanford.nlp.ling.CoreLabel;
+import edu.stanford.nlp.pipeline.DefaultPaths;
+import edu.stanford.nlp.process.CoreLabelTokenFactory;
+import edu.stanford.nlp.process.PTBTokenizer;
+import edu.stanford.nlp.process.WordToSentenceProcessor;
+import edu.stanford.nlp.trees.Tree;
+
+/**
+ * The fixed inputs that the benchmarks run on, and the models they load.
+ * <br>
+ * The text is a dozen sentences of newswire, with the people,
+ * organizations, dates and durations that NER, coref and SUTime look for;
+ * the trees are the englishPCFG parses of the same sentences.
+ * Models are loaded from the classpath or file system; the defaults are
+ * the usual CoreNLP model paths, which are found when the models jar is
+ * on the classpath.  They can be changed with the system properties
+ * <code>benchmarks.pos.model</code>, <code>benchmarks.ner.model</code>
+ * and <code>benchmarks.parser.model</code>.
+ */
+final class BenchmarkInputs {
+
+  private static final String TEXT = "news.txt";
+  private static final String TREES = "news.mrg";
+
+  /** The document date given to SUTime, so that its results do not depend on the day they are run */
+  static final String DOC_DATE = "2013-04-04";
+
+  private BenchmarkInputs() {} // static methods only
+
+  static String posModel() {
+    return System.getProperty("benchmarks.pos.model", DefaultPaths.DEFAULT_POS_MODEL);
+  }
+
+  static String nerModel() {
+    return System.getProperty("benchmarks.ner.model", DefaultPaths.DEFAULT_NER_THREECLASS_MODEL);
+  }
+
+  static String parserModel() {
+    return System.getProperty("benchmarks.parser.model", DefaultPaths.DEFAULT_PARSER_MODEL);
+  }
+
+  /** Properties for a StanfordCoreNLP pipeline that uses the benchmark models */
+  static Properties pipelineProperties(String annotators) {
+    Properties props = new Properties();
+    props.setProperty("annotators", annotators);
+    props.setProperty("pos.model", posModel());
+    props.setProperty("ner.model", nerModel());
+    props.setProperty("parse.model", parserModel());
+    return props;
+  }
+
+  /** The benchmark text */
+  static String text() {
+    return slurpResource(TEXT);
+  }
+
+  /** The benchmark text, tokenized */
+  static List<CoreLabel> tokens() {
+    return tokenize(text());
+  }
+
+  /** The benchmark text, tokenized and split into sentences */
+  static List<List<CoreLabel>> sentences() {
+    return new WordToSentenceProcessor<CoreLabel>().process(tokens());
+  }
+
+  /** The parse trees of the benchmark sentences */
+  static List<Tree> trees() {
+    List<Tree> trees = new ArrayList<Tree>();
+    for (String line : slurpResource(TREES).split("\n")) {
+      if (line.trim().length() > 0) {
+        trees.add(Tree.valueOf(line));
+      }
+    }
+    return trees;
+  }
+
+  static List<CoreLabel> tokenize(String text) {
+    return PTBTokenizer.factory(new CoreLabelTokenFactory(), "").getTokenizer(new StringReader(text)).tokenize();
+  }
+
+  private static String slurpResource(String name) {
+    InputStream is = BenchmarkInputs.class.getResourceAsStream(name);
+    if (is == null) {
+      throw new RuntimeException("Benchmark input " + name + " is missing from the classpath");
+    }
+    try {
+      return IOUtils.slurpReader(new InputStreamReader(is, "UTF-8"));
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+}
@@ -0,0 +1,33 @@
+package edu.stanford.nlp.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the CoreNLP benchmarks.  Every benchmark reports its throughput
+ * and, from sampling the time of single calls, its latency percentiles
+ * (p99 among them); this runner also turns on JMH's GC profiler, which
+ * adds the allocation rate (gc.alloc.rate and gc.alloc.rate.norm).
+ * The arguments are the usual JMH ones, so for instance
+ * <br>
+ * <code>java -jar benchmarks.jar -rf json -rff results.json Tregex</code>
+ * <br>
+ * runs just the Tregex benchmark and saves the results for comparison
+ * with another release.  See BenchmarkInputs for how models are found.
+ */
+public class BenchmarkMain {
+
+  private BenchmarkMain() {} // main method only
+
+  public static void main(String[] args) throws Exception {
+    Options options = new OptionsBuilder()
+        .parent(new CommandLineOptions(args))
+        .addProfiler(GCProfiler.class)
+        .build();
+    new Runner(options).run();
+  }
+
+}
@@ -0,0 +1,37 @@
+package edu.stanford.nlp.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import edu.stanford.nlp.ie.crf.CRFClassifier;
+import edu.stanford.nlp.ling.CoreLabel;
+
+/** NER on the benchmark sentences, one CRFClassifier.classify call each. */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class CRFClassifierBenchmark {
+
+  private List<List<CoreLabel>> sentences;
+  private CRFClassifier<CoreLabel> classifier;
+
+  @Setup
+  public void setUp() throws Exception {
+    sentences = BenchmarkInputs.sentences();
+    classifier = CRFClassifier.getClassifier(BenchmarkInputs.nerModel());
+  }
+
+  @Benchmark
+  public void classifySentences(Blackhole bh) {
+    for (List<CoreLabel> sentence : sentences) {
+      bh.consume(classifier.classify(sentence));
+    }
+  }
+
+}
@@ -0,0 +1,37 @@
+package edu.stanford.nlp.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import edu.stanford.nlp.ling.CoreLabel;
+import edu.stanford.nlp.parser.lexparser.LexicalizedParser;
+
+/** Parsing the benchmark sentences, one LexicalizedParser.parse call each. */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class LexicalizedParserBenchmark {
+
+  private List<List<CoreLabel>> sentences;
+  private LexicalizedParser parser;
+
+  @Setup
+  public void setUp() {
+    sentences = BenchmarkInputs.sentences();
+    parser = LexicalizedParser.loadModel(BenchmarkInputs.parserModel());
+  }
+
+  @Benchmark
+  public void parseSentences(Blackhole bh) {
+    for (List<CoreLabel> sentence : sentences) {
+      bh.consume(parser.parse(sentence));
+    }
+  }
+
+}
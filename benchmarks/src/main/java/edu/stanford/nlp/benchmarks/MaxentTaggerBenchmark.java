@@ -0,0 +1,37 @@
+package edu.stanford.nlp.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import edu.stanford.nlp.ling.CoreLabel;
+import edu.stanford.nlp.tagger.maxent.MaxentTagger;
+
+/** POS tagging the benchmark sentences, one MaxentTagger.tagSentence call each. */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class MaxentTaggerBenchmark {
+
+  private List<List<CoreLabel>> sentences;
+  private MaxentTagger tagger;
+
+  @Setup
+  public void setUp() {
+    sentences = BenchmarkInputs.sentences();
+    tagger = new MaxentTagger(BenchmarkInputs.posModel());
+  }
+
+  @Benchmark
+  public void tagSentences(Blackhole bh) {
+    for (List<CoreLabel> sentence : sentences) {
+      bh.consume(tagger.tagSentence(sentence));
+    }
+  }
+
+}
@@ -0,0 +1,31 @@
+package edu.stanford.nlp.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import edu.stanford.nlp.ling.CoreLabel;
+
+/** Tokenizing the benchmark text with PTBTokenizer. */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx1g")
+@State(Scope.Benchmark)
+public class PTBTokenizerBenchmark {
+
+  private String text;
+
+  @Setup
+  public void setUp() {
+    text = BenchmarkInputs.text();
+  }
+
+  @Benchmark
+  public List<CoreLabel> tokenize() {
+    return BenchmarkInputs.tokenize(text);
+  }
+
+}
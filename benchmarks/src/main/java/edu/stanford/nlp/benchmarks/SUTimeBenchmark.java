@@ -0,0 +1,52 @@
+package edu.stanford.nlp.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import edu.stanford.nlp.ling.CoreAnnotations;
+import edu.stanford.nlp.pipeline.Annotation;
+import edu.stanford.nlp.pipeline.StanfordCoreNLP;
+import edu.stanford.nlp.time.TimeAnnotations;
+import edu.stanford.nlp.time.TimeAnnotator;
+import edu.stanford.nlp.util.CoreMap;
+
+/**
+ * Extracting and resolving the temporal expressions of the benchmark text
+ * with SUTime.  The text is tokenized and split beforehand, so that only
+ * TimeAnnotator is measured.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class SUTimeBenchmark {
+
+  private StanfordCoreNLP pipeline;
+  private TimeAnnotator timeAnnotator;
+  private Annotation annotation;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    pipeline = new StanfordCoreNLP(BenchmarkInputs.pipelineProperties("tokenize, ssplit"));
+    timeAnnotator = new TimeAnnotator();
+  }
+
+  /** TimeAnnotator adds to the annotation it is given, so each call gets a fresh one */
+  @Setup(Level.Invocation)
+  public void prepareAnnotation() {
+    annotation = new Annotation(BenchmarkInputs.text());
+    annotation.set(CoreAnnotations.DocDateAnnotation.class, BenchmarkInputs.DOC_DATE);
+    pipeline.annotate(annotation);
+  }
+
+  @Benchmark
+  public List<CoreMap> extractTimes() {
+    timeAnnotator.annotate(annotation);
+    return annotation.get(TimeAnnotations.TimexAnnotations.class);
+  }
+
+}
@@ -0,0 +1,76 @@
+package edu.stanford.nlp.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import edu.stanford.nlp.dcoref.CorefChain;
+import edu.stanford.nlp.dcoref.Document;
+import edu.stanford.nlp.dcoref.Mention;
+import edu.stanford.nlp.dcoref.MentionExtractor;
+import edu.stanford.nlp.dcoref.RuleBasedCorefMentionFinder;
+import edu.stanford.nlp.dcoref.SieveCoreferenceSystem;
+import edu.stanford.nlp.ling.CoreAnnotations;
+import edu.stanford.nlp.ling.CoreLabel;
+import edu.stanford.nlp.pipeline.Annotation;
+import edu.stanford.nlp.pipeline.StanfordCoreNLP;
+import edu.stanford.nlp.trees.Tree;
+import edu.stanford.nlp.trees.TreeCoreAnnotations;
+import edu.stanford.nlp.util.CoreMap;
+
+/**
+ * Coreference resolution of the benchmark text with SieveCoreferenceSystem.coref.
+ * The text is tagged, parsed and has its mentions found beforehand, so
+ * that only the sieves are measured.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+@State(Scope.Benchmark)
+public class SieveCoreferenceBenchmark {
+
+  private Annotation annotation;
+  private SieveCoreferenceSystem corefSystem;
+  private MentionExtractor mentionExtractor;
+  private Document document;
+
+  @Setup(Level.Trial)
+  public void setUp() throws Exception {
+    Properties props = BenchmarkInputs.pipelineProperties("tokenize, ssplit, pos, lemma, ner, parse");
+    StanfordCoreNLP pipeline = new StanfordCoreNLP(props);
+    annotation = new Annotation(BenchmarkInputs.text());
+    pipeline.annotate(annotation);
+    corefSystem = new SieveCoreferenceSystem(props);
+    mentionExtractor = new MentionExtractor(corefSystem.dictionaries(), corefSystem.semantics());
+  }
+
+  /** coref changes the mentions it works on, so each call gets newly extracted ones */
+  @Setup(Level.Invocation)
+  public void extractMentions() throws Exception {
+    List<Tree> trees = new ArrayList<Tree>();
+    List<List<CoreLabel>> sentences = new ArrayList<List<CoreLabel>>();
+    for (CoreMap sentence : annotation.get(CoreAnnotations.SentencesAnnotation.class)) {
+      List<CoreLabel> tokens = sentence.get(CoreAnnotations.TokensAnnotation.class);
+      Tree tree = sentence.get(TreeCoreAnnotations.TreeAnnotation.class);
+      MentionExtractor.mergeLabels(tree, tokens);
+      MentionExtractor.initializeUtterance(tokens);
+      sentences.add(tokens);
+      trees.add(tree);
+    }
+    RuleBasedCorefMentionFinder finder = new RuleBasedCorefMentionFinder();
+    List<List<Mention>> mentions = finder.extractPredictedMentions(annotation, 0, corefSystem.dictionaries());
+    document = mentionExtractor.arrange(annotation, sentences, trees, mentions);
+  }
+
+  @Benchmark
+  public Map<Integer, CorefChain> coref() throws Exception {
+    return corefSystem.coref(document);
+  }
+
+}
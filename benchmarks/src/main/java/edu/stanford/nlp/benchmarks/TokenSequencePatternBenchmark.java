@@ -0,0 +1,55 @@
+package edu.stanford.nlp.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import edu.stanford.nlp.ling.CoreLabel;
+import edu.stanford.nlp.ling.tokensregex.TokenSequenceMatcher;
+import edu.stanford.nlp.ling.tokensregex.TokenSequencePattern;
+
+/** Finding every match of a handful of TokensRegex patterns in the benchmark sentences. */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx1g")
+@State(Scope.Benchmark)
+public class TokenSequencePatternBenchmark {
+
+  private static final String[] PATTERNS = {
+    "[ { word:/[A-Z][a-z]+/ } ]+ /Inc\\.|Corp\\.|University/",
+    "/the/ [ !{ word:/,/ } ]{1,3} /of/",
+    "/said|told|argued/ /that/?",
+    "[ { word:/[0-9]+/ } ] /percent|million|months|years/",
+    "(?: /on/ | /in/ | /by/ ) [ { word:/[A-Z].*/ } ]+",
+  };
+
+  private List<List<CoreLabel>> sentences;
+  private TokenSequencePattern[] patterns;
+
+  @Setup
+  public void setUp() {
+    sentences = BenchmarkInputs.sentences();
+    patterns = new TokenSequencePattern[PATTERNS.length];
+    for (int i = 0; i < PATTERNS.length; i++) {
+      patterns[i] = TokenSequencePattern.compile(PATTERNS[i]);
+    }
+  }
+
+  @Benchmark
+  public int matchSentences() {
+    int matches = 0;
+    for (List<CoreLabel> sentence : sentences) {
+      for (TokenSequencePattern pattern : patterns) {
+        TokenSequenceMatcher matcher = pattern.getMatcher(sentence);
+        while (matcher.find()) {
+          matches++;
+        }
+      }
+    }
+    return matches;
+  }
+
+}
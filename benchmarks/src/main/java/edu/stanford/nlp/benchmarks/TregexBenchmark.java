@@ -0,0 +1,56 @@
+package edu.stanford.nlp.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import edu.stanford.nlp.trees.Tree;
+import edu.stanford.nlp.trees.tregex.TregexMatcher;
+import edu.stanford.nlp.trees.tregex.TregexPattern;
+
+/** Finding every match of a handful of typical Tregex patterns in the benchmark trees. */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx1g")
+@State(Scope.Benchmark)
+public class TregexBenchmark {
+
+  private static final String[] PATTERNS = {
+    "NP < (NN|NNS $, JJ)",
+    "@NP <- @NN|NNS|NNP",
+    "S < NP=subj < (VP < /^VB/=verb)",
+    "VP < (PP < (IN $+ NP=obj))",
+    "SBAR << (WHNP < WDT)",
+    "NP !< DT !<< PRP",
+  };
+
+  private List<Tree> trees;
+  private TregexPattern[] patterns;
+
+  @Setup
+  public void setUp() {
+    trees = BenchmarkInputs.trees();
+    patterns = new TregexPattern[PATTERNS.length];
+    for (int i = 0; i < PATTERNS.length; i++) {
+      patterns[i] = TregexPattern.compile(PATTERNS[i]);
+    }
+  }
+
+  @Benchmark
+  public int matchTrees() {
+    int matches = 0;
+    for (Tree tree : trees) {
+      for (TregexPattern pattern : patterns) {
+        TregexMatcher matcher = pattern.matcher(tree);
+        while (matcher.find()) {
+          matches++;
+        }
+      }
+    }
+    return matches;
+  }
+
+}
@@ -0,0 +1,34 @@
+package edu.stanford.nlp.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import edu.stanford.nlp.ling.CoreLabel;
+import edu.stanford.nlp.process.WordToSentenceProcessor;
+
+/** Splitting the tokens of the benchmark text into sentences. */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx1g")
+@State(Scope.Benchmark)
+public class WordToSentenceProcessorBenchmark {
+
+  private List<CoreLabel> tokens;
+  private WordToSentenceProcessor<CoreLabel> splitter;
+
+  @Setup
+  public void setUp() {
+    tokens = BenchmarkInputs.tokens();
+    splitter = new WordToSentenceProcessor<CoreLabel>();
+  }
+
+  @Benchmark
+  public List<List<CoreLabel>> split() {
+    return splitter.process(tokens);
+  }
+
+}
@@ -171,7 +171,7 @@ public class CorefCluster implements Serializable{
   public boolean isSinglePronounCluster(Dictionaries dict){
     if(this.corefMentions.size() > 1) return false;
     for(Mention m : this.corefMentions) {
-      if(m.isPronominal() || dict.allPronouns.contains(m.spanToString().toLowerCase())) return true;
+      if(m.isPronominal() || dict.allPronouns.contains(m.lowercaseSpanString())) return true;
     }
     return false;
   }
@@ -4,6 +4,7 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
@@ -14,6 +15,7 @@ import edu.stanford.nlp.io.RuntimeIOException;
 import edu.stanford.nlp.pipeline.DefaultPaths;
 import edu.stanford.nlp.stats.ClassicCounter;
 import edu.stanford.nlp.stats.Counter;
+import edu.stanford.nlp.stats.Counters;
 import edu.stanford.nlp.util.Generics;
 import edu.stanford.nlp.util.Pair;
 
@@ -27,7 +29,7 @@ public class Dictionaries {
   public enum Animacy { ANIMATE, INANIMATE, UNKNOWN }
   public enum Person { I, YOU, HE, SHE, WE, THEY, IT, UNKNOWN}
 
-  public final Set<String> reportVerb = Generics.newHashSet(Arrays.asList(
+  public final Set<String> reportVerb = Collections.unmodifiableSet(Generics.newHashSet(Arrays.asList(
       "accuse", "acknowledge", "add", "admit", "advise", "agree", "alert",
       "allege", "announce", "answer", "apologize", "argue",
       "ask", "assert", "assure", "beg", "blame", "boast",
@@ -53,9 +55,9 @@ public class Dictionaries {
       "suggest", "support", "suppose", "surmise", "suspect", "swear", "teach",
       "tell", "testify", "think", "threaten", "told", "uncover", "underline",
       "underscore", "urge", "voice", "vow", "warn", "welcome",
-      "wish", "wonder", "worry", "write"));
+      "wish", "wonder", "worry", "write")));
 
-  public final Set<String> reportNoun = Generics.newHashSet(Arrays.asList(
+  public final Set<String> reportNoun = Collections.unmodifiableSet(Generics.newHashSet(Arrays.asList(
       "acclamation", "account", "accusation", "acknowledgment", "address", "addressing",
       "admission", "advertisement", "advice", "advisory", "affidavit", "affirmation", "alert",
       "allegation", "analysis", "anecdote", "annotation", "announcement", "answer", "antiphon",
@@ -105,111 +107,113 @@ public class Dictionaries {
       "verbalization", "version", "vignette", "vindication", "warning",
       "warrant", "whispering", "wire", "word", "work", "writ", "write-up", "writeup", "writing",
       "acceptance", "complaint", "concern", "disappointment", "disclose", "estimate", "laugh", "pleasure", "regret",
-      "resentment", "view"));
+      "resentment", "view")));
 
-  public final Set<String> nonWords = Generics.newHashSet(Arrays.asList("mm", "hmm", "ahem", "um"));
-  public final Set<String> copulas = Generics.newHashSet(Arrays.asList("is","are","were", "was","be", "been","become","became","becomes","seem","seemed","seems","remain","remains","remained"));
-  public final Set<String> quantifiers = Generics.newHashSet(Arrays.asList("not","every","any","none","everything","anything","nothing","all","enough"));
-  public final Set<String> parts = Generics.newHashSet(Arrays.asList("half","one","two","three","four","five","six","seven","eight","nine","ten","hundred","thousand","million","billion","tens","dozens","hundreds","thousands","millions","billions","group","groups","bunch","number","numbers","pinch","amount","amount","total","all","mile","miles","pounds"));
-  public final Set<String> temporals = Generics.newHashSet(Arrays.asList(
+  public final Set<String> nonWords = Collections.unmodifiableSet(Generics.newHashSet(Arrays.asList("mm", "hmm", "ahem", "um")));
+  public final Set<String> copulas = Collections.unmodifiableSet(Generics.newHashSet(Arrays.asList("is","are","were", "was","be", "been","become","became","becomes","seem","seemed","seems","remain","remains","remained")));
+  public final Set<String> quantifiers = Collections.unmodifiableSet(Generics.newHashSet(Arrays.asList("not","every","any","none","everything","anything","nothing","all","enough")));
+  public final Set<String> parts = Collections.unmodifiableSet(Generics.newHashSet(Arrays.asList("half","one","two","three","four","five","six","seven","eight","nine","ten","hundred","thousand","million","billion","tens","dozens","hundreds","thousands","millions","billions","group","groups","bunch","number","numbers","pinch","amount","amount","total","all","mile","miles","pounds")));
+  public final Set<String> temporals = Collections.unmodifiableSet(Generics.newHashSet(Arrays.asList(
       "second", "minute", "hour", "day", "week", "month", "year", "decade", "century", "millennium",
       "monday", "tuesday", "wednesday", "thursday", "friday", "saturday", "sunday", "now",
       "yesterday", "tomorrow", "age", "time", "era", "epoch", "morning", "evening", "day", "night", "noon", "afternoon",
       "semester", "trimester", "quarter", "term", "winter", "spring", "summer", "fall", "autumn", "season",
-      "january", "february", "march", "april", "may", "june", "july", "august", "september", "october", "november", "december"));
-
-
-  public final Set<String> femalePronouns = Generics.newHashSet(Arrays.asList(new String[]{ "her", "hers", "herself", "she" }));
-  public final Set<String> malePronouns = Generics.newHashSet(Arrays.asList(new String[]{ "he", "him", "himself", "his" }));
-  public final Set<String> neutralPronouns = Generics.newHashSet(Arrays.asList(new String[]{ "it", "its", "itself", "where", "here", "there", "which" }));
-  public final Set<String> possessivePronouns = Generics.newHashSet(Arrays.asList(new String[]{ "my", "your", "his", "her", "its","our","their","whose" }));
-  public final Set<String> otherPronouns = Generics.newHashSet(Arrays.asList(new String[]{ "who", "whom", "whose", "where", "when","which" }));
-  public final Set<String> thirdPersonPronouns = Generics.newHashSet(Arrays.asList(new String[]{ "he", "him", "himself", "his", "she", "her", "herself", "hers", "her", "it", "itself", "its", "one", "oneself", "one's", "they", "them", "themself", "themselves", "theirs", "their", "they", "them", "'em", "themselves" }));
-  public final Set<String> secondPersonPronouns = Generics.newHashSet(Arrays.asList(new String[]{ "you", "yourself", "yours", "your", "yourselves" }));
-  public final Set<String> firstPersonPronouns = Generics.newHashSet(Arrays.asList(new String[]{ "i", "me", "myself", "mine", "my", "we", "us", "ourself", "ourselves", "ours", "our" }));
-  public final Set<String> moneyPercentNumberPronouns = Generics.newHashSet(Arrays.asList(new String[]{ "it", "its" }));
-  public final Set<String> dateTimePronouns = Generics.newHashSet(Arrays.asList(new String[]{ "when" }));
-  public final Set<String> organizationPronouns = Generics.newHashSet(Arrays.asList(new String[]{ "it", "its", "they", "their", "them", "which"}));
-  public final Set<String> locationPronouns = Generics.newHashSet(Arrays.asList(new String[]{ "it", "its", "where", "here", "there" }));
-  public final Set<String> inanimatePronouns = Generics.newHashSet(Arrays.asList(new String[]{ "it", "itself", "its", "where", "when" }));
-  public final Set<String> animatePronouns = Generics.newHashSet(Arrays.asList(new String[]{ "i", "me", "myself", "mine", "my", "we", "us", "ourself", "ourselves", "ours", "our", "you", "yourself", "yours", "your", "yourselves", "he", "him", "himself", "his", "she", "her", "herself", "hers", "her", "one", "oneself", "one's", "they", "them", "themself", "themselves", "theirs", "their", "they", "them", "'em", "themselves", "who", "whom", "whose" }));
-  public final Set<String> indefinitePronouns = Generics.newHashSet(Arrays.asList(new String[]{"another", "anybody", "anyone", "anything", "each", "either", "enough", "everybody", "everyone", "everything", "less", "little", "much", "neither", "no one", "nobody", "nothing", "one", "other", "plenty", "somebody", "someone", "something", "both", "few", "fewer", "many", "others", "several", "all", "any", "more", "most", "none", "some", "such"}));
-  public final Set<String> relativePronouns = Generics.newHashSet(Arrays.asList(new String[]{"that","who","which","whom","where","whose"}));
-  public final Set<String> GPEPronouns = Generics.newHashSet(Arrays.asList(new String[]{ "it", "itself", "its", "they","where" }));
-  public final Set<String> pluralPronouns = Generics.newHashSet(Arrays.asList(new String[]{ "we", "us", "ourself", "ourselves", "ours", "our", "yourself", "yourselves", "they", "them", "themself", "themselves", "theirs", "their" }));
-  public final Set<String> singularPronouns = Generics.newHashSet(Arrays.asList(new String[]{ "i", "me", "myself", "mine", "my", "yourself", "he", "him", "himself", "his", "she", "her", "herself", "hers", "her", "it", "itself", "its", "one", "oneself", "one's" }));
-  public final Set<String> facilityVehicleWeaponPronouns = Generics.newHashSet(Arrays.asList(new String[]{ "it", "itself", "its", "they", "where" }));
-  public final Set<String> miscPronouns = Generics.newHashSet(Arrays.asList(new String[]{"it", "itself", "its", "they", "where" }));
-  public final Set<String> reflexivePronouns = Generics.newHashSet(Arrays.asList(new String[]{"myself", "yourself", "yourselves", "himself", "herself", "itself", "ourselves", "themselves", "oneself"}));
-  public final Set<String> transparentNouns = Generics.newHashSet(Arrays.asList(new String[]{"bunch", "group",
+      "january", "february", "march", "april", "may", "june", "july", "august", "september", "october", "november", "december")));
+
+
+  public final Set<String> femalePronouns = Collections.unmodifiableSet(Generics.newHashSet(Arrays.asList(new String[]{ "her", "hers", "herself", "she" })));
+  public final Set<String> malePronouns = Collections.unmodifiableSet(Generics.newHashSet(Arrays.asList(new String[]{ "he", "him", "himself", "his" })));
+  public final Set<String> neutralPronouns = Collections.unmodifiableSet(Generics.newHashSet(Arrays.asList(new String[]{ "it", "its", "itself", "where", "here", "there", "which" })));
+  public final Set<String> possessivePronouns = Collections.unmodifiableSet(Generics.newHashSet(Arrays.asList(new String[]{ "my", "your", "his", "her", "its","our","their","whose" })));
+  public final Set<String> otherPronouns = Collections.unmodifiableSet(Generics.newHashSet(Arrays.asList(new String[]{ "who", "whom", "whose", "where", "when","which" })));
+  public final Set<String> thirdPersonPronouns = Collections.unmodifiableSet(Generics.newHashSet(Arrays.asList(new String[]{ "he", "him", "himself", "his", "she", "her", "herself", "hers", "her", "it", "itself", "its", "one", "oneself", "one's", "they", "them", "themself", "themselves", "theirs", "their", "they", "them", "'em", "themselves" })));
+  public final Set<String> secondPersonPronouns = Collections.unmodifiableSet(Generics.newHashSet(Arrays.asList(new String[]{ "you", "yourself", "yours", "your", "yourselves" })));
+  public final Set<String> firstPersonPronouns = Collections.unmodifiableSet(Generics.newHashSet(Arrays.asList(new String[]{ "i", "me", "myself", "mine", "my", "we", "us", "ourself", "ourselves", "ours", "our" })));
+  public final Set<String> moneyPercentNumberPronouns = Collections.unmodifiableSet(Generics.newHashSet(Arrays.asList(new String[]{ "it", "its" })));
+  public final Set<String> dateTimePronouns = Collections.unmodifiableSet(Generics.newHashSet(Arrays.asList(new String[]{ "when" })));
+  public final Set<String> organizationPronouns = Collections.unmodifiableSet(Generics.newHashSet(Arrays.asList(new String[]{ "it", "its", "they", "their", "them", "which"})));
+  public final Set<String> locationPronouns = Collections.unmodifiableSet(Generics.newHashSet(Arrays.asList(new String[]{ "it", "its", "where", "here", "there" })));
+  public final Set<String> inanimatePronouns = Collections.unmodifiableSet(Generics.newHashSet(Arrays.asList(new String[]{ "it", "itself", "its", "where", "when" })));
+  public final Set<String> animatePronouns = Collections.unmodifiableSet(Generics.newHashSet(Arrays.asList(new String[]{ "i", "me", "myself", "mine", "my", "we", "us", "ourself", "ourselves", "ours", "our", "you", "yourself", "yours", "your", "yourselves", "he", "him", "himself", "his", "she", "her", "herself", "hers", "her", "one", "oneself", "one's", "they", "them", "themself", "themselves", "theirs", "their", "they", "them", "'em", "themselves", "who", "whom", "whose" })));
+  public final Set<String> indefinitePronouns = Collections.unmodifiableSet(Generics.newHashSet(Arrays.asList(new String[]{"another", "anybody", "anyone", "anything", "each", "either", "enough", "everybody", "everyone", "everything", "less", "little", "much", "neither", "no one", "nobody", "nothing", "one", "other", "plenty", "somebody", "someone", "something", "both", "few", "fewer", "many", "others", "several", "all", "any", "more", "most", "none", "some", "such"})));
+  public final Set<String> relativePronouns = Collections.unmodifiableSet(Generics.newHashSet(Arrays.asList(new String[]{"that","who","which","whom","where","whose"})));
+  public final Set<String> GPEPronouns = Collections.unmodifiableSet(Generics.newHashSet(Arrays.asList(new String[]{ "it", "itself", "its", "they","where" })));
+  public final Set<String> pluralPronouns = Collections.unmodifiableSet(Generics.newHashSet(Arrays.asList(new String[]{ "we", "us", "ourself", "ourselves", "ours", "our", "yourself", "yourselves", "they", "them", "themself", "themselves", "theirs", "their" })));
+  public final Set<String> singularPronouns = Collections.unmodifiableSet(Generics.newHashSet(Arrays.asList(new String[]{ "i", "me", "myself", "mine", "my", "yourself", "he", "him", "himself", "his", "she", "her", "herself", "hers", "her", "it", "itself", "its", "one", "oneself", "one's" })));
+  public final Set<String> facilityVehicleWeaponPronouns = Collections.unmodifiableSet(Generics.newHashSet(Arrays.asList(new String[]{ "it", "itself", "its", "they", "where" })));
+  public final Set<String> miscPronouns = Collections.unmodifiableSet(Generics.newHashSet(Arrays.asList(new String[]{"it", "itself", "its", "they", "where" })));
+  public final Set<String> reflexivePronouns = Collections.unmodifiableSet(Generics.newHashSet(Arrays.asList(new String[]{"myself", "yourself", "yourselves", "himself", "herself", "itself", "ourselves", "themselves", "oneself"})));
+  public final Set<String> transparentNouns = Collections.unmodifiableSet(Generics.newHashSet(Arrays.asList(new String[]{"bunch", "group",
       "breed", "class", "ilk", "kind", "half", "segment", "top", "bottom", "glass", "bottle",
       "box", "cup", "gem", "idiot", "unit", "part", "stage", "name", "division", "label", "group", "figure",
       "series", "member", "members", "first", "version", "site", "side", "role", "largest", "title", "fourth",
       "third", "second", "number", "place", "trio", "two", "one", "longest", "highest", "shortest",
       "head", "resident", "collection", "result", "last"
-  }));
-  public final Set<String> stopWords = Generics.newHashSet(Arrays.asList(new String[]{"a", "an", "the", "of", "at",
+  })));
+  /** The stop words, which also include all the pronouns */
+  public final Set<String> stopWords;
+  private static final List<String> basicStopWords = Arrays.asList(new String[]{"a", "an", "the", "of", "at",
       "on", "upon", "in", "to", "from", "out", "as", "so", "such", "or", "and", "those", "this", "these", "that",
-      "for", ",", "is", "was", "am", "are", "'s", "been", "were"}));
+      "for", ",", "is", "was", "am", "are", "'s", "been", "were"});
 
-  public final Set<String> notOrganizationPRP = Generics.newHashSet(Arrays.asList(new String[]{"i", "me", "myself",
-      "mine", "my", "yourself", "he", "him", "himself", "his", "she", "her", "herself", "hers", "here"}));
+  public final Set<String> notOrganizationPRP = Collections.unmodifiableSet(Generics.newHashSet(Arrays.asList(new String[]{"i", "me", "myself",
+      "mine", "my", "yourself", "he", "him", "himself", "his", "she", "her", "herself", "hers", "here"})));
 
-  public final Set<String> quantifiers2 = Generics.newHashSet(Arrays.asList("all", "both", "neither", "either"));
-  public final Set<String> determiners = Generics.newHashSet(Arrays.asList("the", "this", "that", "these", "those", "his", "her", "my", "your", "their", "our"));
-  public final Set<String> negations = Generics.newHashSet(Arrays.asList("n't","not", "nor", "neither", "never", "no", "non", "any", "none", "nobody", "nothing", "nowhere", "nearly","almost",
+  public final Set<String> quantifiers2 = Collections.unmodifiableSet(Generics.newHashSet(Arrays.asList("all", "both", "neither", "either")));
+  public final Set<String> determiners = Collections.unmodifiableSet(Generics.newHashSet(Arrays.asList("the", "this", "that", "these", "those", "his", "her", "my", "your", "their", "our")));
+  public final Set<String> negations = Collections.unmodifiableSet(Generics.newHashSet(Arrays.asList("n't","not", "nor", "neither", "never", "no", "non", "any", "none", "nobody", "nothing", "nowhere", "nearly","almost",
       "if", "false", "fallacy", "unsuccessfully", "unlikely", "impossible", "improbable", "uncertain", "unsure", "impossibility", "improbability", "cancellation", "breakup", "lack",
       "long-stalled", "end", "rejection", "failure", "avoid", "bar", "block", "break", "cancel", "cease", "cut", "decline", "deny", "deprive", "destroy", "excuse",
-      "fail", "forbid", "forestall", "forget", "halt", "lose", "nullify", "prevent", "refrain", "reject", "rebut", "remain", "refuse", "stop", "suspend", "ward"));
-  public final Set<String> neg_relations = Generics.newHashSet(Arrays.asList("prep_without", "prepc_without", "prep_except", "prepc_except", "prep_excluding", "prepx_excluding",
-      "prep_if", "prepc_if", "prep_whether", "prepc_whether", "prep_away_from", "prepc_away_from", "prep_instead_of", "prepc_instead_of"));
-  public final Set<String> modals = Generics.newHashSet(Arrays.asList("can", "could", "may", "might", "must", "should", "would", "seem",
+      "fail", "forbid", "forestall", "forget", "halt", "lose", "nullify", "prevent", "refrain", "reject", "rebut", "remain", "refuse", "stop", "suspend", "ward")));
+  public final Set<String> neg_relations = Collections.unmodifiableSet(Generics.newHashSet(Arrays.asList("prep_without", "prepc_without", "prep_except", "prepc_except", "prep_excluding", "prepx_excluding",
+      "prep_if", "prepc_if", "prep_whether", "prepc_whether", "prep_away_from", "prepc_away_from", "prep_instead_of", "prepc_instead_of")));
+  public final Set<String> modals = Collections.unmodifiableSet(Generics.newHashSet(Arrays.asList("can", "could", "may", "might", "must", "should", "would", "seem",
       "able", "apparently", "necessarily", "presumably", "probably", "possibly", "reportedly", "supposedly",
       "inconceivable", "chance", "impossibility", "improbability", "encouragement", "improbable", "impossible",
       "likely", "necessary", "probable", "possible", "uncertain", "unlikely", "unsure", "likelihood", "probability",
-      "possibility", "eventual", "hypothetical" , "presumed", "supposed", "reported", "apparent"));
+      "possibility", "eventual", "hypothetical" , "presumed", "supposed", "reported", "apparent")));
 
-  public final Set<String> personPronouns = Generics.newHashSet();
-  public final Set<String> allPronouns = Generics.newHashSet();
+  public final Set<String> personPronouns;
+  public final Set<String> allPronouns;
 
-  public final Map<String, String> statesAbbreviation = Generics.newHashMap();
-  public final Map<String, Set<String>> demonyms = Generics.newHashMap();
-  public final Set<String> demonymSet = Generics.newHashSet();
-  public final Set<String> adjectiveNation = Generics.newHashSet();
+  // The lists below are loaded from files by the constructor.  Like the
+  // ones above, none of them can be changed afterwards, so a Dictionaries
+  // can be shared by any number of threads.  The exception is
+  // statesAbbreviation, which loadStateAbbreviation can add to, and which
+  // must be done before the Dictionaries is shared.
 
-  public final Set<String> countries = Generics.newHashSet();
-  public final Set<String> statesAndProvinces = Generics.newHashSet();
+  public final Map<String, String> statesAbbreviation;
+  public final Map<String, Set<String>> demonyms;
+  public final Set<String> demonymSet;
+  public final Set<String> adjectiveNation;
 
-  public final Set<String> neutralWords = Generics.newHashSet();
-  public final Set<String> femaleWords = Generics.newHashSet();
-  public final Set<String> maleWords = Generics.newHashSet();
+  public final Set<String> countries;
+  public final Set<String> statesAndProvinces;
 
-  public final Set<String> pluralWords = Generics.newHashSet();
-  public final Set<String> singularWords = Generics.newHashSet();
+  public final Set<String> neutralWords;
+  public final Set<String> femaleWords;
+  public final Set<String> maleWords;
 
-  public final Set<String> inanimateWords = Generics.newHashSet();
-  public final Set<String> animateWords = Generics.newHashSet();
+  public final Set<String> pluralWords;
+  public final Set<String> singularWords;
 
-  public final Map<List<String>, int[]> genderNumber = Generics.newHashMap();
+  public final Set<String> inanimateWords;
+  public final Set<String> animateWords;
 
-  public final ArrayList<Counter<Pair<String, String>>> corefDict = new ArrayList<Counter<Pair<String, String>>>(4);
-  public final Counter<Pair<String, String>> corefDictPMI = new ClassicCounter<Pair<String, String>>();
-  public final Map<String,Counter<String>> NE_signatures = Generics.newHashMap();
+  /** A GenderNumberTable, which is read-only */
+  public final Map<List<String>, int[]> genderNumber;
 
-  private void setPronouns() {
-    for(String s: animatePronouns){
-      personPronouns.add(s);
-    }
-
-    allPronouns.addAll(firstPersonPronouns);
-    allPronouns.addAll(secondPersonPronouns);
-    allPronouns.addAll(thirdPersonPronouns);
-    allPronouns.addAll(otherPronouns);
+  /** Not changed once loaded, and its counters are read-only */
+  public final ArrayList<Counter<Pair<String, String>>> corefDict;
+  public final Counter<Pair<String, String>> corefDictPMI;
+  public final Map<String,Counter<String>> NE_signatures;
 
-    stopWords.addAll(allPronouns);
+  /** Adds the abbreviations in the given file to statesAbbreviation */
+  public void loadStateAbbreviation(String statesFile) {
+    loadStateAbbreviation(statesFile, statesAbbreviation);
   }
 
-  public void loadStateAbbreviation(String statesFile) {
+  private static void loadStateAbbreviation(String statesFile, Map<String, String> statesAbbreviation) {
     BufferedReader reader = null;
     try {
       reader = IOUtils.readerFromString(statesFile);
@@ -225,7 +229,8 @@ public class Dictionaries {
     }
   }
 
-  private void loadDemonymLists(String demonymFile) {
+  private static void loadDemonymLists(String demonymFile, Map<String, Set<String>> demonyms,
+                                       Set<String> demonymSet, Set<String> adjectiveNation) {
     BufferedReader reader = null;
     try {
       reader = IOUtils.readerFromString(demonymFile);
@@ -237,7 +242,7 @@ public class Dictionaries {
           set.add(s.toLowerCase());
           demonymSet.add(s.toLowerCase());
         }
-        demonyms.put(line[0].toLowerCase(), set);
+        demonyms.put(line[0].toLowerCase(), Collections.unmodifiableSet(set));
       }
       adjectiveNation.addAll(demonymSet);
       adjectiveNation.removeAll(demonyms.keySet());
@@ -257,7 +262,8 @@ public class Dictionaries {
     IOUtils.closeIgnoringExceptions(reader);
   }
 
-  private void loadAnimacyLists(String animateWordsFile, String inanimateWordsFile) {
+  private static void loadAnimacyLists(String animateWordsFile, String inanimateWordsFile,
+                                       Set<String> animateWords, Set<String> inanimateWords) {
     try {
       getWordsFromFile(animateWordsFile, animateWords, false);
       getWordsFromFile(inanimateWordsFile, inanimateWords, false);
@@ -266,7 +272,8 @@ public class Dictionaries {
     }
   }
 
-  private void loadGenderLists(String maleWordsFile, String neutralWordsFile, String femaleWordsFile) {
+  private static void loadGenderLists(String maleWordsFile, String neutralWordsFile, String femaleWordsFile,
+                                      Set<String> maleWords, Set<String> neutralWords, Set<String> femaleWords) {
     try {
       getWordsFromFile(maleWordsFile, maleWords, false);
       getWordsFromFile(neutralWordsFile, neutralWords, false);
@@ -276,7 +283,8 @@ public class Dictionaries {
     }
   }
 
-  private void loadNumberLists(String pluralWordsFile, String singularWordsFile) {
+  private static void loadNumberLists(String pluralWordsFile, String singularWordsFile,
+                                      Set<String> pluralWords, Set<String> singularWords) {
     try {
       getWordsFromFile(pluralWordsFile, pluralWords, false);
       getWordsFromFile(singularWordsFile, singularWords, false);
@@ -284,7 +292,7 @@ public class Dictionaries {
       throw new RuntimeIOException(e);
     }
   }
-  private void loadStatesLists(String file) {
+  private static void loadStatesLists(String file, Set<String> statesAndProvinces) {
     try {
       getWordsFromFile(file, statesAndProvinces, true);
     } catch (IOException e) {
@@ -292,7 +300,7 @@ public class Dictionaries {
     }
   }
 
-  private void loadCountriesLists(String file) {
+  private static void loadCountriesLists(String file, Set<String> countries) {
     try{
       BufferedReader reader = IOUtils.readerFromString(file);
       while(reader.ready()) {
@@ -305,28 +313,7 @@ public class Dictionaries {
     }
   }
 
-  private void loadGenderNumber(String file){
-    try {
-      BufferedReader reader = IOUtils.readerFromString(file);
-      String line;
-      while ((line = reader.readLine())!=null){
-        String[] split = line.split("\t");
-        List<String> tokens = new ArrayList<String>(Arrays.asList(split[0].split(" ")));
-        String[] countStr = split[1].split(" ");
-        int[] counts = new int[4];
-        counts[0] = Integer.parseInt(countStr[0]);
-        counts[1] = Integer.parseInt(countStr[1]);
-        counts[2] = Integer.parseInt(countStr[2]);
-        counts[3] = Integer.parseInt(countStr[3]);
-
-        genderNumber.put(tokens, counts);
-      }
-      reader.close();
-    } catch (IOException e) {
-      throw new RuntimeIOException(e);
-    }
-  }
-  private void loadExtraGender(String file){
+  private static void loadExtraGender(String file, Set<String> maleWords, Set<String> femaleWords){
     BufferedReader reader = null;
     try {
       reader = IOUtils.readerFromString(file);
@@ -343,7 +330,7 @@ public class Dictionaries {
   }
 
   private static void loadCorefDict(String[] file,
-      ArrayList<Counter<Pair<String, String>>> dict) {
+      List<Counter<Pair<String, String>>> dict) {
 
     for(int i = 0; i < 4; i++){
       dict.add(new ClassicCounter<Pair<String, String>>());
@@ -499,21 +486,75 @@ public class Dictionaries {
       String[] corefDictFiles,
       String corefDictPMIFile,
       String signaturesFile) {
-    loadDemonymLists(demonymWords);
-    loadStateAbbreviation(statesWords);
-    if(Constants.USE_ANIMACY_LIST) loadAnimacyLists(animateWords, inanimateWords);
-    if(Constants.USE_GENDER_LIST) loadGenderLists(maleWords, neutralWords, femaleWords);
-    if(Constants.USE_NUMBER_LIST) loadNumberLists(pluralWords, singularWords);
-    if(loadBigGenderNumber) loadGenderNumber(genderNumber);
-    loadCountriesLists(countries);
-    loadStatesLists(states);
-    loadExtraGender(extraGender);
-    setPronouns();
+    Map<String, Set<String>> demonymMap = Generics.newHashMap();
+    Set<String> demonymWordSet = Generics.newHashSet();
+    Set<String> adjectiveNationSet = Generics.newHashSet();
+    loadDemonymLists(demonymWords, demonymMap, demonymWordSet, adjectiveNationSet);
+    this.demonyms = Collections.unmodifiableMap(demonymMap);
+    this.demonymSet = Collections.unmodifiableSet(demonymWordSet);
+    this.adjectiveNation = Collections.unmodifiableSet(adjectiveNationSet);
+
+    this.statesAbbreviation = Generics.newHashMap();
+    loadStateAbbreviation(statesWords, statesAbbreviation);
+
+    Set<String> animate = Generics.newHashSet();
+    Set<String> inanimate = Generics.newHashSet();
+    if(Constants.USE_ANIMACY_LIST) loadAnimacyLists(animateWords, inanimateWords, animate, inanimate);
+    this.animateWords = Collections.unmodifiableSet(animate);
+    this.inanimateWords = Collections.unmodifiableSet(inanimate);
+
+    Set<String> male = Generics.newHashSet();
+    Set<String> neutral = Generics.newHashSet();
+    Set<String> female = Generics.newHashSet();
+    if(Constants.USE_GENDER_LIST) loadGenderLists(maleWords, neutralWords, femaleWords, male, neutral, female);
+    loadExtraGender(extraGender, male, female);
+    this.maleWords = Collections.unmodifiableSet(male);
+    this.neutralWords = Collections.unmodifiableSet(neutral);
+    this.femaleWords = Collections.unmodifiableSet(female);
+
+    Set<String> plural = Generics.newHashSet();
+    Set<String> singular = Generics.newHashSet();
+    if(Constants.USE_NUMBER_LIST) loadNumberLists(pluralWords, singularWords, plural, singular);
+    this.pluralWords = Collections.unmodifiableSet(plural);
+    this.singularWords = Collections.unmodifiableSet(singular);
+
+    this.genderNumber = loadBigGenderNumber ? new GenderNumberTable(genderNumber) : new GenderNumberTable();
+
+    Set<String> countrySet = Generics.newHashSet();
+    loadCountriesLists(countries, countrySet);
+    this.countries = Collections.unmodifiableSet(countrySet);
+    Set<String> stateSet = Generics.newHashSet();
+    loadStatesLists(states, stateSet);
+    this.statesAndProvinces = Collections.unmodifiableSet(stateSet);
+
+    this.personPronouns = Collections.unmodifiableSet(Generics.newHashSet(animatePronouns));
+    Set<String> pronouns = Generics.newHashSet();
+    pronouns.addAll(firstPersonPronouns);
+    pronouns.addAll(secondPersonPronouns);
+    pronouns.addAll(thirdPersonPronouns);
+    pronouns.addAll(otherPronouns);
+    this.allPronouns = Collections.unmodifiableSet(pronouns);
+    Set<String> stops = Generics.newHashSet(basicStopWords);
+    stops.addAll(allPronouns);
+    this.stopWords = Collections.unmodifiableSet(stops);
+
+    ArrayList<Counter<Pair<String, String>>> dicts = new ArrayList<Counter<Pair<String, String>>>(4);
+    Counter<Pair<String, String>> pmi = new ClassicCounter<Pair<String, String>>();
+    Map<String,Counter<String>> signatures = Generics.newHashMap();
     if(loadCorefDict){
-      loadCorefDict(corefDictFiles, corefDict);
-      loadCorefDictPMI(corefDictPMIFile, corefDictPMI);
-      loadSignatures(signaturesFile, NE_signatures);
+      loadCorefDict(corefDictFiles, dicts);
+      loadCorefDictPMI(corefDictPMIFile, pmi);
+      loadSignatures(signaturesFile, signatures);
+    }
+    for(int i = 0; i < dicts.size(); i++) {
+      dicts.set(i, Counters.unmodifiableCounter(dicts.get(i)));
+    }
+    this.corefDict = dicts;
+    this.corefDictPMI = Counters.unmodifiableCounter(pmi);
+    for(Map.Entry<String,Counter<String>> entry : signatures.entrySet()) {
+      entry.setValue(Counters.unmodifiableCounter(entry.getValue()));
     }
+    this.NE_signatures = Collections.unmodifiableMap(signatures);
   }
 
   public Dictionaries() {
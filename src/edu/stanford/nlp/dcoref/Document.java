@@ -628,7 +628,7 @@ public class Document implements Serializable {
       for(Mention m : l){
         if(m.predicateNominatives == null) continue;
         for (Mention a : m.predicateNominatives){
-          if(a.spanToString().toLowerCase().equals("i")) {
+          if(a.lowercaseSpanString().equals("i")) {
             speakers.put(m.headWord.get(CoreAnnotations.UtteranceAnnotation.class), Integer.toString(m.mentionID));
           }
         }
@@ -714,7 +714,7 @@ public class Document implements Serializable {
   /** Check one mention is the speaker of the other mention */
   public static boolean isSpeaker(Mention m, Mention ant, Dictionaries dict) {
 
-    if(!dict.firstPersonPronouns.contains(ant.spanToString().toLowerCase())
+    if(!dict.firstPersonPronouns.contains(ant.lowercaseSpanString())
         || ant.number==Number.PLURAL || ant.sentNum!=m.sentNum) return false;
 
     int countQuotationMark = 0;
@@ -0,0 +1,211 @@
+package edu.stanford.nlp.dcoref;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import edu.stanford.nlp.io.IOUtils;
+import edu.stanford.nlp.io.RuntimeIOException;
+
+/**
+ * The (male, female, neutral, plural) counts of the Bergsma and Lin gender
+ * and number data, keyed by lowercased word sequences.
+ * <br>
+ * The big gender/number file has millions of entries, which as a
+ * <code>Map&lt;List&lt;String&gt;, int[]&gt;</code> cost a list, an array
+ * and a string per word for each of them.  Here each entry is just its
+ * words joined by spaces, in an open addressing hash table, with the four
+ * counts of all the entries in one int array alongside.
+ * <br>
+ * A table doesn't change once loaded, so it can be shared by threads.
+ * It is a read-only Map: put and remove throw UnsupportedOperationException.
+ */
+public class GenderNumberTable extends AbstractMap<List<String>, int[]> {
+
+  private static final int NUM_COUNTS = 4;
+
+  /** The entries, as their words joined by spaces, or null for empty slots */
+  private final String[] keys;
+  /** The counts of the entry in slot i are at NUM_COUNTS * i */
+  private final int[] counts;
+  private final int size;
+
+  /** An empty table */
+  public GenderNumberTable() {
+    keys = new String[1];
+    counts = new int[NUM_COUNTS];
+    size = 0;
+  }
+
+  /**
+   * Loads the table from a file with lines of the form
+   * <code>words\tmale female neutral plural</code>, with the words
+   * separated by single spaces.
+   */
+  public GenderNumberTable(String file) {
+    String[] keys = new String[1024];
+    int[] counts = new int[NUM_COUNTS * keys.length];
+    int size = 0;
+    BufferedReader reader = null;
+    try {
+      reader = IOUtils.readerFromString(file);
+      String line;
+      while ((line = reader.readLine()) != null) {
+        int tab = line.indexOf('\t');
+        String key = trimTrailingSpaces(line.substring(0, tab));
+        String[] countStr = line.substring(tab + 1).split(" ");
+
+        if (2 * (size + 1) > keys.length) {
+          String[] oldKeys = keys;
+          int[] oldCounts = counts;
+          keys = new String[2 * oldKeys.length];
+          counts = new int[NUM_COUNTS * keys.length];
+          for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != null) {
+              int slot = slot(keys, oldKeys[i]);
+              keys[slot] = oldKeys[i];
+              System.arraycopy(oldCounts, NUM_COUNTS * i, counts, NUM_COUNTS * slot, NUM_COUNTS);
+            }
+          }
+        }
+        int slot = slot(keys, key);
+        if (keys[slot] == null) {
+          keys[slot] = key;
+          size++;
+        }
+        // as with a map, a later line for the same words replaces an earlier one
+        for (int i = 0; i < NUM_COUNTS; i++) {
+          counts[NUM_COUNTS * slot + i] = Integer.parseInt(countStr[i]);
+        }
+      }
+    } catch (IOException e) {
+      throw new RuntimeIOException(e);
+    } finally {
+      IOUtils.closeIgnoringExceptions(reader);
+    }
+    this.keys = keys;
+    this.counts = counts;
+    this.size = size;
+  }
+
+  /** Splitting the words on spaces used to drop trailing empty ones */
+  private static String trimTrailingSpaces(String s) {
+    int end = s.length();
+    while (end > 0 && s.charAt(end - 1) == ' ') {
+      end--;
+    }
+    return s.substring(0, end);
+  }
+
+  /** The slot that holds key, or the empty slot where it would go */
+  private static int slot(String[] keys, String key) {
+    int mask = keys.length - 1;
+    int h = key.hashCode();
+    int slot = (h ^ (h >>> 16)) & mask;
+    while (keys[slot] != null && ! keys[slot].equals(key)) {
+      slot = (slot + 1) & mask;
+    }
+    return slot;
+  }
+
+  /**
+   * Returns the (male, female, neutral, plural) counts of the given
+   * (lowercased) words, or null if they aren't in the table.
+   * The array returned is a copy, which the caller may keep or change.
+   */
+  @Override
+  public int[] get(Object words) {
+    int slot = find(words);
+    if (slot < 0) {
+      return null;
+    }
+    int[] result = new int[NUM_COUNTS];
+    System.arraycopy(counts, NUM_COUNTS * slot, result, 0, NUM_COUNTS);
+    return result;
+  }
+
+  @Override
+  public boolean containsKey(Object words) {
+    return find(words) >= 0;
+  }
+
+  /** The slot of the given list of words, or -1 if it isn't in the table */
+  private int find(Object words) {
+    if (size == 0 || ! (words instanceof List) || ((List<?>) words).isEmpty()) {
+      return -1;
+    }
+    StringBuilder sb = new StringBuilder();
+    for (Object word : (List<?>) words) {
+      // a word with a space in it can't have come from the file
+      if ( ! (word instanceof String) || ((String) word).indexOf(' ') >= 0) {
+        return -1;
+      }
+      if (sb.length() > 0) {
+        sb.append(' ');
+      }
+      sb.append((String) word);
+    }
+    int slot = slot(keys, sb.toString());
+    return keys[slot] == null ? -1 : slot;
+  }
+
+  /**
+   * The entries, which are made as they are iterated over: each key is a
+   * new list of the words, and each value a copy of the counts.
+   */
+  @Override
+  public Set<Map.Entry<List<String>, int[]>> entrySet() {
+    return new AbstractSet<Map.Entry<List<String>, int[]>>() {
+      @Override
+      public Iterator<Map.Entry<List<String>, int[]>> iterator() {
+        return new Iterator<Map.Entry<List<String>, int[]>>() {
+          private int next = advance(0);
+
+          private int advance(int slot) {
+            while (slot < keys.length && keys[slot] == null) {
+              slot++;
+            }
+            return slot;
+          }
+
+          public boolean hasNext() {
+            return next < keys.length;
+          }
+
+          public Map.Entry<List<String>, int[]> next() {
+            if ( ! hasNext()) {
+              throw new NoSuchElementException();
+            }
+            int slot = next;
+            next = advance(slot + 1);
+            int[] value = new int[NUM_COUNTS];
+            System.arraycopy(counts, NUM_COUNTS * slot, value, 0, NUM_COUNTS);
+            return new AbstractMap.SimpleImmutableEntry<List<String>, int[]>(Arrays.asList(keys[slot].split(" ")), value);
+          }
+
+          public void remove() {
+            throw new UnsupportedOperationException();
+          }
+        };
+      }
+
+      @Override
+      public int size() {
+        return size;
+      }
+    };
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+}
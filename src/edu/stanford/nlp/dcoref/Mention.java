@@ -131,6 +131,12 @@ public class Mention implements CoreAnnotation<Mention>, Serializable {
   public List<String> preprocessedTerms;
   public Object synsets;
 
+  // spanToString() is asked for many times for each pair of mentions the
+  // sieves compare, so it is kept until originalSpan is set to another list
+  private transient String spanString;
+  private transient String lowercaseSpanString;
+  private transient List<CoreLabel> spanStringSource;
+
   /** Set of other mentions in the same sentence that are syntactic appositions to this */
   public Set<Mention> appositions = null;
   public Set<Mention> predicateNominatives = null;
@@ -153,12 +159,26 @@ public class Mention implements CoreAnnotation<Mention>, Serializable {
   }
 
   public String spanToString() {
-    StringBuilder os = new StringBuilder();
-    for(int i = 0; i < originalSpan.size(); i ++){
-      if(i > 0) os.append(" ");
-      os.append(originalSpan.get(i).get(CoreAnnotations.TextAnnotation.class));
+    if (spanString == null || spanStringSource != originalSpan) {
+      StringBuilder os = new StringBuilder();
+      for(int i = 0; i < originalSpan.size(); i ++){
+        if(i > 0) os.append(" ");
+        os.append(originalSpan.get(i).get(CoreAnnotations.TextAnnotation.class));
+      }
+      spanString = os.toString();
+      spanStringSource = originalSpan;
+      lowercaseSpanString = null;
+    }
+    return spanString;
+  }
+
+  /** Same as spanToString().toLowerCase(), but only lowercased once */
+  public String lowercaseSpanString() {
+    String span = spanToString();
+    if (lowercaseSpanString == null) {
+      lowercaseSpanString = span.toLowerCase();
     }
-    return os.toString();
+    return lowercaseSpanString;
   }
 
   /** Set attributes of a mention:
@@ -229,20 +249,19 @@ public class Mention implements CoreAnnotation<Mention>, Serializable {
 
   private static int[] getNumberCount(Dictionaries dict, List<String> mStr) {
     int len = mStr.size();
+    int[] count;
     if(len > 1) {
       for(int i = 0 ; i < len-1 ; i++) {
-        if(dict.genderNumber.containsKey(mStr.subList(i, len))) return dict.genderNumber.get(mStr.subList(i, len));
+        if((count = dict.genderNumber.get(mStr.subList(i, len))) != null) return count;
       }
 
       // find converted string with ! (e.g., "dr. martin luther king jr. boulevard" -> "! boulevard")
       List<String> convertedStr = new ArrayList<String>();
       convertedStr.add("!");
       convertedStr.add(mStr.get(len-1));
-      if(dict.genderNumber.containsKey(convertedStr)) return dict.genderNumber.get(convertedStr);
+      if((count = dict.genderNumber.get(convertedStr)) != null) return count;
     }
-    if(dict.genderNumber.containsKey(mStr.subList(len-1, len))) return dict.genderNumber.get(mStr.subList(len-1, len));
-
-    return null;
+    return dict.genderNumber.get(mStr.subList(len-1, len));
   }
 
   private int[] getGenderCount(Dictionaries dict, List<String> mStr) {
@@ -255,21 +274,21 @@ public class Mention implements CoreAnnotation<Mention>, Serializable {
         firstNameIdx--;
       }
 
+      int[] count;
       for(int i = 0 ; i <= firstNameIdx ; i++){
-        if(dict.genderNumber.containsKey(mStr.subList(i, len))) return dict.genderNumber.get(mStr.subList(i, len));
+        if((count = dict.genderNumber.get(mStr.subList(i, len))) != null) return count;
       }
 
       // find converted string with ! (e.g., "dr. martin luther king jr. boulevard" -> "dr. !")
       List<String> convertedStr = new ArrayList<String>();
       convertedStr.add(mStr.get(firstNameIdx));
       convertedStr.add("!");
-      if(dict.genderNumber.containsKey(convertedStr)) return dict.genderNumber.get(convertedStr);
+      if((count = dict.genderNumber.get(convertedStr)) != null) return count;
 
-      if(dict.genderNumber.containsKey(mStr.subList(firstNameIdx, firstNameIdx+1))) return dict.genderNumber.get(mStr.subList(firstNameIdx, firstNameIdx+1));
+      if((count = dict.genderNumber.get(mStr.subList(firstNameIdx, firstNameIdx+1))) != null) return count;
     }
 
-    if(dict.genderNumber.containsKey(mStr.subList(len-1, len))) return dict.genderNumber.get(mStr.subList(len-1, len));
-    return null;
+    return dict.genderNumber.get(mStr.subList(len-1, len));
   }
   private void setDiscourse() {
     utter = headWord.get(CoreAnnotations.UtteranceAnnotation.class);
@@ -299,7 +318,7 @@ public class Mention implements CoreAnnotation<Mention>, Serializable {
   private void setPerson(Dictionaries dict) {
     // only do for pronoun
     if(!this.isPronominal()) person = Person.UNKNOWN;
-    String spanToString = this.spanToString().toLowerCase();
+    String spanToString = this.lowercaseSpanString();
 
     if(dict.firstPersonPronouns.contains(spanToString)) {
       if (number == Number.SINGULAR) {
@@ -457,7 +476,7 @@ public class Mention implements CoreAnnotation<Mention>, Serializable {
       while (m.find()) {
         //        Tree t = m.getMatch();
         if(this.mentionSubTree==m.getNode("tmp")
-           && this.spanToString().toLowerCase().contains(" and ")) {
+           && this.lowercaseSpanString().contains(" and ")) {
           number = Number.PLURAL;
         }
       }
@@ -889,7 +908,7 @@ public class Mention implements CoreAnnotation<Mention>, Serializable {
   // the mention is 'the + commonNoun' form
   protected boolean isTheCommonNoun() {
     if (this.mentionType == MentionType.NOMINAL
-         && this.spanToString().toLowerCase().startsWith("the ")
+         && this.lowercaseSpanString().startsWith("the ")
          && this.spanToString().split(" ").length == 2) {
       return true;
     } else {
@@ -1141,15 +1160,15 @@ public class Mention implements CoreAnnotation<Mention>, Serializable {
       return false;
     }
     if (dict.demonymSet.contains(thisString.toLowerCase())
-         || dict.demonymSet.contains(m.spanToString().toLowerCase())) {
+         || dict.demonymSet.contains(m.lowercaseSpanString())) {
       return false;
     }
     return true;
   }
 
   public boolean isDemonym(Mention m, Dictionaries dict){
-    String thisString = this.spanToString().toLowerCase();
-    String antString = m.spanToString().toLowerCase();
+    String thisString = this.lowercaseSpanString();
+    String antString = m.lowercaseSpanString();
     if(thisString.startsWith("the ") || thisString.startsWith("The ")) {
       thisString = thisString.substring(4);
     }
@@ -31,6 +31,9 @@ import edu.stanford.nlp.util.StringUtils;
 
 public class RuleBasedCorefMentionFinder implements CorefMentionFinder {
 
+  private static final TregexPattern npOrPrpMentionPattern = TregexPattern.compile("/^(?:NP|PRP)/");
+  private static final TregexPattern enumerationsMentionPattern = TregexPattern.compile("NP < (/^(?:NP|NNP|NML)/=m1 $.. (/^CC|,/ $.. /^(?:NP|NNP|NML)/=m2))");
+
   protected boolean assignIds = true;
   protected int maxID = -1;
   private final HeadFinder headFinder;
@@ -44,14 +47,16 @@ public class RuleBasedCorefMentionFinder implements CorefMentionFinder {
   /** When mention boundaries are given */
   public List<List<Mention>> filterPredictedMentions(List<List<Mention>> allGoldMentions, Annotation doc, Dictionaries dict){
     List<List<Mention>> predictedMentions = new ArrayList<List<Mention>>();
+    List<CoreMap> sentences = doc.get(CoreAnnotations.SentencesAnnotation.class).subList(0, allGoldMentions.size());
+
+    for(List<Mention> goldMentions : allGoldMentions){
+      predictedMentions.add(new ArrayList<Mention>(goldMentions));
+    }
+    findHeads(sentences, predictedMentions);
 
     for(int i = 0 ; i < allGoldMentions.size(); i++){
-      CoreMap s = doc.get(CoreAnnotations.SentencesAnnotation.class).get(i);
-      List<Mention> goldMentions = allGoldMentions.get(i);
-      List<Mention> mentions = new ArrayList<Mention>();
-      predictedMentions.add(mentions);
-      mentions.addAll(goldMentions);
-      findHead(s, mentions);
+      CoreMap s = sentences.get(i);
+      List<Mention> mentions = predictedMentions.get(i);
 
       // todo [cdm 2013]: This block seems to do nothing - the two sets are never used
       Set<IntPair> mentionSpanSet = Generics.newHashSet();
@@ -76,7 +81,8 @@ public class RuleBasedCorefMentionFinder implements CorefMentionFinder {
   public List<List<Mention>> extractPredictedMentions(Annotation doc, int _maxID, Dictionaries dict){
     this.maxID = _maxID;
     List<List<Mention>> predictedMentions = new ArrayList<List<Mention>>();
-    for(CoreMap s : doc.get(CoreAnnotations.SentencesAnnotation.class)) {
+    List<CoreMap> sentences = doc.get(CoreAnnotations.SentencesAnnotation.class);
+    for(CoreMap s : sentences) {
 
       List<Mention> mentions = new ArrayList<Mention>();
       predictedMentions.add(mentions);
@@ -86,9 +92,14 @@ public class RuleBasedCorefMentionFinder implements CorefMentionFinder {
       extractNamedEntityMentions(s, mentions, mentionSpanSet, namedEntitySpanSet);
       extractNPorPRP(s, mentions, mentionSpanSet, namedEntitySpanSet);
       extractEnumerations(s, mentions, mentionSpanSet, namedEntitySpanSet);
-      findHead(s, mentions);
+    }
+    // the heads are found for the whole document at once, so that the
+    // mention extents that need parsing go to the parser together
+    findHeads(sentences, predictedMentions);
+    for(int i = 0; i < sentences.size(); i++) {
+      List<Mention> mentions = predictedMentions.get(i);
       setBarePlural(mentions);
-      removeSpuriousMentions(s, mentions, dict);
+      removeSpuriousMentions(sentences.get(i), mentions, dict);
     }
     return predictedMentions;
   }
@@ -146,9 +157,7 @@ public class RuleBasedCorefMentionFinder implements CorefMentionFinder {
     tree.indexLeaves();
     SemanticGraph dependency = s.get(SemanticGraphCoreAnnotations.CollapsedDependenciesAnnotation.class);
 
-    final String mentionPattern = "/^(?:NP|PRP)/";
-    TregexPattern tgrepPattern = TregexPattern.compile(mentionPattern);
-    TregexMatcher matcher = tgrepPattern.matcher(tree);
+    TregexMatcher matcher = npOrPrpMentionPattern.matcher(tree);
     while (matcher.find()) {
       Tree t = matcher.getMatch();
       List<Tree> mLeaves = t.getLeaves();
@@ -169,9 +178,7 @@ public class RuleBasedCorefMentionFinder implements CorefMentionFinder {
     Tree tree = s.get(TreeCoreAnnotations.TreeAnnotation.class);
     SemanticGraph dependency = s.get(SemanticGraphCoreAnnotations.CollapsedDependenciesAnnotation.class);
 
-    final String mentionPattern = "NP < (/^(?:NP|NNP|NML)/=m1 $.. (/^CC|,/ $.. /^(?:NP|NNP|NML)/=m2))";
-    TregexPattern tgrepPattern = TregexPattern.compile(mentionPattern);
-    TregexMatcher matcher = tgrepPattern.matcher(tree);
+    TregexMatcher matcher = enumerationsMentionPattern.matcher(tree);
     Map<IntPair, Tree> spanToMentionSubTree = Generics.newHashMap();
     while (matcher.find()) {
       matcher.getMatch();
@@ -209,81 +216,177 @@ public class RuleBasedCorefMentionFinder implements CorefMentionFinder {
   }
 
   protected void findHead(CoreMap s, List<Mention> mentions) {
-    Tree tree = s.get(TreeCoreAnnotations.TreeAnnotation.class);
-    List<CoreLabel> sent = s.get(CoreAnnotations.TokensAnnotation.class);
-    tree.indexSpans(0);
-    for (Mention m : mentions){
-      Tree head = findSyntacticHead(m, tree, sent);
-      m.headIndex = ((CoreLabel) head.label()).get(CoreAnnotations.IndexAnnotation.class)-1;
-      m.headWord = sent.get(m.headIndex);
-      m.headString = m.headWord.get(CoreAnnotations.TextAnnotation.class).toLowerCase();
-      int start = m.headIndex - m.startIndex;
-      if (start < 0 || start >= m.originalSpan.size()) {
-        SieveCoreferenceSystem.logger.warning("Invalid index for head " + start + "=" + m.headIndex + "-" + m.startIndex
-                + ": originalSpan=[" + StringUtils.joinWords(m.originalSpan, " ") + "], head=" + m.headWord);
-        SieveCoreferenceSystem.logger.warning("Setting head string to entire mention");
-        m.headIndex = m.startIndex;
-        m.headWord = m.originalSpan.get(0);
-        m.headString = m.originalSpan.toString();
+    findHeads(Collections.singletonList(s), Collections.singletonList(mentions));
+  }
+
+  /** Finds the heads of the mentions of each sentence.  The extents of
+   *  mentions that don't match a constituent are all parsed in one batch.
+   */
+  protected void findHeads(List<CoreMap> sentences, List<List<Mention>> mentions) {
+    List<ExtentParse> extents = new ArrayList<ExtentParse>();
+    for (int i = 0; i < sentences.size(); i++) {
+      CoreMap s = sentences.get(i);
+      Tree tree = s.get(TreeCoreAnnotations.TreeAnnotation.class);
+      List<CoreLabel> sent = s.get(CoreAnnotations.TokensAnnotation.class);
+      tree.indexSpans(0);
+      for (Mention m : mentions.get(i)) {
+        Tree head = findExactHead(m, tree);
+        if (head != null) {
+          setHead(m, head, sent);
+        } else {
+          extents.add(new ExtentParse(m, tree, sent));
+        }
       }
     }
+    parseExtents(extents);
+    for (ExtentParse extent : extents) {
+      setHead(extent.mention, extent.findHead(), extent.tokens);
+    }
   }
 
-  protected Tree findSyntacticHead(Mention m, Tree root, List<CoreLabel> tokens) {
-    // mention ends with 's
+  private static void setHead(Mention m, Tree head, List<CoreLabel> sent) {
+    m.headIndex = ((CoreLabel) head.label()).get(CoreAnnotations.IndexAnnotation.class)-1;
+    m.headWord = sent.get(m.headIndex);
+    m.headString = m.headWord.get(CoreAnnotations.TextAnnotation.class).toLowerCase();
+    int start = m.headIndex - m.startIndex;
+    if (start < 0 || start >= m.originalSpan.size()) {
+      SieveCoreferenceSystem.logger.warning("Invalid index for head " + start + "=" + m.headIndex + "-" + m.startIndex
+              + ": originalSpan=[" + StringUtils.joinWords(m.originalSpan, " ") + "], head=" + m.headWord);
+      SieveCoreferenceSystem.logger.warning("Setting head string to entire mention");
+      m.headIndex = m.startIndex;
+      m.headWord = m.originalSpan.get(0);
+      m.headString = m.originalSpan.toString();
+    }
+  }
+
+  /** The end of the mention, leaving out a final 's */
+  private static int headSearchEnd(Mention m) {
     int endIdx = m.endIndex;
     String lastWord = m.originalSpan.get(m.originalSpan.size()-1).get(CoreAnnotations.TextAnnotation.class);
     if((lastWord.equals("'s") || lastWord.equals("'"))
         && m.originalSpan.size() != 1 ) endIdx--;
+    return endIdx;
+  }
+
+  /** The head of the constituent that spans the mention exactly, if there
+   *  is one, or null.
+   */
+  private Tree findExactHead(Mention m, Tree root) {
+    Tree exactMatch = findTreeWithSpan(root, m.startIndex, headSearchEnd(m));
+    return (exactMatch != null) ? safeHead(exactMatch) : null;
+  }
 
-    Tree exactMatch = findTreeWithSpan(root, m.startIndex, endIdx);
+  protected Tree findSyntacticHead(Mention m, Tree root, List<CoreLabel> tokens) {
+    Tree exactHead = findExactHead(m, root);
     //
     // found an exact match
     //
-    if (exactMatch != null) {
-      return safeHead(exactMatch);
-    }
-
-    // no exact match found
-    // in this case, we parse the actual extent of the mention, embedded in a sentence
-    // context, so as to make the parser work better :-)
-
-    int approximateness = 0;
-    List<CoreLabel> extentTokens = new ArrayList<CoreLabel>();
-    extentTokens.add(initCoreLabel("It"));
-    extentTokens.add(initCoreLabel("was"));
-    final int ADDED_WORDS = 2;
-    for (int i = m.startIndex; i < endIdx; i++) {
-      // Add everything except separated dashes! The separated dashes mess with the parser too badly.
-      CoreLabel label = tokens.get(i);
-      if ( ! "-".equals(label.word())) {
-        extentTokens.add(tokens.get(i));
-      } else {
-        approximateness++;
+    if (exactHead != null) {
+      return exactHead;
+    }
+    ExtentParse extent = new ExtentParse(m, root, tokens);
+    parseExtents(Collections.singletonList(extent));
+    return extent.findHead();
+  }
+
+  private static final int ADDED_WORDS = 2;
+
+  /**
+   * When no constituent spans a mention exactly, we parse the actual
+   * extent of the mention, embedded in a sentence context, so as to make
+   * the parser work better :-)
+   */
+  private class ExtentParse {
+    final Mention mention;
+    final Tree root;
+    final List<CoreLabel> tokens;
+    final List<CoreLabel> extentTokens;
+    /** The constraint is always the same relative to the extent tokens,
+     *  so extents with the same words and tags have the same parse.
+     *  (Parsing sets any missing tags, so this is made up front.)
+     */
+    final List<String> parseKey;
+    int approximateness; // = 0;
+    /** The parse of extentTokens, which may be shared with other extents */
+    Tree parse;
+
+    ExtentParse(Mention m, Tree root, List<CoreLabel> tokens) {
+      this.mention = m;
+      this.root = root;
+      this.tokens = tokens;
+      extentTokens = new ArrayList<CoreLabel>();
+      extentTokens.add(initCoreLabel("It"));
+      extentTokens.add(initCoreLabel("was"));
+      for (int i = m.startIndex, endIdx = headSearchEnd(m); i < endIdx; i++) {
+        // Add everything except separated dashes! The separated dashes mess with the parser too badly.
+        CoreLabel label = tokens.get(i);
+        if ( ! "-".equals(label.word())) {
+          extentTokens.add(tokens.get(i));
+        } else {
+          approximateness++;
+        }
+      }
+      extentTokens.add(initCoreLabel("."));
+      parseKey = new ArrayList<String>(2 * extentTokens.size());
+      for (CoreLabel token : extentTokens) {
+        parseKey.add(token.word());
+        parseKey.add(token.tag());
       }
     }
-    extentTokens.add(initCoreLabel("."));
-
-    // constrain the parse to the part we're interested in.
-    // Starting from ADDED_WORDS comes from skipping "It was".
-    // -1 to exclude the period.
-    // We now let it be any kind of nominal constituent, since there
-    // are VP and S ones
-    ParserConstraint constraint = new ParserConstraint(ADDED_WORDS, extentTokens.size() - 1, Pattern.compile(".*"));
-    List<ParserConstraint> constraints = Collections.singletonList(constraint);
-    Tree tree = parse(extentTokens, constraints);
-    convertToCoreLabels(tree);
-    tree.indexSpans(m.startIndex - ADDED_WORDS);  // remember it has ADDED_WORDS extra words at the beginning
-    Tree subtree = findPartialSpan(tree, m.startIndex);
-    Tree extentHead = safeHead(subtree);
-    assert(extentHead != null);
-    // extentHead is a child in the local extent parse tree. we need to find the corresponding node in the main tree
-    // Because we deleted dashes, it's index will be >= the index in the extent parse tree
-    CoreLabel l = (CoreLabel) extentHead.label();
-    Tree realHead = funkyFindLeafWithApproximateSpan(root, l.value(), l.get(CoreAnnotations.BeginIndexAnnotation.class), approximateness);
-    assert(realHead != null);
-    return realHead;
+
+    List<ParserConstraint> constraints() {
+      // constrain the parse to the part we're interested in.
+      // Starting from ADDED_WORDS comes from skipping "It was".
+      // -1 to exclude the period.
+      // We now let it be any kind of nominal constituent, since there
+      // are VP and S ones
+      ParserConstraint constraint = new ParserConstraint(ADDED_WORDS, extentTokens.size() - 1, Pattern.compile(".*"));
+      return Collections.singletonList(constraint);
+    }
+
+    Tree findHead() {
+      Tree tree = parse.deepCopy();
+      convertToCoreLabels(tree);
+      tree.indexSpans(mention.startIndex - ADDED_WORDS);  // remember it has ADDED_WORDS extra words at the beginning
+      Tree subtree = findPartialSpan(tree, mention.startIndex);
+      Tree extentHead = safeHead(subtree);
+      assert(extentHead != null);
+      // extentHead is a child in the local extent parse tree. we need to find the corresponding node in the main tree
+      // Because we deleted dashes, it's index will be >= the index in the extent parse tree
+      CoreLabel l = (CoreLabel) extentHead.label();
+      Tree realHead = funkyFindLeafWithApproximateSpan(root, l.value(), l.get(CoreAnnotations.BeginIndexAnnotation.class), approximateness);
+      assert(realHead != null);
+      return realHead;
+    }
   }
+
+  /** Parses the extents, all in one call to the parser (which may use
+   *  several threads).  Extents with the same words are parsed once.
+   */
+  private void parseExtents(List<ExtentParse> extents) {
+    if (extents.isEmpty()) {
+      return;
+    }
+    Map<List<String>, CoreMap> parses = Generics.newHashMap();
+    List<CoreMap> sents = new ArrayList<CoreMap>();
+    for (ExtentParse extent : extents) {
+      List<String> key = extent.parseKey;
+      if ( ! parses.containsKey(key)) {
+        CoreMap sent = new Annotation("");
+        sent.set(CoreAnnotations.TokensAnnotation.class, extent.extentTokens);
+        sent.set(ParserAnnotations.ConstraintAnnotation.class, extent.constraints());
+        parses.put(key, sent);
+        sents.add(sent);
+      }
+    }
+    Annotation doc = new Annotation("");
+    doc.set(CoreAnnotations.SentencesAnnotation.class, sents);
+    getParser().annotate(doc);
+    for (ExtentParse extent : extents) {
+      extent.parse = parses.get(extent.parseKey).get(TreeCoreAnnotations.TreeAnnotation.class);
+    }
+  }
+
   private static Tree findPartialSpan(final Tree root, final int start) {
     CoreLabel label = (CoreLabel) root.label();
     int startIndex = label.get(CoreAnnotations.BeginIndexAnnotation.class);
@@ -323,23 +426,6 @@ public class RuleBasedCorefMentionFinder implements CorefMentionFinder {
     return label;
   }
 
-  private Tree parse(List<CoreLabel> tokens) {
-    return parse(tokens, null);
-  }
-
-  private Tree parse(List<CoreLabel> tokens,
-                     List<ParserConstraint> constraints) {
-    CoreMap sent = new Annotation("");
-    sent.set(CoreAnnotations.TokensAnnotation.class, tokens);
-    sent.set(ParserAnnotations.ConstraintAnnotation.class, constraints);
-    Annotation doc = new Annotation("");
-    List<CoreMap> sents = new ArrayList<CoreMap>();
-    sents.add(sent);
-    doc.set(CoreAnnotations.SentencesAnnotation.class, sents);
-    getParser().annotate(doc);
-    sents = doc.get(CoreAnnotations.SentencesAnnotation.class);
-    return sents.get(0).get(TreeCoreAnnotations.TreeAnnotation.class);
-  }
   private Annotator getParser() {
     if(parserProcessor == null){
       parserProcessor = StanfordCoreNLP.getExistingAnnotator("parse");
@@ -430,7 +516,7 @@ public class RuleBasedCorefMentionFinder implements CorefMentionFinder {
       if(headNE.equals("PERCENT") || headNE.equals("MONEY")) remove.add(m);
 
       // adjective form of nations
-      if(dict.adjectiveNation.contains(m.spanToString().toLowerCase())) remove.add(m);
+      if(dict.adjectiveNation.contains(m.lowercaseSpanString())) remove.add(m);
 
       // stop list (e.g., U.S., there)
       if(inStopList(m)) remove.add(m);
@@ -453,7 +539,7 @@ public class RuleBasedCorefMentionFinder implements CorefMentionFinder {
   }
 
   private static boolean inStopList(Mention m) {
-    String mentionSpan = m.spanToString().toLowerCase();
+    String mentionSpan = m.lowercaseSpanString();
     if(mentionSpan.equals("u.s.") || mentionSpan.equals("u.k.")
         || mentionSpan.equals("u.s.s.r")) return true;
     if(mentionSpan.equals("there") || mentionSpan.startsWith("etc.")
@@ -473,6 +559,18 @@ public class RuleBasedCorefMentionFinder implements CorefMentionFinder {
   /** Check whether pleonastic 'it'. E.g., It is possible that ... */
   private static boolean isPleonastic(Mention m, Tree tree) {
     if ( ! m.spanToString().equalsIgnoreCase("it")) return false;
+    for (TregexPattern p : pleonasticPatterns) {
+      if (checkPleonastic(m, tree, p)) {
+        System.err.printf("XXXX %s%n", tree);
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static final TregexPattern[] pleonasticPatterns = compilePleonasticPatterns();
+
+  private static TregexPattern[] compilePleonasticPatterns() {
     final String[] patterns = {
         // cdm 2013: I spent a while on these patterns. I fixed a syntax error in five patterns ($.. split with space), so it now shouldn't exception in checkPleonastic. This gave 0.02% on CoNLL11 dev
         // I tried some more precise paterns but they didn't help. Indeed, they tended to hurt vs. the higher recall patterns.
@@ -505,18 +603,15 @@ public class RuleBasedCorefMentionFinder implements CorefMentionFinder {
         "NP < (PRP=m1) $.. (VP < ((/^V.*/ < /^(?:turns|turned)/) $.. PRT $.. /S|SBAR/))"
     };
 
-    for (String p : patterns) {
-      if (checkPleonastic(m, tree, p)) {
-        System.err.printf("XXXX %s%n", tree);
-        return true;
-      }
+    TregexPattern[] compiled = new TregexPattern[patterns.length];
+    for (int i = 0; i < patterns.length; i++) {
+      compiled[i] = TregexPattern.compile(patterns[i]);
     }
-    return false;
+    return compiled;
   }
 
-  private static boolean checkPleonastic(Mention m, Tree tree, String pattern) {
+  private static boolean checkPleonastic(Mention m, Tree tree, TregexPattern tgrepPattern) {
     try {
-      TregexPattern tgrepPattern = TregexPattern.compile(pattern);
       TregexMatcher matcher = tgrepPattern.matcher(tree);
       while (matcher.find()) {
         Tree np1 = matcher.getNode("m1");
@@ -279,8 +279,8 @@ public class Rules {
   public static boolean entityHeadsAgree(CorefCluster mentionCluster, CorefCluster potentialAntecedent, Mention m, Mention ant, Dictionaries dict) {
     boolean headAgree = false;
     if(m.isPronominal() || ant.isPronominal()
-        || dict.allPronouns.contains(m.spanToString().toLowerCase())
-        || dict.allPronouns.contains(ant.spanToString().toLowerCase())) return false;
+        || dict.allPronouns.contains(m.lowercaseSpanString())
+        || dict.allPronouns.contains(ant.lowercaseSpanString())) return false;
     for(Mention a : potentialAntecedent.corefMentions){
       if(a.headString.equals(m.headString)) headAgree= true;
     }
@@ -294,7 +294,7 @@ public class Rules {
       if(m.isPronominal()) {
         continue;
       }
-      String mSpan = m.spanToString().toLowerCase();
+      String mSpan = m.lowercaseSpanString();
       if(dict.allPronouns.contains(mSpan)) {
         continue;
       }
@@ -302,7 +302,7 @@ public class Rules {
         if(ant.isPronominal()) {
           continue;
         }
-        String antSpan = ant.spanToString().toLowerCase();
+        String antSpan = ant.lowercaseSpanString();
         if(dict.allPronouns.contains(antSpan)) continue;
         if(mSpan.equals(antSpan)) matched = true;
         if(mSpan.equals(antSpan+" 's") || antSpan.equals(mSpan+" 's")) matched = true;
@@ -324,8 +324,8 @@ public class Rules {
       Set<Mention> roleSet){
     if(roleSet.contains(mention)) return false;
     if(mention.isPronominal() || ant.isPronominal()
-        || dict.allPronouns.contains(mention.spanToString().toLowerCase())
-        || dict.allPronouns.contains(ant.spanToString().toLowerCase())) return false;
+        || dict.allPronouns.contains(mention.lowercaseSpanString())
+        || dict.allPronouns.contains(ant.lowercaseSpanString())) return false;
     String mentionSpan = mention.removePhraseAfterHead();
     String antSpan = ant.removePhraseAfterHead();
     if(mentionSpan.equals("") || antSpan.equals("")) return false;
@@ -397,8 +397,8 @@ public class Rules {
 
     Set<String> locationM = Generics.newHashSet();
     Set<String> locationA = Generics.newHashSet();
-    String mString = m.spanToString().toLowerCase();
-    String aString = a.spanToString().toLowerCase();
+    String mString = m.lowercaseSpanString();
+    String aString = a.lowercaseSpanString();
     Set<String> locationModifier = Generics.newHashSet(Arrays.asList("east", "west", "north", "south",
         "eastern", "western", "northern", "southern", "northwestern", "southwestern", "northeastern",
         "southeastern", "upper", "lower"));
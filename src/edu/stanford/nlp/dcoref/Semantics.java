@@ -2,11 +2,16 @@ package edu.stanford.nlp.dcoref;
 
 import java.lang.reflect.Constructor;
 
-/** Semantic knowledge: currently WordNet is available */
+/** Semantic knowledge: currently WordNet is available.
+ *  The coref system only reads it, so it is shared by all the documents
+ *  that a SieveCoreferenceSystem resolves, including concurrent ones.
+ */
 public class Semantics {
-  public Object wordnet;
+  public final Object wordnet;
   
-  public Semantics() {}
+  public Semantics() {
+    wordnet = null;
+  }
 
   public Semantics(Dictionaries dict) throws Exception{
     Constructor<?> wordnetConstructor = (Class.forName("edu.stanford.nlp.dcoref.WordNet")).getConstructor();
@@ -82,6 +82,12 @@ import edu.stanford.nlp.util.logging.NewlineLogFormatter;
  * <p>
  * The main entry point for API is coref(Document document).
  * The output is a map from CorefChain ID to corresponding CorefChain.
+ * <p>
+ * Once built, a system only reads its sieves, Dictionaries and Semantics,
+ * so one instance can resolve several documents at the same time (as
+ * DeterministicCorefAnnotator does when a pipeline annotates documents
+ * on several threads), unless it is scoring its output, which accumulates
+ * statistics across documents, or its sieve ordering is being optimized.
  *
  * @author Jenny Finkel
  * @author Mihai Surdeanu
@@ -156,7 +162,7 @@ public class SieveCoreferenceSystem {
 
   public LogisticClassifier<String, String> singletonPredictor;
 
-  /** Current sieve index */
+  /** Current sieve index (only kept up to date when scoring) */
   public int currentSieve;
 
   /** counter for links in passes (Pair<correct links, total links>)  */
@@ -821,7 +827,9 @@ public class SieveCoreferenceSystem {
 
     // Multi-pass sieve coreference resolution
     for (int i = 0; i < sieves.length ; i++){
-      currentSieve = i;
+      if (doScore) {
+        currentSieve = i;
+      }
       DeterministicCorefSieve sieve = sieves[i];
       // Do coreference resolution using this pass
       coreference(document, sieve);
@@ -839,6 +847,27 @@ public class SieveCoreferenceSystem {
     return result;
   }
 
+  /**
+   * Sort mentions by length whenever we have two mentions beginning at the
+   * same position and having the same head.
+   */
+  private static void sortMentionsWithSameHead(List<Mention> l) {
+    for(int i = 0; i < l.size(); i++) {
+      Mention mi = l.get(i);
+      for(int j = i + 1; j < l.size(); j++) {
+        Mention mj = l.get(j);
+        if(mi.startIndex == mj.startIndex &&
+            mi.headString.equals(mj.headString) &&
+            mi.sameSentence(mj) &&
+            mi.spanToString().length() > mj.spanToString().length()) {
+          logger.finest("FLIPPED: "+mi.spanToString()+"("+i+"), "+mj.spanToString()+"("+j+")");
+          l.set(j, l.set(i, mj));
+          mi = mj;
+        }
+      }
+    }
+  }
+
   /**
    * Do coreference resolution using one sieve pass
    * @param document - an extracted document
@@ -858,8 +887,13 @@ public class SieveCoreferenceSystem {
     }
     logger.finest("-------------------------------------------------------");
 
-    additionalCorrectLinksCount = 0;
-    additionalLinksCount = 0;
+    // The antecedents in an earlier sentence are the same for every mention,
+    // so they are put in order once per sentence for this pass rather than
+    // once per mention (see DeterministicCorefSieve.getOrderedAntecedents)
+    List<List<Mention>> earlierSentenceAntecedents = new ArrayList<List<Mention>>();
+    for (int sentI = 0; sentI < orderedMentionsBySentence.size(); sentI++) {
+      earlierSentenceAntecedents.add(null);
+    }
 
     for (int sentI = 0; sentI < orderedMentionsBySentence.size(); sentI++) {
       List<Mention> orderedMentions = orderedMentionsBySentence.get(sentI);
@@ -875,19 +909,17 @@ public class SieveCoreferenceSystem {
 
         LOOP:
           for (int sentJ = sentI; sentJ >= 0; sentJ--) {
-            List<Mention> l = sieve.getOrderedAntecedents(sentJ, sentI, orderedMentions, orderedMentionsBySentence, m1, mentionI, corefClusters, dictionaries);
             if(maxSentDist != -1 && sentI - sentJ > maxSentDist) continue;
-
-            // Sort mentions by length whenever we have two mentions beginning at the same position and having the same head
-            for(int i = 0; i < l.size(); i++) {
-              for(int j = 0; j < l.size(); j++) {
-                if(l.get(i).headString.equals(l.get(j).headString) &&
-                    l.get(i).startIndex == l.get(j).startIndex &&
-                    l.get(i).sameSentence(l.get(j)) && j > i &&
-                    l.get(i).spanToString().length() > l.get(j).spanToString().length()) {
-                  logger.finest("FLIPPED: "+l.get(i).spanToString()+"("+i+"), "+l.get(j).spanToString()+"("+j+")");
-                  l.set(j, l.set(i, l.get(j)));
-                }
+            List<Mention> l;
+            if (sentJ == sentI) {
+              l = sieve.getOrderedAntecedents(sentJ, sentI, orderedMentions, orderedMentionsBySentence, m1, mentionI, corefClusters, dictionaries);
+              sortMentionsWithSameHead(l);
+            } else {
+              l = earlierSentenceAntecedents.get(sentJ);
+              if (l == null) {
+                l = sieve.getOrderedAntecedents(sentJ, sentI, orderedMentions, orderedMentionsBySentence, m1, mentionI, corefClusters, dictionaries);
+                sortMentionsWithSameHead(l);
+                earlierSentenceAntecedents.set(sentJ, l);
               }
             }
 
@@ -88,15 +88,15 @@ public abstract class DeterministicCorefSieve  {
     if(Constants.USE_DISCOURSE_SALIENCE)  {
       SieveCoreferenceSystem.logger.finest("DOING COREF FOR:\t" + m1.spanToString());
       if(m1.appositions == null && m1.predicateNominatives == null
-          && (m1.spanToString().toLowerCase().startsWith("a ") || m1.spanToString().toLowerCase().startsWith("an "))
+          && (m1.lowercaseSpanString().startsWith("a ") || m1.lowercaseSpanString().startsWith("an "))
           && !flags.USE_EXACTSTRINGMATCH)  {
         skip = true; // A noun phrase starting with an indefinite article - unlikely to have an antecedent (e.g. "A commission" was set up to .... )
       }
-      if(dict.indefinitePronouns.contains(m1.spanToString().toLowerCase()))  {
+      if(dict.indefinitePronouns.contains(m1.lowercaseSpanString()))  {
         skip = true; // An indefinite pronoun - unlikely to have an antecedent (e.g. "Some" say that... )
       }
       for(String indef : dict.indefinitePronouns){
-        if(m1.spanToString().toLowerCase().startsWith(indef + " ")) {
+        if(m1.lowercaseSpanString().startsWith(indef + " ")) {
           skip = true; // A noun phrase starting with an indefinite adjective - unlikely to have an antecedent (e.g. "Another opinion" on the topic is...)
           break;
         }
@@ -139,7 +139,7 @@ public abstract class DeterministicCorefSieve  {
     Mention mention = mentionCluster.getRepresentativeMention();
     if(flags.DO_PRONOUN && Math.abs(mention2.sentNum-ant.sentNum) > 3
         && mention2.person!=Person.I && mention2.person!=Person.YOU) return false;
-    if(mention2.spanToString().toLowerCase().equals("this") && Math.abs(mention2.sentNum-ant.sentNum) > 3) return false;
+    if(mention2.lowercaseSpanString().equals("this") && Math.abs(mention2.sentNum-ant.sentNum) > 3) return false;
     if(mention2.person==Person.YOU && document.docType==DocType.ARTICLE
         && mention2.headWord.get(CoreAnnotations.SpeakerAnnotation.class).equals("PER0")) return false;
     if(document.conllDoc != null) {
@@ -149,8 +149,8 @@ public abstract class DeterministicCorefSieve  {
     }
 
     if(flags.USE_DISCOURSEMATCH) {
-      String mString = mention.spanToString().toLowerCase();
-      String antString = ant.spanToString().toLowerCase();
+      String mString = mention.lowercaseSpanString();
+      String antString = ant.lowercaseSpanString();
       // (I - I) in the same speaker's quotation.
       if(dict.firstPersonPronouns.contains(mString) && mention.number==Number.SINGULAR
           && dict.firstPersonPronouns.contains(antString) && ant.number==Number.SINGULAR
@@ -368,7 +368,7 @@ public abstract class DeterministicCorefSieve  {
 
       if((m.isPronominal() || dict.allPronouns.contains(m.toString())) && Rules.entityAttributesAgree(mentionCluster, potentialAntecedent)){
 
-        if(dict.demonymSet.contains(ant.spanToString().toLowerCase()) && dict.notOrganizationPRP.contains(m.headString)){
+        if(dict.demonymSet.contains(ant.lowercaseSpanString()) && dict.notOrganizationPRP.contains(m.headString)){
           document.incompatibles.add(new Pair<Integer, Integer>(Math.min(m.mentionID, ant.mentionID), Math.max(m.mentionID, ant.mentionID)));
           return false;
         }
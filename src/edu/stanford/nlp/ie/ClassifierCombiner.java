@@ -8,12 +8,19 @@ import edu.stanford.nlp.sequences.DocumentReaderAndWriter;
 import edu.stanford.nlp.util.CoreMap;
 import edu.stanford.nlp.util.ErasureUtils;
 import edu.stanford.nlp.util.Generics;
+import edu.stanford.nlp.util.PropertiesUtils;
 import edu.stanford.nlp.util.StringUtils;
 
 import java.io.FileNotFoundException;
 import java.io.ObjectInputStream;
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
 /**
  * Merges the outputs of two or more AbstractSequenceClassifiers according to
@@ -31,6 +38,12 @@ import java.util.*;
  * properties. We also maintain the older usage when only two base classifiers were accepted,
  * specified using -loadClassifier and -loadAuxClassifier.
  * <p>
+ * With -concurrentModels true (or {@link #setConcurrent}), the base classifiers
+ * after the first are run on a shared pool of threads while the first one runs
+ * on the calling thread.  The result is the same as running them one after the
+ * other.  Base CRF classifiers with the same distsim lexicon or n-gram
+ * settings share these between them in either mode.
+ * <p>
  * ms 2009: removed all NER functionality (see NERClassifierCombiner), changed code so it accepts an arbitrary number of base classifiers, removed dead code.
  *
  * @author Chris Cox
@@ -41,6 +54,14 @@ public class ClassifierCombiner<IN extends CoreMap & HasWord> extends AbstractSe
   private static final boolean DEBUG = false;
   private List<AbstractSequenceClassifier<IN>> baseClassifiers;
 
+  public static final String CONCURRENT_MODELS_PROPERTY = "concurrentModels";
+  public static final boolean CONCURRENT_MODELS_DEFAULT = false;
+
+  private boolean concurrent = CONCURRENT_MODELS_DEFAULT;
+
+  // Threads the base classifiers are run on in concurrent mode, shared by all combiners
+  private static ExecutorService executor;
+
   private static final String DEFAULT_AUX_CLASSIFIER_PATH="/u/nlp/data/ner/goodClassifiers/english.muc.7class.distsim.crf.ser.gz";
   private static final String DEFAULT_CLASSIFIER_PATH="/u/nlp/data/ner/goodClassifiers/english.all.3class.distsim.crf.ser.gz";
 
@@ -51,6 +72,7 @@ public class ClassifierCombiner<IN extends CoreMap & HasWord> extends AbstractSe
    */
   public ClassifierCombiner(Properties p) throws FileNotFoundException {
     super(p);
+    concurrent = PropertiesUtils.getBool(p, CONCURRENT_MODELS_PROPERTY, CONCURRENT_MODELS_DEFAULT);
     String loadPath1, loadPath2;
     List<String> paths = new ArrayList<String>();
 
@@ -108,6 +130,7 @@ public class ClassifierCombiner<IN extends CoreMap & HasWord> extends AbstractSe
     super(new Properties());
     baseClassifiers = new ArrayList<AbstractSequenceClassifier<IN>>(Arrays.asList(classifiers));
     flags.backgroundSymbol = baseClassifiers.get(0).flags.backgroundSymbol;
+    shareFeatureCaches();
   }
 
 
@@ -123,6 +146,48 @@ public class ClassifierCombiner<IN extends CoreMap & HasWord> extends AbstractSe
     if (baseClassifiers.size() > 0) {
       flags.backgroundSymbol = baseClassifiers.get(0).flags.backgroundSymbol;
     }
+    shareFeatureCaches();
+  }
+
+  /**
+   * Lets the NER feature factories of the base classifiers use one copy of
+   * the caches they could build alike.
+   */
+  private void shareFeatureCaches() {
+    List<NERFeatureFactory<?>> factories = new ArrayList<NERFeatureFactory<?>>();
+    for (AbstractSequenceClassifier<IN> cls : baseClassifiers) {
+      if (cls.featureFactory instanceof NERFeatureFactory) {
+        NERFeatureFactory<?> factory = (NERFeatureFactory<?>) cls.featureFactory;
+        for (NERFeatureFactory<?> other : factories) {
+          factory.shareCachesWith(other);
+        }
+        factories.add(factory);
+      }
+    }
+  }
+
+  /**
+   * Whether the base classifiers are run concurrently in {@link #classify}.
+   */
+  public boolean isConcurrent() {
+    return concurrent;
+  }
+
+  public void setConcurrent(boolean concurrent) {
+    this.concurrent = concurrent;
+  }
+
+  private static synchronized ExecutorService getExecutor() {
+    if (executor == null) {
+      executor = Executors.newCachedThreadPool(new ThreadFactory() {
+        public Thread newThread(Runnable r) {
+          Thread t = new Thread(r, "ClassifierCombiner");
+          t.setDaemon(true);
+          return t;
+        }
+      });
+    }
+    return executor;
   }
 
 
@@ -293,15 +358,40 @@ public class ClassifierCombiner<IN extends CoreMap & HasWord> extends AbstractSe
     }
     List<List<IN>> baseOutputs = new ArrayList<List<IN>>();
 
+    // the other base models read the tokens while the first one runs, each
+    // on the copy classifySentence makes of them
+    List<Future<List<IN>>> futures = null;
+    if (concurrent && baseClassifiers.size() > 1) {
+      futures = new ArrayList<Future<List<IN>>>();
+      for (int i = 1, sz = baseClassifiers.size(); i < sz; i ++) {
+        final AbstractSequenceClassifier<IN> cls = baseClassifiers.get(i);
+        final List<IN> input = tokens;
+        futures.add(getExecutor().submit(new Callable<List<IN>>() {
+          public List<IN> call() {
+            return cls.classifySentence(input);
+          }
+        }));
+      }
+    }
+
     // the first base model works in place, modifying the original tokens
     List<IN> output = baseClassifiers.get(0).classifySentence(tokens);
+    List<List<IN>> auxOutputs = new ArrayList<List<IN>>();
+    if (futures != null) {
+      // the tokens may only be changed once the other models are done copying them
+      for (Future<List<IN>> future : futures) {
+        auxOutputs.add(getOutput(future));
+      }
+    }
     // classify(List<IN>) is supposed to work in place, so add AnswerAnnotation to tokens!
     for (int i = 0, sz = output.size(); i < sz; i++) {
       tokens.get(i).set(CoreAnnotations.AnswerAnnotation.class, output.get(i).get(CoreAnnotations.AnswerAnnotation.class));
     }
     baseOutputs.add(tokens);
 
-    for (int i = 1, sz = baseClassifiers.size(); i < sz; i ++) {
+    if (futures != null) {
+      baseOutputs.addAll(auxOutputs);
+    } else for (int i = 1, sz = baseClassifiers.size(); i < sz; i ++) {
       //List<CoreLabel> copy = deepCopy(tokens);
       // no need for deep copy: classifySentence creates a copy of the input anyway
       // List<CoreLabel> copy = tokens;
@@ -314,6 +404,23 @@ public class ClassifierCombiner<IN extends CoreMap & HasWord> extends AbstractSe
     return finalAnswer;
   }
 
+  private static <T> T getOutput(Future<T> future) {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException(e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      } else if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new RuntimeException(cause);
+    }
+  }
+
 
   @SuppressWarnings("unchecked")
   @Override
@@ -22,6 +22,7 @@ public class NERClassifierCombiner extends ClassifierCombiner<CoreLabel> {
   private final boolean applyNumericClassifiers;
   public static final boolean APPLY_NUMERIC_CLASSIFIERS_DEFAULT = true;
   public static final String APPLY_NUMERIC_CLASSIFIERS_PROPERTY = "ner.applyNumericClassifiers";
+  public static final String NER_CONCURRENT_MODELS_PROPERTY = "ner." + CONCURRENT_MODELS_PROPERTY;
 
   private final boolean useSUTime;
 
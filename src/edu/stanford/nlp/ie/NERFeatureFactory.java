@@ -38,6 +38,7 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -389,7 +390,32 @@ public class NERFeatureFactory<IN extends CoreLabel> extends FeatureFactory<IN>
   @Override
   public Collection<String> getCliqueFeatures(PaddedList<IN> cInfo, int loc, Clique clique) {
     Collection<String> features = Generics.newHashSet();
+    getCliqueFeatures(cInfo, loc, clique, new StringFeatureCollector(features), false);
+    // System.err.println(StringUtils.join(features,"\n")+"\n");
+    return features;
+  }
+
+  /**
+   * Extracts all the features from the input data at a certain index,
+   * passing them to the collector as base features plus a suffix.
+   *
+   * @param cInfo The complete data set as a List of WordInfo
+   * @param loc  The index at which to extract features.
+   * @param collector Receives the features
+   */
+  @Override
+  public void getCliqueFeatures(PaddedList<IN> cInfo, int loc, Clique clique, FeatureCollector collector) {
+    getCliqueFeatures(cInfo, loc, clique, collector, true);
+  }
 
+  /**
+   * Unless they are cached or conjoined with the shape, the character
+   * n-grams of the word are passed straight to the collector if
+   * directNGrams is true, without making a String for each of them
+   * (which is only worth doing if the collector doesn't want Strings).
+   */
+  private void getCliqueFeatures(PaddedList<IN> cInfo, int loc, Clique clique, FeatureCollector collector,
+                                 boolean directNGrams) {
     boolean doFE = cInfo.get(0).containsKey(CoreAnnotations.DomainAnnotation.class);
     String domain = (doFE ? cInfo.get(0).get(CoreAnnotations.DomainAnnotation.class) : null);
 
@@ -397,75 +423,76 @@ public class NERFeatureFactory<IN extends CoreLabel> extends FeatureFactory<IN>
 
     if (clique == cliqueC) {
       //200710: tried making this clique null; didn't improve performance (rafferty)
-      Collection<String> c = featuresC(cInfo, loc);
-      addAllInterningAndSuffixing(features, c, "C");
+      NGramCollector ngrams = null;
+      if (directNGrams && flags.useNGrams && ! flags.cacheNGrams && ! flags.conjoinShapeNGrams) {
+        ngrams = new NGramCollector(collector, doFE ? new String[] { "C", domain + "-C" } : new String[] { "C" });
+      }
+      Collection<String> c = featuresC(cInfo, loc, ngrams);
+      collector.addAll(c, "C");
       if (doFE) {
-        addAllInterningAndSuffixing(features, c, domain+"-C");
+        collector.addAll(c, domain+"-C");
       }
     } else if (clique == cliqueCpC) {
       Collection<String> c = featuresCpC(cInfo, loc);
-      addAllInterningAndSuffixing(features, c, "CpC");
+      collector.addAll(c, "CpC");
       if (doFE) {
-        addAllInterningAndSuffixing(features, c, domain+"-CpC");
+        collector.addAll(c, domain+"-CpC");
       }
 
       c = featuresCnC(cInfo, loc-1);
-      addAllInterningAndSuffixing(features, c, "CnC");
+      collector.addAll(c, "CnC");
       if (doFE) {
-        addAllInterningAndSuffixing(features, c, domain+"-CnC");
+        collector.addAll(c, domain+"-CnC");
       }
     } else if (clique == cliqueCp2C) {
       Collection<String> c = featuresCp2C(cInfo, loc);
-      addAllInterningAndSuffixing(features, c, "Cp2C");
+      collector.addAll(c, "Cp2C");
       if (doFE) {
-        addAllInterningAndSuffixing(features, c, domain+"-Cp2C");
+        collector.addAll(c, domain+"-Cp2C");
       }
     } else if (clique == cliqueCp3C) {
       Collection<String> c = featuresCp3C(cInfo, loc);
-      addAllInterningAndSuffixing(features, c, "Cp3C");
+      collector.addAll(c, "Cp3C");
       if (doFE) {
-        addAllInterningAndSuffixing(features, c, domain+"-Cp3C");
+        collector.addAll(c, domain+"-Cp3C");
       }
     } else if (clique == cliqueCp4C) {
       Collection<String> c = featuresCp4C(cInfo, loc);
-      addAllInterningAndSuffixing(features, c, "Cp4C");
+      collector.addAll(c, "Cp4C");
       if (doFE) {
-        addAllInterningAndSuffixing(features, c, domain+"-Cp4C");
+        collector.addAll(c, domain+"-Cp4C");
       }
     } else if (clique == cliqueCp5C) {
       Collection<String> c = featuresCp5C(cInfo, loc);
-      addAllInterningAndSuffixing(features, c, "Cp5C");
+      collector.addAll(c, "Cp5C");
       if (doFE) {
-        addAllInterningAndSuffixing(features, c, domain+"-Cp5C");
+        collector.addAll(c, domain+"-Cp5C");
       }
     } else if (clique == cliqueCpCp2C) {
       Collection<String> c = featuresCpCp2C(cInfo, loc);
-      addAllInterningAndSuffixing(features, c, "CpCp2C");
+      collector.addAll(c, "CpCp2C");
       if (doFE) {
-        addAllInterningAndSuffixing(features, c, domain+"-CpCp2C");
+        collector.addAll(c, domain+"-CpCp2C");
       }
 
       c = featuresCpCnC(cInfo, loc-1);
-      addAllInterningAndSuffixing(features, c, "CpCnC");
+      collector.addAll(c, "CpCnC");
       if (doFE) {
-        addAllInterningAndSuffixing(features, c, domain+"-CpCnC");
+        collector.addAll(c, domain+"-CpCnC");
       }
     } else if (clique == cliqueCpCp2Cp3C) {
       Collection<String> c = featuresCpCp2Cp3C(cInfo, loc);
-      addAllInterningAndSuffixing(features, c, "CpCp2Cp3C");
+      collector.addAll(c, "CpCp2Cp3C");
       if (doFE) {
-        addAllInterningAndSuffixing(features, c, domain+"-CpCp2Cp3C");
+        collector.addAll(c, domain+"-CpCp2Cp3C");
       }
     } else if (clique == cliqueCpCp2Cp3Cp4C) {
       Collection<String> c = featuresCpCp2Cp3Cp4C(cInfo, loc);
-      addAllInterningAndSuffixing(features, c, "CpCp2Cp3Cp4C");
+      collector.addAll(c, "CpCp2Cp3Cp4C");
       if (doFE) {
-        addAllInterningAndSuffixing(features, c, domain+"-CpCp2Cp3Cp4C");
+        collector.addAll(c, domain+"-CpCp2Cp3Cp4C");
       }
     }
-
-    // System.err.println(StringUtils.join(features,"\n")+"\n");
-    return features;
   }
 
 
@@ -541,6 +568,52 @@ public class NERFeatureFactory<IN extends CoreLabel> extends FeatureFactory<IN>
     lexicon = null;
   }
 
+  /**
+   * Makes this feature factory use the same distsim lexicon and the same
+   * cache of character n-grams as <code>other</code>, for whichever of the
+   * two the flags of both factories build in the same way.  This is for
+   * models that are run side by side (see {@link ClassifierCombiner}), so
+   * that they keep one copy of each between them.  The lexicon saved with
+   * a model is only given up for one with exactly the same entries, since
+   * the file the flags name may have changed since either was trained.  A
+   * shared n-gram cache may then be filled by several threads at once, so
+   * it is made safe for that.
+   *
+   * @param other A feature factory whose caches this one should use
+   */
+  public void shareCachesWith(NERFeatureFactory<?> other) {
+    if (other == this) {
+      return;
+    }
+    SeqClassifierFlags o = other.flags;
+    if (flags.useDistSim && o.useDistSim && other.lexicon != null &&
+        flags.distSimLexicon != null && flags.distSimLexicon.equals(o.distSimLexicon) &&
+        eq(flags.distSimFileFormat, o.distSimFileFormat) && eq(flags.inputEncoding, o.inputEncoding) &&
+        flags.distSimMaxBits == o.distSimMaxBits && flags.casedDistSim == o.casedDistSim &&
+        flags.numberEquivalenceDistSim == o.numberEquivalenceDistSim &&
+        (lexicon == null || lexicon.equals(other.lexicon))) {
+      lexicon = other.lexicon;
+    }
+    // the n-grams of a word are made differently for internal and external features
+    if (flags.useNGrams && o.useNGrams && flags.cacheNGrams && o.cacheNGrams &&
+        flags.useInternal == o.useInternal && flags.useExternal == o.useExternal &&
+        flags.lowercaseNGrams == o.lowercaseNGrams && flags.dehyphenateNGrams == o.dehyphenateNGrams &&
+        flags.greekifyNGrams == o.greekifyNGrams && flags.noMidNGrams == o.noMidNGrams &&
+        flags.maxNGramLeng == o.maxNGramLeng) {
+      if ( ! (other.wordToSubstrings instanceof ConcurrentMap)) {
+        Map<String,Collection<String>> shared = Generics.newConcurrentHashMap();
+        shared.putAll(other.wordToSubstrings);
+        other.wordToSubstrings = shared;
+      }
+      other.wordToSubstrings.putAll(wordToSubstrings);
+      wordToSubstrings = other.wordToSubstrings;
+    }
+  }
+
+  private static boolean eq(String x, String y) {
+    return (x == null) ? y == null : x.equals(y);
+  }
+
   private static String dehyphenate(String str) {
     // don't take out leading or ending ones, just internal
     // and remember padded with < > characters
@@ -757,7 +830,51 @@ public class NERFeatureFactory<IN extends CoreLabel> extends FeatureFactory<IN>
   private final Pattern titlePattern = Pattern.compile("(Mr|Ms|Mrs|Dr|Miss|Sen|Judge|Sir)\\.?"); // todo: should make static final and add more titles
 
 
+  /**
+   * Passes the character n-grams of a word to a FeatureCollector, with
+   * each of a set of suffixes, using one buffer rather than making a
+   * String for each n-gram.
+   */
+  private static class NGramCollector {
+    private final FeatureCollector collector;
+    private final String[] suffixes;
+    private final StringBuilder buffer = new StringBuilder();
+
+    NGramCollector(FeatureCollector collector, String[] suffixes) {
+      this.collector = collector;
+      this.suffixes = suffixes;
+    }
+
+    void add(String word, int begin, int end) {
+      buffer.setLength(0);
+      buffer.append('#').append(word, begin, end).append('#');
+      for (String suffix : suffixes) {
+        collector.add(buffer, suffix);
+      }
+    }
+  }
+
+  /**
+   * Adds the n-gram feature for the characters of word from begin to end
+   * to subs or, if there is one, passes it to the n-gram collector.
+   */
+  private void addNGram(Collection<String> subs, NGramCollector ngrams, String word, int begin, int end) {
+    if (ngrams != null) {
+      ngrams.add(word, begin, end);
+    } else {
+      subs.add(intern('#' + word.substring(begin, end) + '#'));
+    }
+  }
+
   protected Collection<String> featuresC(PaddedList<IN> cInfo, int loc) {
+    return featuresC(cInfo, loc, null);
+  }
+
+  /**
+   * The features of the C clique.  If ngrams is not null, the character
+   * n-gram features are passed to it rather than returned.
+   */
+  private Collection<String> featuresC(PaddedList<IN> cInfo, int loc, NGramCollector ngrams) {
     CoreLabel p3 = cInfo.get(loc - 3);
     CoreLabel p2 = cInfo.get(loc - 2);
     CoreLabel p = cInfo.get(loc - 1);
@@ -1228,13 +1345,13 @@ public class NERFeatureFactory<IN extends CoreLabel> extends FeatureFactory<IN>
             int max = flags.maxNGramLeng >= 0 ? Math.min(flags.maxNGramLeng, word.length()) :
                                                 word.length();
             for (int j = 2; j <= max; j++) {
-              subs.add(intern('#' + word.substring(0, j) + '#'));
+              addNGram(subs, ngrams, word, 0, j);
             }
             int start = flags.maxNGramLeng >= 0 ? Math.max(0, word.length() - flags.maxNGramLeng) :
                                                 0;
             int lenM1 = word.length() - 1;
             for (int i = start; i < lenM1; i++) {
-              subs.add(intern('#' + word.substring(i) + '#'));
+              addNGram(subs, ngrams, word, i, word.length());
             }
           } else {
             for (int i = 0; i < word.length(); i++) {
@@ -1242,7 +1359,7 @@ public class NERFeatureFactory<IN extends CoreLabel> extends FeatureFactory<IN>
                 if (flags.maxNGramLeng >= 0 && j - i > flags.maxNGramLeng) {
                   continue;
                 }
-                subs.add(intern('#' + word.substring(i, j) + '#'));
+                addNGram(subs, ngrams, word, i, j);
               }
             }
           }
@@ -1398,7 +1515,7 @@ public class NERFeatureFactory<IN extends CoreLabel> extends FeatureFactory<IN>
                 continue;
               }
               //subs.add(intern("#" + word.substring(i, j) + "#"));
-              subs.add(intern('#' + word.substring(i, j) + '#'));
+              addNGram(subs, ngrams, word, i, j);
             }
           }
           if (flags.cacheNGrams) {
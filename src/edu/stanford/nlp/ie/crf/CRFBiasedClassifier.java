@@ -49,6 +49,11 @@ public class CRFBiasedClassifier<IN extends CoreMap> extends CRFClassifier<IN> {
     super(props);
   }
 
+  @Override
+  protected boolean supportsFeatureIds() {
+    return false;
+  }
+
   @Override
   public CRFDatum<List<String>, CRFLabel> makeDatum(List<IN> info, int loc, FeatureFactory<IN> featureFactory) {
 
@@ -98,6 +98,15 @@ import java.util.zip.GZIPOutputStream;
  * To test on multiple files, use the -testFiles option and a comma
  * separated list.
  * </p>
+ * <p>
+ * To convert a serialized classifier to the memory-mapped format of
+ * {@link CRFModelFile}, which loads much faster and can be shared between
+ * processes: <br>
+ * <code>java edu.stanford.nlp.ie.crf.CRFClassifier -loadClassifier
+ * model.ser.gz -serializeToCompact model.crfw [-compactInt8Weights true]</code>
+ * <br>
+ * The resulting file can be given to -loadClassifier like any other.
+ * </p>
  * Features are defined by a {@link edu.stanford.nlp.sequences.FeatureFactory}.
  * {@link NERFeatureFactory} is used by default, and you should look
  * there for feature templates and properties or flags that will cause
@@ -151,6 +160,8 @@ public class CRFClassifier<IN extends CoreMap> extends AbstractSequenceClassifie
   Index<Integer> nodeFeatureIndicesMap;
   Index<Integer> edgeFeatureIndicesMap;
   Map<String, double[]> embeddings = null;
+  /** Looks up features by index at test time; built on first use */
+  private volatile FeatureIdTable featureIdTable = null;
 
   /**
    * Name of default serialized classifier resource to look for in a jar file.
@@ -448,6 +459,9 @@ public class CRFClassifier<IN extends CoreMap> extends AbstractSequenceClassifie
    */
   public Triple<int[][][], int[], double[][][]> documentToDataAndLabels(List<IN> document,
                                                         boolean trainTime) {
+    if ( ! trainTime && flags.inferenceFeatureIds && supportsFeatureIds()) {
+      return documentToDataAndLabelsByFeatureIds(document);
+    }
     boolean droppedFeature = false; // todo: remove me
     int docSize = document.size();
     // first index is position in the document also the index of the
@@ -531,6 +545,83 @@ public class CRFClassifier<IN extends CoreMap> extends AbstractSequenceClassifie
     return new Triple<int[][][], int[], double[][][]>(data, labels, featureVals);
   }
 
+  /**
+   * Whether documentToDataAndLabelsByFeatureIds gives the same features
+   * as makeDatum.  Subclasses which change makeDatum should return false.
+   * Not used for mapped models, since building the table would decode
+   * every feature of the model onto the heap.
+   */
+  protected boolean supportsFeatureIds() {
+    return ! flags.useEmbedding && flags.printFeatures == null &&
+        ! (featureIndex instanceof CRFModelFile.FeatureIndex);
+  }
+
+  private FeatureIdTable getFeatureIdTable() {
+    FeatureIdTable table = featureIdTable;
+    if (table == null || ! table.isFor(featureIndex)) {
+      table = new FeatureIdTable(featureIndex);
+      featureIdTable = table;
+    }
+    return table;
+  }
+
+  /**
+   * The test time version of documentToDataAndLabels used when
+   * flags.inferenceFeatureIds is set.  Instead of building a CRFDatum of
+   * feature Strings for each position and then looking each String up in
+   * the featureIndex, the feature factory passes base features and
+   * suffixes straight to a {@link FeatureIdTable}, which writes the
+   * indices of the features the model knows into a reusable buffer.  No
+   * String is built for the (mostly unknown) complete features.
+   * <br>
+   * The features found are the same as with makeDatum, but within each
+   * clique they are in increasing index order.
+   */
+  private Triple<int[][][], int[], double[][][]> documentToDataAndLabelsByFeatureIds(List<IN> document) {
+    int docSize = document.size();
+    int[][][] data = new int[docSize][windowSize][];
+    double[][][] featureVals = new double[docSize][windowSize][];
+    int[] labels = new int[docSize];
+
+    // the same cliques as makeDatum uses for each window position
+    List<List<Clique>> cliquesByWindow = new ArrayList<List<Clique>>(windowSize);
+    Collection<Clique> done = Generics.newHashSet();
+    for (int i = 0; i < windowSize; i++) {
+      List<Clique> windowCliques = FeatureFactory.getCliques(i, 0);
+      windowCliques.removeAll(done);
+      done.addAll(windowCliques);
+      cliquesByWindow.add(windowCliques);
+    }
+
+    if (flags.useReverse) {
+      Collections.reverse(document);
+    }
+
+    FeatureIdTable.Collector collector = getFeatureIdTable().new Collector();
+    PaddedList<IN> pInfo = new PaddedList<IN>(document, pad);
+    for (int j = 0; j < docSize; j++) {
+      for (int k = 0; k < windowSize; k++) {
+        collector.clear();
+        for (Clique c : cliquesByWindow.get(k)) {
+          featureFactory.getCliqueFeatures(pInfo, j, c, collector);
+        }
+        data[j][k] = collector.toArray();
+      }
+      IN wi = document.get(j);
+      labels[j] = classIndex.indexOf(wi.get(CoreAnnotations.AnswerAnnotation.class));
+    }
+
+    if (flags.useReverse) {
+      Collections.reverse(document);
+    }
+
+    if (flags.nonLinearCRF) {
+      data = transformDocData(data);
+    }
+
+    return new Triple<int[][][], int[], double[][][]>(data, labels, featureVals);
+  }
+
   private int[][][] transformDocData(int[][][] docData) {
     int[][][] transData = new int[docData.length][][];
     for (int i = 0; i < docData.length; i++) {
@@ -1053,7 +1144,7 @@ public class CRFClassifier<IN extends CoreMap> extends AbstractSequenceClassifie
     return d;
   }
 
-  public static class TestSequenceModel implements SequenceModel {
+  public static class TestSequenceModel implements WindowScoringSequenceModel {
 
     private final int window;
     private final int numClasses;
@@ -1129,6 +1220,34 @@ public class CRFClassifier<IN extends CoreMap> extends AbstractSequenceClassifie
       return scores;
     }
 
+    /**
+     * Fills in the scores straight from the clique tree's factor table at
+     * this position, normalizing once per assignment of previous labels
+     * rather than once per label.
+     */
+    @Override
+    public void scoresOfWindows(int pos, int[][] possibleValues, double[] windowScores, int offset) {
+      FactorTable table = cliqueTree.factorTables[pos - window + 1];
+      int numPrevious = 1;
+      for (int curPos = pos - window + 1; curPos < pos; curPos++) {
+        numPrevious *= possibleValues[curPos].length;
+      }
+      // the current position takes every class in order, so the scores for
+      // the i-th assignment of previous labels go in one run of numClasses
+      for (int i = 0; i < numPrevious; i++) {
+        int p = i;
+        int frontIndex = 0;
+        int multiplier = 1;
+        for (int curPos = pos - 1; curPos > pos - window; curPos--) {
+          int[] values = possibleValues[curPos];
+          frontIndex += values[p % values.length] * multiplier;
+          p /= values.length;
+          multiplier *= numClasses;
+        }
+        table.conditionalLogProbsGivenPrevious(frontIndex, windowScores, offset + i * numClasses);
+      }
+    }
+
     @Override
     public double scoreOf(int[] sequence) {
       throw new UnsupportedOperationException();
@@ -3239,6 +3358,93 @@ public class CRFClassifier<IN extends CoreMap> extends AbstractSequenceClassifie
     }
   }
 
+  /**
+   * Writes this classifier in the compact, memory-mappable format of
+   * {@link CRFModelFile}.  Only linear CRFs without embeddings can be
+   * written this way.
+   *
+   * @param serializePath File to write the classifier to
+   * @param int8Weights Whether to quantize the weights to 8 bits
+   */
+  public void serializeCompactClassifier(String serializePath, boolean int8Weights) throws IOException {
+    if (flags.nonLinearCRF || flags.useEmbedding) {
+      throw new UnsupportedOperationException("Only linear CRFs without embeddings can be written in the compact format");
+    }
+    if (weights == null) {
+      throw new IllegalStateException("This classifier has no weights to write");
+    }
+    System.err.print("Serializing compact classifier to " + serializePath + "...");
+    ByteArrayOutputStream metadata = new ByteArrayOutputStream();
+    ObjectOutputStream oos = new ObjectOutputStream(metadata);
+    oos.writeObject(labelIndices);
+    oos.writeObject(classIndex);
+    oos.writeObject(flags);
+    oos.writeObject(featureFactory);
+    oos.writeInt(windowSize);
+    oos.writeObject(knownLCWords);
+    oos.close();
+    CRFModelFile.write(serializePath, metadata.toByteArray(), featureIndex, weights, int8Weights);
+    System.err.println("done.");
+  }
+
+  /**
+   * Sets up this classifier from a model in the compact format.  The
+   * weights stay in the model's buffer rather than in
+   * <code>weights</code>, so the result can only be used to classify.
+   */
+  @SuppressWarnings("unchecked")
+  private void loadCompactClassifier(CRFModelFile model, Properties props) throws IOException, ClassNotFoundException {
+    ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(model.metadata));
+    labelIndices = (List<Index<CRFLabel>>) ois.readObject();
+    classIndex = (Index<String>) ois.readObject();
+    flags = (SeqClassifierFlags) ois.readObject();
+    featureFactory = (edu.stanford.nlp.sequences.FeatureFactory) ois.readObject();
+
+    if (props != null) {
+      flags.setProperties(props, false);
+    }
+    reinit();
+
+    windowSize = ois.readInt();
+    knownLCWords = (Set<String>) ois.readObject();
+
+    featureIndex = model.featureIndex;
+    weights = null;
+    cliquePotentialFunction = model.weights;
+  }
+
+  /**
+   * Loads a classifier from the specified file.  Models in the compact
+   * format of {@link CRFModelFile} are memory mapped; other files are read
+   * as serialized classifiers.
+   */
+  @Override
+  public void loadClassifier(File file, Properties props) throws ClassCastException, IOException,
+      ClassNotFoundException {
+    if (CRFModelFile.isModelFile(file)) {
+      Timing.startDoing("Mapping compact classifier from " + file.getAbsolutePath());
+      loadCompactClassifier(CRFModelFile.map(file), props);
+      Timing.endDoing();
+    } else {
+      super.loadClassifier(file, props);
+    }
+  }
+
+  /**
+   * Loads a classifier from the specified InputStream, which may hold
+   * either a serialized classifier or (if the stream supports mark) a
+   * model in the compact format, which is then read onto the heap.
+   */
+  @Override
+  public void loadClassifier(InputStream in, Properties props) throws IOException, ClassCastException,
+      ClassNotFoundException {
+    if (in.markSupported() && CRFModelFile.isModelStream(in)) {
+      loadCompactClassifier(CRFModelFile.read(in), props);
+    } else {
+      super.loadClassifier(in, props);
+    }
+  }
+
   /**
    * This is used to load the default supplied classifier stored within the jar
    * file. THIS FUNCTION WILL ONLY WORK IF THE CODE WAS LOADED FROM A JAR FILE
@@ -3446,6 +3652,10 @@ public class CRFClassifier<IN extends CoreMap> extends AbstractSequenceClassifie
       crf.serializeTextClassifier(serializeToText);
     }
 
+    if (crf.flags.serializeToCompact != null) {
+      crf.serializeCompactClassifier(crf.flags.serializeToCompact, crf.flags.compactInt8Weights);
+    }
+
     if (testFile != null) {
       DocumentReaderAndWriter<CoreLabel> readerAndWriter = crf.defaultReaderAndWriter();
       if (crf.flags.searchGraphPrefix != null) {
@@ -512,25 +512,14 @@ public class CRFCliqueTree<E> implements SequenceModel, SequenceListener {
       int numClasses, Index<E> classIndex, E backgroundSymbol, CliquePotentialFunction cliquePotentialFunc, double[][][] featureVals) {
 
     FactorTable[] factorTables = new FactorTable[data.length];
-    FactorTable[] messages = new FactorTable[data.length - 1];
 
     for (int i = 0; i < data.length; i++) {
       double[][] featureValByCliqueSize = null;
       if (featureVals != null)
         featureValByCliqueSize = featureVals[i];
       factorTables[i] = getFactorTable(data[i], labelIndices, numClasses, cliquePotentialFunc, featureValByCliqueSize);
-
-      if (i > 0) {
-        messages[i - 1] = factorTables[i - 1].sumOutFront();
-        factorTables[i].multiplyInFront(messages[i - 1]);
-      }
-    }
-
-    for (int i = factorTables.length - 2; i >= 0; i--) {
-      FactorTable summedOut = factorTables[i + 1].sumOutEnd();
-      summedOut.divideBy(messages[i]);
-      factorTables[i].multiplyInEnd(summedOut);
     }
+    calibrate(factorTables, numClasses);
 
     return new CRFCliqueTree<E>(factorTables, classIndex, backgroundSymbol);
   }
@@ -542,26 +531,43 @@ public class CRFCliqueTree<E> implements SequenceModel, SequenceListener {
       int[][][] data, List<Index<CRFLabel>> labelIndices, int numClasses, Index<E> classIndex, E backgroundSymbol) {
 
     FactorTable[] factorTables = new FactorTable[data.length];
-    FactorTable[] messages = new FactorTable[data.length - 1];
 
     for (int i = 0; i < data.length; i++) {
-
       factorTables[i] = getFactorTable(weights, wscale, weightIndices, data[i], labelIndices, numClasses);
-
-      if (i > 0) {
-        messages[i - 1] = factorTables[i - 1].sumOutFront();
-        factorTables[i].multiplyInFront(messages[i - 1]);
-      }
     }
+    calibrate(factorTables, numClasses);
 
-    for (int i = factorTables.length - 2; i >= 0; i--) {
+    return new CRFCliqueTree<E>(factorTables, classIndex, backgroundSymbol);
+  }
 
-      FactorTable summedOut = factorTables[i + 1].sumOutEnd();
-      summedOut.divideBy(messages[i]);
-      factorTables[i].multiplyInEnd(summedOut);
+  /**
+   * Calibrates the chain of factor tables in place by forward-backward
+   * message passing.  The messages are kept in one flat array rather than
+   * as a FactorTable each; the arithmetic is the same as with
+   * sumOutFront, multiplyInFront, sumOutEnd, divideBy and multiplyInEnd.
+   */
+  private static void calibrate(FactorTable[] factorTables, int numClasses) {
+    int n = factorTables.length;
+    int messageSize = factorTables[0].size() / numClasses;
+    double[] messages = new double[(n - 1) * messageSize];
+
+    for (int i = 1; i < n; i++) {
+      int offset = (i - 1) * messageSize;
+      factorTables[i - 1].sumOutFront(messages, offset);
+      factorTables[i].multiplyInFront(messages, offset, messageSize);
     }
 
-    return new CRFCliqueTree<E>(factorTables, classIndex, backgroundSymbol);
+    double[] summedOut = new double[messageSize];
+    for (int i = n - 2; i >= 0; i--) {
+      factorTables[i + 1].sumOutEnd(summedOut, 0);
+      int offset = i * messageSize;
+      for (int j = 0; j < messageSize; j++) {
+        if (summedOut[j] != Double.NEGATIVE_INFINITY || messages[offset + j] != Double.NEGATIVE_INFINITY) {
+          summedOut[j] -= messages[offset + j];
+        }
+      }
+      factorTables[i].multiplyInEnd(summedOut, 0, messageSize);
+    }
   }
 
   private static FactorTable getFactorTable(double[] weights, double wscale, int[][] weightIndices, int[][] data,
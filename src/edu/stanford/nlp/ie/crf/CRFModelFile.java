@@ -0,0 +1,545 @@
+package edu.stanford.nlp.ie.crf;
+
+import edu.stanford.nlp.util.HashIndex;
+import edu.stanford.nlp.util.Index;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.util.*;
+
+/**
+ * A compact, memory-mappable on-disk format for the linear CRF models of
+ * {@link CRFClassifier}.  A serialized classifier keeps its features in a
+ * HashIndex and its weights in a double[][], which takes a lot of heap and
+ * a long time to deserialize for large NER models.  In this format the
+ * feature dictionary and the weights are flat arrays in the file, which
+ * is mapped read-only rather than read, so loading takes about as long as
+ * reading the small metadata block, and several JVMs on one host using the
+ * same model file share its pages.
+ * <br>
+ * A file is laid out as (all values big-endian):
+ * <ul>
+ * <li> a header of eight ints: magic number, version, weight type, number
+ *      of features, hash table capacity, metadata length, length of the
+ *      feature strings and an unused int
+ * <li> the metadata: the label indices, class index, flags, feature
+ *      factory, window size and known lowercase words, written with Java
+ *      serialization exactly as {@link CRFClassifier#serializeClassifier}
+ *      writes them
+ * <li> an open addressing hash table from the String hash code of a
+ *      feature to 1 + its index (0 marks an empty slot), then the hash code
+ *      of each feature and the offset of each feature in the strings
+ * <li> the features as UTF-8 bytes
+ * <li> the offset of each feature's row of weights, and for int8 weights a
+ *      float scale per feature, followed by the weights themselves as
+ *      floats or as int8 multiples of the scale
+ * </ul>
+ * Every section starts on a multiple of 4 bytes.  Since all offsets are
+ * ints and a single mapping can be at most 2GB, so can a model file.
+ * <br>
+ * Models are converted with CRFClassifier, e.g.
+ * <code>java edu.stanford.nlp.ie.crf.CRFClassifier -loadClassifier
+ * model.ser.gz -serializeToCompact model.crfw [-compactInt8Weights true]</code>,
+ * and a file in this format can then be given anywhere a serialized CRF
+ * classifier is loaded.  A classifier loaded this way can classify but not
+ * be trained, combined or have its weights changed.  Non-linear CRFs and
+ * models using embeddings are not supported.
+ */
+public class CRFModelFile {
+
+  static final int MAGIC = 0x43524657; // "CRFW"
+  static final int VERSION = 1;
+
+  static final int FLOAT_WEIGHTS = 0;
+  static final int INT8_WEIGHTS = 1;
+
+  private static final int HEADER_BYTES = 32;
+
+  /** The metadata block, to be deserialized by CRFClassifier */
+  final byte[] metadata;
+  final FeatureIndex featureIndex;
+  final CliquePotentialFunction weights;
+
+  private CRFModelFile(byte[] metadata, FeatureIndex featureIndex, CliquePotentialFunction weights) {
+    this.metadata = metadata;
+    this.featureIndex = featureIndex;
+    this.weights = weights;
+  }
+
+  private static int spread(int h) {
+    return h ^ (h >>> 16);
+  }
+
+  private static int padding(int length) {
+    return (4 - (length & 3)) & 3;
+  }
+
+  /**
+   * Writes a model in the compact format.
+   *
+   * @param path The file to write
+   * @param metadata The serialized metadata of the classifier
+   * @param featureIndex The features of the model
+   * @param weights The weights of each feature, indexed as in featureIndex
+   * @param int8 Whether to quantize the weights to int8
+   */
+  static void write(String path, byte[] metadata, Index<String> featureIndex,
+                    double[][] weights, boolean int8) throws IOException {
+    int numFeatures = featureIndex.size();
+    if (weights.length != numFeatures) {
+      throw new IllegalArgumentException("Have " + weights.length + " rows of weights for " + numFeatures + " features");
+    }
+    int capacity = 16;
+    while (capacity < 2 * numFeatures) {
+      capacity <<= 1;
+    }
+    int mask = capacity - 1;
+    int[] table = new int[capacity];
+    int[] hashes = new int[numFeatures];
+    byte[][] strings = new byte[numFeatures][];
+    long stringBytes = 0;
+    long numWeights = 0;
+    for (int i = 0; i < numFeatures; i++) {
+      String feature = featureIndex.get(i);
+      hashes[i] = feature.hashCode();
+      int slot = spread(hashes[i]) & mask;
+      while (table[slot] != 0) {
+        slot = (slot + 1) & mask;
+      }
+      table[slot] = i + 1;
+      strings[i] = feature.getBytes("UTF-8");
+      stringBytes += strings[i].length;
+      numWeights += weights[i].length;
+    }
+    if (stringBytes > Integer.MAX_VALUE || numWeights > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("Model is too large for the compact format");
+    }
+
+    DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(path)));
+    try {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeInt(int8 ? INT8_WEIGHTS : FLOAT_WEIGHTS);
+      out.writeInt(numFeatures);
+      out.writeInt(capacity);
+      out.writeInt(metadata.length);
+      out.writeInt((int) stringBytes);
+      out.writeInt(0);
+
+      out.write(metadata);
+      out.write(new byte[padding(metadata.length)]);
+
+      for (int slot : table) {
+        out.writeInt(slot);
+      }
+      for (int hash : hashes) {
+        out.writeInt(hash);
+      }
+      int offset = 0;
+      for (byte[] string : strings) {
+        out.writeInt(offset);
+        offset += string.length;
+      }
+      out.writeInt(offset);
+      for (byte[] string : strings) {
+        out.write(string);
+      }
+      out.write(new byte[padding((int) stringBytes)]);
+
+      offset = 0;
+      for (double[] row : weights) {
+        out.writeInt(offset);
+        offset += row.length;
+      }
+      out.writeInt(offset);
+      if (int8) {
+        float[] scales = new float[numFeatures];
+        for (int i = 0; i < numFeatures; i++) {
+          double max = 0.0;
+          for (double w : weights[i]) {
+            max = Math.max(max, Math.abs(w));
+          }
+          scales[i] = (float) (max / 127.0);
+          out.writeFloat(scales[i]);
+        }
+        for (int i = 0; i < numFeatures; i++) {
+          for (double w : weights[i]) {
+            out.writeByte(scales[i] == 0.0f ? 0 : (int) Math.round(w / scales[i]));
+          }
+        }
+      } else {
+        for (double[] row : weights) {
+          for (double w : row) {
+            out.writeFloat((float) w);
+          }
+        }
+      }
+    } finally {
+      out.close();
+    }
+  }
+
+  /** Whether the file starts like a model in this format. */
+  static boolean isModelFile(File file) {
+    if ( ! file.isFile() || file.length() < HEADER_BYTES) {
+      return false;
+    }
+    DataInputStream in = null;
+    try {
+      in = new DataInputStream(new FileInputStream(file));
+      return in.readInt() == MAGIC;
+    } catch (IOException e) {
+      return false;
+    } finally {
+      if (in != null) {
+        try {
+          in.close();
+        } catch (IOException e) {
+          // nothing to do
+        }
+      }
+    }
+  }
+
+  /**
+   * Whether the stream starts like a model in this format.  The stream
+   * must support mark and reset, and is left at the position it was at.
+   */
+  static boolean isModelStream(InputStream in) throws IOException {
+    in.mark(4);
+    int magic = 0;
+    for (int i = 0; i < 4; i++) {
+      int b = in.read();
+      if (b < 0) {
+        in.reset();
+        return false;
+      }
+      magic = (magic << 8) | b;
+    }
+    in.reset();
+    return magic == MAGIC;
+  }
+
+  /** Maps a model file read-only into memory. */
+  static CRFModelFile map(File file) throws IOException {
+    RandomAccessFile raf = new RandomAccessFile(file, "r");
+    try {
+      FileChannel channel = raf.getChannel();
+      if (channel.size() > Integer.MAX_VALUE) {
+        throw new IOException("Model file " + file + " is too large to map");
+      }
+      // the mapping stays valid after the channel is closed
+      return read(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+    } finally {
+      raf.close();
+    }
+  }
+
+  /**
+   * Reads a model from a stream into the heap, for models that are not in
+   * a file of their own (such as models in a jar).  This does not close
+   * the stream.
+   */
+  static CRFModelFile read(InputStream in) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    byte[] buffer = new byte[65536];
+    for (int read; (read = in.read(buffer)) >= 0; ) {
+      bytes.write(buffer, 0, read);
+    }
+    return read(ByteBuffer.wrap(bytes.toByteArray()));
+  }
+
+  private static ByteBuffer slice(ByteBuffer buffer, int offset, int length) {
+    ByteBuffer duplicate = buffer.duplicate();
+    duplicate.position(offset);
+    duplicate.limit(offset + length);
+    return duplicate.slice();
+  }
+
+  static CRFModelFile read(ByteBuffer buffer) throws IOException {
+    if (buffer.limit() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+      throw new IOException("Not a compact CRF model");
+    }
+    int version = buffer.getInt(4);
+    if (version != VERSION) {
+      throw new IOException("Unknown compact CRF model version " + version);
+    }
+    int weightType = buffer.getInt(8);
+    int numFeatures = buffer.getInt(12);
+    int capacity = buffer.getInt(16);
+    int metadataLength = buffer.getInt(20);
+    int stringBytes = buffer.getInt(24);
+
+    int position = HEADER_BYTES;
+    byte[] metadata = new byte[metadataLength];
+    ByteBuffer metadataBuffer = slice(buffer, position, metadataLength);
+    metadataBuffer.get(metadata);
+    position += metadataLength + padding(metadataLength);
+
+    IntBuffer table = slice(buffer, position, 4 * capacity).asIntBuffer();
+    position += 4 * capacity;
+    IntBuffer hashes = slice(buffer, position, 4 * numFeatures).asIntBuffer();
+    position += 4 * numFeatures;
+    IntBuffer stringOffsets = slice(buffer, position, 4 * (numFeatures + 1)).asIntBuffer();
+    position += 4 * (numFeatures + 1);
+    ByteBuffer strings = slice(buffer, position, stringBytes);
+    position += stringBytes + padding(stringBytes);
+    FeatureIndex featureIndex = new FeatureIndex(table, hashes, stringOffsets, strings);
+
+    IntBuffer rowOffsets = slice(buffer, position, 4 * (numFeatures + 1)).asIntBuffer();
+    position += 4 * (numFeatures + 1);
+    int numWeights = rowOffsets.get(numFeatures);
+    CliquePotentialFunction weights;
+    if (weightType == FLOAT_WEIGHTS) {
+      weights = new FloatWeights(rowOffsets, slice(buffer, position, 4 * numWeights).asFloatBuffer());
+    } else if (weightType == INT8_WEIGHTS) {
+      FloatBuffer scales = slice(buffer, position, 4 * numFeatures).asFloatBuffer();
+      position += 4 * numFeatures;
+      weights = new Int8Weights(rowOffsets, scales, slice(buffer, position, numWeights));
+    } else {
+      throw new IOException("Unknown weight type " + weightType);
+    }
+    return new CRFModelFile(metadata, featureIndex, weights);
+  }
+
+
+  /**
+   * A read-only Index over the feature dictionary of a model file.  It
+   * behaves like a locked HashIndex: looking up an unknown feature gives
+   * -1 even if asked to add it.  Features are decoded into Strings only
+   * when asked for with get().
+   */
+  static class FeatureIndex extends AbstractCollection<String> implements Index<String> {
+
+    private static final long serialVersionUID = 1L;
+
+    private final transient IntBuffer table;
+    private final transient int mask;
+    private final transient IntBuffer hashes;
+    private final transient IntBuffer stringOffsets;
+    private final transient ByteBuffer strings;
+    private final transient int size;
+
+    FeatureIndex(IntBuffer table, IntBuffer hashes, IntBuffer stringOffsets, ByteBuffer strings) {
+      this.table = table;
+      this.mask = table.limit() - 1;
+      this.hashes = hashes;
+      this.stringOffsets = stringOffsets;
+      this.strings = strings;
+      this.size = hashes.limit();
+    }
+
+    @Override
+    public int size() {
+      return size;
+    }
+
+    public String get(int i) {
+      if (i < 0 || i >= size) {
+        throw new ArrayIndexOutOfBoundsException("Index " + i + " outside the bounds [0," + size + ")");
+      }
+      int start = stringOffsets.get(i);
+      byte[] bytes = new byte[stringOffsets.get(i + 1) - start];
+      for (int j = 0; j < bytes.length; j++) {
+        bytes[j] = strings.get(start + j);
+      }
+      try {
+        return new String(bytes, "UTF-8");
+      } catch (UnsupportedEncodingException e) {
+        throw new RuntimeException(e);
+      }
+    }
+
+    /** Compares feature i with s without decoding it, if s is ASCII. */
+    private boolean matches(int i, String s) {
+      int start = stringOffsets.get(i);
+      int end = stringOffsets.get(i + 1);
+      // UTF-8 takes at least one byte per char
+      if (end - start < s.length()) {
+        return false;
+      }
+      int position = start;
+      for (int j = 0, length = s.length(); j < length; j++) {
+        char c = s.charAt(j);
+        if (c >= 0x80) {
+          return get(i).equals(s);
+        }
+        if (position == end || strings.get(position) != c) {
+          return false;
+        }
+        position++;
+      }
+      return position == end;
+    }
+
+    public int indexOf(String o) {
+      int h = o.hashCode();
+      for (int slot = spread(h) & mask; ; slot = (slot + 1) & mask) {
+        int entry = table.get(slot);
+        if (entry == 0) {
+          return -1;
+        }
+        int i = entry - 1;
+        if (hashes.get(i) == h && matches(i, o)) {
+          return i;
+        }
+      }
+    }
+
+    public int indexOf(String o, boolean add) {
+      return indexOf(o);
+    }
+
+    public List<String> objectsList() {
+      List<String> result = new ArrayList<String>(size);
+      for (int i = 0; i < size; i++) {
+        result.add(get(i));
+      }
+      return result;
+    }
+
+    public Collection<String> objects(int[] indices) {
+      List<String> result = new ArrayList<String>(indices.length);
+      for (int index : indices) {
+        result.add(get(index));
+      }
+      return result;
+    }
+
+    public boolean isLocked() {
+      return true;
+    }
+
+    public void lock() {
+    }
+
+    public void unlock() {
+      throw new UnsupportedOperationException("A mapped feature index cannot be changed");
+    }
+
+    public void saveToWriter(Writer out) throws IOException {
+      for (int i = 0; i < size; i++) {
+        out.write(i + "=" + get(i) + '\n');
+      }
+    }
+
+    public void saveToFilename(String s) {
+      try {
+        Writer out = new BufferedWriter(new FileWriter(s));
+        saveToWriter(out);
+        out.close();
+      } catch (IOException e) {
+        e.printStackTrace();
+      }
+    }
+
+    @Override
+    public boolean contains(Object o) {
+      return o instanceof String && indexOf((String) o) >= 0;
+    }
+
+    @Override
+    public boolean add(String s) {
+      throw new UnsupportedOperationException("A mapped feature index cannot be changed");
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends String> c) {
+      throw new UnsupportedOperationException("A mapped feature index cannot be changed");
+    }
+
+    @Override
+    public void clear() {
+      throw new UnsupportedOperationException("A mapped feature index cannot be changed");
+    }
+
+    @Override
+    public Iterator<String> iterator() {
+      return new Iterator<String>() {
+        int next = 0;
+
+        public boolean hasNext() {
+          return next < size;
+        }
+
+        public String next() {
+          if (next >= size) {
+            throw new NoSuchElementException();
+          }
+          return get(next++);
+        }
+
+        public void remove() {
+          throw new UnsupportedOperationException();
+        }
+      };
+    }
+
+    /** Serializes as an ordinary HashIndex, since the buffers can't be. */
+    private Object writeReplace() {
+      return new HashIndex<String>(objectsList());
+    }
+
+    @Override
+    public String toString() {
+      return "CRFModelFile.FeatureIndex[" + size + " features]";
+    }
+  }
+
+
+  /** Float weights, as in LinearCliquePotentialFunction. */
+  private static class FloatWeights implements CliquePotentialFunction {
+
+    private final IntBuffer rowOffsets;
+    private final FloatBuffer weights;
+
+    FloatWeights(IntBuffer rowOffsets, FloatBuffer weights) {
+      this.rowOffsets = rowOffsets;
+      this.weights = weights;
+    }
+
+    @Override
+    public double computeCliquePotential(int cliqueSize, int labelIndex, int[] cliqueFeatures, double[] featureVal) {
+      double output = 0.0;
+      for (int m = 0; m < cliqueFeatures.length; m++) {
+        double dotProd = weights.get(rowOffsets.get(cliqueFeatures[m]) + labelIndex);
+        if (featureVal != null)
+          dotProd *= featureVal[m];
+        output += dotProd;
+      }
+      return output;
+    }
+  }
+
+
+  /** int8 weights with a scale for each feature. */
+  private static class Int8Weights implements CliquePotentialFunction {
+
+    private final IntBuffer rowOffsets;
+    private final FloatBuffer scales;
+    private final ByteBuffer weights;
+
+    Int8Weights(IntBuffer rowOffsets, FloatBuffer scales, ByteBuffer weights) {
+      this.rowOffsets = rowOffsets;
+      this.scales = scales;
+      this.weights = weights;
+    }
+
+    @Override
+    public double computeCliquePotential(int cliqueSize, int labelIndex, int[] cliqueFeatures, double[] featureVal) {
+      double output = 0.0;
+      for (int m = 0; m < cliqueFeatures.length; m++) {
+        int feature = cliqueFeatures[m];
+        double dotProd = scales.get(feature) * weights.get(rowOffsets.get(feature) + labelIndex);
+        if (featureVal != null)
+          dotProd *= featureVal[m];
+        output += dotProd;
+      }
+      return output;
+    }
+  }
+
+}
@@ -230,6 +230,22 @@ public class FactorTable {
     return table[i] - z;
   }
 
+  /**
+   * Puts conditionalLogProbGivenPrevious(given, of) for every label
+   * <code>of</code> into <code>result</code>, starting at
+   * <code>offset</code>.  Here the given labels are numbered by
+   * <code>frontIndex</code>, which is the index of given in a table of
+   * window size windowSize - 1 (the first label varies slowest).  This
+   * computes the normalizer once for all the labels.
+   */
+  public void conditionalLogProbsGivenPrevious(int frontIndex, double[] result, int offset) {
+    int startIndex = frontIndex * numClasses;
+    double z = ArrayMath.logSum(table, startIndex, startIndex + numClasses);
+    for (int of = 0; of < numClasses; of++) {
+      result[offset + of] = table[startIndex + of] - z;
+    }
+  }
+
 //  public double conditionalLogProbGivenPreviousForPartial(int[] given, int of) {
 //    if (given.length != windowSize - 1) {
 //      System.err.println("error computing conditional log prob");
@@ -470,6 +486,40 @@ public class FactorTable {
     return ft;
   }
 
+  // The following do the same as sumOutFront, multiplyInFront, sumOutEnd
+  // and multiplyInEnd, but with the smaller table in (part of) an array,
+  // so that calibrating a clique tree doesn't make a table for every message.
+
+  /** Puts sumOutFront() into dest, starting at offset. */
+  void sumOutFront(double[] dest, int offset) {
+    int stride = table.length / numClasses;
+    for (int i = 0; i < stride; i++) {
+      dest[offset + i] = ArrayMath.logSum(table, i, table.length, stride);
+    }
+  }
+
+  /** multiplyInFront for the table of the given size at offset in src. */
+  void multiplyInFront(double[] src, int offset, int size) {
+    int divisor = table.length / size;
+    for (int i = 0; i < table.length; i++) {
+      table[i] += src[offset + i / divisor];
+    }
+  }
+
+  /** Puts sumOutEnd() into dest, starting at offset. */
+  void sumOutEnd(double[] dest, int offset) {
+    for (int i = 0, sz = table.length / numClasses; i < sz; i++) {
+      dest[offset + i] = ArrayMath.logSum(table, i * numClasses, (i+1) * numClasses);
+    }
+  }
+
+  /** multiplyInEnd for the table of the given size at offset in src. */
+  void multiplyInEnd(double[] src, int offset, int size) {
+    for (int i = 0; i < table.length; i++) {
+      table[i] += src[offset + i % size];
+    }
+  }
+
   public void divideBy(FactorTable other) {
     for (int i = 0; i < table.length; i++) {
       if (table[i] != Double.NEGATIVE_INFINITY || other.table[i] != Double.NEGATIVE_INFINITY) {
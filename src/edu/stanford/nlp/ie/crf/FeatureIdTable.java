@@ -0,0 +1,157 @@
+package edu.stanford.nlp.ie.crf;
+
+import edu.stanford.nlp.sequences.FeatureFactory;
+import edu.stanford.nlp.util.Index;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * An open addressing hash table from the features of a trained model to
+ * their positions in its feature Index.  Unlike <code>Index.indexOf</code>,
+ * a feature can be looked up as a base feature plus a suffix (as produced
+ * by {@link FeatureFactory.FeatureCollector}) without building the
+ * concatenated String: the String hash code of the whole feature is
+ * computed from the hash code of the base and the characters of the
+ * suffix, and candidates are checked against the Strings in the Index.
+ * <br>
+ * The table itself is just an int[] of about twice the number of
+ * features, and it is read-only once built, so one table can be shared
+ * by all threads using a classifier.
+ */
+class FeatureIdTable {
+
+  private final Index<String> featureIndex;
+  private final int numFeatures;
+  /** 1 + the index of the feature in each slot, or 0 for an empty slot */
+  private final int[] table;
+  private final int mask;
+
+  FeatureIdTable(Index<String> featureIndex) {
+    this.featureIndex = featureIndex;
+    this.numFeatures = featureIndex.size();
+    int capacity = 16;
+    while (capacity < 2 * numFeatures) {
+      capacity <<= 1;
+    }
+    table = new int[capacity];
+    mask = capacity - 1;
+    for (int i = 0; i < numFeatures; i++) {
+      int slot = spread(featureIndex.get(i).hashCode()) & mask;
+      while (table[slot] != 0) {
+        slot = (slot + 1) & mask;
+      }
+      table[slot] = i + 1;
+    }
+  }
+
+  /** Whether this table is still valid for the given feature index. */
+  boolean isFor(Index<String> index) {
+    return index == featureIndex && index.size() == numFeatures;
+  }
+
+  private static int spread(int h) {
+    return h ^ (h >>> 16);
+  }
+
+  /**
+   * Returns the index of the feature made by appending '|' and the
+   * suffix to the base (or just the base, if the suffix is null or
+   * empty), or -1 if the model does not have that feature.  The base
+   * need not be a String, so features can be looked up straight from a
+   * StringBuilder.
+   */
+  int indexOf(CharSequence base, String suffix) {
+    boolean hasSuffix = suffix != null && suffix.length() > 0;
+    int baseLength = base.length();
+    int h;
+    if (base instanceof String) {
+      h = base.hashCode();
+    } else {
+      // the same as String.hashCode()
+      h = 0;
+      for (int i = 0; i < baseLength; i++) {
+        h = 31 * h + base.charAt(i);
+      }
+    }
+    int length = baseLength;
+    if (hasSuffix) {
+      h = 31 * h + '|';
+      for (int i = 0, len = suffix.length(); i < len; i++) {
+        h = 31 * h + suffix.charAt(i);
+      }
+      length += suffix.length() + 1;
+    }
+    for (int slot = spread(h) & mask; table[slot] != 0; slot = (slot + 1) & mask) {
+      int index = table[slot] - 1;
+      String feature = featureIndex.get(index);
+      if (feature.hashCode() == h && feature.length() == length && startsWith(feature, base) &&
+          ( ! hasSuffix || (feature.charAt(baseLength) == '|' &&
+                            feature.regionMatches(baseLength + 1, suffix, 0, suffix.length())))) {
+        return index;
+      }
+    }
+    return -1;
+  }
+
+  private static boolean startsWith(String feature, CharSequence base) {
+    if (base instanceof String) {
+      return feature.startsWith((String) base);
+    }
+    for (int i = 0, len = base.length(); i < len; i++) {
+      if (feature.charAt(i) != base.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Collects the indices of the known features passed to it into a
+   * reusable int buffer, silently dropping features the model doesn't
+   * have.  Call {@link #clear()} before collecting each set of features.
+   */
+  class Collector implements FeatureFactory.FeatureCollector {
+    private int[] ids = new int[64];
+    private int size = 0;
+
+    void clear() {
+      size = 0;
+    }
+
+    public void addAll(Collection<String> features, String suffix) {
+      for (String feature : features) {
+        add(feature, suffix);
+      }
+    }
+
+    public void add(CharSequence feature, String suffix) {
+      int index = indexOf(feature, suffix);
+      if (index >= 0) {
+        if (size == ids.length) {
+          ids = Arrays.copyOf(ids, size * 2);
+        }
+        ids[size++] = index;
+      }
+    }
+
+    /**
+     * Returns the distinct feature indices collected since the last
+     * clear(), in increasing order.
+     */
+    int[] toArray() {
+      if (size == 0) {
+        return new int[0];
+      }
+      Arrays.sort(ids, 0, size);
+      int distinct = 1;
+      for (int i = 1; i < size; i++) {
+        if (ids[i] != ids[distinct - 1]) {
+          ids[distinct++] = ids[i];
+        }
+      }
+      return Arrays.copyOf(ids, distinct);
+    }
+  }
+
+}
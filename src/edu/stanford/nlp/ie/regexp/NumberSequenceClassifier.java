@@ -455,6 +455,8 @@ public class NumberSequenceClassifier extends AbstractSequenceClassifier<CoreLab
       boolean forceCopy) {
     // no need to adjust anything; use the original list
     if(! adjustCharacterOffsets && ! forceCopy) return srcList;
+    // the offsets already line up with the token text, so adjusting them would not change them
+    if(! forceCopy && offsetsAligned(srcList)) return srcList;
 
     List<CoreLabel> dstList = new ArrayList<CoreLabel>();
     int adjustment = 0;
@@ -489,6 +491,22 @@ public class NumberSequenceClassifier extends AbstractSequenceClassifier<CoreLab
     return dstList;
   }
 
+  /**
+   * Checks if every token has character offsets spanning exactly its text,
+   * in which case copyTokens would give each copy the same offsets as the original
+   */
+  private static boolean offsetsAligned(List<CoreLabel> tokens) {
+    for(CoreLabel token: tokens) {
+      Integer start = token.get(CoreAnnotations.CharacterOffsetBeginAnnotation.class);
+      Integer end = token.get(CoreAnnotations.CharacterOffsetEndAnnotation.class);
+      if(start == null || end == null) return false;
+      String text = token.get(CoreAnnotations.OriginalTextAnnotation.class);
+      if(text == null) text = token.word();
+      if(text == null || end - start != text.length()) return false;
+    }
+    return true;
+  }
+
   /**
    * Transfer from src to dst all annotations generated bu SUTime and NumberNormalizer
    * @param src
@@ -1,5 +1,7 @@
 package edu.stanford.nlp.ling;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.util.Comparator;
 import java.util.Map;
 import java.util.TreeMap;
@@ -25,6 +27,11 @@ import edu.stanford.nlp.util.StringUtils;
  * Labels and the new CoreMap infrastructure.  Instances of this class can be
  * used (almost) anywhere that the now-defunct FeatureLabel family could be
  * used.  This data structure is backed by an {@link ArrayCoreMap}.
+ * <p>
+ * The word, value, original text, tag, named entity tag, lemma and character
+ * offsets, which nearly every token has and which are read all the time, are
+ * kept in fields of their own (the fixed slots of the ArrayCoreMap) rather
+ * than in its arrays.  The accessors for them read the fields directly.
  *
  * @author dramage
  * @author rafferty
@@ -33,6 +40,37 @@ public class CoreLabel extends ArrayCoreMap implements Label, HasWord, HasTag, H
 
   private static final long serialVersionUID = 2L;
 
+  /** The keys kept in slots, by slot */
+  private static final Class<?>[] SLOT_KEYS = {
+    CoreAnnotations.TextAnnotation.class,
+    CoreAnnotations.ValueAnnotation.class,
+    CoreAnnotations.OriginalTextAnnotation.class,
+    CoreAnnotations.PartOfSpeechAnnotation.class,
+    CoreAnnotations.NamedEntityTagAnnotation.class,
+    CoreAnnotations.LemmaAnnotation.class,
+    CoreAnnotations.CharacterOffsetBeginAnnotation.class,
+    CoreAnnotations.CharacterOffsetEndAnnotation.class,
+  };
+  private static final int WORD_SLOT = 0;
+  private static final int VALUE_SLOT = 1;
+  private static final int ORIGINAL_TEXT_SLOT = 2;
+  private static final int TAG_SLOT = 3;
+  private static final int NER_SLOT = 4;
+  private static final int LEMMA_SLOT = 5;
+  private static final int BEGIN_POSITION_SLOT = 6;
+  private static final int END_POSITION_SLOT = 7;
+
+  // The slots (no initial values: the ArrayCoreMap constructors may fill
+  // them).  They are serialized by ArrayCoreMap, along with its other keys.
+  private transient Object word;
+  private transient Object value;
+  private transient Object originalText;
+  private transient Object tag;
+  private transient Object ner;
+  private transient Object lemma;
+  private transient Object beginPosition;
+  private transient Object endPosition;
+
 
   // /**
   //  * Should warnings be printed when converting from MapLabel family.
@@ -76,7 +114,7 @@ public class CoreLabel extends ArrayCoreMap implements Label, HasWord, HasTag, H
    */
   @SuppressWarnings({"unchecked"})
   public CoreLabel(CoreMap label) {
-    super(label.size());
+    super(unslottedSize(label));
     for (Class key : label.keySet()) {
       set(key, label.get(key));
     }
@@ -96,7 +134,7 @@ public class CoreLabel extends ArrayCoreMap implements Label, HasWord, HasTag, H
     super(0);
     if (label instanceof CoreMap) {
       CoreMap cl = (CoreMap) label;
-      setCapacity(cl.size());
+      setCapacity(unslottedSize(cl));
       for (Class key : cl.keySet()) {
         set(key, cl.get(key));
       }
@@ -125,6 +163,86 @@ public class CoreLabel extends ArrayCoreMap implements Label, HasWord, HasTag, H
   }
 
 
+  /** The number of keys of the given map that a CoreLabel doesn't keep in slots */
+  private static int unslottedSize(CoreMap map) {
+    int n = 0;
+    for (Class<?> key : map.keySet()) {
+      if (slotOfKey(key) < 0) {
+        n++;
+      }
+    }
+    return n;
+  }
+
+  private static int slotOfKey(Class<?> key) {
+    // comparing with each constant is quicker than any lookup of the key;
+    // this must agree with SLOT_KEYS
+    if (key == CoreAnnotations.TextAnnotation.class) {
+      return WORD_SLOT;
+    } else if (key == CoreAnnotations.PartOfSpeechAnnotation.class) {
+      return TAG_SLOT;
+    } else if (key == CoreAnnotations.NamedEntityTagAnnotation.class) {
+      return NER_SLOT;
+    } else if (key == CoreAnnotations.ValueAnnotation.class) {
+      return VALUE_SLOT;
+    } else if (key == CoreAnnotations.LemmaAnnotation.class) {
+      return LEMMA_SLOT;
+    } else if (key == CoreAnnotations.OriginalTextAnnotation.class) {
+      return ORIGINAL_TEXT_SLOT;
+    } else if (key == CoreAnnotations.CharacterOffsetBeginAnnotation.class) {
+      return BEGIN_POSITION_SLOT;
+    } else if (key == CoreAnnotations.CharacterOffsetEndAnnotation.class) {
+      return END_POSITION_SLOT;
+    }
+    return -1;
+  }
+
+  @Override
+  protected int slotOf(Class<?> key) {
+    return slotOfKey(key);
+  }
+
+  @Override
+  protected Class<?> slotKey(int slot) {
+    return SLOT_KEYS[slot];
+  }
+
+  @Override
+  protected Object slotValue(int slot) {
+    switch (slot) {
+      case WORD_SLOT: return word;
+      case VALUE_SLOT: return value;
+      case ORIGINAL_TEXT_SLOT: return originalText;
+      case TAG_SLOT: return tag;
+      case NER_SLOT: return ner;
+      case LEMMA_SLOT: return lemma;
+      case BEGIN_POSITION_SLOT: return beginPosition;
+      case END_POSITION_SLOT: return endPosition;
+      default: throw new IllegalArgumentException("No slot " + slot);
+    }
+  }
+
+  @Override
+  protected void setSlotValue(int slot, Object value) {
+    switch (slot) {
+      case WORD_SLOT: word = value; break;
+      case VALUE_SLOT: this.value = value; break;
+      case ORIGINAL_TEXT_SLOT: originalText = value; break;
+      case TAG_SLOT: tag = value; break;
+      case NER_SLOT: ner = value; break;
+      case LEMMA_SLOT: lemma = value; break;
+      case BEGIN_POSITION_SLOT: beginPosition = value; break;
+      case END_POSITION_SLOT: endPosition = value; break;
+      default: throw new IllegalArgumentException("No slot " + slot);
+    }
+  }
+
+  /** Moves the slotted keys out of the arrays, where ArrayCoreMap reads all the keys into */
+  private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+    in.defaultReadObject();
+    moveKeysToSlots();
+  }
+
   /**
    * Class that all "generic" annotations extend.
    * This allows you to read in arbitrary values from a file as features, for example.
@@ -306,7 +424,7 @@ public class CoreLabel extends ArrayCoreMap implements Label, HasWord, HasTag, H
    */
   @Override
   public final void setValue(String value) {
-    set(CoreAnnotations.ValueAnnotation.class, value);
+    setSlotted(VALUE_SLOT, value);
   }
 
   /**
@@ -314,7 +432,7 @@ public class CoreLabel extends ArrayCoreMap implements Label, HasWord, HasTag, H
    */
   @Override
   public final String value() {
-    return get(CoreAnnotations.ValueAnnotation.class);
+    return (String) getSlotted(VALUE_SLOT);
   }
 
   /**
@@ -323,7 +441,7 @@ public class CoreLabel extends ArrayCoreMap implements Label, HasWord, HasTag, H
    */
   @Override
   public void setWord(String word) {
-    set(CoreAnnotations.TextAnnotation.class, word);
+    setSlotted(WORD_SLOT, word);
     // pado feb 09: if you change the word, delete the lemma.
     remove(CoreAnnotations.LemmaAnnotation.class);
   }
@@ -333,7 +451,7 @@ public class CoreLabel extends ArrayCoreMap implements Label, HasWord, HasTag, H
    */
   @Override
   public String word() {
-    return get(CoreAnnotations.TextAnnotation.class);
+    return (String) getSlotted(WORD_SLOT);
   }
 
   /**
@@ -341,7 +459,7 @@ public class CoreLabel extends ArrayCoreMap implements Label, HasWord, HasTag, H
    */
   @Override
   public void setTag(String tag) {
-    set(CoreAnnotations.PartOfSpeechAnnotation.class, tag);
+    setSlotted(TAG_SLOT, tag);
   }
 
   /**
@@ -349,7 +467,7 @@ public class CoreLabel extends ArrayCoreMap implements Label, HasWord, HasTag, H
    */
   @Override
   public String tag() {
-    return get(CoreAnnotations.PartOfSpeechAnnotation.class);
+    return (String) getSlotted(TAG_SLOT);
   }
 
   /**
@@ -406,7 +524,7 @@ public class CoreLabel extends ArrayCoreMap implements Label, HasWord, HasTag, H
    */
   @Override
   public void setOriginalText(String originalText) {
-    set(CoreAnnotations.OriginalTextAnnotation.class, originalText);
+    setSlotted(ORIGINAL_TEXT_SLOT, originalText);
   }
 
   /**
@@ -414,7 +532,8 @@ public class CoreLabel extends ArrayCoreMap implements Label, HasWord, HasTag, H
    */
   @Override
   public String originalText() {
-    return getString(CoreAnnotations.OriginalTextAnnotation.class);
+    String originalText = (String) getSlotted(ORIGINAL_TEXT_SLOT);
+    return (originalText != null) ? originalText : "";
   }
 
   /**
@@ -439,11 +558,11 @@ public class CoreLabel extends ArrayCoreMap implements Label, HasWord, HasTag, H
    * @return String the word value for the label
    */
   public String ner() {
-    return get(CoreAnnotations.NamedEntityTagAnnotation.class);
+    return (String) getSlotted(NER_SLOT);
   }
 
   public void setNER(String ner) {
-    set(CoreAnnotations.NamedEntityTagAnnotation.class, ner);
+    setSlotted(NER_SLOT, ner);
   }
 
   /**
@@ -451,7 +570,7 @@ public class CoreLabel extends ArrayCoreMap implements Label, HasWord, HasTag, H
    */
   @Override
   public String lemma() {
-    return get(CoreAnnotations.LemmaAnnotation.class);
+    return (String) getSlotted(LEMMA_SLOT);
   }
 
   /**
@@ -459,7 +578,7 @@ public class CoreLabel extends ArrayCoreMap implements Label, HasWord, HasTag, H
    */
   @Override
   public void setLemma(String lemma) {
-    set(CoreAnnotations.LemmaAnnotation.class, lemma);
+    setSlotted(LEMMA_SLOT, lemma);
   }
 
 
@@ -506,7 +625,7 @@ public class CoreLabel extends ArrayCoreMap implements Label, HasWord, HasTag, H
    */
   @Override
   public int beginPosition() {
-    Integer i = get(CoreAnnotations.CharacterOffsetBeginAnnotation.class);
+    Integer i = (Integer) getSlotted(BEGIN_POSITION_SLOT);
     if(i != null) return i;
     return -1;
   }
@@ -516,7 +635,7 @@ public class CoreLabel extends ArrayCoreMap implements Label, HasWord, HasTag, H
    */
   @Override
   public int endPosition() {
-    Integer i = get(CoreAnnotations.CharacterOffsetEndAnnotation.class);
+    Integer i = (Integer) getSlotted(END_POSITION_SLOT);
     if(i != null) return i;
     return -1;
   }
@@ -526,7 +645,7 @@ public class CoreLabel extends ArrayCoreMap implements Label, HasWord, HasTag, H
    */
   @Override
   public void setBeginPosition(int beginPos) {
-    set(CoreAnnotations.CharacterOffsetBeginAnnotation.class, beginPos);
+    setSlotted(BEGIN_POSITION_SLOT, beginPos);
   }
 
   /**
@@ -534,7 +653,7 @@ public class CoreLabel extends ArrayCoreMap implements Label, HasWord, HasTag, H
    */
   @Override
   public void setEndPosition(int endPos) {
-    set(CoreAnnotations.CharacterOffsetEndAnnotation.class, endPos);
+    setSlotted(END_POSITION_SLOT, endPos);
   }
 
   /**
@@ -25,6 +25,13 @@ public class CoreMapNodePattern extends NodePattern<CoreMap> {
     this.annotationPatterns = annotationPatterns;
   }
 
+  /** The pattern each annotation has to match */
+  @SuppressWarnings("unchecked")
+  Map<Class<?>, NodePattern<?>> getAnnotationPatterns() {
+    // the map is only declared with raw types
+    return (Map<Class<?>, NodePattern<?>>) (Map<?, ?>) annotationPatterns;
+  }
+
   public static CoreMapNodePattern valueOf(String textAnnotationPattern) {
     return valueOf(null, textAnnotationPattern);
   }
@@ -0,0 +1,429 @@
+package edu.stanford.nlp.ling.tokensregex;
+
+import edu.stanford.nlp.util.CoreMap;
+import edu.stanford.nlp.util.Generics;
+import edu.stanford.nlp.util.TypesafeMap;
+
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * Works out tokens that a sequence pattern can't match without, so that
+ * a pattern need not be tried on a sequence that lacks them.
+ * <br>
+ * The requirements of a pattern are a list of clauses, all of which have to
+ * hold for there to be a match.  A clause is a list of anchors, and holds if
+ * some element of the sequence meets one of them.  An anchor is a string
+ * condition on one annotation of an element, taken from the
+ * {@link CoreMapNodePattern}s of the pattern: either a set of literal
+ * strings (from a plain string or a regex that is just an alternation of
+ * literals), or any other string or regex condition, which is checked by
+ * trying it.
+ * <br>
+ * The clauses are only ever necessary, not sufficient: a pattern is tried
+ * as usual if they hold, and parts of a pattern that aren't understood
+ * here (such as custom node patterns) just don't add any.
+ *
+ * @see SequenceMatchRules.AnchoredListExtractRule
+ */
+class PatternAnchors {
+
+  /** Largest number of strings a regex is expanded into */
+  private static final int MAX_LITERALS = 64;
+
+  private PatternAnchors() {} // static methods only
+
+  /**
+   * A condition on one annotation of a sequence element.
+   */
+  static class Anchor {
+    /** The annotation the condition is on */
+    final Class<?> key;
+    /** The condition */
+    final NodePattern<String> pattern;
+    /** The strings that meet the condition, or null if there are too many
+     *  to list (or they are hard to work out) */
+    final Set<String> literals;
+    /** Whether the literals are lowercased, as are the values to look up */
+    final boolean lowercase;
+
+    Anchor(Class<?> key, NodePattern<String> pattern, Set<String> literals, boolean lowercase) {
+      this.key = key;
+      this.pattern = pattern;
+      this.literals = literals;
+      this.lowercase = lowercase;
+    }
+
+    /** Whether the given annotation value meets the condition */
+    boolean match(Object value) {
+      if (value == null) {
+        return false;
+      }
+      if ( ! (value instanceof String)) {
+        // it is up to the pattern what this means
+        return true;
+      }
+      if (literals != null) {
+        return literals.contains(lowercase ? toLowerCaseAscii((String) value) : value);
+      }
+      return pattern.match((String) value);
+    }
+
+    /** What the condition is, for telling equal anchors apart */
+    private Object condition() {
+      if (literals != null) {
+        return literals;
+      } else if (pattern instanceof CoreMapNodePattern.StringAnnotationRegexPattern) {
+        Pattern p = ((CoreMapNodePattern.StringAnnotationRegexPattern) pattern).getPattern();
+        return Arrays.asList(p.pattern(), p.flags());
+      } else {
+        return pattern;
+      }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) return true;
+      if ( ! (o instanceof Anchor)) return false;
+      Anchor anchor = (Anchor) o;
+      return key.equals(anchor.key) && lowercase == anchor.lowercase && condition().equals(anchor.condition());
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * key.hashCode() + condition().hashCode();
+    }
+
+    @Override
+    public String toString() {
+      return key.getSimpleName() + ":" + ((literals != null) ? literals : pattern);
+    }
+  }
+
+  /**
+   * The value of the given annotation of a sequence element.  The key is
+   * one the patterns were given, so it is an annotation key.
+   */
+  @SuppressWarnings("unchecked")
+  static Object getValue(CoreMap element, Class<?> key) {
+    return element.get((Class<? extends TypesafeMap.Key<Object>>) key);
+  }
+
+  /** Lowercases only A-Z, as case insensitive regexes without UNICODE_CASE do */
+  static String toLowerCaseAscii(String s) {
+    for (int i = 0; i < s.length(); i++) {
+      char c = s.charAt(i);
+      if (c >= 'A' && c <= 'Z') {
+        char[] chars = s.toCharArray();
+        for (int j = i; j < chars.length; j++) {
+          if (chars[j] >= 'A' && chars[j] <= 'Z') {
+            chars[j] = (char) (chars[j] + ('a' - 'A'));
+          }
+        }
+        return new String(chars);
+      }
+    }
+    return s;
+  }
+
+  /**
+   * Returns the clauses every match of the given pattern meets, which is
+   * empty if there are none to be had.
+   */
+  static List<List<Anchor>> getClauses(SequencePattern.PatternExpr expr) {
+    List<List<Anchor>> clauses = new ArrayList<List<Anchor>>();
+    addClauses(expr, clauses);
+    // the same clause may come from several parts of the pattern
+    return new ArrayList<List<Anchor>>(new LinkedHashSet<List<Anchor>>(clauses));
+  }
+
+  private static void addClauses(SequencePattern.PatternExpr expr, List<List<Anchor>> clauses) {
+    if (expr instanceof SequencePattern.NodePatternExpr) {
+      addNodeClauses(((SequencePattern.NodePatternExpr) expr).nodePattern, clauses);
+    } else if (expr instanceof SequencePattern.SequencePatternExpr) {
+      for (SequencePattern.PatternExpr child : ((SequencePattern.SequencePatternExpr) expr).patterns) {
+        addClauses(child, clauses);
+      }
+    } else if (expr instanceof SequencePattern.AndPatternExpr) {
+      for (SequencePattern.PatternExpr child : ((SequencePattern.AndPatternExpr) expr).patterns) {
+        addClauses(child, clauses);
+      }
+    } else if (expr instanceof SequencePattern.OrPatternExpr) {
+      List<List<List<Anchor>>> alternatives = new ArrayList<List<List<Anchor>>>();
+      for (SequencePattern.PatternExpr child : ((SequencePattern.OrPatternExpr) expr).patterns) {
+        alternatives.add(getClauses(child));
+      }
+      addDisjunction(alternatives, clauses);
+    } else if (expr instanceof SequencePattern.GroupPatternExpr) {
+      addClauses(((SequencePattern.GroupPatternExpr) expr).pattern, clauses);
+    } else if (expr instanceof SequencePattern.ValuePatternExpr) {
+      addClauses(((SequencePattern.ValuePatternExpr) expr).expr, clauses);
+    } else if (expr instanceof SequencePattern.RepeatPatternExpr) {
+      SequencePattern.RepeatPatternExpr repeat = (SequencePattern.RepeatPatternExpr) expr;
+      if (repeat.minMatch > 0) {
+        addClauses(repeat.pattern, clauses);
+      }
+    }
+    // anything else (back references, multiple node patterns, sequence
+    // start and end) adds nothing
+  }
+
+  private static void addNodeClauses(NodePattern<?> nodePattern, List<List<Anchor>> clauses) {
+    if (nodePattern instanceof CoreMapNodePattern) {
+      Map<Class<?>, NodePattern<?>> annotationPatterns = ((CoreMapNodePattern) nodePattern).getAnnotationPatterns();
+      for (Map.Entry<Class<?>, NodePattern<?>> entry : annotationPatterns.entrySet()) {
+        Anchor anchor = getAnchor(entry.getKey(), entry.getValue());
+        if (anchor != null) {
+          clauses.add(Collections.singletonList(anchor));
+        }
+      }
+    } else if (nodePattern instanceof NodePattern.ConjNodePattern) {
+      for (NodePattern<?> child : ((NodePattern.ConjNodePattern<?>) nodePattern).nodePatterns) {
+        addNodeClauses(child, clauses);
+      }
+    } else if (nodePattern instanceof NodePattern.DisjNodePattern) {
+      List<List<List<Anchor>>> alternatives = new ArrayList<List<List<Anchor>>>();
+      for (NodePattern<?> child : ((NodePattern.DisjNodePattern<?>) nodePattern).nodePatterns) {
+        List<List<Anchor>> childClauses = new ArrayList<List<Anchor>>();
+        addNodeClauses(child, childClauses);
+        alternatives.add(childClauses);
+      }
+      addDisjunction(alternatives, clauses);
+    }
+  }
+
+  /**
+   * If each alternative has a clause, then one of them holds, so their
+   * anchors make a clause together.
+   */
+  private static void addDisjunction(List<List<List<Anchor>>> alternatives, List<List<Anchor>> clauses) {
+    Set<Anchor> anchors = new LinkedHashSet<Anchor>();
+    for (List<List<Anchor>> alternative : alternatives) {
+      if (alternative.isEmpty()) {
+        return;
+      }
+      anchors.addAll(bestClause(alternative));
+    }
+    clauses.add(new ArrayList<Anchor>(anchors));
+  }
+
+  /** The clause that is cheapest to check: literals only, and fewest anchors */
+  private static List<Anchor> bestClause(List<List<Anchor>> clauses) {
+    List<Anchor> best = null;
+    for (List<Anchor> clause : clauses) {
+      if (best == null || isLiteral(clause) && ( ! isLiteral(best) || clause.size() < best.size())) {
+        best = clause;
+      }
+    }
+    return best;
+  }
+
+  private static boolean isLiteral(List<Anchor> clause) {
+    for (Anchor anchor : clause) {
+      if (anchor.literals == null) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static Anchor getAnchor(Class<?> key, NodePattern<?> nodePattern) {
+    if (nodePattern instanceof CoreMapNodePattern.StringAnnotationPattern) {
+      CoreMapNodePattern.StringAnnotationPattern p = (CoreMapNodePattern.StringAnnotationPattern) nodePattern;
+      if (p.ignoreCase) {
+        // equalsIgnoreCase folds more than ASCII, so just try it
+        return new Anchor(key, p, null, false);
+      }
+      return new Anchor(key, p, Collections.singleton(p.target), false);
+    } else if (nodePattern instanceof CoreMapNodePattern.StringAnnotationRegexPattern) {
+      CoreMapNodePattern.StringAnnotationRegexPattern pattern = (CoreMapNodePattern.StringAnnotationRegexPattern) nodePattern;
+      Pattern p = pattern.getPattern();
+      if (p.flags() == 0 || p.flags() == Pattern.CASE_INSENSITIVE) {
+        boolean lowercase = (p.flags() == Pattern.CASE_INSENSITIVE);
+        Set<String> literals = expandRegex(p.pattern());
+        if (literals != null) {
+          if (lowercase) {
+            Set<String> lowercased = Generics.newHashSet();
+            for (String literal : literals) {
+              lowercased.add(toLowerCaseAscii(literal));
+            }
+            literals = lowercased;
+          }
+          return new Anchor(key, pattern, literals, lowercase);
+        }
+      }
+      return new Anchor(key, pattern, null, false);
+    }
+    return null;
+  }
+
+  /**
+   * Returns the strings a regex matches, if it is built only from literal
+   * characters, escaped punctuation, alternation, groups and optional
+   * (<code>?</code>) characters or groups, and there aren't too many of
+   * them; otherwise null.
+   */
+  static Set<String> expandRegex(String regex) {
+    int[] pos = { 0 };
+    Set<String> strings = expandAlternation(regex, pos);
+    if (strings == null || pos[0] != regex.length()) {
+      return null;
+    }
+    return strings;
+  }
+
+  private static Set<String> expandAlternation(String regex, int[] pos) {
+    Set<String> strings = new LinkedHashSet<String>();
+    while (true) {
+      Set<String> alternative = expandSequence(regex, pos);
+      if (alternative == null) {
+        return null;
+      }
+      strings.addAll(alternative);
+      if (strings.size() > MAX_LITERALS) {
+        return null;
+      }
+      if (pos[0] < regex.length() && regex.charAt(pos[0]) == '|') {
+        pos[0]++;
+      } else {
+        return strings;
+      }
+    }
+  }
+
+  private static Set<String> expandSequence(String regex, int[] pos) {
+    Set<String> strings = Collections.singleton("");
+    while (pos[0] < regex.length()) {
+      char c = regex.charAt(pos[0]);
+      Set<String> item;
+      if (c == '|' || c == ')') {
+        break;
+      } else if (c == '(') {
+        pos[0]++;
+        if (regex.startsWith("?:", pos[0])) {
+          pos[0] += 2;
+        } else if (pos[0] < regex.length() && regex.charAt(pos[0]) == '?') {
+          // lookarounds, named groups, inline flags
+          return null;
+        }
+        item = expandAlternation(regex, pos);
+        if (item == null || pos[0] >= regex.length() || regex.charAt(pos[0]) != ')') {
+          return null;
+        }
+        pos[0]++;
+      } else if (c == '\\') {
+        if (pos[0] + 1 >= regex.length() || Character.isLetterOrDigit(regex.charAt(pos[0] + 1))) {
+          // character classes, back references and so on
+          return null;
+        }
+        item = Collections.singleton(String.valueOf(regex.charAt(pos[0] + 1)));
+        pos[0] += 2;
+      } else if ("^$.?*+[]{}".indexOf(c) >= 0) {
+        return null;
+      } else {
+        item = Collections.singleton(String.valueOf(c));
+        pos[0]++;
+      }
+      if (pos[0] < regex.length() && regex.charAt(pos[0]) == '?') {
+        pos[0]++;
+        if (pos[0] < regex.length() && "?+*{".indexOf(regex.charAt(pos[0])) >= 0) {
+          return null;
+        }
+        Set<String> optional = new LinkedHashSet<String>(item);
+        optional.add("");
+        item = optional;
+      } else if (pos[0] < regex.length() && "*+{".indexOf(regex.charAt(pos[0])) >= 0) {
+        return null;
+      }
+      Set<String> product = new LinkedHashSet<String>();
+      for (String prefix : strings) {
+        for (String suffix : item) {
+          product.add(prefix + suffix);
+        }
+      }
+      if (product.size() > MAX_LITERALS) {
+        return null;
+      }
+      strings = product;
+    }
+    return strings;
+  }
+
+  /**
+   * The values of a sequence, for checking clauses against it.  The values
+   * of each annotation that literal anchors are on are collected into sets
+   * the first time they are needed, so a clause of literals is checked by
+   * lookups rather than by going over the sequence.
+   */
+  static class SequenceValues {
+    private final List<?> seq;
+    /** Whether the sequence has elements other than CoreMaps, which the
+     *  patterns have to be left to deal with */
+    private final boolean hasOther;
+    private final Map<Class<?>, Set<String>> values = Generics.newHashMap();
+    private final Map<Class<?>, Set<String>> lowercaseValues = Generics.newHashMap();
+    /** Annotations that have values other than strings */
+    private final Set<Class<?>> otherValueKeys = Generics.newHashSet();
+
+    SequenceValues(List<?> seq) {
+      this.seq = seq;
+      boolean other = false;
+      for (Object element : seq) {
+        if (element != null && ! (element instanceof CoreMap)) {
+          other = true;
+          break;
+        }
+      }
+      hasOther = other;
+    }
+
+    private Set<String> getValues(Class<?> key, boolean lowercase) {
+      Map<Class<?>, Set<String>> map = lowercase ? lowercaseValues : values;
+      Set<String> set = map.get(key);
+      if (set == null) {
+        set = Generics.newHashSet();
+        for (Object element : seq) {
+          if (element == null) continue;
+          Object value = getValue((CoreMap) element, key);
+          if (value instanceof String) {
+            set.add(lowercase ? toLowerCaseAscii((String) value) : (String) value);
+          } else if (value != null) {
+            otherValueKeys.add(key);
+          }
+        }
+        map.put(key, set);
+      }
+      return set;
+    }
+
+    /** Whether some element of the sequence meets some anchor of the clause */
+    boolean holds(List<Anchor> clause) {
+      if (hasOther) {
+        return true;
+      }
+      for (Anchor anchor : clause) {
+        if (anchor.literals != null) {
+          Set<String> set = getValues(anchor.key, anchor.lowercase);
+          if (otherValueKeys.contains(anchor.key)) {
+            return true;
+          }
+          Set<String> smaller = (set.size() < anchor.literals.size()) ? set : anchor.literals;
+          Set<String> larger = (smaller == set) ? anchor.literals : set;
+          for (String s : smaller) {
+            if (larger.contains(s)) {
+              return true;
+            }
+          }
+        } else {
+          for (Object element : seq) {
+            if (element != null && anchor.match(getValue((CoreMap) element, anchor.key))) {
+              return true;
+            }
+          }
+        }
+      }
+      return false;
+    }
+  }
+
+}
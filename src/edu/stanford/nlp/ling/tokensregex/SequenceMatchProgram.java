@@ -0,0 +1,445 @@
+package edu.stanford.nlp.ling.tokensregex;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>
+ * The NFA of a {@link SequencePattern} flattened into arrays, for matching in
+ * time linear in the length of the sequence (a Pike VM, in the style of RE2).
+ * </p>
+ *
+ * <p>
+ * The {@link SequenceMatcher} keeps one thread per path through the NFA and
+ * has each carry its matched groups in maps, so patterns with nested
+ * quantifiers can have a number of live threads exponential in the number of
+ * tokens matched.  Since the states reached don't depend on how they were
+ * reached (apart from the states that count repeats or look at earlier
+ * matches, which aren't supported here), only the thread with the highest
+ * priority needs to be kept for each state, and there are never more threads
+ * than states.  The threads are kept in priority order, which is the order in
+ * which the <code>SequenceMatcher</code> ranks its branches, and run through
+ * the NFA in the same two phases (consuming a node, then following the states
+ * that don't consume one), so that the matches and matched groups found are
+ * the ones the <code>SequenceMatcher</code> finds.  The matched groups of each
+ * thread are kept in an int array, shared by threads until one of them
+ * changes it.
+ * </p>
+ *
+ * <p>
+ * A search for a match starts a new thread at each position, with lower
+ * priority than the threads already started, until some thread has matched,
+ * so finding the first match from a position takes one pass over the
+ * sequence rather than one per start position.
+ * </p>
+ *
+ * <p>
+ * Only the plain, value, node, group, sequence start and end, and match states
+ * are supported; patterns with other states (repeats with a large or nongreedy
+ * number of matches, back references, multinode patterns and conjunctions)
+ * have no program, and are matched by the <code>SequenceMatcher</code> as
+ * before.
+ * </p>
+ *
+ * @see SequencePattern#isLinearTime()
+ */
+class SequenceMatchProgram {
+  // Kinds of states
+  private static final int SPLIT = 0;        // Goes on to the next states without doing anything
+  private static final int NODE = 1;         // Matches a node
+  private static final int GROUP_START = 2;
+  private static final int GROUP_END = 3;
+  private static final int SEQ_START = 4;
+  private static final int SEQ_END = 5;
+  private static final int MATCH = 6;
+
+  /** Kind of each state, the first of which is the start state */
+  private final int[] kinds;
+  /** Next states of each state, in order of priority */
+  private final int[][] next;
+  /** Pattern of each node state, which is given whatever the sequence holds */
+  private final NodePattern<Object>[] nodePatterns;
+  private final int[] groupIds;
+  /** Value of each state (only value states have one) */
+  private final Object[] values;
+  private final int totalGroups;
+  /** Matched groups of a new thread: none */
+  private final int[] noGroups;
+
+  @SuppressWarnings("unchecked")
+  private SequenceMatchProgram(int nStates, int totalGroups) {
+    kinds = new int[nStates];
+    next = new int[nStates][];
+    nodePatterns = (NodePattern<Object>[]) new NodePattern<?>[nStates];
+    groupIds = new int[nStates];
+    values = new Object[nStates];
+    this.totalGroups = totalGroups;
+    noGroups = new int[2*totalGroups];
+    Arrays.fill(noGroups, -1);
+  }
+
+  /**
+   * Flattens the NFA starting at the given state
+   * @param root Start state of the NFA
+   * @param totalGroups Number of capture groups (including group 0)
+   * @return the program, or null if the NFA has states that aren't supported
+   */
+  static SequenceMatchProgram compile(SequencePattern.State root, int totalGroups)
+  {
+    Map<SequencePattern.State,Integer> ids = new IdentityHashMap<SequencePattern.State,Integer>();
+    List<SequencePattern.State> states = new ArrayList<SequencePattern.State>();
+    ids.put(root, 0);
+    states.add(root);
+    for (int i = 0; i < states.size(); i++) {
+      SequencePattern.State s = states.get(i);
+      if (s.next != null) {
+        for (SequencePattern.State n:s.next) {
+          if (!ids.containsKey(n)) {
+            ids.put(n, states.size());
+            states.add(n);
+          }
+        }
+      }
+    }
+
+    SequenceMatchProgram program = new SequenceMatchProgram(states.size(), totalGroups);
+    for (int i = 0; i < states.size(); i++) {
+      SequencePattern.State s = states.get(i);
+      Class<?> c = s.getClass();
+      int groupId = -1;
+      if (c == SequencePattern.State.class) {
+        program.kinds[i] = SPLIT;
+      } else if (c == SequencePattern.ValueState.class) {
+        program.kinds[i] = SPLIT;
+        program.values[i] = ((SequencePattern.ValueState) s).value;
+      } else if (c == SequencePattern.NodePatternState.class) {
+        program.kinds[i] = NODE;
+        program.nodePatterns[i] = nodePattern((SequencePattern.NodePatternState) s);
+      } else if (c == SequencePattern.GroupStartState.class) {
+        program.kinds[i] = GROUP_START;
+        groupId = ((SequencePattern.GroupStartState) s).captureGroupId;
+      } else if (c == SequencePattern.GroupEndState.class) {
+        program.kinds[i] = GROUP_END;
+        groupId = ((SequencePattern.GroupEndState) s).captureGroupId;
+      } else if (c == SequencePattern.SeqStartState.class) {
+        program.kinds[i] = SEQ_START;
+      } else if (c == SequencePattern.SeqEndState.class) {
+        program.kinds[i] = SEQ_END;
+      } else if (c == SequencePattern.MatchState.class) {
+        program.kinds[i] = MATCH;
+      } else {
+        return null;
+      }
+      if (groupId >= totalGroups) {
+        return null;
+      }
+      program.groupIds[i] = groupId;
+      int[] n = new int[(s.next != null)? s.next.size():0];
+      int j = 0;
+      if (s.next != null) {
+        for (SequencePattern.State ns:s.next) {
+          n[j++] = ids.get(ns);
+        }
+      }
+      program.next[i] = n;
+    }
+    return program;
+  }
+
+  /** The pattern of a node state, which the state only declares as raw */
+  @SuppressWarnings("unchecked")
+  private static NodePattern<Object> nodePattern(SequencePattern.NodePatternState s)
+  {
+    return (NodePattern<Object>) s.pattern;
+  }
+
+  /**
+   * Returns a runner for matching sequences with this program
+   * (one per matcher, since runners keep their working space)
+   */
+  Runner newRunner()
+  {
+    return new Runner();
+  }
+
+  /** Result of matching a node with a pattern that isn't just true, as a list */
+  private static class NodeResult {
+    final int index;
+    final Object value;
+    final NodeResult rest;
+
+    NodeResult(int index, Object value, NodeResult rest) {
+      this.index = index;
+      this.value = value;
+      this.rest = rest;
+    }
+  }
+
+  /** Threads waiting at a state, one per state, in order of priority */
+  private class ThreadList {
+    final int[] states = new int[kinds.length];
+    final int[][] groups = new int[kinds.length][];
+    final Object[][] groupValues = new Object[kinds.length][];
+    final NodeResult[] results = new NodeResult[kinds.length];
+    /** Step at which each state was last added */
+    final int[] added = new int[kinds.length];
+    int size;
+
+    ThreadList() {
+      Arrays.fill(added, -1);
+    }
+
+    void clear() {
+      // Drop references so the lists don't hold on to old matches
+      Arrays.fill(groups, 0, size, null);
+      Arrays.fill(groupValues, 0, size, null);
+      Arrays.fill(results, 0, size, null);
+      size = 0;
+    }
+
+    void add(int state, int[] g, Object[] v, NodeResult r, int step) {
+      if (added[state] != step) {
+        added[state] = step;
+        states[size] = state;
+        groups[size] = g;
+        groupValues[size] = v;
+        results[size] = r;
+        size++;
+      }
+    }
+  }
+
+  /**
+   * Working space for matching sequences with the program,
+   * and the match found
+   */
+  class Runner {
+    private ThreadList current = new ThreadList();
+    private ThreadList consumed = new ThreadList();
+    private ThreadList waiting = new ThreadList();
+    /** Step at which each state was last visited in each phase */
+    private final int[] consumeVisited = new int[kinds.length];
+    private final int[] followVisited = new int[kinds.length];
+    private int step = 0;
+
+    // Sequence being matched, and where we are
+    private List<?> elements;
+    private boolean matchWithResult;
+    private int position;
+
+    // Best match so far
+    private boolean found;
+    private int[] matchedGroups;
+    private Object[] matchedValues;
+    private NodeResult matchedResults;
+
+    private Runner() {
+      Arrays.fill(consumeVisited, -1);
+      Arrays.fill(followVisited, -1);
+    }
+
+    /**
+     * Looks for the match the <code>SequenceMatcher</code> would find
+     * @param elements Sequence to match
+     * @param regionEnd Position after the last node that can be matched
+     * @param matchWithResult Whether to keep the results of matching nodes
+     * @param start Position of the first node that can be matched
+     * @param anchored If true, only matches starting at start are found,
+     *     otherwise the match starting earliest (at start or after)
+     * @return true if a match was found
+     */
+    boolean run(List<?> elements, int regionEnd, boolean matchWithResult, int start, boolean anchored)
+    {
+      this.elements = elements;
+      this.matchWithResult = matchWithResult;
+      found = false;
+      matchedGroups = null;
+      matchedValues = null;
+      matchedResults = null;
+      current.clear();
+      for (int i = start; i < regionEnd; i++) {
+        step++;
+        position = i;
+        if (!found && (!anchored || i == start)) {
+          // New thread starting here, after all the others
+          current.add(0, noGroups, null, null, step);
+        }
+        if (current.size == 0) {
+          break;
+        }
+        consumed.clear();
+        for (int t = 0; t < current.size; t++) {
+          consume(current.states[t], current.groups[t], current.groupValues[t], current.results[t]);
+        }
+        waiting.clear();
+        for (int t = 0; t < consumed.size; t++) {
+          if (follow(consumed.states[t], consumed.groups[t], consumed.groupValues[t], consumed.results[t], -1)) {
+            // Threads after the match have lower priority
+            break;
+          }
+        }
+        ThreadList tmp = current;
+        current = waiting;
+        waiting = tmp;
+      }
+      current.clear();
+      consumed.clear();
+      waiting.clear();
+      this.elements = null;
+      return found;
+    }
+
+    /**
+     * Runs a thread through the states that lead to the next node,
+     * and matches it
+     */
+    private void consume(int s, int[] groups, Object[] groupValues, NodeResult results)
+    {
+      if (consumeVisited[s] == step) {
+        // A thread with higher priority got here first
+        return;
+      }
+      consumeVisited[s] = step;
+      switch (kinds[s]) {
+        case SPLIT:
+          for (int n:next[s]) {
+            consume(n, groups, groupValues, results);
+          }
+          break;
+        case GROUP_START: {
+          int g = groupIds[s];
+          if (g >= 0) {
+            groups = groups.clone();
+            groups[2*g] = position;
+            groups[2*g+1] = -1;
+            if (groupValues != null && groupValues[g] != null) {
+              groupValues = groupValues.clone();
+              groupValues[g] = null;
+            }
+          }
+          for (int n:next[s]) {
+            consume(n, groups, groupValues, results);
+          }
+          break;
+        }
+        case SEQ_START:
+          if (position == 0) {
+            for (int n:next[s]) {
+              consume(n, groups, groupValues, results);
+            }
+          }
+          break;
+        case NODE: {
+          Object node = elements.get(position);
+          if (matchWithResult) {
+            Object obj = nodePatterns[s].matchWithResult(node);
+            if (obj == null) {
+              break;
+            }
+            if (obj != Boolean.TRUE) {
+              results = new NodeResult(position, obj, results);
+            }
+          } else if (node == null || !nodePatterns[s].match(node)) {
+            break;
+          }
+          for (int n:next[s]) {
+            consumed.add(n, groups, groupValues, results, step);
+          }
+          break;
+        }
+        default:
+          // Group and sequence ends don't let a node be consumed
+          break;
+      }
+    }
+
+    /**
+     * Runs a thread through the states that don't consume a node,
+     * to the states that wait for the next node
+     * @return true if a match was reached
+     *   (and threads with lower priority can be dropped)
+     */
+    private boolean follow(int s, int[] groups, Object[] groupValues, NodeResult results, int prev)
+    {
+      if (followVisited[s] == step) {
+        return false;
+      }
+      followVisited[s] = step;
+      switch (kinds[s]) {
+        case NODE:
+        case GROUP_START:
+          waiting.add(s, groups, groupValues, results, step);
+          return false;
+        case MATCH:
+          found = true;
+          matchedGroups = groups;
+          matchedValues = groupValues;
+          matchedResults = results;
+          return true;
+        case GROUP_END: {
+          int g = groupIds[s];
+          if (g >= 0 && groups[2*g] >= 0 && groups[2*g+1] < 0) {
+            groups = groups.clone();
+            groups[2*g+1] = position+1;
+            Object v = (prev >= 0)? values[prev]:null;
+            if (v != null || (groupValues != null && groupValues[g] != null)) {
+              groupValues = (groupValues != null)? groupValues.clone():new Object[totalGroups];
+              groupValues[g] = v;
+            }
+          }
+          break;
+        }
+        case SEQ_END:
+          if (position != elements.size()-1) {
+            return false;
+          }
+          break;
+        case SEQ_START:
+          return false;
+        default:
+          break;
+      }
+      for (int n:next[s]) {
+        if (follow(n, groups, groupValues, results, s)) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    /** Start of the given group in the match found, or -1 if it wasn't matched */
+    int groupStart(int group) {
+      return matchedGroups[2*group];
+    }
+
+    int groupEnd(int group) {
+      return matchedGroups[2*group+1];
+    }
+
+    Object groupValue(int group) {
+      return (matchedValues != null)? matchedValues[group]:null;
+    }
+
+    /** Whether any nodes in the match found had results */
+    boolean hasNodeResults() {
+      return matchedResults != null;
+    }
+
+    /**
+     * Copies the results of matching nodes in the match found to the given
+     * array (by index of the node)
+     */
+    void getNodeResults(Object[] nodeResults) {
+      // The latest result for a node is first
+      for (NodeResult r = matchedResults; r != null; r = r.rest) {
+        if (nodeResults[r.index] == null) {
+          nodeResults[r.index] = r.value;
+        }
+      }
+    }
+  }
+
+}
@@ -697,6 +697,227 @@ public class SequenceMatchRules {
     }
   }
 
+  /**
+   * A list of rules that only tries a rule on an input if the input has the
+   * tokens the rule's pattern can't match without (as worked out by
+   * {@link PatternAnchors}), and otherwise extracts just what a
+   * {@link ListExtractRule} would.
+   * <br>
+   * Rules whose pattern isn't a token sequence pattern over the input, a
+   * field of it, or the input as a one element list, are always tried.
+   * The requirements of the rules are worked out the first time the list is
+   * used after rules are added, and what each one needs is looked up once
+   * per input however many rules share it.
+   */
+  public static class AnchoredListExtractRule<I,O> extends ListExtractRule<I,O>
+  {
+    /** Where a rule's pattern is matched */
+    private static enum SourceType { INPUT, FIELD, SINGLETON }
+
+    /** A sequence a rule's pattern is matched against */
+    private static class Source {
+      final SourceType type;
+      final Class<?> field;
+
+      Source(SourceType type, Class<?> field) {
+        this.type = type;
+        this.field = field;
+      }
+
+      public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Source)) return false;
+        Source source = (Source) o;
+        return type == source.type && (field == null ? source.field == null : field.equals(source.field));
+      }
+
+      public int hashCode() {
+        return 31 * type.hashCode() + (field != null ? field.hashCode() : 0);
+      }
+    }
+
+    /** What the rules need, worked out from the rules */
+    private static class Anchors {
+      final List<Source> sources = new ArrayList<Source>();
+      final List<List<PatternAnchors.Anchor>> clauses = new ArrayList<List<PatternAnchors.Anchor>>();
+      /** For each rule, the source its pattern is matched against, or -1 if
+       *  the rule is always tried */
+      int[] ruleSources;
+      /** For each rule, the clauses that have to hold for it to be tried */
+      int[][] ruleClauses;
+    }
+
+    /** Stands for the sequence of an input that the rules have to be tried on
+     *  regardless (such as a field that isn't a list) */
+    private static final Object UNKNOWN_SEQUENCE = new Object();
+
+    private volatile Anchors anchors;
+
+    public AnchoredListExtractRule(Collection<ExtractRule<I,O>> rules)
+    {
+      super(rules);
+    }
+
+    @SuppressWarnings("unchecked")
+    public AnchoredListExtractRule(ExtractRule<I,O>... rules)
+    {
+      super(rules);
+    }
+
+    @SuppressWarnings("unchecked")
+    public synchronized void addRules(ExtractRule<I,O>... rules)
+    {
+      super.addRules(rules);
+      anchors = null;
+    }
+
+    public synchronized void addRules(Collection<ExtractRule<I,O>> rules)
+    {
+      super.addRules(rules);
+      anchors = null;
+    }
+
+    private Anchors getAnchors()
+    {
+      Anchors a = anchors;
+      if (a == null) {
+        synchronized (this) {
+          a = anchors;
+          if (a == null) {
+            a = computeAnchors();
+            anchors = a;
+          }
+        }
+      }
+      return a;
+    }
+
+    private Anchors computeAnchors()
+    {
+      Anchors a = new Anchors();
+      Map<Source,Integer> sourceIndices = Generics.newHashMap();
+      Map<List<PatternAnchors.Anchor>,Integer> clauseIndices = Generics.newHashMap();
+      a.ruleSources = new int[rules.size()];
+      a.ruleClauses = new int[rules.size()][];
+      for (int i = 0; i < rules.size(); i++) {
+        ExtractRule<?,?> rule = rules.get(i);
+        if (rule instanceof AnnotationExtractRule) {
+          rule = ((AnnotationExtractRule<?,?>) rule).extractRule;
+        }
+        Source source = null;
+        if (rule instanceof CoreMapExtractRule) {
+          CoreMapExtractRule<?,?> r = (CoreMapExtractRule<?,?>) rule;
+          source = new Source(SourceType.FIELD, r.annotationField);
+          rule = r.extractRule;
+        } else if (rule instanceof CoreMapToListExtractRule) {
+          source = new Source(SourceType.SINGLETON, null);
+          rule = ((CoreMapToListExtractRule<?>) rule).extractRule;
+        } else {
+          source = new Source(SourceType.INPUT, null);
+        }
+        List<List<PatternAnchors.Anchor>> clauses = null;
+        if (rule instanceof SequencePatternExtractRule) {
+          clauses = PatternAnchors.getClauses(((SequencePatternExtractRule<?,?>) rule).pattern.getPatternExpr());
+        }
+        if (clauses == null || clauses.isEmpty()) {
+          a.ruleSources[i] = -1;
+          continue;
+        }
+        Integer sourceIndex = sourceIndices.get(source);
+        if (sourceIndex == null) {
+          sourceIndex = a.sources.size();
+          a.sources.add(source);
+          sourceIndices.put(source, sourceIndex);
+        }
+        a.ruleSources[i] = sourceIndex;
+        a.ruleClauses[i] = new int[clauses.size()];
+        for (int j = 0; j < clauses.size(); j++) {
+          Integer clauseIndex = clauseIndices.get(clauses.get(j));
+          if (clauseIndex == null) {
+            clauseIndex = a.clauses.size();
+            a.clauses.add(clauses.get(j));
+            clauseIndices.put(clauses.get(j), clauseIndex);
+          }
+          a.ruleClauses[i][j] = clauseIndex;
+        }
+      }
+      return a;
+    }
+
+    /**
+     * The sequence a source gives for an input, or null if there is none
+     * (and the rules on it can't match), or UNKNOWN_SEQUENCE if the rules on
+     * it have to be tried anyway.
+     */
+    private Object getSequence(Source source, I in)
+    {
+      switch (source.type) {
+        case INPUT:
+          return (in instanceof List || in == null) ? in : UNKNOWN_SEQUENCE;
+        case SINGLETON:
+          return (in instanceof CoreMap) ? Arrays.asList(in) : UNKNOWN_SEQUENCE;
+        case FIELD:
+          if ( ! (in instanceof CoreMap)) {
+            return UNKNOWN_SEQUENCE;
+          }
+          Object field = PatternAnchors.getValue((CoreMap) in, source.field);
+          return (field instanceof List || field == null) ? field : UNKNOWN_SEQUENCE;
+        default:
+          return UNKNOWN_SEQUENCE;
+      }
+    }
+
+    public boolean extract(I in, List<O> out) {
+      Anchors a = getAnchors();
+      // what each source gives, and whether each clause holds for it (0 not
+      // yet known, 1 holds, 2 doesn't), worked out as needed
+      PatternAnchors.SequenceValues[] values = new PatternAnchors.SequenceValues[a.sources.size()];
+      boolean[] tryAll = new boolean[a.sources.size()];
+      boolean[] tryNone = new boolean[a.sources.size()];
+      byte[][] holds = new byte[a.sources.size()][];
+      boolean extracted = false;
+      for (int i = 0; i < rules.size(); i++) {
+        int s = a.ruleSources[i];
+        if (s >= 0 && ! tryAll[s]) {
+          if (values[s] == null && ! tryNone[s]) {
+            Object seq = getSequence(a.sources.get(s), in);
+            if (seq == null) {
+              tryNone[s] = true;
+            } else if (seq == UNKNOWN_SEQUENCE) {
+              tryAll[s] = true;
+            } else {
+              values[s] = new PatternAnchors.SequenceValues((List<?>) seq);
+              holds[s] = new byte[a.clauses.size()];
+            }
+          }
+          if (tryNone[s]) {
+            continue;
+          }
+          if ( ! tryAll[s] && ! allHold(a, a.ruleClauses[i], values[s], holds[s])) {
+            continue;
+          }
+        }
+        if (rules.get(i).extract(in, out)) {
+          extracted = true;
+        }
+      }
+      return extracted;
+    }
+
+    private static boolean allHold(Anchors a, int[] clauses, PatternAnchors.SequenceValues values, byte[] holds)
+    {
+      for (int c : clauses) {
+        if (holds[c] == 0) {
+          holds[c] = values.holds(a.clauses.get(c)) ? (byte) 1 : (byte) 2;
+        }
+        if (holds[c] == 2) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+
   public static class CoreMapExtractRule<T,O> implements ExtractRule<CoreMap, O>
   {
     Class annotationField;
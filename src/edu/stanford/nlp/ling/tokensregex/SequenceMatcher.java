@@ -84,6 +84,9 @@ public class SequenceMatcher<T> extends BasicSequenceMatchResult<T> {
   Iterator<Integer> curMatchIter = null;
   MatchedStates<T> curMatchStates = null;
 
+  // For patterns that can be matched in linear time (created when first used)
+  SequenceMatchProgram.Runner programRunner = null;
+
   protected SequenceMatcher(SequencePattern pattern, List<? extends T> elements)
   {
     this.pattern = pattern;
@@ -322,6 +325,9 @@ public class SequenceMatcher<T> extends BasicSequenceMatchResult<T> {
     matchingCompleted = false;
     if (matchStart)  {
       match = findMatchStart(start, false);
+    } else if (getProgramRunner() != null) {
+      // Tries all the start positions at once
+      match = findMatchStartProgram(start, false);
     } else {
       for (int i = start; i < regionEnd; i++) {
         match = findMatchStart(i, false);
@@ -390,6 +396,9 @@ public class SequenceMatcher<T> extends BasicSequenceMatchResult<T> {
   {
     switch (findType) {
       case FIND_NONOVERLAPPING:
+        if (getProgramRunner() != null) {
+          return findMatchStartProgram(start, true);
+        }
         return findMatchStartBacktracking(start, matchAllTokens);
       case FIND_ALL:
         // TODO: Should use backtracking here too, need to keep track of todo stack
@@ -400,6 +409,38 @@ public class SequenceMatcher<T> extends BasicSequenceMatchResult<T> {
     }
   }
 
+  private SequenceMatchProgram.Runner getProgramRunner()
+  {
+    if (programRunner == null && pattern.program != null && findType == FIND_NONOVERLAPPING) {
+      programRunner = pattern.program.newRunner();
+    }
+    return (findType == FIND_NONOVERLAPPING)? programRunner:null;
+  }
+
+  // Finds the same match as findMatchStartBacktracking, in linear time
+  //  (the match is the same whether all tokens are matched or not)
+  private boolean findMatchStartProgram(int start, boolean anchored)
+  {
+    SequenceMatchProgram.Runner runner = getProgramRunner();
+    boolean match = runner.run(elements, regionEnd, matchWithResult, start, anchored);
+    clearMatched();
+    if (match) {
+      for (int i = 0; i < matchedGroups.length; i++) {
+        int groupStart = runner.groupStart(i);
+        if (groupStart >= 0) {
+          matchedGroups[i] = new MatchedGroup(groupStart, runner.groupEnd(i), runner.groupValue(i));
+        }
+      }
+      if (runner.hasNodeResults()) {
+        if (matchedResults == null) {
+          matchedResults = new Object[elements.size()];
+        }
+        runner.getNodeResults(matchedResults);
+      }
+    }
+    return match;
+  }
+
   // Does not do backtracking - alternative matches are stored as we go
   protected boolean findMatchStartNoBacktracking(int start, boolean matchAllTokens)
   {
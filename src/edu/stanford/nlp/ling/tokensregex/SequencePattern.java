@@ -82,6 +82,8 @@ public class SequencePattern<T> {
   private SequenceMatchAction<T> action;
   State root;
   int totalGroups = 0;
+  // NFA flattened for matching in linear time (null if the NFA has states it doesn't support)
+  SequenceMatchProgram program;
 
   // binding of group number to variable name
   VarGroupBindings varGroupBindings;
@@ -108,6 +110,7 @@ public class SequencePattern<T> {
     Frag f = nodeSequencePattern.build();
     f.connect(MATCH_STATE);
     this.root = f.start;
+    this.program = SequenceMatchProgram.compile(root, totalGroups);
     varGroupBindings = new VarGroupBindings(totalGroups+1);
     nodeSequencePattern.updateBindings(varGroupBindings);
   }
@@ -120,6 +123,19 @@ public class SequencePattern<T> {
     return patternExpr;
   }
 
+  /**
+   * Returns whether matches of this pattern (for
+   * {@link SequenceMatcher.FindType#FIND_NONOVERLAPPING}) are found in time
+   * linear in the length of the sequence.  This holds for patterns without
+   * back references, multinode patterns, conjunctions, nongreedy repeats,
+   * and repeats with bounds over 10; other patterns are matched
+   * by backtracking, which can take time exponential in the length of the
+   * sequence.
+   */
+  public boolean isLinearTime() {
+    return program != null;
+  }
+
   public double getPriority() {
     return priority;
   }
@@ -863,7 +879,7 @@ public class SequencePattern<T> {
   /**
    * Final accepting state
    */
-  private static class MatchState extends State {
+  static class MatchState extends State {
     protected <T> boolean match(int bid, SequenceMatcher.MatchedStates<T> matchedStates, boolean consume, State prevState) {
       // Always add this state back (effectively looping forever in this matching state)
       matchedStates.addState(bid, this);
@@ -874,7 +890,7 @@ public class SequencePattern<T> {
   /**
    * State with associated value
    */
-  private static class ValueState extends State {
+  static class ValueState extends State {
     Object value;
 
     private ValueState(Object value) {
@@ -887,7 +903,7 @@ public class SequencePattern<T> {
   /**
    * State for matching one element/node
    */
-  private static class NodePatternState extends State {
+  static class NodePatternState extends State {
     NodePattern pattern;
 
     protected NodePatternState(NodePattern p) {
@@ -27,6 +27,8 @@ public class BinaryGrammar implements Serializable, Iterable<BinaryRule> {
   private transient Set<BinaryRule>[] ruleSetWithRC;
   private transient BinaryRule[][] splitRulesWithLC;
   private transient BinaryRule[][] splitRulesWithRC;
+  private transient RuleArrays splitRuleArraysWithLC;
+  private transient RuleArrays splitRuleArraysWithRC;
   //  private transient BinaryRule[][] splitRulesWithParent = null;
   private transient Map<BinaryRule,BinaryRule> ruleMap;
   // for super speed! (maybe)
@@ -104,6 +106,8 @@ public class BinaryGrammar implements Serializable, Iterable<BinaryRule> {
       // parent accessor
       //      splitRulesWithParent[state] = toBRArray(rulesWithParent[state]);
     }
+    splitRuleArraysWithLC = RuleArrays.fromBinaryRules(splitRulesWithLC);
+    splitRuleArraysWithRC = RuleArrays.fromBinaryRules(splitRulesWithRC);
   }
 
   public BinaryRule[] splitRulesWithLC(int state) {
@@ -120,6 +124,16 @@ public class BinaryGrammar implements Serializable, Iterable<BinaryRule> {
     return splitRulesWithRC[state];
   }
 
+  /** The rules of splitRulesWithLC(state) for every state, as primitive arrays keyed by left child. */
+  RuleArrays splitRuleArraysWithLC() {
+    return splitRuleArraysWithLC;
+  }
+
+  /** The rules of splitRulesWithRC(state) for every state, as primitive arrays keyed by right child. */
+  RuleArrays splitRuleArraysWithRC() {
+    return splitRuleArraysWithRC;
+  }
+
   //  public BinaryRule[] splitRulesWithParent(int state) {
   //    return splitRulesWithParent[state];
   //  }
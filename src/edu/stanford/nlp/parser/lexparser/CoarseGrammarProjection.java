@@ -0,0 +1,306 @@
+package edu.stanford.nlp.parser.lexparser;
+
+import edu.stanford.nlp.math.SloppyMath;
+import edu.stanford.nlp.trees.TreebankLanguagePack;
+import edu.stanford.nlp.util.Generics;
+import edu.stanford.nlp.util.HashIndex;
+import edu.stanford.nlp.util.Index;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/** Projects a split, binarized grammar onto the basic categories of its
+ *  states, for coarse-to-fine parsing (see CoarseToFinePruner).
+ *  Each real state is mapped to its basic category according to the
+ *  TreebankLanguagePack, so that e.g. NP^S-B and NP-TMP^VP both become NP.
+ *  Each synthetic (binarization) state is mapped to '@' plus the category
+ *  of the real state whose expansion it is part of, found by following the
+ *  rules down from real parents, since compacted grammars share synthetic
+ *  states with opaque names like @NodeSet-1234.
+ *  <br>
+ *  The coarse rule probabilities are those of the fine rules that project
+ *  onto them, weighted by how often their parents are expected to occur:
+ *  P(A -&gt; B C) = sum over a in A, b in B, c in C of E(a) P(a -&gt; b c),
+ *  divided by the sum over a in A of E(a).
+ *  For these to be probabilities, the scores that binarization and
+ *  compaction spread over the rules of an expansion are first pushed
+ *  back onto the rules that introduce each synthetic state, which doesn't
+ *  change the score of any complete derivation.  If the pushing or the
+ *  expected counts don't settle, the fine rules are used as they are
+ *  and weighted equally.  Unary rules that project onto X -&gt; X are dropped.
+ *  <br>
+ *  A projection doesn't change once built, and can be shared by parsers
+ *  in different threads.
+ */
+class CoarseGrammarProjection implements GrammarProjection {
+
+  /** The most passes made over the rules when pushing weights or
+   *  computing expected counts before giving up.
+   */
+  private static final int MAX_ITERATIONS = 1000;
+  private static final double TOLERANCE = 1e-7;
+
+  private final BinaryGrammar sourceBG;
+  private final UnaryGrammar sourceUG;
+  private final BinaryGrammar targetBG;
+  private final UnaryGrammar targetUG;
+
+  private final Index<String> coarseIndex;
+  private final int[] projection;
+
+  /** All the coarse binary rules, keyed by left child */
+  final RuleArrays binaryRulesByLeftChild;
+  /** The closed coarse unary rules, keyed by child */
+  final RuleArrays closedUnariesByChild;
+  /** The closed coarse unary rules, keyed by parent */
+  final RuleArrays closedUnariesByParent;
+  /** The fine split rules keyed by left child, grouped by coarse parent */
+  final RuleArrays fineRulesWithLC;
+  /** The fine split rules keyed by right child, grouped by coarse parent */
+  final RuleArrays fineRulesWithRC;
+
+  CoarseGrammarProjection(BinaryGrammar bg, UnaryGrammar ug, Index<String> stateIndex, TreebankLanguagePack tlp) {
+    sourceBG = bg;
+    sourceUG = ug;
+    int numStates = stateIndex.size();
+    boolean[] synthetic = new boolean[numStates];
+    for (int state = 0; state < numStates; state++) {
+      String label = stateIndex.get(state);
+      synthetic[state] = label.length() > 1 && label.charAt(0) == '@';
+    }
+    coarseIndex = new HashIndex<String>();
+    projection = new int[numStates];
+    String[] categories = coarseCategories(bg, ug, stateIndex, synthetic, tlp);
+    for (int state = 0; state < numStates; state++) {
+      projection[state] = coarseIndex.indexOf(categories[state], true);
+    }
+    int numCoarseStates = coarseIndex.size();
+
+    double[] potential = pushedPotentials(bg, ug, synthetic);
+    double[] expectedCount = expectedCounts(bg, ug, potential, stateIndex.indexOf(tlp.startSymbol()));
+    double[] coarseCount = new double[numCoarseStates];
+    for (int state = 0; state < numStates; state++) {
+      coarseCount[projection[state]] += expectedCount[state];
+    }
+
+    // the expected number of uses of the fine rules that project onto each coarse rule
+    Map<BinaryRule,Double> binaries = Generics.newHashMap();
+    for (BinaryRule br : bg) {
+      double uses = expectedCount[br.parent] * Math.exp(br.score + potential[br.leftChild] + potential[br.rightChild] - potential[br.parent]);
+      BinaryRule coarse = new BinaryRule(projection[br.parent], projection[br.leftChild], projection[br.rightChild]);
+      Double total = binaries.get(coarse);
+      binaries.put(coarse, (total == null) ? uses : total + uses);
+    }
+    Map<UnaryRule,Double> unaries = Generics.newHashMap();
+    for (UnaryRule ur : ug) {
+      UnaryRule coarse = new UnaryRule(projection[ur.parent], projection[ur.child]);
+      if (coarse.parent == coarse.child) {
+        continue;
+      }
+      double uses = expectedCount[ur.parent] * Math.exp(ur.score + potential[ur.child] - potential[ur.parent]);
+      Double total = unaries.get(coarse);
+      unaries.put(coarse, (total == null) ? uses : total + uses);
+    }
+
+    targetBG = new BinaryGrammar(coarseIndex);
+    for (Map.Entry<BinaryRule,Double> entry : binaries.entrySet()) {
+      BinaryRule br = entry.getKey();
+      br.score = (float) Math.log(entry.getValue() / coarseCount[br.parent]);
+      targetBG.addRule(br);
+    }
+    targetBG.splitRules();
+    targetUG = new UnaryGrammar(coarseIndex);
+    for (Map.Entry<UnaryRule,Double> entry : unaries.entrySet()) {
+      UnaryRule ur = entry.getKey();
+      ur.score = (float) Math.log(entry.getValue() / coarseCount[ur.parent]);
+      targetUG.addRule(ur);
+    }
+    targetUG.purgeRules();
+
+    BinaryRule[][] rulesByLeftChild = new BinaryRule[numCoarseStates][];
+    for (int state = 0; state < numCoarseStates; state++) {
+      List<BinaryRule> rules = targetBG.ruleListByLeftChild(state);
+      rulesByLeftChild[state] = rules.toArray(new BinaryRule[rules.size()]);
+    }
+    binaryRulesByLeftChild = RuleArrays.fromBinaryRules(rulesByLeftChild);
+    closedUnariesByChild = targetUG.closedRuleArraysByChild();
+    closedUnariesByParent = targetUG.closedRuleArraysByParent();
+
+    fineRulesWithLC = RuleArrays.groupByParent(bg.splitRuleArraysWithLC(), projection, numCoarseStates);
+    fineRulesWithRC = RuleArrays.groupByParent(bg.splitRuleArraysWithRC(), projection, numCoarseStates);
+  }
+
+  /** The coarse category of each state: the basic category of real states,
+   *  and '@' plus the category of the real state above them for synthetic
+   *  states.  A synthetic state that can't be reached from a real state
+   *  falls back on its own basic category.
+   */
+  private static String[] coarseCategories(BinaryGrammar bg, UnaryGrammar ug, Index<String> stateIndex, boolean[] synthetic, TreebankLanguagePack tlp) {
+    int numStates = stateIndex.size();
+    String[] categories = new String[numStates];
+    for (int state = 0; state < numStates; state++) {
+      if ( ! synthetic[state]) {
+        categories[state] = basicCategory(stateIndex.get(state), tlp);
+      }
+    }
+    for (boolean changed = true; changed; ) {
+      changed = false;
+      for (BinaryRule br : bg) {
+        if (categories[br.parent] != null) {
+          changed |= inheritCategory(categories, synthetic, br.parent, br.leftChild);
+          changed |= inheritCategory(categories, synthetic, br.parent, br.rightChild);
+        }
+      }
+      for (UnaryRule ur : ug) {
+        if (categories[ur.parent] != null) {
+          changed |= inheritCategory(categories, synthetic, ur.parent, ur.child);
+        }
+      }
+    }
+    for (int state = 0; state < numStates; state++) {
+      if (categories[state] == null) {
+        categories[state] = '@' + basicCategory(stateIndex.get(state).substring(1), tlp);
+      }
+    }
+    return categories;
+  }
+
+  private static boolean inheritCategory(String[] categories, boolean[] synthetic, int parent, int child) {
+    if ( ! synthetic[child] || categories[child] != null) {
+      return false;
+    }
+    String category = categories[parent];
+    categories[child] = synthetic[parent] ? category : '@' + category;
+    return true;
+  }
+
+  private static String basicCategory(String label, TreebankLanguagePack tlp) {
+    String category = tlp.basicCategory(label);
+    // don't let an odd state collapse to nothing
+    return (category.length() > 0) ? category : label;
+  }
+
+  /** The log of the total score of all the ways of rewriting each synthetic
+   *  state down to real states, or zero for real states.  Adding the
+   *  potentials of its children and subtracting that of its parent from the
+   *  score of each rule makes the rules of each synthetic state sum to one,
+   *  without changing the score of any complete derivation.
+   *  Returns all zeros if the potentials don't settle.
+   */
+  private static double[] pushedPotentials(BinaryGrammar bg, UnaryGrammar ug, boolean[] synthetic) {
+    int numStates = synthetic.length;
+    double[] potential = new double[numStates];
+    for (int state = 0; state < numStates; state++) {
+      if (synthetic[state]) {
+        potential[state] = Double.NEGATIVE_INFINITY;
+      }
+    }
+    for (int iter = 0; iter < MAX_ITERATIONS; iter++) {
+      double[] next = new double[numStates];
+      for (int state = 0; state < numStates; state++) {
+        if (synthetic[state]) {
+          next[state] = Double.NEGATIVE_INFINITY;
+        }
+      }
+      for (BinaryRule br : bg) {
+        if (synthetic[br.parent]) {
+          next[br.parent] = SloppyMath.logAdd(next[br.parent], br.score + potential[br.leftChild] + potential[br.rightChild]);
+        }
+      }
+      for (UnaryRule ur : ug) {
+        if (synthetic[ur.parent] && ur.parent != ur.child) {
+          next[ur.parent] = SloppyMath.logAdd(next[ur.parent], ur.score + potential[ur.child]);
+        }
+      }
+      boolean settled = true;
+      for (int state = 0; state < numStates && settled; state++) {
+        settled = next[state] == potential[state] || Math.abs(next[state] - potential[state]) < TOLERANCE;
+      }
+      potential = next;
+      if (settled) {
+        for (int state = 0; state < numStates; state++) {
+          if (potential[state] == Double.NEGATIVE_INFINITY) {
+            potential[state] = 0.0; // a synthetic state that never rewrites
+          }
+        }
+        return potential;
+      }
+    }
+    return new double[numStates];
+  }
+
+  /** The expected number of times each state occurs in a tree drawn from
+   *  the grammar, with the given potentials pushed onto its rules.  Returns
+   *  all ones if the counts don't settle.
+   */
+  private static double[] expectedCounts(BinaryGrammar bg, UnaryGrammar ug, double[] potential, int goal) {
+    int numStates = potential.length;
+    double[] counts = new double[numStates];
+    for (int iter = 0; iter < MAX_ITERATIONS; iter++) {
+      double[] next = new double[numStates];
+      if (goal >= 0) {
+        next[goal] = 1.0;
+      }
+      for (BinaryRule br : bg) {
+        double uses = counts[br.parent] * Math.exp(br.score + potential[br.leftChild] + potential[br.rightChild] - potential[br.parent]);
+        next[br.leftChild] += uses;
+        next[br.rightChild] += uses;
+      }
+      for (UnaryRule ur : ug) {
+        if (ur.parent != ur.child) {
+          next[ur.child] += counts[ur.parent] * Math.exp(ur.score + potential[ur.child] - potential[ur.parent]);
+        }
+      }
+      boolean settled = true;
+      for (int state = 0; state < numStates && settled; state++) {
+        settled = Math.abs(next[state] - counts[state]) < TOLERANCE;
+      }
+      counts = next;
+      if (settled) {
+        for (int state = 0; state < numStates; state++) {
+          counts[state] += TOLERANCE; // so that no coarse state has a total of zero
+        }
+        return counts;
+      }
+    }
+    Arrays.fill(counts, 1.0);
+    return counts;
+  }
+
+  public int project(int state) {
+    return projection[state];
+  }
+
+  /** The coarse state of each fine state.  This is the projection's own
+   *  array, for inner loops, and mustn't be changed.
+   */
+  int[] projection() {
+    return projection;
+  }
+
+  public int numCoarseStates() {
+    return coarseIndex.size();
+  }
+
+  public Index<String> coarseIndex() {
+    return coarseIndex;
+  }
+
+  public UnaryGrammar sourceUG() {
+    return sourceUG;
+  }
+
+  public BinaryGrammar sourceBG() {
+    return sourceBG;
+  }
+
+  public UnaryGrammar targetUG() {
+    return targetUG;
+  }
+
+  public BinaryGrammar targetBG() {
+    return targetBG;
+  }
+
+}
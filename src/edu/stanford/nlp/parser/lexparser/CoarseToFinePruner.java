@@ -0,0 +1,353 @@
+package edu.stanford.nlp.parser.lexparser;
+
+import edu.stanford.nlp.math.SloppyMath;
+
+import java.util.Arrays;
+
+/** Decides which chart cells and states the exhaustive PCFG parser needs to
+ *  build, by first parsing the sentence with a CoarseGrammarProjection of
+ *  its grammar.
+ *  <br>
+ *  The coarse parse computes inside and outside scores over the coarse
+ *  categories, summing over derivations, and a category is kept over a
+ *  span only if its posterior probability there, the total score of the
+ *  coarse parses that use it over that span divided by the total score of
+ *  all coarse parses of the sentence, is at least <code>threshold</code>.
+ *  (The sums are over binary derivations; chains of unary rules are scored
+ *  by the best chain, since the grammar's unary closure is taken under
+ *  max.)  A smaller threshold keeps more of the fine chart; the coarse
+ *  grammar is only an approximation of the fine one, so pruning can lose
+ *  the best fine parse.
+ *  <br>
+ *  A pruner holds the coarse charts as scratch space that grows with the
+ *  longest sentence seen, so each parser needs its own.
+ */
+class CoarseToFinePruner {
+
+  private final CoarseGrammarProjection coarse;
+  /** The log of the least posterior probability of a state that is kept */
+  private final float logThreshold;
+  private final int numCoarseStates;
+
+  private float[][][] iScore; // start idx, end idx, coarse state -> logProb
+  private float[][][] oScore; // start idx, end idx, coarse state -> logProb
+  // The inside scores of each cell as probabilities relative to the best
+  // one in the cell, and that best score, so that the binary rules can be
+  // summed without a logAdd for each
+  private double[][][] iProb; // start idx, end idx, coarse state -> prob / exp(iMax)
+  private float[][] iMax; // start idx, end idx -> best logProb
+  private boolean[][][] allowed; // start idx, end idx, coarse state -> whether its fine states may be built
+  private boolean[][] anyAllowed; // start idx, end idx -> whether any coarse state is allowed
+  private int arraySize; // = 0;
+  /** The probabilities of coarse.binaryRulesByLeftChild */
+  private final double[] binaryProb;
+  /** The scores of a cell before its unary rules are applied */
+  private final float[] beforeUnaries;
+  // sums over the binary rules for one split, relative to a scale
+  private final double[] leftSum;
+  private final double[] rightSum;
+  /** The outside scores of a cell, relative to the best of them */
+  private final double[] oProb;
+
+  CoarseToFinePruner(CoarseGrammarProjection coarse, double threshold) {
+    this.coarse = coarse;
+    this.logThreshold = (float) Math.log(threshold);
+    this.numCoarseStates = coarse.numCoarseStates();
+    float[] binaryScore = coarse.binaryRulesByLeftChild.score;
+    binaryProb = new double[binaryScore.length];
+    for (int rule = 0; rule < binaryScore.length; rule++) {
+      binaryProb[rule] = Math.exp(binaryScore[rule]);
+    }
+    beforeUnaries = new float[numCoarseStates];
+    leftSum = new double[numCoarseStates];
+    rightSum = new double[numCoarseStates];
+    oProb = new double[numCoarseStates];
+  }
+
+  /** The coarse state of each fine state; see
+   *  CoarseGrammarProjection.projection.
+   */
+  int[] projection() {
+    return coarse.projection();
+  }
+
+  /** Returns which coarse states may have their fine states built over
+   *  [start, end), according to the last successful call to prune.
+   */
+  boolean[] allowedStates(int start, int end) {
+    return allowed[start][end];
+  }
+
+  /** Whether any state at all may be built over [start, end), according
+   *  to the last successful call to prune.
+   */
+  boolean anyAllowed(int start, int end) {
+    return anyAllowed[start][end];
+  }
+
+  /** The fine grammar's split rules keyed by left child, grouped by the
+   *  coarse state of their parent; see RuleArrays.groupByParent.
+   */
+  RuleArrays rulesWithLC() {
+    return coarse.fineRulesWithLC;
+  }
+
+  /** The fine grammar's split rules keyed by right child, grouped by the
+   *  coarse state of their parent.
+   */
+  RuleArrays rulesWithRC() {
+    return coarse.fineRulesWithRC;
+  }
+
+  /** Parses with the coarse grammar and works out the states that are
+   *  allowed over each span.  The fine chart must already hold the scores
+   *  of the tags (and of any spans up to maxSpanForTags), and the coarse
+   *  parse covers exactly the spans that the fine parser fills in.
+   *
+   *  @return Whether the pruning can be used.  It can't if the coarse
+   *      grammar finds no parse.
+   */
+  boolean prune(float[][][] fineIScore, int length, int goal, int maxSpanForTags) {
+    if (length > arraySize) {
+      createArrays(length);
+    }
+    int spanForTags = Math.max(1, maxSpanForTags);
+    for (int start = 0; start < length; start++) {
+      for (int end = start + 1; end <= length; end++) {
+        float[] iScore_start_end = iScore[start][end];
+        Arrays.fill(iScore_start_end, Float.NEGATIVE_INFINITY);
+        Arrays.fill(oScore[start][end], Float.NEGATIVE_INFINITY);
+        if (end - start <= spanForTags) {
+          float[] fine = fineIScore[start][end];
+          for (int state = 0; state < fine.length; state++) {
+            float score = fine[state];
+            if (score == Float.NEGATIVE_INFINITY) {
+              continue;
+            }
+            // the best of the fine states: their lexical scores aren't
+            // weighted by how likely each split of a category is, so summing
+            // them would favor categories with many splits
+            int cState = coarse.project(state);
+            if (score > iScore_start_end[cState]) {
+              iScore_start_end[cState] = score;
+            }
+          }
+        }
+      }
+    }
+
+    doInsideScores(length);
+    int cGoal = coarse.project(goal);
+    float totalScore = iScore[0][length][cGoal];
+    if (totalScore == Float.NEGATIVE_INFINITY) {
+      return false;
+    }
+    oScore[0][length][cGoal] = 0.0f;
+    doOutsideScores(length);
+
+    float cutoff = totalScore + logThreshold;
+    for (int start = 0; start < length; start++) {
+      for (int end = start + 1; end <= length; end++) {
+        float[] iScore_start_end = iScore[start][end];
+        float[] oScore_start_end = oScore[start][end];
+        boolean[] allowed_start_end = allowed[start][end];
+        boolean any = false;
+        for (int cState = 0; cState < numCoarseStates; cState++) {
+          allowed_start_end[cState] = iScore_start_end[cState] + oScore_start_end[cState] >= cutoff;
+          any |= allowed_start_end[cState];
+        }
+        anyAllowed[start][end] = any;
+      }
+    }
+    return true;
+  }
+
+  private void createArrays(int length) {
+    iScore = new float[length][length + 1][];
+    oScore = new float[length][length + 1][];
+    iProb = new double[length][length + 1][];
+    iMax = new float[length][length + 1];
+    allowed = new boolean[length][length + 1][];
+    anyAllowed = new boolean[length][length + 1];
+    for (int start = 0; start < length; start++) {
+      for (int end = start + 1; end <= length; end++) {
+        iScore[start][end] = new float[numCoarseStates];
+        oScore[start][end] = new float[numCoarseStates];
+        iProb[start][end] = new double[numCoarseStates];
+        allowed[start][end] = new boolean[numCoarseStates];
+      }
+    }
+    arraySize = length;
+  }
+
+  /** Scales the scores to probabilities relative to the best of them.
+   *
+   *  @return The best score
+   */
+  private static float toRelativeProbs(float[] scores, double[] probs) {
+    float max = Float.NEGATIVE_INFINITY;
+    for (float score : scores) {
+      if (score > max) {
+        max = score;
+      }
+    }
+    for (int state = 0; state < scores.length; state++) {
+      probs[state] = (scores[state] == Float.NEGATIVE_INFINITY) ? 0.0 : Math.exp(scores[state] - max);
+    }
+    return max;
+  }
+
+  /** Adds the sums, which are relative to exp(scale), to the scores,
+   *  and clears them.
+   */
+  private static void addSums(double[] sums, float scale, float[] scores) {
+    for (int state = 0; state < sums.length; state++) {
+      if (sums[state] != 0.0) {
+        scores[state] = SloppyMath.logAdd(scores[state], scale + (float) Math.log(sums[state]));
+        sums[state] = 0.0;
+      }
+    }
+  }
+
+  /** Inside scores summed over derivations, over the same spans as
+   *  ExhaustivePCFGParser.doInsideScores.  The binary rules for each split
+   *  are summed as probabilities, scaled by the best scores of the two
+   *  child cells, and added to the log scores once per state.
+   */
+  private void doInsideScores(int length) {
+    RuleArrays binaries = coarse.binaryRulesByLeftChild;
+    int[] binaries_start = binaries.start;
+    int[] binaries_parent = binaries.parent;
+    int[] binaries_rightChild = binaries.rightChild;
+    double[] binaries_prob = binaryProb;
+    RuleArrays unaries = coarse.closedUnariesByChild;
+    int[] unaries_start = unaries.start;
+    int[] unaries_parent = unaries.parent;
+    float[] unaries_score = unaries.score;
+    double[] sum = leftSum;
+
+    for (int start = 0; start < length; start++) {
+      for (int end = start + 1; end <= length; end++) {
+        iMax[start][end] = toRelativeProbs(iScore[start][end], iProb[start][end]);
+      }
+    }
+    for (int diff = 2; diff <= length; diff++) {
+      for (int start = 0; start < ((diff == length) ? 1: length - diff); start++) {
+        int end = start + diff;
+        float[] iScore_start_end = iScore[start][end];
+        for (int split = start + 1; split < end; split++) {
+          float scale = iMax[start][split] + iMax[split][end];
+          if (scale == Float.NEGATIVE_INFINITY) {
+            continue;
+          }
+          double[] iProb_left = iProb[start][split];
+          double[] iProb_right = iProb[split][end];
+          for (int leftState = 0; leftState < numCoarseStates; leftState++) {
+            double lP = iProb_left[leftState];
+            if (lP == 0.0) {
+              continue;
+            }
+            for (int rule = binaries_start[leftState], rulesEnd = binaries_start[leftState + 1]; rule < rulesEnd; rule++) {
+              double rP = iProb_right[binaries_rightChild[rule]];
+              if (rP == 0.0) {
+                continue;
+              }
+              sum[binaries_parent[rule]] += binaries_prob[rule] * lP * rP;
+            }
+          }
+          addSums(sum, scale, iScore_start_end);
+        }
+        // the closed rules already cover chains, so each is applied only
+        // to the scores from binary rules
+        System.arraycopy(iScore_start_end, 0, beforeUnaries, 0, numCoarseStates);
+        for (int state = 0; state < numCoarseStates; state++) {
+          float iS = beforeUnaries[state];
+          if (iS == Float.NEGATIVE_INFINITY) {
+            continue;
+          }
+          for (int ur = unaries_start[state], unariesEnd = unaries_start[state + 1]; ur < unariesEnd; ur++) {
+            float tot = iS + unaries_score[ur];
+            int parentState = unaries_parent[ur];
+            iScore_start_end[parentState] = SloppyMath.logAdd(iScore_start_end[parentState], tot);
+          }
+        }
+        iMax[start][end] = toRelativeProbs(iScore_start_end, iProb[start][end]);
+      }
+    }
+  }
+
+  /** Outside scores summed over derivations, undoing the inside pass
+   *  cell by cell.  As in the inside pass, the binary rules for each split
+   *  are summed as probabilities.
+   */
+  private void doOutsideScores(int length) {
+    RuleArrays binaries = coarse.binaryRulesByLeftChild;
+    int[] binaries_start = binaries.start;
+    int[] binaries_parent = binaries.parent;
+    int[] binaries_rightChild = binaries.rightChild;
+    double[] binaries_prob = binaryProb;
+    RuleArrays unaries = coarse.closedUnariesByParent;
+    int[] unaries_start = unaries.start;
+    int[] unaries_child = unaries.leftChild;
+    float[] unaries_score = unaries.score;
+
+    for (int diff = length; diff >= 2; diff--) {
+      for (int start = 0; start < ((diff == length) ? 1: length - diff); start++) {
+        int end = start + diff;
+        float[] iScore_start_end = iScore[start][end];
+        float[] oScore_start_end = oScore[start][end];
+        System.arraycopy(oScore_start_end, 0, beforeUnaries, 0, numCoarseStates);
+        for (int state = 0; state < numCoarseStates; state++) {
+          float oS = beforeUnaries[state];
+          if (oS == Float.NEGATIVE_INFINITY) {
+            continue;
+          }
+          for (int ur = unaries_start[state], unariesEnd = unaries_start[state + 1]; ur < unariesEnd; ur++) {
+            int childState = unaries_child[ur];
+            if (iScore_start_end[childState] == Float.NEGATIVE_INFINITY) {
+              continue;
+            }
+            float tot = oS + unaries_score[ur];
+            oScore_start_end[childState] = SloppyMath.logAdd(oScore_start_end[childState], tot);
+          }
+        }
+        float oMax = toRelativeProbs(oScore_start_end, oProb);
+        if (oMax == Float.NEGATIVE_INFINITY) {
+          continue;
+        }
+        for (int split = start + 1; split < end; split++) {
+          float leftMax = iMax[start][split];
+          float rightMax = iMax[split][end];
+          if (leftMax == Float.NEGATIVE_INFINITY || rightMax == Float.NEGATIVE_INFINITY) {
+            continue;
+          }
+          double[] iProb_left = iProb[start][split];
+          double[] iProb_right = iProb[split][end];
+          for (int leftState = 0; leftState < numCoarseStates; leftState++) {
+            double lP = iProb_left[leftState];
+            if (lP == 0.0) {
+              continue;
+            }
+            for (int rule = binaries_start[leftState], rulesEnd = binaries_start[leftState + 1]; rule < rulesEnd; rule++) {
+              int rightState = binaries_rightChild[rule];
+              double rP = iProb_right[rightState];
+              if (rP == 0.0) {
+                continue;
+              }
+              double oP = oProb[binaries_parent[rule]];
+              if (oP == 0.0) {
+                continue;
+              }
+              double pP = binaries_prob[rule] * oP;
+              leftSum[leftState] += pP * rP;
+              rightSum[rightState] += pP * lP;
+            }
+          }
+          addSums(leftSum, oMax + rightMax, oScore[start][split]);
+          addSums(rightSum, oMax + leftMax, oScore[split][end]);
+        }
+      }
+    }
+  }
+
+}
@@ -772,6 +772,37 @@ public class ExhaustiveDependencyParser implements Scorer, KBestViterbiParser {
     tf = new LabeledScoredTreeFactory();
   }
 
+  /**
+   * Roughly how many bytes the chart arrays currently take up.
+   */
+  public long estimatedArrayBytes() {
+    if (arraySize == 0 || iScoreH == null) {
+      return 0;
+    }
+    long n = arraySize + 1;
+    long tagNum = dg.numTagBins();
+    long bytes = 3 * n * tagNum * n * 4; // iScoreH, oScoreH, headStop
+    if (iScoreHSum != null) {
+      bytes += n * tagNum * n * 4;
+    }
+    bytes += 4 * n * n * tagNum; // the possible arrays
+    bytes += dg.numDistBins() * (n - 1) * tagNum * (n - 1) * tagNum * 4; // headScore
+    bytes += 2 * n * n * 4; // rawDistance, binDistance
+    return bytes;
+  }
+
+  /**
+   * Throws away the chart arrays.  They will be reallocated at the
+   * size needed by the next sentence parsed.
+   */
+  public void releaseArrays() {
+    iScoreH = oScoreH = headStop = iScoreHSum = null;
+    iPossibleByL = iPossibleByR = oPossibleByL = oPossibleByR = null;
+    headScore = null;
+    rawDistance = binDistance = null;
+    arraySize = 0;
+  }
+
   private void createArrays(int length) {
     iScoreH = oScoreH = headStop = iScoreHSum = null;
     iPossibleByL = iPossibleByR = oPossibleByL = oPossibleByR = null;
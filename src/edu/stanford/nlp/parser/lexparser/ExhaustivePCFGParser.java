@@ -322,6 +322,13 @@ public class ExhaustivePCFGParser implements Scorer, KBestViterbiParser {
 
   protected final boolean[] isTag; // this records whether grammar states (stateIndex) correspond to POS tags
 
+  /** If not null, decides which states the inside pass builds; see setCoarseToFine */
+  private CoarseToFinePruner coarseToFine; // = null;
+  /** Whether the current parse is pruned by coarseToFine */
+  private boolean pruning; // = false;
+  /** Set while reparsing exhaustively after a pruned parse failed */
+  private boolean pruningFailed; // = false;
+
 
   public boolean parse(List<? extends HasWord> sentence) {
     lr = null; // better nullPointer exception than silent error
@@ -451,6 +458,9 @@ public class ExhaustivePCFGParser implements Scorer, KBestViterbiParser {
     initializeChart(sentence);
     //if (op.testOptions.outsideFilter)
     // buildOFilter();
+    pruning = coarseToFine != null && ! pruningFailed && ! op.testOptions.lengthNormalization &&
+            length - 1 >= op.testOptions.coarseToFineMinLength &&
+            coarseToFine.prune(iScore, length, goal, op.testOptions.maxSpanForTags);
     if (op.testOptions.verbose) {
       Timing.tick("done.");
       System.err.print("Starting insides...");
@@ -464,6 +474,15 @@ public class ExhaustivePCFGParser implements Scorer, KBestViterbiParser {
     }
     bestScore = iScore[0][length][goal];
     boolean succeeded = hasParse();
+    if (pruning && !succeeded) {
+      // the pruning threw away every parse, so parse again without it
+      pruningFailed = true;
+      try {
+        return parse(sentence);
+      } finally {
+        pruningFailed = false;
+      }
+    }
     if (op.testOptions.doRecovery && !succeeded && !floodTags) {
       floodTags = true; // sentence will try to reparse
       // ms: disabled message. this is annoying and it doesn't really provide much information
@@ -524,6 +543,7 @@ public class ExhaustivePCFGParser implements Scorer, KBestViterbiParser {
 
   public boolean parse(Lattice lr) {
     sentence = null; // better nullPointer exception than silent error
+    pruning = false;
     if (lr != this.lr) {
       this.lr = lr;
       floodTags = false;
@@ -651,6 +671,10 @@ public class ExhaustivePCFGParser implements Scorer, KBestViterbiParser {
   }
 
   private void doOutsideScores() {
+    RuleArrays unaries = ug.closedRuleArraysByParent();
+    int numUnaryStates = Math.min(numStates, unaries.start.length - 1);
+    RuleArrays leftRules = bg.splitRuleArraysWithLC();
+    RuleArrays rightRules = bg.splitRuleArraysWithRC();
     for (int diff = length; diff >= 1; diff--) {
       if (Thread.interrupted()) {
         throw new RuntimeInterruptedException();
@@ -659,17 +683,17 @@ public class ExhaustivePCFGParser implements Scorer, KBestViterbiParser {
       for (int start = 0; start + diff <= length; start++) {
         int end = start + diff;
         // do unaries
-        for (int s = 0; s < numStates; s++) {
+        for (int s = 0; s < numUnaryStates; s++) {
           float oS = oScore[start][end][s];
           if (oS == Float.NEGATIVE_INFINITY) {
             continue;
           }
-          UnaryRule[] rules = ug.closedRulesByParent(s);
-          for (UnaryRule ur : rules) {
-            float pS = ur.score;
+          for (int ur = unaries.start[s], unariesEnd = unaries.start[s + 1]; ur < unariesEnd; ur++) {
+            int child = unaries.leftChild[ur];
+            float pS = unaries.score[ur];
             float tot = oS + pS;
-            if (tot > oScore[start][end][ur.child] && iScore[start][end][ur.child] > Float.NEGATIVE_INFINITY) {
-              oScore[start][end][ur.child] = tot;
+            if (tot > oScore[start][end][child] && iScore[start][end][child] > Float.NEGATIVE_INFINITY) {
+              oScore[start][end][child] = tot;
             }
           }
         }
@@ -679,47 +703,48 @@ public class ExhaustivePCFGParser implements Scorer, KBestViterbiParser {
           if (end < min1) {
             continue;
           }
-          BinaryRule[] rules = bg.splitRulesWithLC(s);
-          for (BinaryRule br  : rules) {
-            float oS = oScore[start][end][br.parent];
+          for (int br = leftRules.start[s], rulesEnd = leftRules.start[s + 1]; br < rulesEnd; br++) {
+            float oS = oScore[start][end][leftRules.parent[br]];
             if (oS == Float.NEGATIVE_INFINITY) {
               continue;
             }
-            int max1 = narrowLExtent[end][br.rightChild];
+            int leftChild = leftRules.leftChild[br];
+            int rightChild = leftRules.rightChild[br];
+            int max1 = narrowLExtent[end][rightChild];
             if (max1 < min1) {
               continue;
             }
             int min = min1;
             int max = max1;
             if (max - min > 2) {
-              int min2 = wideLExtent[end][br.rightChild];
+              int min2 = wideLExtent[end][rightChild];
               min = (min1 > min2 ? min1 : min2);
               if (max1 < min) {
                 continue;
               }
-              int max2 = wideRExtent[start][br.leftChild];
+              int max2 = wideRExtent[start][leftChild];
               max = (max1 < max2 ? max1 : max2);
               if (max < min) {
                 continue;
               }
             }
-            float pS = br.score;
+            float pS = leftRules.score[br];
             for (int split = min; split <= max; split++) {
-              float lS = iScore[start][split][br.leftChild];
+              float lS = iScore[start][split][leftChild];
               if (lS == Float.NEGATIVE_INFINITY) {
                 continue;
               }
-              float rS = iScore[split][end][br.rightChild];
+              float rS = iScore[split][end][rightChild];
               if (rS == Float.NEGATIVE_INFINITY) {
                 continue;
               }
               float totL = pS + rS + oS;
-              if (totL > oScore[start][split][br.leftChild]) {
-                oScore[start][split][br.leftChild] = totL;
+              if (totL > oScore[start][split][leftChild]) {
+                oScore[start][split][leftChild] = totL;
               }
               float totR = pS + lS + oS;
-              if (totR > oScore[split][end][br.rightChild]) {
-                oScore[split][end][br.rightChild] = totR;
+              if (totR > oScore[split][end][rightChild]) {
+                oScore[split][end][rightChild] = totR;
               }
             }
           }
@@ -729,47 +754,48 @@ public class ExhaustivePCFGParser implements Scorer, KBestViterbiParser {
           if (max1 < start) {
             continue;
           }
-          BinaryRule[] rules = bg.splitRulesWithRC(s);
-          for (BinaryRule br : rules) {
-            float oS = oScore[start][end][br.parent];
+          for (int br = rightRules.start[s], rulesEnd = rightRules.start[s + 1]; br < rulesEnd; br++) {
+            float oS = oScore[start][end][rightRules.parent[br]];
             if (oS == Float.NEGATIVE_INFINITY) {
               continue;
             }
-            int min1 = narrowRExtent[start][br.leftChild];
+            int leftChild = rightRules.leftChild[br];
+            int rightChild = rightRules.rightChild[br];
+            int min1 = narrowRExtent[start][leftChild];
             if (max1 < min1) {
               continue;
             }
             int min = min1;
             int max = max1;
             if (max - min > 2) {
-              int min2 = wideLExtent[end][br.rightChild];
+              int min2 = wideLExtent[end][rightChild];
               min = (min1 > min2 ? min1 : min2);
               if (max1 < min) {
                 continue;
               }
-              int max2 = wideRExtent[start][br.leftChild];
+              int max2 = wideRExtent[start][leftChild];
               max = (max1 < max2 ? max1 : max2);
               if (max < min) {
                 continue;
               }
             }
-            float pS = br.score;
+            float pS = rightRules.score[br];
             for (int split = min; split <= max; split++) {
-              float lS = iScore[start][split][br.leftChild];
+              float lS = iScore[start][split][leftChild];
               if (lS == Float.NEGATIVE_INFINITY) {
                 continue;
               }
-              float rS = iScore[split][end][br.rightChild];
+              float rS = iScore[split][end][rightChild];
               if (rS == Float.NEGATIVE_INFINITY) {
                 continue;
               }
               float totL = pS + rS + oS;
-              if (totL > oScore[start][split][br.leftChild]) {
-                oScore[start][split][br.leftChild] = totL;
+              if (totL > oScore[start][split][leftChild]) {
+                oScore[start][split][leftChild] = totL;
               }
               float totR = pS + lS + oS;
-              if (totR > oScore[split][end][br.rightChild]) {
-                oScore[split][end][br.rightChild] = totR;
+              if (totR > oScore[split][end][rightChild]) {
+                oScore[split][end][rightChild] = totR;
               }
             }
           }
@@ -854,6 +880,11 @@ oScore[split][end][br.rightChild] = totR;
         return;
       }
     }
+    if (pruning && ! coarseToFine.anyAllowed(start, end)) {
+      // every state is pruned over this span, so no binary rule can apply
+      doInsideUnaries(start, end, constraints);
+      return;
+    }
 
     // 2011-11-26 jdk1.6: caching/hoisting a bunch of variables gives you about 15% speed up!
     // caching this saves a bit of time in the inner loop, maybe 1.8%
@@ -864,275 +895,331 @@ oScore[split][end][br.rightChild] = totR;
     int[] wideLExtent_end = wideLExtent[end];
     float[][] iScore_start = iScore[start];
     float[] iScore_start_end = iScore_start[end];
+    // with coarse-to-fine pruning, only parents whose coarse state is
+    // allowed over this span are built.  The rules for each child are
+    // grouped by the coarse state of their parent then, so that all the
+    // rules for a pruned parent are passed over at once.
+    boolean[] allowed_start_end = null;
+    RuleArrays leftRules;
+    RuleArrays rightRules;
+    if (pruning) {
+      allowed_start_end = coarseToFine.allowedStates(start, end);
+      leftRules = coarseToFine.rulesWithLC();
+      rightRules = coarseToFine.rulesWithRC();
+    } else {
+      leftRules = bg.splitRuleArraysWithLC();
+      rightRules = bg.splitRuleArraysWithRC();
+    }
+    // the rules as parallel primitive arrays, which are read sequentially
+    int[] leftRules_groupStart = leftRules.groupStart;
+    int[] leftRules_groupRuleStart = leftRules.groupRuleStart;
+    int[] leftRules_groupKey = leftRules.groupKey;
+    int[] leftRules_parent = leftRules.parent;
+    int[] leftRules_rightChild = leftRules.rightChild;
+    float[] leftRules_score = leftRules.score;
 
     for (int leftState = 0; leftState < numStates; leftState++) {
       int narrowR = narrowRExtent_start[leftState];
       if (narrowR >= end) {  // can this left constituent leave space for a right constituent?
         continue;
       }
-      BinaryRule[] leftRules = bg.splitRulesWithLC(leftState);
-      //      if (spillGuts) System.out.println("Found " + leftRules.length + " left rules for state " + stateIndex.get(leftState));
-      for (BinaryRule rule : leftRules) {
-        int rightChild = rule.rightChild;
-        int narrowL = narrowLExtent_end[rightChild];
-        if (narrowL < narrowR) { // can this right constituent fit next to the left constituent?
+      for (int group = leftRules_groupStart[leftState], groupsEnd = leftRules_groupStart[leftState + 1]; group < groupsEnd; group++) {
+        if (allowed_start_end != null && ! allowed_start_end[leftRules_groupKey[group]]) {
           continue;
         }
-        int min2 = wideLExtent_end[rightChild];
-        int min = (narrowR > min2 ? narrowR : min2);
-        // Erik Frey 2009-12-17: This is unnecessary: narrowR is <= narrowL (established in previous check) and wideLExtent[e][r] is always <= narrowLExtent[e][r] by design, so the check will never evaluate true.
-        // if (min > narrowL) { // can this right constituent stretch far enough to reach the left constituent?
-        //   continue;
-        // }
-        int max1 = wideRExtent_start[leftState];
-        int max = (max1 < narrowL ? max1 : narrowL);
-        if (min > max) { // can this left constituent stretch far enough to reach the right constituent?
-          continue;
-        }
-        float pS = rule.score;
-        int parentState = rule.parent;
-        float oldIScore = iScore_start_end[parentState];
-        float bestIScore = oldIScore;
-        boolean foundBetter;  // always set below for this rule
-        //System.out.println("Min "+min+" max "+max+" start "+start+" end "+end);
-
-        if ( ! lengthNormalization) {
-          // find the split that can use this rule to make the max score
-          for (int split = min; split <= max; split++) {
-
-            boolean skip = false;
-            for (ParserConstraint c : constraints) {
-              if (((start < c.start && end >= c.end) || (start <= c.start && end > c.end)) && split > c.start && split < c.end) {
-                skip = true;
-                break;
-              }
-              if ((start == c.start && split == c.end)) {
-                String tag = stateIndex.get(leftState);
-                Matcher m = c.state.matcher(tag);
-                if (!m.matches()) {
+        //      if (spillGuts) System.out.println("Found " + (leftRules_start[leftState + 1] - leftRules_start[leftState]) + " left rules for state " + stateIndex.get(leftState));
+        for (int rule = leftRules_groupRuleStart[group], rulesEnd = leftRules_groupRuleStart[group + 1]; rule < rulesEnd; rule++) {
+          int rightChild = leftRules_rightChild[rule];
+          int narrowL = narrowLExtent_end[rightChild];
+          if (narrowL < narrowR) { // can this right constituent fit next to the left constituent?
+            continue;
+          }
+          int min2 = wideLExtent_end[rightChild];
+          int min = (narrowR > min2 ? narrowR : min2);
+          // Erik Frey 2009-12-17: This is unnecessary: narrowR is <= narrowL (established in previous check) and wideLExtent[e][r] is always <= narrowLExtent[e][r] by design, so the check will never evaluate true.
+          // if (min > narrowL) { // can this right constituent stretch far enough to reach the left constituent?
+          //   continue;
+          // }
+          int max1 = wideRExtent_start[leftState];
+          int max = (max1 < narrowL ? max1 : narrowL);
+          if (min > max) { // can this left constituent stretch far enough to reach the right constituent?
+            continue;
+          }
+          float pS = leftRules_score[rule];
+          int parentState = leftRules_parent[rule];
+          float oldIScore = iScore_start_end[parentState];
+          float bestIScore = oldIScore;
+          boolean foundBetter;  // always set below for this rule
+          //System.out.println("Min "+min+" max "+max+" start "+start+" end "+end);
+
+          if ( ! lengthNormalization) {
+            // find the split that can use this rule to make the max score
+            for (int split = min; split <= max; split++) {
+
+              boolean skip = false;
+              for (ParserConstraint c : constraints) {
+                if (((start < c.start && end >= c.end) || (start <= c.start && end > c.end)) && split > c.start && split < c.end) {
                   skip = true;
                   break;
                 }
-              }
-              if ((split == c.start && end == c.end)) {
-                String tag = stateIndex.get(rightChild);
-                Matcher m = c.state.matcher(tag);
-                if (!m.matches()) {
-                  skip = true;
-                  break;
+                if ((start == c.start && split == c.end)) {
+                  String tag = stateIndex.get(leftState);
+                  Matcher m = c.state.matcher(tag);
+                  if (!m.matches()) {
+                    skip = true;
+                    break;
+                  }
+                }
+                if ((split == c.start && end == c.end)) {
+                  String tag = stateIndex.get(rightChild);
+                  Matcher m = c.state.matcher(tag);
+                  if (!m.matches()) {
+                    skip = true;
+                    break;
+                  }
                 }
               }
-            }
-            if (skip) {
-              continue;
-            }
+              if (skip) {
+                continue;
+              }
 
-            float lS = iScore_start[split][leftState];
-            if (lS == Float.NEGATIVE_INFINITY) {
-              continue;
-            }
-            float rS = iScore[split][end][rightChild];
-            if (rS == Float.NEGATIVE_INFINITY) {
-              continue;
-            }
-            float tot = pS + lS + rS;
-            if (spillGuts) { System.err.println("Rule " + rule + " over [" + start + "," + end + ") has log score " + tot + " from L[" + stateIndex.get(leftState) + "=" + leftState + "] = "+ lS  + " R[" + stateIndex.get(rightChild) + "=" + rightChild + "] =  " + rS); }
-            if (tot > bestIScore) {
-              bestIScore = tot;
-            }
-          } // for split point
-          foundBetter = bestIScore > oldIScore;
-        } else {
-          // find split that uses this rule to make the max *length normalized* score
-          int bestWordsInSpan = wordsInSpan[start][end][parentState];
-          float oldNormIScore = oldIScore / bestWordsInSpan;
-          float bestNormIScore = oldNormIScore;
-
-          for (int split = min; split <= max; split++) {
-            float lS = iScore_start[split][leftState];
-            if (lS == Float.NEGATIVE_INFINITY) {
-              continue;
-            }
-            float rS = iScore[split][end][rightChild];
-            if (rS == Float.NEGATIVE_INFINITY) {
-              continue;
-            }
-            float tot = pS + lS + rS;
-            int newWordsInSpan = wordsInSpan[start][split][leftState] + wordsInSpan[split][end][rightChild];
-            float normTot = tot / newWordsInSpan;
-            if (normTot > bestNormIScore) {
-              bestIScore = tot;
-              bestNormIScore = normTot;
-              bestWordsInSpan = newWordsInSpan;
-            }
-          } // for split point
-          foundBetter = bestNormIScore > oldNormIScore;
-          if (foundBetter) {
-            wordsInSpan[start][end][parentState] = bestWordsInSpan;
-          }
-        } // fi op.testOptions.lengthNormalization
-        if (foundBetter) { // this way of making "parentState" is better than previous
-          iScore_start_end[parentState] = bestIScore;
+              float lS = iScore_start[split][leftState];
+              if (lS == Float.NEGATIVE_INFINITY) {
+                continue;
+              }
+              float rS = iScore[split][end][rightChild];
+              if (rS == Float.NEGATIVE_INFINITY) {
+                continue;
+              }
+              float tot = pS + lS + rS;
+              if (spillGuts) { System.err.println("Rule " + stateIndex.get(parentState) + " -> " + stateIndex.get(leftState) + " " + stateIndex.get(rightChild) + " " + pS + " over [" + start + "," + end + ") has log score " + tot + " from L[" + stateIndex.get(leftState) + "=" + leftState + "] = "+ lS  + " R[" + stateIndex.get(rightChild) + "=" + rightChild + "] =  " + rS); }
+              if (tot > bestIScore) {
+                bestIScore = tot;
+              }
+            } // for split point
+            foundBetter = bestIScore > oldIScore;
+          } else {
+            // find split that uses this rule to make the max *length normalized* score
+            int bestWordsInSpan = wordsInSpan[start][end][parentState];
+            float oldNormIScore = oldIScore / bestWordsInSpan;
+            float bestNormIScore = oldNormIScore;
 
-          if (spillGuts) System.err.println("Could build " + stateIndex.get(parentState) + " from " + start + " to " + end + " score " + bestIScore);
-          if (oldIScore == Float.NEGATIVE_INFINITY) {
-            if (start > narrowLExtent_end[parentState]) {
-              narrowLExtent_end[parentState] = wideLExtent_end[parentState] = start;
-            } else if (start < wideLExtent_end[parentState]) {
-              wideLExtent_end[parentState] = start;
+            for (int split = min; split <= max; split++) {
+              float lS = iScore_start[split][leftState];
+              if (lS == Float.NEGATIVE_INFINITY) {
+                continue;
+              }
+              float rS = iScore[split][end][rightChild];
+              if (rS == Float.NEGATIVE_INFINITY) {
+                continue;
+              }
+              float tot = pS + lS + rS;
+              int newWordsInSpan = wordsInSpan[start][split][leftState] + wordsInSpan[split][end][rightChild];
+              float normTot = tot / newWordsInSpan;
+              if (normTot > bestNormIScore) {
+                bestIScore = tot;
+                bestNormIScore = normTot;
+                bestWordsInSpan = newWordsInSpan;
+              }
+            } // for split point
+            foundBetter = bestNormIScore > oldNormIScore;
+            if (foundBetter) {
+              wordsInSpan[start][end][parentState] = bestWordsInSpan;
             }
-            if (end < narrowRExtent_start[parentState]) {
-              narrowRExtent_start[parentState] = wideRExtent_start[parentState] = end;
-            } else if (end > wideRExtent_start[parentState]) {
-              wideRExtent_start[parentState] = end;
+          } // fi op.testOptions.lengthNormalization
+          if (foundBetter) { // this way of making "parentState" is better than previous
+            iScore_start_end[parentState] = bestIScore;
+
+            if (spillGuts) System.err.println("Could build " + stateIndex.get(parentState) + " from " + start + " to " + end + " score " + bestIScore);
+            if (oldIScore == Float.NEGATIVE_INFINITY) {
+              if (start > narrowLExtent_end[parentState]) {
+                narrowLExtent_end[parentState] = wideLExtent_end[parentState] = start;
+              } else if (start < wideLExtent_end[parentState]) {
+                wideLExtent_end[parentState] = start;
+              }
+              if (end < narrowRExtent_start[parentState]) {
+                narrowRExtent_start[parentState] = wideRExtent_start[parentState] = end;
+              } else if (end > wideRExtent_start[parentState]) {
+                wideRExtent_start[parentState] = end;
+              }
             }
-          }
-        } // end if foundBetter
-      } // end for leftRules
+          } // end if foundBetter
+        } // end for leftRules
+      } // end for groups
     } // end for leftState
     // do right restricted rules
+    int[] rightRules_groupStart = rightRules.groupStart;
+    int[] rightRules_groupRuleStart = rightRules.groupRuleStart;
+    int[] rightRules_groupKey = rightRules.groupKey;
+    int[] rightRules_parent = rightRules.parent;
+    int[] rightRules_leftChild = rightRules.leftChild;
+    float[] rightRules_score = rightRules.score;
     for (int rightState = 0; rightState < numStates; rightState++) {
       int narrowL = narrowLExtent_end[rightState];
       if (narrowL <= start) {
         continue;
       }
-      BinaryRule[] rightRules = bg.splitRulesWithRC(rightState);
-      //      if (spillGuts) System.out.println("Found " + rightRules.length + " right rules for state " + stateIndex.get(rightState));
-      for (BinaryRule rule : rightRules) {
-        //      if (spillGuts) System.out.println("Considering rule for " + start + " to " + end + ": " + rightRules[i]);
-
-        int leftChild = rule.leftChild;
-        int narrowR = narrowRExtent_start[leftChild];
-        if (narrowR > narrowL) {
-          continue;
-        }
-        int min2 = wideLExtent_end[rightState];
-        int min = (narrowR > min2 ? narrowR : min2);
-        // Erik Frey 2009-12-17: This is unnecessary: narrowR is <= narrowL (established in previous check) and wideLExtent[e][r] is always <= narrowLExtent[e][r] by design, so the check will never evaluate true.
-        // if (min > narrowL) {
-        //   continue;
-        // }
-        int max1 = wideRExtent_start[leftChild];
-        int max = (max1 < narrowL ? max1 : narrowL);
-        if (min > max) {
+      for (int group = rightRules_groupStart[rightState], groupsEnd = rightRules_groupStart[rightState + 1]; group < groupsEnd; group++) {
+        if (allowed_start_end != null && ! allowed_start_end[rightRules_groupKey[group]]) {
           continue;
         }
-        float pS = rule.score;
-        int parentState = rule.parent;
-        float oldIScore = iScore_start_end[parentState];
-        float bestIScore = oldIScore;
-        boolean foundBetter; // always initialized below
-        //System.out.println("Start "+start+" end "+end+" min "+min+" max "+max);
-        if ( ! lengthNormalization) {
-          // find the split that can use this rule to make the max score
-          for (int split = min; split <= max; split++) {
-
-            boolean skip = false;
-            for (ParserConstraint c : constraints) {
-              if (((start < c.start && end >= c.end) || (start <= c.start && end > c.end)) && split > c.start && split < c.end) {
-                skip = true;
-                break;
-              }
-              if ((start == c.start && split == c.end)) {
-                String tag = stateIndex.get(leftChild);
-                Matcher m = c.state.matcher(tag);
-                if (!m.matches()) {
-                  //if (!tag.startsWith(c.state+"^")) {
+        //      if (spillGuts) System.out.println("Found " + (rightRules_start[rightState + 1] - rightRules_start[rightState]) + " right rules for state " + stateIndex.get(rightState));
+        for (int rule = rightRules_groupRuleStart[group], rulesEnd = rightRules_groupRuleStart[group + 1]; rule < rulesEnd; rule++) {
+          int leftChild = rightRules_leftChild[rule];
+          int narrowR = narrowRExtent_start[leftChild];
+          if (narrowR > narrowL) {
+            continue;
+          }
+          int min2 = wideLExtent_end[rightState];
+          int min = (narrowR > min2 ? narrowR : min2);
+          // Erik Frey 2009-12-17: This is unnecessary: narrowR is <= narrowL (established in previous check) and wideLExtent[e][r] is always <= narrowLExtent[e][r] by design, so the check will never evaluate true.
+          // if (min > narrowL) {
+          //   continue;
+          // }
+          int max1 = wideRExtent_start[leftChild];
+          int max = (max1 < narrowL ? max1 : narrowL);
+          if (min > max) {
+            continue;
+          }
+          float pS = rightRules_score[rule];
+          int parentState = rightRules_parent[rule];
+          float oldIScore = iScore_start_end[parentState];
+          float bestIScore = oldIScore;
+          boolean foundBetter; // always initialized below
+          //System.out.println("Start "+start+" end "+end+" min "+min+" max "+max);
+          if ( ! lengthNormalization) {
+            // find the split that can use this rule to make the max score
+            for (int split = min; split <= max; split++) {
+
+              boolean skip = false;
+              for (ParserConstraint c : constraints) {
+                if (((start < c.start && end >= c.end) || (start <= c.start && end > c.end)) && split > c.start && split < c.end) {
                   skip = true;
                   break;
                 }
-              }
-              if ((split == c.start && end == c.end)) {
-                String tag = stateIndex.get(rightState);
-                Matcher m = c.state.matcher(tag);
-                if (!m.matches()) {
-                  //if (!tag.startsWith(c.state+"^")) {
-                  skip = true;
-                  break;
+                if ((start == c.start && split == c.end)) {
+                  String tag = stateIndex.get(leftChild);
+                  Matcher m = c.state.matcher(tag);
+                  if (!m.matches()) {
+                    //if (!tag.startsWith(c.state+"^")) {
+                    skip = true;
+                    break;
+                  }
+                }
+                if ((split == c.start && end == c.end)) {
+                  String tag = stateIndex.get(rightState);
+                  Matcher m = c.state.matcher(tag);
+                  if (!m.matches()) {
+                    //if (!tag.startsWith(c.state+"^")) {
+                    skip = true;
+                    break;
+                  }
                 }
               }
-            }
-            if (skip) {
-              continue;
-            }
+              if (skip) {
+                continue;
+              }
 
-            float lS = iScore_start[split][leftChild];
-            if (lS == Float.NEGATIVE_INFINITY) {        // cdm [2012]: Test whether removing these 2 tests might speed things up because less branching?
-              continue;
-            }
-            float rS = iScore[split][end][rightState];
-            if (rS == Float.NEGATIVE_INFINITY) {
-              continue;
-            }
-            float tot = pS + lS + rS;
-            if (tot > bestIScore) {
-              bestIScore = tot;
-            }
-          } // end for split
-          foundBetter = bestIScore > oldIScore;
-        } else {
-          // find split that uses this rule to make the max *length normalized* score
-          int bestWordsInSpan = wordsInSpan[start][end][parentState];
-          float oldNormIScore = oldIScore / bestWordsInSpan;
-          float bestNormIScore = oldNormIScore;
-          for (int split = min; split <= max; split++) {
-            float lS = iScore_start[split][leftChild];
-            if (lS == Float.NEGATIVE_INFINITY) {
-              continue;
-            }
-            float rS = iScore[split][end][rightState];
-            if (rS == Float.NEGATIVE_INFINITY) {
-              continue;
-            }
-            float tot = pS + lS + rS;
-            int newWordsInSpan = wordsInSpan[start][split][leftChild] + wordsInSpan[split][end][rightState];
-            float normTot = tot / newWordsInSpan;
-            if (normTot > bestNormIScore) {
-              bestIScore = tot;
-              bestNormIScore = normTot;
-              bestWordsInSpan = newWordsInSpan;
-            }
-          } // end for split
-          foundBetter = bestNormIScore > oldNormIScore;
-          if (foundBetter) {
-            wordsInSpan[start][end][parentState] = bestWordsInSpan;
-          }
-        } // end if lengthNormalization
-        if (foundBetter) { // this way of making "parentState" is better than previous
-          iScore_start_end[parentState] = bestIScore;
-          if (spillGuts) System.err.println("Could build " + stateIndex.get(parentState) + " from " + start + " to " + end + " with score " + bestIScore);
-          if (oldIScore == Float.NEGATIVE_INFINITY) {
-            if (start > narrowLExtent_end[parentState]) {
-              narrowLExtent_end[parentState] = wideLExtent_end[parentState] = start;
-            } else if (start < wideLExtent_end[parentState]) {
-              wideLExtent_end[parentState] = start;
+              float lS = iScore_start[split][leftChild];
+              if (lS == Float.NEGATIVE_INFINITY) {        // cdm [2012]: Test whether removing these 2 tests might speed things up because less branching?
+                continue;
+              }
+              float rS = iScore[split][end][rightState];
+              if (rS == Float.NEGATIVE_INFINITY) {
+                continue;
+              }
+              float tot = pS + lS + rS;
+              if (tot > bestIScore) {
+                bestIScore = tot;
+              }
+            } // end for split
+            foundBetter = bestIScore > oldIScore;
+          } else {
+            // find split that uses this rule to make the max *length normalized* score
+            int bestWordsInSpan = wordsInSpan[start][end][parentState];
+            float oldNormIScore = oldIScore / bestWordsInSpan;
+            float bestNormIScore = oldNormIScore;
+            for (int split = min; split <= max; split++) {
+              float lS = iScore_start[split][leftChild];
+              if (lS == Float.NEGATIVE_INFINITY) {
+                continue;
+              }
+              float rS = iScore[split][end][rightState];
+              if (rS == Float.NEGATIVE_INFINITY) {
+                continue;
+              }
+              float tot = pS + lS + rS;
+              int newWordsInSpan = wordsInSpan[start][split][leftChild] + wordsInSpan[split][end][rightState];
+              float normTot = tot / newWordsInSpan;
+              if (normTot > bestNormIScore) {
+                bestIScore = tot;
+                bestNormIScore = normTot;
+                bestWordsInSpan = newWordsInSpan;
+              }
+            } // end for split
+            foundBetter = bestNormIScore > oldNormIScore;
+            if (foundBetter) {
+              wordsInSpan[start][end][parentState] = bestWordsInSpan;
             }
-            if (end < narrowRExtent_start[parentState]) {
-              narrowRExtent_start[parentState] = wideRExtent_start[parentState] = end;
-            } else if (end > wideRExtent_start[parentState]) {
-              wideRExtent_start[parentState] = end;
+          } // end if lengthNormalization
+          if (foundBetter) { // this way of making "parentState" is better than previous
+            iScore_start_end[parentState] = bestIScore;
+            if (spillGuts) System.err.println("Could build " + stateIndex.get(parentState) + " from " + start + " to " + end + " with score " + bestIScore);
+            if (oldIScore == Float.NEGATIVE_INFINITY) {
+              if (start > narrowLExtent_end[parentState]) {
+                narrowLExtent_end[parentState] = wideLExtent_end[parentState] = start;
+              } else if (start < wideLExtent_end[parentState]) {
+                wideLExtent_end[parentState] = start;
+              }
+              if (end < narrowRExtent_start[parentState]) {
+                narrowRExtent_start[parentState] = wideRExtent_start[parentState] = end;
+              } else if (end > wideRExtent_start[parentState]) {
+                wideRExtent_start[parentState] = end;
+              }
             }
-          }
-        } // end if foundBetter
-      } // for rightRules
+          } // end if foundBetter
+        } // for rightRules
+      } // for groups
     } // for rightState
     if (spillGuts) {
       tick("Unaries for span " + diff + "...");
     }
+    doInsideUnaries(start, end, constraints);
+  }
+
+  private void doInsideUnaries(int start, int end, List<ParserConstraint> constraints) {
+    final boolean lengthNormalization = op.testOptions.lengthNormalization;
+    int[] narrowRExtent_start = narrowRExtent[start];
+    int[] wideRExtent_start = wideRExtent[start];
+    int[] narrowLExtent_end = narrowLExtent[end];
+    int[] wideLExtent_end = wideLExtent[end];
+    float[] iScore_start_end = iScore[start][end];
     // do unary rules -- one could promote this loop and put start inside
-    for (int state = 0; state < numStates; state++) {
+    // (with coarse-to-fine pruning these aren't pruned, since
+    // extractBestParse rebuilds unary chains from the unclosed rules, and
+    // so needs every state along a chain.  But a state that isn't allowed
+    // over this span doesn't get its extents set, so that it is never
+    // used as the child of a binary rule.)
+    boolean[] allowed_start_end = pruning ? coarseToFine.allowedStates(start, end) : null;
+    int[] coarseState = pruning ? coarseToFine.projection() : null;
+    RuleArrays unaries = ug.closedRuleArraysByChild();
+    int[] unaries_start = unaries.start;
+    int[] unaries_parent = unaries.parent;
+    float[] unaries_score = unaries.score;
+    int numUnaryStates = Math.min(numStates, unaries_start.length - 1);
+    for (int state = 0; state < numUnaryStates; state++) {
       float iS = iScore_start_end[state];
       if (iS == Float.NEGATIVE_INFINITY) {
         continue;
       }
 
-      UnaryRule[] unaries = ug.closedRulesByChild(state);
-      for (UnaryRule ur : unaries) {
+      for (int ur = unaries_start[state], unariesEnd = unaries_start[state + 1]; ur < unariesEnd; ur++) {
+        int parentState = unaries_parent[ur];
 
         boolean skip = false;
         for (ParserConstraint c : constraints) {
           if ((start == c.start && end == c.end)) {
-            String tag = stateIndex.get(ur.parent);
+            String tag = stateIndex.get(parentState);
             Matcher m = c.state.matcher(tag);
             if (!m.matches()) {
               //if (!tag.startsWith(c.state+"^")) {
@@ -1145,8 +1232,7 @@ oScore[split][end][br.rightChild] = totR;
           continue;
         }
 
-        int parentState = ur.parent;
-        float pS = ur.score;
+        float pS = unaries_score[ur];
         float tot = iS + pS;
         float cur = iScore_start_end[parentState];
         boolean foundBetter;  // always set below
@@ -1165,7 +1251,8 @@ oScore[split][end][br.rightChild] = totR;
         if (foundBetter) {
           if (spillGuts) System.err.println("Could build " + stateIndex.get(parentState) + " from " + start + " to " + end + " with score " + tot);
           iScore_start_end[parentState] = tot;
-          if (cur == Float.NEGATIVE_INFINITY) {
+          if (cur == Float.NEGATIVE_INFINITY &&
+              (allowed_start_end == null || allowed_start_end[coarseState[parentState]])) {
             if (start > narrowLExtent_end[parentState]) {
               narrowLExtent_end[parentState] = wideLExtent_end[parentState] = start;
             } else if (start < wideLExtent_end[parentState]) {
@@ -1446,15 +1533,16 @@ oScore[split][end][br.rightChild] = totR;
         if (spillGuts) {
           tick("Terminal Unary...");
         }
-        for (int state = 0; state < numStates; state++) {
+        RuleArrays unaries = ug.closedRuleArraysByChild();
+        int numUnaryStates = Math.min(numStates, unaries.start.length - 1);
+        for (int state = 0; state < numUnaryStates; state++) {
           float iS = iScore_start_end[state];
           if (iS == Float.NEGATIVE_INFINITY) {
             continue;
           }
-          UnaryRule[] unaries = ug.closedRulesByChild(state);
-          for (UnaryRule ur : unaries) {
-            int parentState = ur.parent;
-            float pS = ur.score;
+          for (int ur = unaries.start[state], unariesEnd = unaries.start[state + 1]; ur < unariesEnd; ur++) {
+            int parentState = unaries.parent[ur];
+            float pS = unaries.score[ur];
             float tot = iS + pS;
             if (tot > iScore_start_end[parentState]) {
               iScore_start_end[parentState] = tot;
@@ -2107,6 +2195,20 @@ oScore[split][end][br.rightChild] = totR;
     return constraints;
   }
 
+  /** Prunes the chart of later parses of sentences (but not lattices)
+   *  with a coarse parse using the given projection of this parser's
+   *  grammar, keeping states whose coarse posterior probability is at
+   *  least <code>threshold</code>.  A null projection turns pruning off.
+   *  See TestOptions.coarseToFineThreshold.
+   */
+  void setCoarseToFine(CoarseGrammarProjection coarseGrammar, double threshold) {
+    if (coarseGrammar == null) {
+      coarseToFine = null;
+    } else {
+      coarseToFine = new CoarseToFinePruner(coarseGrammar, threshold);
+    }
+  }
+
   void setConstraints(List<ParserConstraint> constraints) {
     if (constraints == null) {
       this.constraints = Collections.emptyList();
@@ -2232,4 +2334,41 @@ oScore[split][end][br.rightChild] = totR;
     narrowRExtent = wideRExtent = narrowLExtent = wideLExtent = null;
   }
 
+  /**
+   * Roughly how many bytes the chart arrays currently take up.  The
+   * arrays are kept between parses and only grow, so after one very
+   * long sentence this stays large until {@link #releaseArrays()} is
+   * called.
+   */
+  public long estimatedArrayBytes() {
+    if (arraySize == 0 || iScore == null) {
+      return 0;
+    }
+    long n = arraySize;
+    long cells = n * (n + 1) / 2;
+    long bytes = cells * numStates * 4; // iScore
+    if (oScore != null) {
+      bytes += cells * numStates * 4;
+    }
+    if (wordsInSpan != null) {
+      bytes += cells * numStates * 4;
+    }
+    bytes += (4 * n + 2) * numStates * 4; // the four extent arrays
+    if (iPossibleByL != null) {
+      bytes += (4 * n + 2) * numStates;
+    }
+    bytes += n * tagIndex.size(); // tags
+    return bytes;
+  }
+
+  /**
+   * Throws away the chart arrays.  They will be reallocated at the
+   * size needed by the next sentence parsed.
+   */
+  public void releaseArrays() {
+    clearArrays();
+    wordsInSpan = null;
+    arraySize = 0;
+  }
+
 } // end class ExhaustivePCFGParser
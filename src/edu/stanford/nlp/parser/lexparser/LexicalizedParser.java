@@ -101,6 +101,19 @@ public class LexicalizedParser implements Function<List<? extends HasWord>, Tree
 
   public TreebankLanguagePack treebankLanguagePack() { return getTLPParams().treebankLanguagePack(); }
 
+  /** Projection of the PCFG onto basic categories for coarse-to-fine
+   *  parsing.  Built the first time it is needed and shared by all the
+   *  queries of this parser.
+   */
+  private transient CoarseGrammarProjection coarseGrammar; // = null;
+
+  synchronized CoarseGrammarProjection coarseGrammar() {
+    if (coarseGrammar == null) {
+      coarseGrammar = new CoarseGrammarProjection(bg, ug, stateIndex, treebankLanguagePack());
+    }
+    return coarseGrammar;
+  }
+
   private static final String SERIALIZED_PARSER_PROPERTY = "edu.stanford.nlp.SerializedLexicalizedParser";
   public static final String DEFAULT_PARSER_LOC = ((System.getenv("NLP_PARSER") != null) ?
                                                    System.getenv("NLP_PARSER") :
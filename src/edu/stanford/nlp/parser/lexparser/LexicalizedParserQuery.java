@@ -120,6 +120,9 @@ public class LexicalizedParserQuery implements ParserQuery {
         pparser = new IterativeCKYPCFGParser(bg, ug, lex, op, stateIndex, wordIndex, tagIndex);
       } else {
         pparser = new ExhaustivePCFGParser(bg, ug, lex, op, stateIndex, wordIndex, tagIndex);
+        if (op.testOptions.coarseToFineThreshold > 0.0) {
+          pparser.setCoarseToFine(parser.coarseGrammar(), op.testOptions.coarseToFineThreshold);
+        }
       }
     } else {
       pparser = null;
@@ -160,6 +163,25 @@ public class LexicalizedParserQuery implements ParserQuery {
     subcategoryStripper = op.tlpParams.subcategoryStripper();
   }
 
+  @Override
+  public void limitArrayMemory(long maxBytes) {
+    long bytes = 0;
+    if (pparser != null) {
+      bytes += pparser.estimatedArrayBytes();
+    }
+    if (dparser != null) {
+      bytes += dparser.estimatedArrayBytes();
+    }
+    if (bytes > maxBytes) {
+      if (pparser != null) {
+        pparser.releaseArrays();
+      }
+      if (dparser != null) {
+        dparser.releaseArrays();
+      }
+    }
+  }
+
   public void setConstraints(List<ParserConstraint> constraints) {
     if (pparser != null) {
       pparser.setConstraints(constraints);
@@ -737,6 +737,12 @@ public class Options implements Serializable {
     } else if (args[i].equalsIgnoreCase("-testingThreads")) {
       testOptions.testingThreads = Integer.parseInt(args[i + 1]);
       i += 2;
+    } else if (args[i].equalsIgnoreCase("-coarseToFine")) {
+      testOptions.coarseToFineThreshold = Double.parseDouble(args[i + 1]);
+      i += 2;
+    } else if (args[i].equalsIgnoreCase("-coarseToFineMinLength")) {
+      testOptions.coarseToFineMinLength = Integer.parseInt(args[i + 1]);
+      i += 2;
     } else if (args[i].equalsIgnoreCase("-evals")) {
       testOptions.evals = StringUtils.stringToProperties(args[i+1], testOptions.evals);
       i += 2;
@@ -41,5 +41,16 @@ public class ParserAnnotations {
     }
   }
 
+  /**
+   * The CoreMap key for the time, in milliseconds, spent parsing a
+   * sentence.  This is set on sentence annotations by the parser
+   * annotator, including when the parse was cut short by the time limit.
+   */
+  public static class ParseTimeAnnotation implements CoreAnnotation<Long> {
+    public Class<Long> getType() {
+      return Long.class;
+    }
+  }
+
 
 }
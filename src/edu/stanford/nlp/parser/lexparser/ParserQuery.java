@@ -69,4 +69,12 @@ public interface ParserQuery {
   boolean parseUnparsable();
 
   List<? extends HasWord> originalSentence();
+
+  /**
+   * If the parser's chart arrays, which are kept and reused between
+   * sentences, currently take up more than the given number of bytes,
+   * release them.  This lets a long-lived query be kept around without
+   * holding on to the memory needed for an unusually long sentence.
+   */
+  void limitArrayMemory(long maxBytes);
 }
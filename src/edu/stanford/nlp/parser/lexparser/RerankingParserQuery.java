@@ -40,6 +40,11 @@ public class RerankingParserQuery implements ParserQuery {
     return parserQuery.saidMemMessage();
   }
 
+  @Override
+  public void limitArrayMemory(long maxBytes) {
+    parserQuery.limitArrayMemory(maxBytes);
+  }
+
   @Override
   public void setConstraints(List<ParserConstraint> constraints) {
     parserQuery.setConstraints(constraints);
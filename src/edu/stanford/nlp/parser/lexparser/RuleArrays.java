@@ -0,0 +1,162 @@
+package edu.stanford.nlp.parser.lexparser;
+
+/**
+ * Grammar rules laid out as parallel primitive arrays for the parser's
+ * inner loops, so that going through the rules for a state reads
+ * consecutive ints and floats rather than following a pointer to a rule
+ * object for each one.
+ * <br>
+ * The rules are grouped by a key state (e.g., the left child), in state
+ * order and keeping the order of the rule arrays they are made from.  The
+ * rules for state s are at indices <code>start[s]</code> up to (but not
+ * including) <code>start[s + 1]</code>.  The arrays are a copy: they don't
+ * see changes to rule scores made after they are built, so the grammars
+ * build them at the same point as their split and closed rule arrays.
+ * <br>
+ * The rules for a state are further split into groups, at indices
+ * <code>groupStart[s]</code> up to <code>groupStart[s + 1]</code>, and
+ * group g holds the rules from <code>groupRuleStart[g]</code> up to
+ * <code>groupRuleStart[g + 1]</code>.  Usually each state has a single
+ * group; {@link #groupByParent} makes one group per coarse parent state,
+ * so that a parser can pass over all the rules for a pruned parent at once.
+ */
+final class RuleArrays {
+
+  final int[] start;
+  final int[] parent;
+  /** The left child of binary rules, or the child of unary rules */
+  final int[] leftChild;
+  /** The right child of binary rules; null for unary rules */
+  final int[] rightChild;
+  final float[] score;
+  final int[] groupStart;
+  final int[] groupRuleStart;
+  /** The coarse parent state of each group; null unless grouped by parent */
+  final int[] groupKey;
+
+  private RuleArrays(int numStates, int numRules, boolean binary) {
+    start = new int[numStates + 1];
+    parent = new int[numRules];
+    leftChild = new int[numRules];
+    rightChild = binary ? new int[numRules] : null;
+    score = new float[numRules];
+    groupStart = new int[numStates + 1];
+    for (int state = 0; state <= numStates; state++) {
+      groupStart[state] = state;
+    }
+    groupRuleStart = start;
+    groupKey = null;
+  }
+
+  private RuleArrays(RuleArrays rules, int numGroups) {
+    start = rules.start;
+    parent = new int[rules.parent.length];
+    leftChild = new int[rules.leftChild.length];
+    rightChild = (rules.rightChild == null) ? null : new int[rules.rightChild.length];
+    score = new float[rules.score.length];
+    groupStart = new int[rules.start.length];
+    groupRuleStart = new int[numGroups + 1];
+    groupKey = new int[numGroups];
+  }
+
+  static RuleArrays fromBinaryRules(BinaryRule[][] rulesByState) {
+    RuleArrays arrays = new RuleArrays(rulesByState.length, countRules(rulesByState), true);
+    int r = 0;
+    for (int state = 0; state < rulesByState.length; state++) {
+      arrays.start[state] = r;
+      for (BinaryRule br : rulesByState[state]) {
+        arrays.parent[r] = br.parent;
+        arrays.leftChild[r] = br.leftChild;
+        arrays.rightChild[r] = br.rightChild;
+        arrays.score[r] = br.score;
+        r++;
+      }
+    }
+    arrays.start[rulesByState.length] = r;
+    return arrays;
+  }
+
+  static RuleArrays fromUnaryRules(UnaryRule[][] rulesByState) {
+    RuleArrays arrays = new RuleArrays(rulesByState.length, countRules(rulesByState), false);
+    int r = 0;
+    for (int state = 0; state < rulesByState.length; state++) {
+      arrays.start[state] = r;
+      for (UnaryRule ur : rulesByState[state]) {
+        arrays.parent[r] = ur.parent;
+        arrays.leftChild[r] = ur.child;
+        arrays.score[r] = ur.score;
+        r++;
+      }
+    }
+    arrays.start[rulesByState.length] = r;
+    return arrays;
+  }
+
+  /** A copy of the rules with the rules for each state reordered into
+   *  one group per coarse state of their parent, keeping their order
+   *  within a group.
+   *
+   *  @param coarseState The coarse state of each state
+   *  @param numCoarseStates The number of coarse states
+   */
+  static RuleArrays groupByParent(RuleArrays rules, int[] coarseState, int numCoarseStates) {
+    int numStates = rules.start.length - 1;
+    int[] count = new int[numCoarseStates];
+    int numGroups = 0;
+    for (int state = 0; state < numStates; state++) {
+      for (int r = rules.start[state]; r < rules.start[state + 1]; r++) {
+        if (count[coarseState[rules.parent[r]]]++ == 0) {
+          numGroups++;
+        }
+      }
+      for (int r = rules.start[state]; r < rules.start[state + 1]; r++) {
+        count[coarseState[rules.parent[r]]] = 0;
+      }
+    }
+
+    RuleArrays grouped = new RuleArrays(rules, numGroups);
+    int g = 0;
+    int r = 0;
+    for (int state = 0; state < numStates; state++) {
+      grouped.groupStart[state] = g;
+      int begin = rules.start[state];
+      int end = rules.start[state + 1];
+      for (int first = begin; first < end; first++) {
+        int key = coarseState[rules.parent[first]];
+        if (count[key] != 0) {
+          continue; // this group has been copied already
+        }
+        count[key] = 1;
+        grouped.groupKey[g] = key;
+        grouped.groupRuleStart[g] = r;
+        for (int rule = first; rule < end; rule++) {
+          if (coarseState[rules.parent[rule]] == key) {
+            grouped.parent[r] = rules.parent[rule];
+            grouped.leftChild[r] = rules.leftChild[rule];
+            if (grouped.rightChild != null) {
+              grouped.rightChild[r] = rules.rightChild[rule];
+            }
+            grouped.score[r] = rules.score[rule];
+            r++;
+          }
+        }
+        g++;
+      }
+      for (int rule = begin; rule < end; rule++) {
+        count[coarseState[rules.parent[rule]]] = 0;
+      }
+    }
+    grouped.groupStart[numStates] = g;
+    grouped.groupRuleStart[g] = r;
+    return grouped;
+  }
+
+  private static int countRules(Object[][] rulesByState) {
+    int numRules = 0;
+    for (Object[] rules : rulesByState) {
+      numRules += rules.length;
+    }
+    return numRules;
+  }
+
+}
@@ -275,6 +275,23 @@ public class TestOptions implements Serializable {
    */
   public int testingThreads = 1;
 
+  /**
+   * If greater than zero, the PCFG parser first parses each sentence with a
+   * coarse projection of its grammar onto basic categories, and then only
+   * builds states whose coarse category has at least this posterior
+   * probability over that span in the coarse parse (e.g., 1e-4).
+   * Larger values prune more (and are faster) at some cost in accuracy.
+   * Zero (the default) parses exhaustively.
+   */
+  public double coarseToFineThreshold = 0.0;
+
+  /**
+   * Sentences shorter than this many words are always parsed exhaustively,
+   * even when coarseToFineThreshold is set, since pruning isn't worth its
+   * cost on short sentences.
+   */
+  public int coarseToFineMinLength = 0;
+
   /**
    * Determines method for print trees on output.
    *
@@ -25,6 +25,9 @@ public class UnaryGrammar implements Serializable, Iterable<UnaryRule> {
   private transient UnaryRule[][] closedRulesWithP; // = null;
   private transient UnaryRule[][] closedRulesWithC; // = null;
 
+  private transient RuleArrays closedRuleArraysWithP; // = null;
+  private transient RuleArrays closedRuleArraysWithC; // = null;
+
   /** The basic list of UnaryRules.  Really this is treated as a set */
   private Map<UnaryRule,UnaryRule> coreRules; // = null;
   /** The closure of the basic list of UnaryRules.  Treated as a set */
@@ -175,6 +178,8 @@ public class UnaryGrammar implements Serializable, Iterable<UnaryRule> {
       closedRulesWithP[i] = closedRulesWithParent[i].toArray(new UnaryRule[closedRulesWithParent[i].size()]);
       closedRulesWithC[i] = closedRulesWithChild[i].toArray(new UnaryRule[closedRulesWithChild[i].size()]);
     }
+    closedRuleArraysWithP = RuleArrays.fromUnaryRules(closedRulesWithP);
+    closedRuleArraysWithC = RuleArrays.fromUnaryRules(closedRulesWithC);
   }
 
   public UnaryRule[] closedRulesByParent(int state) {
@@ -191,6 +196,16 @@ public class UnaryGrammar implements Serializable, Iterable<UnaryRule> {
     return closedRulesWithC[state];
   }
 
+  /** The rules of closedRulesByParent(state) for every state, as primitive arrays keyed by parent. */
+  RuleArrays closedRuleArraysByParent() {
+    return closedRuleArraysWithP;
+  }
+
+  /** The rules of closedRulesByChild(state) for every state, as primitive arrays keyed by child. */
+  RuleArrays closedRuleArraysByChild() {
+    return closedRuleArraysWithC;
+  }
+
   public Iterator<UnaryRule> closedRuleIteratorByParent(int state) {
     if (state >= closedRulesWithParent.length) {
       List<UnaryRule> lur = Collections.emptyList();
@@ -33,6 +33,12 @@ public class AnnotationPipeline implements Annotator {
   private List<Annotator> annotators;
   private List<MutableInteger> accumulatedTime;
 
+  /**
+   * If positive, consecutive {@link SentenceAnnotator}s are run as a
+   * sentence-level pipeline with queues of this size between them.
+   */
+  private int sentenceQueueSize = 0;
+
   public AnnotationPipeline(List<Annotator> annotators) {
     this.annotators = annotators;
     if (TIME) {
@@ -61,6 +67,10 @@ public class AnnotationPipeline implements Annotator {
    * @param annotation The input annotation, usually a raw document
    */
   public void annotate(Annotation annotation) {
+    if (sentenceQueueSize > 0) {
+      annotatePipelined(annotation);
+      return;
+    }
     Iterator<MutableInteger> it = accumulatedTime.iterator();
     Timing t = new Timing();
     for (Annotator annotator : annotators) {
@@ -76,6 +86,71 @@ public class AnnotationPipeline implements Annotator {
     }
   }
 
+  /**
+   * Turns sentence-level pipelining on or off.  When on, each run of
+   * two or more consecutive {@link SentenceAnnotator}s (for example pos,
+   * lemma, ner, parse) is executed with one thread per annotator, the
+   * annotators being connected by queues holding at most
+   * <code>queueSize</code> sentences.  Annotators which are not
+   * SentenceAnnotators (tokenize, ssplit, dcoref, ...) act as barriers
+   * and see the whole document at once, as usual.
+   * <br>
+   * A run is only pipelined if the requirements of each of its
+   * annotators are satisfied by the annotators before it, as reported by
+   * {@link Annotator#requires()} and
+   * {@link Annotator#requirementsSatisfied()}; otherwise it is run
+   * sequentially.
+   *
+   * @param queueSize The size of the queue in front of each stage, or 0
+   *                  to run every annotator over the whole document in turn
+   */
+  public void setSentencePipelining(int queueSize) {
+    if (queueSize < 0) {
+      throw new IllegalArgumentException("Queue size must not be negative, got " + queueSize);
+    }
+    this.sentenceQueueSize = queueSize;
+  }
+
+  private void annotatePipelined(Annotation annotation) {
+    Set<Requirement> satisfied = Generics.newHashSet();
+    Timing t = new Timing();
+    int i = 0;
+    while (i < annotators.size()) {
+      // find the run of sentence annotators starting here whose
+      // requirements are met by the annotators that come before them
+      int end = i;
+      Set<Requirement> runSatisfied = Generics.newHashSet(satisfied);
+      while (end < annotators.size() && annotators.get(end) instanceof SentenceAnnotator &&
+             runSatisfied.containsAll(annotators.get(end).requires())) {
+        runSatisfied.addAll(annotators.get(end).requirementsSatisfied());
+        ++end;
+      }
+      List<CoreMap> sentences = annotation.get(CoreAnnotations.SentencesAnnotation.class);
+      if (end - i > 1 && sentences != null) {
+        List<SentenceAnnotator> stages = new ArrayList<SentenceAnnotator>(end - i);
+        for (Annotator annotator : annotators.subList(i, end)) {
+          stages.add((SentenceAnnotator) annotator);
+        }
+        SentencePipelineExecutor.annotate(annotation, sentences, stages,
+                                          TIME ? accumulatedTime.subList(i, end) : null,
+                                          sentenceQueueSize);
+        satisfied = runSatisfied;
+        i = end;
+      } else {
+        Annotator annotator = annotators.get(i);
+        if (TIME) {
+          t.start();
+        }
+        annotator.annotate(annotation);
+        if (TIME) {
+          accumulatedTime.get(i).incValue((int) t.stop());
+        }
+        satisfied.addAll(annotator.requirementsSatisfied());
+        ++i;
+      }
+    }
+  }
+
   /**
    * Annotate a collection of input annotations IN PARALLEL, making use of
    * all available cores.
@@ -36,7 +36,6 @@ public class DeterministicCorefAnnotator implements Annotator {
 
   private static final boolean VERBOSE = false;
 
-  private final MentionExtractor mentionExtractor;
   private final SieveCoreferenceSystem corefSystem;
 
 
@@ -46,7 +45,6 @@ public class DeterministicCorefAnnotator implements Annotator {
   public DeterministicCorefAnnotator(Properties props) {
     try {
       corefSystem = new SieveCoreferenceSystem(props);
-      mentionExtractor = new MentionExtractor(corefSystem.dictionaries(), corefSystem.semantics());
       OLD_FORMAT = Boolean.parseBoolean(props.getProperty("oldCorefFormat", "false"));
     } catch (Exception e) {
       System.err.println("ERROR: cannot create DeterministicCorefAnnotator!");
@@ -89,6 +87,9 @@ public class DeterministicCorefAnnotator implements Annotator {
       List<List<Mention>> allUnprocessedMentions = finder.extractPredictedMentions(annotation, 0, corefSystem.dictionaries());
 
       // add the relevant info to mentions and order them for coref
+      // the extractor is also made for each annotation, since it keeps state
+      // while arranging a document, whereas corefSystem can be shared
+      MentionExtractor mentionExtractor = new MentionExtractor(corefSystem.dictionaries(), corefSystem.semantics());
       Document document = mentionExtractor.arrange(annotation, sentences, trees, allUnprocessedMentions);
       List<List<Mention>> orderedMentions = document.getOrderedMentions();
       if(VERBOSE){
@@ -23,7 +23,7 @@ import java.util.Set;
  *
  * @author Jenny Finkel
  */
-public class MorphaAnnotator implements Annotator{
+public class MorphaAnnotator implements SentenceAnnotator {
 
   private boolean VERBOSE = false;
 
@@ -31,6 +31,15 @@ public class MorphaAnnotator implements Annotator{
   private static final String[] prep = {"abroad", "across", "after", "ahead", "along", "aside", "away", "around", "back", "down", "forward", "in", "off", "on", "over", "out", "round", "together", "through", "up"};
   private static final List<String> particles = Arrays.asList(prep);
 
+  // Morphology is not threadsafe, and this annotator may be shared by
+  // pipelines running on several threads, so each thread gets its own
+  private final ThreadLocal<Morphology> morphology = new ThreadLocal<Morphology>() {
+    @Override
+    protected Morphology initialValue() {
+      return new Morphology();
+    }
+  };
+
   public MorphaAnnotator() {
     this(true);
   }
@@ -43,18 +52,11 @@ public class MorphaAnnotator implements Annotator{
     if (VERBOSE) {
       System.err.print("Finding lemmas ...");
     }
-    Morphology morphology = new Morphology();
+    Morphology morphology = this.morphology.get();
     if (annotation.has(CoreAnnotations.SentencesAnnotation.class)) {
       for (CoreMap sentence :
            annotation.get(CoreAnnotations.SentencesAnnotation.class)) {
-        List<CoreLabel> tokens =
-          sentence.get(CoreAnnotations.TokensAnnotation.class);
-        //System.err.println("Lemmatizing sentence: " + tokens);
-        for (CoreLabel token : tokens) {
-          String text = token.get(CoreAnnotations.TextAnnotation.class);
-          String posTag = token.get(CoreAnnotations.PartOfSpeechAnnotation.class);
-          this.addLemma(morphology, CoreAnnotations.LemmaAnnotation.class, token, text, posTag);
-        }
+        doOneSentence(morphology, sentence);
       }
     } else {
       throw new RuntimeException("Unable to find words/tokens in: " +
@@ -62,6 +64,24 @@ public class MorphaAnnotator implements Annotator{
     }
   }
 
+  /**
+   * Lemmatizes one sentence, with the Morphology of the calling thread.
+   */
+  @Override
+  public void annotateSentence(Annotation annotation, CoreMap sentence) {
+    doOneSentence(morphology.get(), sentence);
+  }
+
+  private static void doOneSentence(Morphology morphology, CoreMap sentence) {
+    List<CoreLabel> tokens =
+      sentence.get(CoreAnnotations.TokensAnnotation.class);
+    //System.err.println("Lemmatizing sentence: " + tokens);
+    for (CoreLabel token : tokens) {
+      String text = token.get(CoreAnnotations.TextAnnotation.class);
+      String posTag = token.get(CoreAnnotations.PartOfSpeechAnnotation.class);
+      addLemma(morphology, CoreAnnotations.LemmaAnnotation.class, token, text, posTag);
+    }
+  }
 
   private static void addLemma(Morphology morpha,
                         Class<? extends CoreAnnotation<String>> ann,
@@ -27,7 +27,7 @@ import java.util.Set;
  * @author Jenny Finkel
  * @author Mihai Surdeanu (modified it to work with the new NERClassifierCombiner)
  */
-public class NERCombinerAnnotator implements Annotator {
+public class NERCombinerAnnotator implements SentenceAnnotator {
 
   private final NERClassifierCombiner ner;
 
@@ -83,6 +83,11 @@ public class NERCombinerAnnotator implements Annotator {
     //timerStop("done.");
   }
 
+  @Override
+  public void annotateSentence(Annotation annotation, CoreMap sentence) {
+    doOneSentence(annotation, sentence);
+  }
+
   public CoreMap doOneSentence(Annotation annotation, CoreMap sentence) {
     List<CoreLabel> tokens = sentence.get(CoreAnnotations.TokensAnnotation.class);
     List<CoreLabel> output = this.ner.classifySentenceWithGlobalInformation(tokens, annotation, sentence);
@@ -24,7 +24,7 @@ import edu.stanford.nlp.util.concurrent.ThreadsafeProcessor;
  * @author Anna Rafferty
  *
  */
-public class POSTaggerAnnotator implements Annotator {
+public class POSTaggerAnnotator implements SentenceAnnotator {
 
   private final MaxentTagger pos;
 
@@ -112,6 +112,11 @@ public class POSTaggerAnnotator implements Annotator {
     }
   }
 
+  @Override
+  public void annotateSentence(Annotation annotation, CoreMap sentence) {
+    doOneSentence(sentence);
+  }
+
   private class POSTaggerProcessor implements ThreadsafeProcessor<CoreMap, CoreMap> {
     @Override
     public CoreMap process(CoreMap sentence) {
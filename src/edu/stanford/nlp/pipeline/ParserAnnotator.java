@@ -1,9 +1,13 @@
 package edu.stanford.nlp.pipeline;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Properties;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 import edu.stanford.nlp.ling.CoreAnnotations;
 import edu.stanford.nlp.ling.CoreLabel;
@@ -37,7 +41,7 @@ import edu.stanford.nlp.util.concurrent.ThreadsafeProcessor;
  *
  * @author Jenny Finkel
  */
-public class ParserAnnotator implements Annotator {
+public class ParserAnnotator implements SentenceAnnotator {
 
   private final boolean VERBOSE;
   private final boolean BUILD_GRAPHS;
@@ -58,6 +62,29 @@ public class ParserAnnotator implements Annotator {
 
   private final int nThreads;
 
+  /**
+   * When parsing on several threads, submit the sentences of a document
+   * longest first rather than in document order.  Parsing time is cubic
+   * in sentence length, so this keeps a long sentence from being
+   * started last and leaving the other threads idle while it finishes.
+   */
+  private final boolean longestFirst;
+
+  /**
+   * ParserQuery objects which are not currently in use.  The chart
+   * arrays of a query are kept between sentences, so reusing queries
+   * saves reallocating them for every sentence.  There are never more
+   * queries here than the number of threads which have parsed at once.
+   */
+  private final Queue<ParserQuery> parserQueries = new ConcurrentLinkedQueue<ParserQuery>();
+
+  /**
+   * If a pooled ParserQuery's charts take up more than this many bytes
+   * after a parse, they are released rather than kept for the next
+   * sentence.  Use 0 for no limit.
+   */
+  private final long maxChartMemory;
+
   public static final String[] DEFAULT_FLAGS = { "-retainTmpSubcategories" };
 
   public ParserAnnotator(boolean verbose, int maxSent) {
@@ -82,6 +109,8 @@ public class ParserAnnotator implements Annotator {
     this.maxSentenceLength = maxSent;
     this.treeMap = treeMap;
     this.maxParseTime = 0;
+    this.maxChartMemory = 0;
+    this.longestFirst = false;
     if (this.BUILD_GRAPHS) {
       TreebankLanguagePack tlp = parser.getTLPParams().treebankLanguagePack();
       this.gsf = tlp.grammaticalStructureFactory(tlp.punctuationWordRejectFilter(), tlp.typedDependencyHeadFinder());
@@ -115,6 +144,8 @@ public class ParserAnnotator implements Annotator {
 
     this.maxParseTime = PropertiesUtils.getLong(props, annotatorName + ".maxtime", 0);
 
+    this.maxChartMemory = PropertiesUtils.getLong(props, annotatorName + ".maxchartmemory", 0) * 1024 * 1024;
+
     String buildGraphsProperty = annotatorName + ".buildgraphs";
     if (!this.parser.getTLPParams().supportsBasicDependencies()) {
       if (props.getProperty(buildGraphsProperty) != null && PropertiesUtils.getBool(props, buildGraphsProperty)) {
@@ -133,6 +164,15 @@ public class ParserAnnotator implements Annotator {
     }
 
     this.nThreads = PropertiesUtils.getInt(props, annotatorName + ".nthreads", PropertiesUtils.getInt(props, "nthreads", 1));
+
+    String schedule = props.getProperty(annotatorName + ".schedule", "document");
+    if (schedule.equalsIgnoreCase("document")) {
+      this.longestFirst = false;
+    } else if (schedule.equalsIgnoreCase("longestfirst")) {
+      this.longestFirst = true;
+    } else {
+      throw new IllegalArgumentException("Unknown value for " + annotatorName + ".schedule: " + schedule + " (expected document or longestfirst)");
+    }
   }
 
   public static String signature(String annotatorName, Properties props) {
@@ -150,10 +190,14 @@ public class ParserAnnotator implements Annotator {
             props.getProperty(annotatorName + ".treemap", ""));
     os.append(annotatorName + ".maxtime:" +
             props.getProperty(annotatorName + ".maxtime", "0"));
+    os.append(annotatorName + ".maxchartmemory:" +
+            props.getProperty(annotatorName + ".maxchartmemory", "0"));
     os.append(annotatorName + ".buildgraphs:" +
             props.getProperty(annotatorName + ".buildgraphs", "true"));
     os.append(annotatorName + ".nthreads:" + 
               props.getProperty(annotatorName + ".nthreads", props.getProperty("nthreads", "")));
+    os.append(annotatorName + ".schedule:" +
+              props.getProperty(annotatorName + ".schedule", "document"));
     return os.toString();
   }
 
@@ -201,7 +245,13 @@ public class ParserAnnotator implements Annotator {
         if (maxParseTime > 0) {
           wrapper.setMaxBlockTime(maxParseTime);
         }
-        for (CoreMap sentence : annotation.get(CoreAnnotations.SentencesAnnotation.class)) {
+        List<CoreMap> sentences = annotation.get(CoreAnnotations.SentencesAnnotation.class);
+        if (longestFirst) {
+          sentences = longestFirst(sentences);
+        }
+        // each sentence is annotated in place, so the order they are
+        // submitted in doesn't affect where the results end up
+        for (CoreMap sentence : sentences) {
           wrapper.put(sentence);
           while (wrapper.peek()) {
             wrapper.poll();
@@ -222,6 +272,34 @@ public class ParserAnnotator implements Annotator {
     }
   }
 
+  /**
+   * Parses a single sentence on the calling thread.  Note that
+   * <code>maxtime</code> is not enforced here, as that relies on the
+   * MulticoreWrapper used by {@link #annotate(Annotation)} to interrupt
+   * the parse.
+   */
+  @Override
+  public void annotateSentence(Annotation annotation, CoreMap sentence) {
+    doOneSentence(sentence);
+  }
+
+  /**
+   * Returns a copy of the sentences sorted by decreasing number of
+   * tokens.  Sentences of the same length stay in document order.
+   */
+  private static List<CoreMap> longestFirst(List<CoreMap> sentences) {
+    List<CoreMap> sorted = new ArrayList<CoreMap>(sentences);
+    Collections.sort(sorted, new Comparator<CoreMap>() {
+      @Override
+      public int compare(CoreMap s1, CoreMap s2) {
+        int l1 = s1.get(CoreAnnotations.TokensAnnotation.class).size();
+        int l2 = s2.get(CoreAnnotations.TokensAnnotation.class).size();
+        return l2 - l1;
+      }
+    });
+    return sorted;
+  }
+
   private void doOneSentence(CoreMap sentence) {
     final List<CoreLabel> words = sentence.get(CoreAnnotations.TokensAnnotation.class);
     if (VERBOSE) {
@@ -230,6 +308,7 @@ public class ParserAnnotator implements Annotator {
     Tree tree = null;
     // generate the constituent tree
     if (maxSentenceLength <= 0 || words.size() < maxSentenceLength) {
+      long start = System.currentTimeMillis();
       try {
         final List<ParserConstraint> constraints = sentence.get(ParserAnnotations.ConstraintAnnotation.class);
         tree = doOneSentence(constraints, words);
@@ -239,6 +318,7 @@ public class ParserAnnotator implements Annotator {
         }
         tree = null;
       }
+      sentence.set(ParserAnnotations.ParseTimeAnnotation.class, System.currentTimeMillis() - start);
     }
     // tree == null may happen if the parser takes too long or if
     // the sentence is longer than the max length
@@ -255,18 +335,30 @@ public class ParserAnnotator implements Annotator {
 
   private Tree doOneSentence(List<ParserConstraint> constraints, 
                              List<CoreLabel> words) {
-    ParserQuery pq = parser.parserQuery();
-    pq.setConstraints(constraints);
-    pq.parse(words);
+    ParserQuery pq = parserQueries.poll();
+    if (pq == null) {
+      pq = parser.parserQuery();
+    }
     Tree tree = null;
     try {
-      tree = pq.getBestParse();
-      // -10000 denotes unknown words
-      tree.setScore(pq.getPCFGScore() % -10000.0);
-    } catch (OutOfMemoryError e) {
-      System.err.println("WARNING: Parsing of sentence ran out of memory.  " +
-                         "Will ignore and continue: " +
-                         Sentence.listToString(words));
+      pq.setConstraints(constraints);
+      pq.parse(words);
+      try {
+        tree = pq.getBestParse();
+        // -10000 denotes unknown words
+        tree.setScore(pq.getPCFGScore() % -10000.0);
+      } catch (OutOfMemoryError e) {
+        System.err.println("WARNING: Parsing of sentence ran out of memory.  " +
+                           "Will ignore and continue: " +
+                           Sentence.listToString(words));
+      }
+    } finally {
+      // the query resets itself at the start of each parse, so it can
+      // go back in the pool even if this parse was interrupted
+      if (maxChartMemory > 0) {
+        pq.limitArrayMemory(maxChartMemory);
+      }
+      parserQueries.offer(pq);
     }
     return tree;
   }
@@ -19,7 +19,9 @@ import edu.stanford.nlp.trees.TreeCoreAnnotations;
 import edu.stanford.nlp.semgraph.SemanticGraph;
 import edu.stanford.nlp.semgraph.SemanticGraphCoreAnnotations;
 import edu.stanford.nlp.semgraph.SemanticGraphFactory;
+import edu.stanford.nlp.util.ArrayCoreMap;
 import edu.stanford.nlp.util.CoreMap;
+import edu.stanford.nlp.util.Factory;
 
 /** @author David McClosky */
 public class ParserAnnotatorUtils {
@@ -56,22 +58,78 @@ public class ParserAnnotatorUtils {
       Integer sentenceIndex = sentence.get(CoreAnnotations.SentenceIndexAnnotation.class);
       int index = (sentenceIndex == null) ? 0 : sentenceIndex;
 
-      // generate the dependency graph
-      SemanticGraph deps = SemanticGraphFactory.generateCollapsedDependencies(gsf.newGrammaticalStructure(tree), docID, index);
-      SemanticGraph uncollapsedDeps = SemanticGraphFactory.generateUncollapsedDependencies(gsf.newGrammaticalStructure(tree), docID, index);
-      SemanticGraph ccDeps = SemanticGraphFactory.generateCCProcessedDependencies(gsf.newGrammaticalStructure(tree), docID, index);
+      // generate the dependency graphs, all from one grammatical structure
+      final DependencyGraphs graphs = new DependencyGraphs(gsf, tree, docID, index);
       if (verbose) {
         System.err.println("SDs:");
-        System.err.println(deps.toString("plain"));
+        System.err.println(graphs.collapsed().toString("plain"));
+      }
+      if (sentence instanceof ArrayCoreMap) {
+        // only make the graphs that are actually read
+        ArrayCoreMap map = (ArrayCoreMap) sentence;
+        map.setLazy(SemanticGraphCoreAnnotations.CollapsedDependenciesAnnotation.class, new Factory<SemanticGraph>() {
+          private static final long serialVersionUID = 1L;
+          public SemanticGraph create() { return graphs.collapsed(); }
+        });
+        map.setLazy(SemanticGraphCoreAnnotations.BasicDependenciesAnnotation.class, new Factory<SemanticGraph>() {
+          private static final long serialVersionUID = 1L;
+          public SemanticGraph create() { return graphs.basic(); }
+        });
+        map.setLazy(SemanticGraphCoreAnnotations.CollapsedCCProcessedDependenciesAnnotation.class, new Factory<SemanticGraph>() {
+          private static final long serialVersionUID = 1L;
+          public SemanticGraph create() { return graphs.ccProcessed(); }
+        });
+      } else {
+        sentence.set(SemanticGraphCoreAnnotations.CollapsedDependenciesAnnotation.class, graphs.collapsed());
+        sentence.set(SemanticGraphCoreAnnotations.BasicDependenciesAnnotation.class, graphs.basic());
+        sentence.set(SemanticGraphCoreAnnotations.CollapsedCCProcessedDependenciesAnnotation.class, graphs.ccProcessed());
       }
-      sentence.set(SemanticGraphCoreAnnotations.CollapsedDependenciesAnnotation.class, deps);
-      sentence.set(SemanticGraphCoreAnnotations.BasicDependenciesAnnotation.class, uncollapsedDeps);
-      sentence.set(SemanticGraphCoreAnnotations.CollapsedCCProcessedDependenciesAnnotation.class, ccDeps);
     }
 
     setMissingTags(sentence, tree);
   }
 
+  /**
+   * Makes the dependency graphs of a tree on demand.  The grammatical
+   * structure, which is most of the cost, is made once, the first time
+   * any graph is asked for, and shared by all of them.
+   */
+  private static class DependencyGraphs {
+
+    private final GrammaticalStructureFactory gsf;
+    private final Tree tree;
+    private final String docID;
+    private final int index;
+    private GrammaticalStructure gs; // = null;
+
+    DependencyGraphs(GrammaticalStructureFactory gsf, Tree tree, String docID, int index) {
+      this.gsf = gsf;
+      this.tree = tree;
+      this.docID = docID;
+      this.index = index;
+    }
+
+    private GrammaticalStructure grammaticalStructure() {
+      if (gs == null) {
+        gs = gsf.newGrammaticalStructure(tree);
+      }
+      return gs;
+    }
+
+    synchronized SemanticGraph collapsed() {
+      return SemanticGraphFactory.generateCollapsedDependencies(grammaticalStructure(), docID, index);
+    }
+
+    synchronized SemanticGraph basic() {
+      return SemanticGraphFactory.generateUncollapsedDependencies(grammaticalStructure(), docID, index);
+    }
+
+    synchronized SemanticGraph ccProcessed() {
+      return SemanticGraphFactory.generateCCProcessedDependencies(grammaticalStructure(), docID, index);
+    }
+
+  } // end static class DependencyGraphs
+
   /**
    * Set the tags of the original tokens and the leaves if they
    * aren't already set
@@ -0,0 +1,27 @@
+package edu.stanford.nlp.pipeline;
+
+import edu.stanford.nlp.util.CoreMap;
+
+/**
+ * An Annotator whose work on a document is just independent work on
+ * each of its sentences.  Such annotators can be run as stages of a
+ * sentence-level pipeline (see
+ * {@link AnnotationPipeline#setSentencePipelining(int)}), where a later
+ * stage starts on the first sentence of a document while earlier
+ * stages are still working on later sentences.
+ * <br>
+ * <code>annotateSentence</code> may read document-level information
+ * from the Annotation (such as the document date), but must only
+ * modify the given sentence and its tokens.  Calls for different
+ * sentences of the same document are made one at a time, in sentence
+ * order, but possibly from a different thread than the one that
+ * called <code>annotate</code>.
+ */
+public interface SentenceAnnotator extends Annotator {
+  /**
+   * Annotate a single sentence of the given document.  Running this on
+   * every sentence must have the same effect as
+   * {@link Annotator#annotate(Annotation)} on the whole document.
+   */
+  public void annotateSentence(Annotation annotation, CoreMap sentence);
+}
@@ -0,0 +1,151 @@
+package edu.stanford.nlp.pipeline;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import edu.stanford.nlp.util.ArrayCoreMap;
+import edu.stanford.nlp.util.CoreMap;
+import edu.stanford.nlp.util.MutableInteger;
+import edu.stanford.nlp.util.RuntimeInterruptedException;
+import edu.stanford.nlp.util.Timing;
+
+/**
+ * Runs a sequence of {@link SentenceAnnotator}s over the sentences of
+ * one document as a pipeline: each annotator is a stage on its own
+ * thread, and the stages are connected by bounded queues of
+ * sentences.  Each sentence therefore sees the annotators in the same
+ * order as in the sequential pipeline, but stage <i>k</i> can work on
+ * sentence <i>n</i> while stage <i>k</i>-1 works on sentence <i>n</i>+1.
+ */
+class SentencePipelineExecutor {
+
+  /** Marks the end of the document in a stage's input queue */
+  private static final CoreMap END = new ArrayCoreMap(0);
+
+  private SentencePipelineExecutor() {} // static methods
+
+  /**
+   * Annotates all of the sentences with each of the stages, in order.
+   * Returns only once every stage has finished every sentence.
+   *
+   * @param annotation The document being annotated
+   * @param sentences The sentences of that document
+   * @param stages The sentence annotators, in pipeline order
+   * @param times Where to accumulate the time spent in each stage;
+   *              may be null
+   * @param queueSize The capacity of the queue in front of each stage
+   */
+  static void annotate(final Annotation annotation,
+                       final List<CoreMap> sentences,
+                       List<SentenceAnnotator> stages,
+                       List<MutableInteger> times,
+                       int queueSize) {
+    final int numStages = stages.size();
+    final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+    List<BlockingQueue<CoreMap>> queues = new ArrayList<BlockingQueue<CoreMap>>(numStages + 1);
+    for (int i = 0; i <= numStages; ++i) {
+      // the last queue is only drained once all stages are done
+      queues.add(new ArrayBlockingQueue<CoreMap>(i < numStages ? queueSize : sentences.size() + 1));
+    }
+
+    Thread[] threads = new Thread[numStages];
+    for (int i = 0; i < numStages; ++i) {
+      final SentenceAnnotator stage = stages.get(i);
+      final MutableInteger time = (times == null) ? null : times.get(i);
+      final BlockingQueue<CoreMap> in = queues.get(i);
+      final BlockingQueue<CoreMap> out = queues.get(i + 1);
+      threads[i] = new Thread("SentencePipeline stage " + i + " (" + stage.getClass().getSimpleName() + ")") {
+        @Override
+        public void run() {
+          Timing t = new Timing();
+          long elapsed = 0;
+          boolean ended = false;
+          try {
+            while (true) {
+              CoreMap sentence = in.take();
+              // once something has failed, stages just pass the
+              // sentences along so that nothing upstream blocks
+              if (sentence != END && failure.get() == null) {
+                t.start();
+                try {
+                  stage.annotateSentence(annotation, sentence);
+                } catch (Throwable e) {
+                  failure.compareAndSet(null, e);
+                }
+                elapsed += t.stop();
+              }
+              forward(out, sentence, failure);
+              if (sentence == END) {
+                ended = true;
+                break;
+              }
+            }
+          } catch (InterruptedException e) {
+            failure.compareAndSet(null, new RuntimeInterruptedException(e));
+          } catch (Throwable e) {
+            failure.compareAndSet(null, e);
+          } finally {
+            if (!ended) {
+              // the document has failed, so the sentences still queued
+              // downstream can be dropped to make room for the end marker
+              while (!out.offer(END)) {
+                out.clear();
+              }
+            }
+            if (time != null) {
+              time.incValue((int) elapsed);
+            }
+          }
+        }
+      };
+      threads[i].start();
+    }
+
+    try {
+      for (int i = 0; i < sentences.size() && failure.get() == null; ++i) {
+        forward(queues.get(0), sentences.get(i), failure);
+      }
+      forward(queues.get(0), END, failure);
+      for (Thread thread : threads) {
+        thread.join();
+      }
+    } catch (InterruptedException e) {
+      for (Thread thread : threads) {
+        thread.interrupt();
+      }
+      throw new RuntimeInterruptedException(e);
+    }
+
+    Throwable e = failure.get();
+    if (e instanceof RuntimeException) {
+      throw (RuntimeException) e;
+    } else if (e instanceof Error) {
+      throw (Error) e;
+    } else if (e != null) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  /**
+   * Puts a sentence on the next queue.  Once the document has failed
+   * the next stage may have died and stopped draining its queue, so
+   * sentences are dropped rather than waited on, and the end marker
+   * makes room for itself.
+   */
+  private static void forward(BlockingQueue<CoreMap> queue, CoreMap sentence,
+                              AtomicReference<Throwable> failure) throws InterruptedException {
+    while (!queue.offer(sentence, 100, TimeUnit.MILLISECONDS)) {
+      if (failure.get() != null) {
+        if (sentence != END) {
+          return;
+        }
+        queue.clear();
+      }
+    }
+  }
+
+}
@@ -45,6 +45,17 @@ import edu.stanford.nlp.util.logging.StanfordRedwoodConfiguration;
 
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 
@@ -285,6 +296,9 @@ public class StanfordCoreNLP extends AnnotationPipeline {
       alreadyAddedAnnoNames.add(name);
     }
 
+    // run sentence-level annotators as a pipeline, if requested
+    setSentencePipelining(PropertiesUtils.getInt(props, "sentencePipelineQueueSize", 0));
+
     // Sanity check
     if (! alreadyAddedAnnoNames.contains(STANFORD_SSPLIT)) {
       System.setProperty(NEWLINE_SPLITTER_PROPERTY, "false");
@@ -553,6 +567,9 @@ public class StanfordCoreNLP extends AnnotationPipeline {
           nerCombiner = new NERClassifierCombiner(applyNumericClassifiers,
                 useSUTime, properties,
                 models.toArray(new String[models.size()]));
+          nerCombiner.setConcurrent(PropertiesUtils.getBool(properties,
+                NERClassifierCombiner.NER_CONCURRENT_MODELS_PROPERTY,
+                NERClassifierCombiner.CONCURRENT_MODELS_DEFAULT));
         } catch (FileNotFoundException e) {
           throw new RuntimeIOException(e);
         }
@@ -578,7 +595,10 @@ public class StanfordCoreNLP extends AnnotationPipeline {
                         Boolean.toString(NERClassifierCombiner.APPLY_NUMERIC_CLASSIFIERS_DEFAULT)) +
                 NumberSequenceClassifier.USE_SUTIME_PROPERTY + ":" +
                 properties.getProperty(NumberSequenceClassifier.USE_SUTIME_PROPERTY,
-                        Boolean.toString(NumberSequenceClassifier.USE_SUTIME_DEFAULT));
+                        Boolean.toString(NumberSequenceClassifier.USE_SUTIME_DEFAULT)) +
+                NERClassifierCombiner.NER_CONCURRENT_MODELS_PROPERTY + ":" +
+                properties.getProperty(NERClassifierCombiner.NER_CONCURRENT_MODELS_PROPERTY,
+                        Boolean.toString(NERClassifierCombiner.CONCURRENT_MODELS_DEFAULT));
       }
     });
 
@@ -944,11 +964,15 @@ public class StanfordCoreNLP extends AnnotationPipeline {
       os.println("\tparse.type - selects the parser to use");
       os.println("\tparse.model - path to model file for parser");
       os.println("\tparse.maxlen - maximum sentence length");
+      os.println("\tparse.maxtime - maximum time in milliseconds to wait for a parse before giving up on it; the time actually spent is stored on each sentence as a ParseTimeAnnotation");
+      os.println("\tparse.nthreads - number of threads to parse the sentences of a document with");
+      os.println("\tparse.schedule - with several threads, \"document\" (default) parses sentences in document order, \"longestfirst\" starts the longest sentences first");
       os.println();
       os.println("Stanford Parser-specific options:");
       os.println("(In general, you shouldn't need to set this flags)");
       os.println("\tparse.flags - extra flags to the parser (default: -retainTmpSubcategories)");
       os.println("\tparse.debug - set to true to make the parser slightly more verbose");
+      os.println("\tparse.maxchartmemory - release the parser's reused chart arrays when they exceed this many MB (default: 0, no limit)");
       os.println();
       os.println("Charniak and Johnson parser-specific options:");
       os.println("\tparse.executable - path to the parseIt binary or parse.sh script");
@@ -974,6 +998,7 @@ public class StanfordCoreNLP extends AnnotationPipeline {
     os.println("(if -props or -annotators is not passed in, default properties will be loaded via the classpath)");
     os.println("\t\"props\" - path to file with configuration properties");
     os.println("\t\"annotators\" - comma separated list of annotators");
+    os.println("\t\"sentencePipelineQueueSize\" - if positive, run consecutive sentence-level annotators (pos, lemma, ner, parse) concurrently, one sentence after another, with queues of this size between them");
     os.println("\tThe following annotators are supported: cleanxml, tokenize, ssplit, pos, lemma, ner, truecase, parse, coref, dcoref, nfl");
 
     os.println("\n\tIf annotator \"tokenize\" is defined:");
@@ -993,6 +1018,7 @@ public class StanfordCoreNLP extends AnnotationPipeline {
     os.println("\t\"ner.model.3class\" - path towards the three-class NER model");
     os.println("\t\"ner.model.7class\" - path towards the seven-class NER model");
     os.println("\t\"ner.model.MISCclass\" - path towards the NER model with a MISC class");
+    os.println("\t\"ner.concurrentModels\" - run the NER models concurrently; default: " + NERClassifierCombiner.CONCURRENT_MODELS_DEFAULT);
 
     os.println("\n\tIf annotator \"truecase\" is defined:");
     os.println("\t\"truecase.model\" - path towards the true-casing model; default: " + DefaultPaths.DEFAULT_TRUECASE_MODEL);
@@ -1027,6 +1053,9 @@ public class StanfordCoreNLP extends AnnotationPipeline {
     os.println("\t\"replaceExtension\" - flag to chop off the last extension before adding outputExtension to file");
     os.println("\t\"noClobber\" - don't automatically override (clobber) output files that already exist");
 		os.println("\t\"threads\" - multithread on this number of threads");
+    os.println("\t\"streaming\" - process -file or -filelist input with a bounded reader/annotator/writer pipeline instead of one task per file");
+    os.println("\t\"maxInFlight\" - with -streaming, the maximum number of documents held in memory at once (defaults to 2 * threads)");
+    os.println("\t\"reportEvery\" - with -streaming, log the queue depths of each stage every this many documents (defaults to 1000)");
     os.println("\nIf none of the above are present, run the pipeline in an interactive shell (default properties will be loaded from the classpath).");
     os.println("The shell accepts input from stdin and displays the output at stdout.");
 
@@ -1080,6 +1109,106 @@ public class StanfordCoreNLP extends AnnotationPipeline {
 
 
 
+  /**
+   * Determines where the output for the given input file should go.
+   * Returns null (after logging why) if the file should be skipped.
+   */
+  private String getOutputFilename(File file, OutputFormat outputFormat) throws IOException {
+    //(filename)
+    String outputFilename = new File(properties.getProperty("outputDirectory", "."), file.getName()).getPath();
+    if (properties.getProperty("replaceExtension") != null) {
+      int lastDot = outputFilename.lastIndexOf('.');
+      // for paths like "./zzz", lastDot will be 0
+      if (lastDot > 0) {
+        outputFilename = outputFilename.substring(0, lastDot);
+      }
+    }
+    //(file info)
+    String defaultExtension;
+    switch (outputFormat) {
+    case XML: defaultExtension = ".xml"; break;
+    case TEXT: defaultExtension = ".out"; break;
+    case SERIALIZED: defaultExtension = ".ser.gz"; break;
+    default: throw new IllegalArgumentException("Unknown output format " + outputFormat);
+    }
+    String extension = properties.getProperty("outputExtension", defaultExtension);
+    // ensure we don't make filenames with doubled extensions like .xml.xml
+    if (!outputFilename.endsWith(extension)) {
+      outputFilename += extension;
+    }
+    // normalize filename for the upcoming comparison
+    outputFilename = new File(outputFilename).getCanonicalPath();
+
+    //--Conditions For Skipping The File
+    // TODO this could fail if there are softlinks, etc. -- need some sort of sameFile tester
+    //      Java 7 will have a Files.isSymbolicLink(file) method
+    if (outputFilename.equals(file.getCanonicalPath())) {
+      err("Skipping " + file.getName() + ": output file " + outputFilename + " has the same filename as the input file -- assuming you don't actually want to do this.");
+      return null;
+    }
+    if (properties.getProperty("noClobber") != null && new File(outputFilename).exists()) {
+      err("Skipping " + file.getName() + ": output file " + outputFilename + " as it already exists.  Don't use the noClobber option to override this.");
+      return null;
+    }
+    return outputFilename;
+  }
+
+  private OutputFormat getOutputFormat() {
+    return OutputFormat.valueOf(properties.getProperty("outputFormat", DEFAULT_OUTPUT_FORMAT).toUpperCase());
+  }
+
+  /**
+   * Reads the (unannotated, or partially annotated if serialized) document
+   * stored in the given file.
+   */
+  private Annotation readAnnotation(File file) throws IOException {
+    Annotation annotation = null;
+    if (file.getAbsolutePath().endsWith(".ser.gz")) {
+      // maybe they want to continue processing a partially processed annotation
+      try {
+        annotation = IOUtils.readObjectFromFile(file);
+      } catch (IOException e) {
+        // guess that's not what they wanted
+        // We hide IOExceptions because ones such as file not
+        // found will be thrown again in a moment.  Note that
+        // we are intentionally letting class cast exceptions
+        // and class not found exceptions go through.
+      } catch (ClassNotFoundException e) {
+        throw new RuntimeException(e);
+      }
+    }
+    //(read file)
+    if (annotation == null) {
+      String encoding = getEncoding();
+      String text = IOUtils.slurpFile(file, encoding);
+      annotation = new Annotation(text);
+    }
+    return annotation;
+  }
+
+  private void writeAnnotation(Annotation annotation, String outputFilename, OutputFormat outputFormat) throws IOException {
+    switch (outputFormat) {
+    case XML: {
+      OutputStream fos = new BufferedOutputStream(new FileOutputStream(outputFilename));
+      xmlPrint(annotation, fos);
+      fos.close();
+      break;
+    }
+    case TEXT: {
+      OutputStream fos = new BufferedOutputStream(new FileOutputStream(outputFilename));
+      prettyPrint(annotation, fos);
+      fos.close();
+      break;
+    }
+    case SERIALIZED: {
+      IOUtils.writeObjectToFile(annotation, outputFilename);
+      break;
+    }
+    default:
+      throw new IllegalArgumentException("Unknown output format " + outputFormat);
+    }
+  }
+
   public void processFiles(final Collection<File> files, int numThreads) throws IOException {
     List<Runnable> toRun = new LinkedList<Runnable>();
     //for each file...
@@ -1092,92 +1221,21 @@ public class StanfordCoreNLP extends AnnotationPipeline {
           //catching exceptions...
           try {
             //--Get Output File Info
-            //(filename)
-            String outputFilename = new File(properties.getProperty("outputDirectory", "."), file.getName()).getPath();
-            if (properties.getProperty("replaceExtension") != null) {
-              int lastDot = outputFilename.lastIndexOf('.');
-              // for paths like "./zzz", lastDot will be 0
-              if (lastDot > 0) {
-                outputFilename = outputFilename.substring(0, lastDot);
-              }
-            }
-            //(file info)
-            OutputFormat outputFormat = OutputFormat.valueOf(properties.getProperty("outputFormat", DEFAULT_OUTPUT_FORMAT).toUpperCase());
-            String defaultExtension;
-            switch (outputFormat) {
-            case XML: defaultExtension = ".xml"; break;
-            case TEXT: defaultExtension = ".out"; break;
-            case SERIALIZED: defaultExtension = ".ser.gz"; break;
-            default: throw new IllegalArgumentException("Unknown output format " + outputFormat);
-            }
-            String extension = properties.getProperty("outputExtension", defaultExtension);
-            // ensure we don't make filenames with doubled extensions like .xml.xml
-            if (!outputFilename.endsWith(extension)) {
-              outputFilename += extension;
-            }
-            // normalize filename for the upcoming comparison
-            outputFilename = new File(outputFilename).getCanonicalPath();
-
-            //--Conditions For Skipping The File
-            // TODO this could fail if there are softlinks, etc. -- need some sort of sameFile tester
-            //      Java 7 will have a Files.isSymbolicLink(file) method
-            if (outputFilename.equals(file.getCanonicalPath())) {
-              err("Skipping " + file.getName() + ": output file " + outputFilename + " has the same filename as the input file -- assuming you don't actually want to do this.");
-              return;
-            }
-            if (properties.getProperty("noClobber") != null && new File(outputFilename).exists()) {
-              err("Skipping " + file.getName() + ": output file " + outputFilename + " as it already exists.  Don't use the noClobber option to override this.");
+            OutputFormat outputFormat = getOutputFormat();
+            String outputFilename = getOutputFilename(file, outputFormat);
+            if (outputFilename == null) {
               return;
             }
 
             //--Process File
-            Annotation annotation = null;
-            if (file.getAbsolutePath().endsWith(".ser.gz")) {
-              // maybe they want to continue processing a partially processed annotation
-              try {
-                annotation = IOUtils.readObjectFromFile(file);
-              } catch (IOException e) {
-                // guess that's not what they wanted
-                // We hide IOExceptions because ones such as file not
-                // found will be thrown again in a moment.  Note that
-                // we are intentionally letting class cast exceptions
-                // and class not found exceptions go through.
-              } catch (ClassNotFoundException e) {
-                throw new RuntimeException(e);
-              } 
-            }
-            //(read file)
-            if (annotation == null) {
-              String encoding = getEncoding();
-              String text = IOUtils.slurpFile(file, encoding);
-              annotation = new Annotation(text);
-            }
+            Annotation annotation = readAnnotation(file);
 
             annotate(annotation);
 
             forceTrack("Processing file " + file.getAbsolutePath() + " ... writing to " + outputFilename);
 
             //--Output File
-            switch (outputFormat) {
-            case XML: {
-              OutputStream fos = new BufferedOutputStream(new FileOutputStream(outputFilename));
-              xmlPrint(annotation, fos);
-              fos.close();
-              break;
-            }
-            case TEXT: {
-              OutputStream fos = new BufferedOutputStream(new FileOutputStream(outputFilename));
-              prettyPrint(annotation, fos);
-              fos.close();
-              break;
-            }
-            case SERIALIZED: {
-              IOUtils.writeObjectToFile(annotation, outputFilename);
-              break;
-            }
-            default:
-              throw new IllegalArgumentException("Unknown output format " + outputFormat);
-            }
+            writeAnnotation(annotation, outputFilename, outputFormat);
             endTrack("Processing file " + file.getAbsolutePath() + " ... writing to " + outputFilename);
           } catch (IOException e) {
             throw new RuntimeIOException(e);
@@ -1198,6 +1256,200 @@ public class StanfordCoreNLP extends AnnotationPipeline {
     processFiles(files, 1);
   }
 
+  /** A document travelling through the streaming pipeline of {@link #processFilesStreaming}. */
+  private static class StreamingJob {
+    final File file;
+    final String outputFilename;
+    Annotation annotation;
+    StreamingJob(File file, String outputFilename, Annotation annotation) {
+      this.file = file;
+      this.outputFilename = outputFilename;
+      this.annotation = annotation;
+    }
+  }
+
+  /** Marks the end of the input in the streaming pipeline queues. */
+  private static final StreamingJob END_OF_STREAM = new StreamingJob(null, null, null);
+
+  /**
+   * Processes the given files with a bounded producer/consumer pipeline,
+   * rather than building one task per file up front as
+   * {@link #processFiles(Collection, int)} does.
+   * The files are pulled lazily from the Iterable (so a
+   * {@link FileSequentialCollection} walks directories only as fast as
+   * documents are consumed), read by the calling thread, annotated by
+   * <code>numThreads</code> worker threads, and written out by a single writer
+   * thread.  At most <code>maxInFlight</code> documents are held in memory
+   * at any one time; the reader blocks until the writer has finished with
+   * earlier documents.  Queue depths for each stage are logged every
+   * <code>reportEvery</code> documents (0 to only report at the end).
+   *
+   * @param files The files to process; iterated over only once
+   * @param numThreads The number of annotation threads
+   * @param maxInFlight The maximum number of documents read but not yet written
+   * @param reportEvery How often (in documents) to log the queue depths
+   * @throws IOException If there is a problem reading a file or writing output
+   */
+  public void processFilesStreaming(Iterable<File> files, int numThreads,
+                                    int maxInFlight, int reportEvery) throws IOException {
+    if (numThreads < 1) {
+      throw new IllegalArgumentException("Need at least one annotation thread, got " + numThreads);
+    }
+    if (maxInFlight < 1) {
+      throw new IllegalArgumentException("maxInFlight must be positive, got " + maxInFlight);
+    }
+    final OutputFormat outputFormat = getOutputFormat();
+    final Semaphore inFlight = new Semaphore(maxInFlight);
+    final BlockingQueue<StreamingJob> toAnnotate = new ArrayBlockingQueue<StreamingJob>(maxInFlight);
+    final BlockingQueue<StreamingJob> toWrite = new ArrayBlockingQueue<StreamingJob>(maxInFlight);
+    final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+    final AtomicInteger written = new AtomicInteger();
+    final AtomicInteger threadCount = new AtomicInteger();
+    ExecutorService stages = Executors.newFixedThreadPool(numThreads + 1, new ThreadFactory() {
+      public Thread newThread(Runnable r) {
+        return new Thread(r, "StanfordCoreNLP streaming " + threadCount.getAndIncrement());
+      }
+    });
+
+    try {
+      //--Annotation stage
+      List<Future<?>> annotators = new ArrayList<Future<?>>();
+      for (int i = 0; i < numThreads; ++i) {
+        annotators.add(stages.submit(new Runnable() {
+          public void run() {
+            try {
+              while (true) {
+                StreamingJob job = toAnnotate.take();
+                if (job == END_OF_STREAM) {
+                  break;
+                }
+                boolean passedOn = false;
+                try {
+                  if (failure.get() == null) {
+                    try {
+                      annotate(job.annotation);
+                    } catch (Throwable t) {
+                      failure.compareAndSet(null, t);
+                    }
+                  }
+                  toWrite.put(job);
+                  passedOn = true;
+                } finally {
+                  if ( ! passedOn) {
+                    inFlight.release();
+                  }
+                }
+              }
+            } catch (InterruptedException e) {
+              failure.compareAndSet(null, e);
+            }
+          }
+        }));
+      }
+
+      //--Output stage
+      final int report = reportEvery;
+      Future<?> writer = stages.submit(new Runnable() {
+        public void run() {
+          try {
+            while (true) {
+              StreamingJob job = toWrite.take();
+              if (job == END_OF_STREAM) {
+                break;
+              }
+              try {
+                if (failure.get() == null) {
+                  writeAnnotation(job.annotation, job.outputFilename, outputFormat);
+                  log("Processed file " + job.file.getAbsolutePath() + " ... wrote to " + job.outputFilename);
+                  int count = written.incrementAndGet();
+                  if (report > 0 && count % report == 0) {
+                    log(streamingQueueDepths(count, toAnnotate, toWrite, inFlight));
+                  }
+                }
+              } catch (Throwable t) {
+                failure.compareAndSet(null, t);
+              } finally {
+                job.annotation = null;
+                inFlight.release();
+              }
+            }
+          } catch (InterruptedException e) {
+            failure.compareAndSet(null, e);
+          }
+        }
+      });
+
+      //--Input stage (this thread)
+      for (File file : files) {
+        if (failure.get() != null) {
+          break;
+        }
+        String outputFilename = getOutputFilename(file, outputFormat);
+        if (outputFilename == null) {
+          continue;
+        }
+        inFlight.acquire();
+        boolean passedOn = false;
+        try {
+          toAnnotate.put(new StreamingJob(file, outputFilename, readAnnotation(file)));
+          passedOn = true;
+        } catch (Throwable t) {
+          failure.compareAndSet(null, t);
+        } finally {
+          if ( ! passedOn) {
+            inFlight.release();
+          }
+        }
+      }
+      //(shut down the stages in order)
+      for (int i = 0; i < numThreads; ++i) {
+        toAnnotate.put(END_OF_STREAM);
+      }
+      for (Future<?> annotator : annotators) {
+        annotator.get();
+      }
+      toWrite.put(END_OF_STREAM);
+      writer.get();
+    } catch (InterruptedException e) {
+      throw new RuntimeInterruptedException(e);
+    } catch (ExecutionException e) {
+      // the stages catch everything themselves, so this shouldn't happen
+      failure.compareAndSet(null, e.getCause());
+    } finally {
+      // stop the stages if we leave early (e.g., when interrupted)
+      stages.shutdownNow();
+      try {
+        stages.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    log(streamingQueueDepths(written.get(), toAnnotate, toWrite, inFlight));
+
+    //--Report failures
+    Throwable t = failure.get();
+    if (t instanceof IOException) {
+      throw (IOException) t;
+    } else if (t instanceof RuntimeException) {
+      throw (RuntimeException) t;
+    } else if (t instanceof Error) {
+      throw (Error) t;
+    } else if (t instanceof InterruptedException) {
+      throw new RuntimeInterruptedException((InterruptedException) t);
+    } else if (t != null) {
+      throw new RuntimeException(t);
+    }
+  }
+
+  private static String streamingQueueDepths(int written,
+                                             BlockingQueue<StreamingJob> toAnnotate,
+                                             BlockingQueue<StreamingJob> toWrite,
+                                             Semaphore inFlight) {
+    return "Streaming: " + written + " documents written; queue depths: annotate=" +
+        toAnnotate.size() + ", write=" + toWrite.size() +
+        ", available in-flight slots=" + inFlight.availablePermits();
+  }
+
   /**
    * This can be used just for testing or for command-line text processing.
    * This runs the pipeline you specify on the
@@ -1242,6 +1494,10 @@ public class StanfordCoreNLP extends AnnotationPipeline {
     } catch(NumberFormatException e) {
       err("-threads [number]: was not given a valid number: " + numThreadsString);
     }
+    // streaming (bounded memory) batch mode
+    boolean streaming = props != null && PropertiesUtils.getBool(props, "streaming", false);
+    int maxInFlight = (props == null) ? 2 * numThreads : PropertiesUtils.getInt(props, "maxInFlight", 2 * numThreads);
+    int reportEvery = (props == null) ? 1000 : PropertiesUtils.getInt(props, "reportEvery", 1000);
 
     //
     // construct the pipeline
@@ -1259,7 +1515,11 @@ public class StanfordCoreNLP extends AnnotationPipeline {
     if(props.containsKey("file")){
       String fileName = props.getProperty("file");
       Collection<File> files = new FileSequentialCollection(new File(fileName), props.getProperty("extension"), true);
-      pipeline.processFiles(files, numThreads);
+      if (streaming) {
+        pipeline.processFilesStreaming(files, numThreads, maxInFlight, reportEvery);
+      } else {
+        pipeline.processFiles(files, numThreads);
+      }
     }
 
     //
@@ -1268,7 +1528,11 @@ public class StanfordCoreNLP extends AnnotationPipeline {
     else if(props.containsKey("filelist")){
       String fileName = props.getProperty("filelist");
       Collection<File> files = readFileList(fileName);
-      pipeline.processFiles(files, numThreads);
+      if (streaming) {
+        pipeline.processFilesStreaming(files, numThreads, maxInFlight, reportEvery);
+      } else {
+        pipeline.processFiles(files, numThreads);
+      }
     }
 
     //
@@ -85,9 +85,17 @@ public class ExactBestSequenceFinder implements BestSequenceFinder {
     System.out.println("The best sequence is ... " + Arrays.toString(bestTags));
   }
 
+  // Scratch space for bestSequenceNew, kept between calls and grown as needed
+  private double[] windowScore = new double[0];
+  private double[] score = new double[0];
+  private int[] trace = new int[0];
+
   /**
    * Runs the Viterbi algorithm on the sequence model given by the TagScorer
    * in order to find the best sequence.
+   * An ExactBestSequenceFinder reuses its score arrays from one call to the
+   * next, so an instance should not be used by several threads at once.
+   *
    * @param ts The SequenceModel to be used for scoring
    * @return An array containing the int tags of the best sequence
    */
@@ -99,7 +107,7 @@ public class ExactBestSequenceFinder implements BestSequenceFinder {
     }
   }
 
-  private static int[] bestSequenceNew(SequenceModel ts) {
+  private int[] bestSequenceNew(SequenceModel ts) {
     // Set up tag options
     int length = ts.length();
     int leftWindow = ts.leftWindow();
@@ -131,13 +139,38 @@ public class ExactBestSequenceFinder implements BestSequenceFinder {
       productSizes[pos - rightWindow] = curProduct;
     }
 
+    // The window products of all positions are kept end to end in flat
+    // windowScore, score and trace arrays; offsets[pos] is where pos starts
+    int[] offsets = new int[padLength];
+    int total = 0;
+    for (int pos = leftWindow; pos < leftWindow + length; pos++) {
+      offsets[pos] = total;
+      total += productSizes[pos];
+    }
+    if (windowScore.length < total) {
+      windowScore = new double[total];
+      score = new double[total];
+      trace = new int[total];
+    } else {
+      Arrays.fill(windowScore, 0, total, 0.0);
+    }
+    double[] windowScore = this.windowScore;
+    double[] score = this.score;
+    int[] trace = this.trace;
+
     // Score all of each window's options
-    double[][] windowScore = new double[padLength][];
+    WindowScoringSequenceModel wts = null;
+    if (ts instanceof WindowScoringSequenceModel) {
+      wts = (WindowScoringSequenceModel) ts;
+    }
     for (int pos = leftWindow; pos < leftWindow + length; pos++) {
       if (DEBUG) { System.err.println("scoring word " + pos + " / " + (leftWindow + length) + ", productSizes =  " + productSizes[pos] + ", tagNum = " + tagNum[pos] + "..."); }
-      windowScore[pos] = new double[productSizes[pos]];
+      int base = offsets[pos];
+      if (wts != null) {
+        wts.scoresOfWindows(pos, tags, windowScore, base);
+        continue;
+      }
       Arrays.fill(tempTags, tags[0][0]);
-      if (DEBUG) { System.err.println("windowScore[" + pos + "] has size (productSizes[pos]) " + windowScore[pos].length); }
 
       for (int product = 0; product < productSizes[pos]; product++) {
         int p = product;
@@ -157,63 +190,63 @@ public class ExactBestSequenceFinder implements BestSequenceFinder {
           // get all tags at once
           double[] scores = ts.scoresOf(tempTags, pos);
           if (DEBUG) { System.err.println("Matched at array index [product] " + product + "; tempTags[pos] == tags[pos][0] == " + tempTags[pos]); }
-          if (DEBUG) { System.err.println("For pos " + pos + " scores.length is " + scores.length + "; tagNum[pos] = " + tagNum[pos] + "; windowScore[pos].length = " + windowScore[pos].length); }
+          if (DEBUG) { System.err.println("For pos " + pos + " scores.length is " + scores.length + "; tagNum[pos] = " + tagNum[pos]); }
           if (DEBUG) { System.err.println("scores: " + Arrays.toString(scores)); }
           // fill in the relevant windowScores
           for (int t = 0; t < tagNum[pos]; t++) {
             if (DEBUG) { System.err.println("Setting value of windowScore[" + pos + "][" + product + "+" + t + "*" + shift + "] = " + scores[t]); }
-            windowScore[pos][product + t * shift] = scores[t];
+            windowScore[base + product + t * shift] = scores[t];
           }
         }
       }
     }
 
-    // Set up score and backtrace arrays
-    double[][] score = new double[padLength][];
-    int[][] trace = new int[padLength][];
-    for (int pos = 0; pos < padLength; pos++) {
-      score[pos] = new double[productSizes[pos]];
-      trace[pos] = new int[productSizes[pos]];
-    }
-
     // Do forward Viterbi algorithm
 
     // loop over the classification spot
-    //System.err.println();
     for (int pos = leftWindow; pos < length + leftWindow; pos++) {
-      //System.err.print(".");
+      int base = offsets[pos];
+      int size = productSizes[pos];
       // loop over window product types
-      for (int product = 0; product < productSizes[pos]; product++) {
-        // check for initial spot
-        if (pos == leftWindow) {
-          // no predecessor type
-          score[pos][product] = windowScore[pos][product];
-          trace[pos][product] = -1;
-        } else {
-          // loop over possible predecessor types
-          score[pos][product] = Double.NEGATIVE_INFINITY;
-          trace[pos][product] = -1;
-          int sharedProduct = product / tagNum[pos + rightWindow];
-          int factor = productSizes[pos] / tagNum[pos + rightWindow];
-          for (int newTagNum = 0; newTagNum < tagNum[pos - leftWindow - 1]; newTagNum++) {
-            int predProduct = newTagNum * factor + sharedProduct;
-            double predScore = score[pos - 1][predProduct] + windowScore[pos][product];
-            if (predScore > score[pos][product]) {
-              score[pos][product] = predScore;
-              trace[pos][product] = predProduct;
-            }
+      if (pos == leftWindow) {
+        // initial spot: no predecessor type
+        for (int product = 0; product < size; product++) {
+          score[base + product] = windowScore[base + product];
+          trace[base + product] = -1;
+        }
+        continue;
+      }
+      int predBase = offsets[pos - 1];
+      int rightNum = tagNum[pos + rightWindow];
+      int factor = size / rightNum;
+      int predNum = tagNum[pos - leftWindow - 1];
+      for (int product = 0; product < size; product++) {
+        // loop over possible predecessor types
+        double bestScore = Double.NEGATIVE_INFINITY;
+        int bestTrace = -1;
+        double ws = windowScore[base + product];
+        int sharedProduct = product / rightNum;
+        for (int newTagNum = 0; newTagNum < predNum; newTagNum++) {
+          int predProduct = newTagNum * factor + sharedProduct;
+          double predScore = score[predBase + predProduct] + ws;
+          if (predScore > bestScore) {
+            bestScore = predScore;
+            bestTrace = predProduct;
           }
         }
+        score[base + product] = bestScore;
+        trace[base + product] = bestTrace;
       }
     }
 
     // Project the actual tag sequence
     double bestFinalScore = Double.NEGATIVE_INFINITY;
     int bestCurrentProduct = -1;
+    int lastBase = offsets[Math.max(leftWindow + length - 1, 0)];
     for (int product = 0; product < productSizes[leftWindow + length - 1]; product++) {
-      if (score[leftWindow + length - 1][product] > bestFinalScore) {
+      if (score[lastBase + product] > bestFinalScore) {
         bestCurrentProduct = product;
-        bestFinalScore = score[leftWindow + length - 1][product];
+        bestFinalScore = score[lastBase + product];
       }
     }
     int lastProduct = bestCurrentProduct;
@@ -223,7 +256,7 @@ public class ExactBestSequenceFinder implements BestSequenceFinder {
     }
     for (int pos = leftWindow + length - 2; pos >= leftWindow; pos--) {
       int bestNextProduct = bestCurrentProduct;
-      bestCurrentProduct = trace[pos + 1][bestNextProduct];
+      bestCurrentProduct = trace[offsets[pos + 1] + bestNextProduct];
       tempTags[pos - leftWindow] = tags[pos - leftWindow][bestCurrentProduct / (productSizes[pos] / tagNum[pos - leftWindow])];
     }
     return tempTags;
@@ -80,6 +80,64 @@ public abstract class FeatureFactory<IN> implements Serializable {
    */
   public abstract Collection<String> getCliqueFeatures(PaddedList<IN> info, int position, Clique clique);
 
+  /**
+   * Receives the features of a clique as batches of base feature names
+   * together with the suffix which completes them, as done by
+   * {@link #addAllInterningAndSuffixing}.  This lets a classifier look
+   * up features without ever building the complete feature Strings.
+   */
+  public interface FeatureCollector {
+    /**
+     * Adds the features formed by appending '|' and the suffix to each
+     * of the base features.  If the suffix is null or empty, the base
+     * features are the complete features.
+     */
+    void addAll(Collection<String> features, String suffix);
+
+    /**
+     * Adds the feature formed by appending '|' and the suffix to the base
+     * feature.  The base feature may be a buffer which the caller goes on
+     * to reuse, so a collector which keeps it must make a String of it.
+     */
+    void add(CharSequence feature, String suffix);
+  }
+
+  /**
+   * Passes the features calculated for the word at the specified
+   * position for the specified {@link Clique} to the collector.  The
+   * complete features are the same as those returned by
+   * {@link #getCliqueFeatures(PaddedList, int, Clique)}, though a
+   * feature may be passed to the collector more than once.
+   * <br>
+   * This default implementation just passes on the result of
+   * <code>getCliqueFeatures</code>; subclasses which build features
+   * with {@link #addAllInterningAndSuffixing} can override it to avoid
+   * making the complete feature Strings.
+   */
+  public void getCliqueFeatures(PaddedList<IN> info, int position, Clique clique, FeatureCollector collector) {
+    collector.addAll(getCliqueFeatures(info, position, clique), null);
+  }
+
+  /**
+   * A FeatureCollector which makes the complete feature Strings and adds
+   * them to a Collection.
+   */
+  protected class StringFeatureCollector implements FeatureCollector {
+    private final Collection<String> accumulator;
+
+    public StringFeatureCollector(Collection<String> accumulator) {
+      this.accumulator = accumulator;
+    }
+
+    public void addAll(Collection<String> features, String suffix) {
+      addAllInterningAndSuffixing(accumulator, features, suffix);
+    }
+
+    public void add(CharSequence feature, String suffix) {
+      addAllInterningAndSuffixing(accumulator, Collections.singleton(feature.toString()), suffix);
+    }
+  }
+
 
   /** Makes more complete feature names out of partial feature names, by
    *  adding a suffix to the String feature name, adding results to an
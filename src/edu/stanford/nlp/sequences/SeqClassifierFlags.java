@@ -438,6 +438,10 @@ public class SeqClassifierFlags implements Serializable {
   public transient String loadAuxClassifier = null;
   public transient String serializeTo = null;
   public transient String serializeToText = null;
+  /** Write the classifier in the memory-mappable format of CRFModelFile */
+  public transient String serializeToCompact = null;
+  /** Store the weights of a compact model as int8 (with a float scale per feature) */
+  public transient boolean compactInt8Weights = false;
   public transient int interimOutputFreq = 0;
   public transient String initialWeights = null;
   public transient List<String> gazettes = new ArrayList<String>();
@@ -930,6 +934,12 @@ public class SeqClassifierFlags implements Serializable {
   public int multiThreadClassifier = 0;
   
   public String splitWordRegex = null;
+
+  /**
+   * At test time, look features up directly as feature indices rather
+   * than building every complete feature String first (CRFClassifier only).
+   */
+  public boolean inferenceFeatureIds = false;
   
   // "ADD VARIABLES ABOVE HERE"
 
@@ -1400,6 +1410,10 @@ public class SeqClassifierFlags implements Serializable {
         serializeTo = val;
       } else if (key.equalsIgnoreCase("serializeToText")) {
         serializeToText = val;
+      } else if (key.equalsIgnoreCase("serializeToCompact")) {
+        serializeToCompact = val;
+      } else if (key.equalsIgnoreCase("compactInt8Weights")) {
+        compactInt8Weights = Boolean.parseBoolean(val);
       } else if (key.equalsIgnoreCase("serializeDatasetsDir")) {
         serializeDatasetsDir = val;
       } else if (key.equalsIgnoreCase("loadDatasetsDir")) {
@@ -2262,6 +2276,8 @@ public class SeqClassifierFlags implements Serializable {
         useGenericFeatures = Boolean.parseBoolean(val);
       } else if (key.equalsIgnoreCase("splitWordRegex")){
         splitWordRegex = val;
+      } else if (key.equalsIgnoreCase("inferenceFeatureIds")) {
+        inferenceFeatureIds = Boolean.parseBoolean(val);
         // ADD VALUE ABOVE HERE
       } else if (key.length() > 0 && !key.equals("prop")) {
         System.err.println("Unknown property: |" + key + '|');
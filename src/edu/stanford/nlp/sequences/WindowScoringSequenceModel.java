@@ -0,0 +1,28 @@
+package edu.stanford.nlp.sequences;
+
+/**
+ * A SequenceModel that can score every assignment of values to the window
+ * around a position in one call.  ExactBestSequenceFinder uses this, when a
+ * model provides it, instead of calling scoresOf() once per window prefix.
+ * Models which keep their scores in tables, such as a CRF clique tree, can
+ * fill these in directly and share work across the assignments.
+ */
+public interface WindowScoringSequenceModel extends SequenceModel {
+
+  /**
+   * Puts the score at position pos of each assignment of values to the
+   * positions pos - leftWindow() through pos + rightWindow() into
+   * windowScores, starting at offset.  The values at position q range over
+   * possibleValues[q], which is getPossibleValues(q), and assignments are
+   * numbered in mixed radix with the value at pos + rightWindow() varying
+   * fastest.  Each score must be exactly what scoresOf() would give for
+   * that assignment.
+   *
+   * @param pos The position to score
+   * @param possibleValues getPossibleValues() for every position
+   * @param windowScores The array to put the scores in
+   * @param offset Where the score of the first assignment goes
+   */
+  void scoresOfWindows(int pos, int[][] possibleValues, double[] windowScores, int offset);
+
+}
@@ -56,6 +56,7 @@ import edu.stanford.nlp.util.concurrent.ThreadsafeProcessor;
 
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.regex.Pattern;
 import java.lang.reflect.Method;
 import java.text.NumberFormat;
@@ -291,7 +292,8 @@ public class MaxentTagger implements Function<List<? extends HasWord>,ArrayList<
   byte[][] fnumArr; // TODO: move this into TaggerExperiments. It could be a private method of that class with an accessor
   LambdaSolveTagger prob;
   // For each extractor index, we have a map from possible extracted
-  // feature to an array which maps from tag number to feature index.
+  // feature to a sparse array of the tags it occurs with: pairs of
+  // (tag number, feature index), sorted by tag number.  See addAssociation.
   List<Map<String, int[]>> fAssociations = new ArrayList<Map<String, int[]>>();
   //PairsHolder pairs = new PairsHolder();
   Extractors extractors;
@@ -386,6 +388,23 @@ public class MaxentTagger implements Function<List<? extends HasWord>,ArrayList<
    */
   Function<String, String> wordFunction;
 
+  /**
+   * TestSentences which are not in use.  Tagging borrows one of these
+   * rather than making a new one, so that the buffers a TestSentence
+   * keeps are reused from sentence to sentence.  Each TestSentence is
+   * only used by one thread at a time.
+   */
+  private transient Queue<TestSentence> testSentences = new ConcurrentLinkedQueue<TestSentence>();
+
+  private TestSentence borrowTestSentence() {
+    TestSentence testSentence = testSentences.poll();
+    return (testSentence != null) ? testSentence : new TestSentence(this);
+  }
+
+  private void returnTestSentence(TestSentence testSentence) {
+    testSentences.add(testSentence);
+  }
+
 
   /* Package access - shouldn't be part of public API. */
   LambdaSolve getLambdaSolve() {
@@ -514,6 +533,7 @@ public class MaxentTagger implements Function<List<? extends HasWord>,ArrayList<
   }
 
   private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+    testSentences = new ConcurrentLinkedQueue<TestSentence>();
     DataInputStream rf = new DataInputStream(in);
     readModelAndInit(null, rf, false);
   }
@@ -597,11 +617,7 @@ public class MaxentTagger implements Function<List<? extends HasWord>,ArrayList<
       int sizeAssoc = 0;
       for (Map<String, int[]> fValueAssociations : fAssociations) {
         for (int[] fTagAssociations : fValueAssociations.values()) {
-          for (int association : fTagAssociations) {
-            if (association >= 0) {
-              ++sizeAssoc;
-            }
-          }
+          sizeAssoc += fTagAssociations.length / 2;
         }
       }
       file.writeInt(sizeAssoc);
@@ -610,13 +626,10 @@ public class MaxentTagger implements Function<List<? extends HasWord>,ArrayList<
         for (Map.Entry<String, int[]> item : fValueAssociations.entrySet()) {
           String featureValue = item.getKey();
           int[] fTagAssociations = item.getValue();
-          for (int j = 0; j < fTagAssociations.length; ++j) {
-            int association = fTagAssociations[j];
-            if (association >= 0) {
-              file.writeInt(association);
-              FeatureKey fk = new FeatureKey(i, featureValue, tags.getTag(j));
-              fk.save(file);
-            }
+          for (int j = 0; j < fTagAssociations.length; j += 2) {
+            file.writeInt(fTagAssociations[j + 1]);
+            FeatureKey fk = new FeatureKey(i, featureValue, tags.getTag(fTagAssociations[j]));
+            fk.save(file);
           }
         }
       }
@@ -722,16 +735,7 @@ public class MaxentTagger implements Function<List<? extends HasWord>,ArrayList<
         // fAssociations in a cleaner manner?  Only do this when
         // rebuilding all the tagger models anyway.  When we do that, we
         // can get rid of FeatureKey
-        Map<String, int[]> fValueAssociations = fAssociations.get(fK.num);
-        int[] fTagAssociations = fValueAssociations.get(fK.val);
-        if (fTagAssociations == null) {
-          fTagAssociations = new int[ySize];
-          for (int j = 0; j < ySize; ++j) {
-            fTagAssociations[j] = -1;
-          }
-          fValueAssociations.put(fK.val, fTagAssociations);
-        }
-        fTagAssociations[tags.getIndex(fK.tag)] = numF;
+        addAssociation(fK.num, fK.val, tags.getIndex(fK.tag), numF);
       }
       if (VERBOSE) {
         pfVP.close();
@@ -760,18 +764,71 @@ public class MaxentTagger implements Function<List<? extends HasWord>,ArrayList<
       for (Map.Entry<String, int[]> item : fValueAssociations.entrySet()) {
         String featureValue = item.getKey();
         int[] fTagAssociations = item.getValue();
-        for (int j = 0; j < fTagAssociations.length; ++j) {
-          int association = fTagAssociations[j];
-          if (association >= 0) {
-            FeatureKey fk = new FeatureKey(i, featureValue, tags.getTag(j));
-            out.println(fk + ": " + association);
-          }
+        for (int j = 0; j < fTagAssociations.length; j += 2) {
+          FeatureKey fk = new FeatureKey(i, featureValue, tags.getTag(fTagAssociations[j]));
+          out.println(fk + ": " + fTagAssociations[j + 1]);
         }
       }
     }
   }
 
 
+  /**
+   * Records that the feature extracted as <code>val</code> by extractor
+   * <code>kf</code> and the tag numbered <code>tag</code> have feature
+   * index <code>fNum</code>.  The associations of each feature value are
+   * kept as an int array of (tag, feature index) pairs sorted by tag, so
+   * that they take space only for the tags the feature occurs with, and
+   * scoring can loop over just those tags.
+   */
+  void addAssociation(int kf, String val, int tag, int fNum) {
+    for (int i = fAssociations.size(); i <= kf; ++i) {
+      fAssociations.add(Generics.<String, int[]>newHashMap());
+    }
+    Map<String, int[]> fValueAssociations = fAssociations.get(kf);
+    int[] old = fValueAssociations.get(val);
+    if (old == null) {
+      fValueAssociations.put(val, new int[] { tag, fNum });
+      return;
+    }
+    int pos = 0;
+    while (pos < old.length && old[pos] < tag) {
+      pos += 2;
+    }
+    if (pos < old.length && old[pos] == tag) {
+      old[pos + 1] = fNum;
+      return;
+    }
+    int[] fTagAssociations = new int[old.length + 2];
+    System.arraycopy(old, 0, fTagAssociations, 0, pos);
+    fTagAssociations[pos] = tag;
+    fTagAssociations[pos + 1] = fNum;
+    System.arraycopy(old, pos, fTagAssociations, pos + 2, old.length - pos);
+    fValueAssociations.put(val, fTagAssociations);
+  }
+
+  /**
+   * Returns the feature index for the given tag in an association array
+   * built by addAssociation, or -1 if the feature doesn't occur with it.
+   */
+  static int getAssociation(int[] fTagAssociations, int tag) {
+    int lo = 0;
+    int hi = fTagAssociations.length / 2 - 1;
+    while (lo <= hi) {
+      int mid = (lo + hi) >>> 1;
+      int midTag = fTagAssociations[2 * mid];
+      if (midTag < tag) {
+        lo = mid + 1;
+      } else if (midTag > tag) {
+        hi = mid - 1;
+      } else {
+        return fTagAssociations[2 * mid + 1];
+      }
+    }
+    return -1;
+  }
+
+
   /* Package access so it doesn't appear in public API. */
   boolean isRare(String word) {
     return dict.sum(word) < rareWordThresh;
@@ -795,9 +852,13 @@ public class MaxentTagger implements Function<List<? extends HasWord>,ArrayList<
    */
   public String tagTokenizedString(String toTag) {
     ArrayList<Word> sent = Sentence.toUntaggedList(Arrays.asList(toTag.split("\\s+")));
-    TestSentence testSentence = new TestSentence(this);
-    testSentence.tagSentence(sent, false);
-    return testSentence.getTaggedNice();
+    TestSentence testSentence = borrowTestSentence();
+    try {
+      testSentence.tagSentence(sent, false);
+      return testSentence.getTaggedNice();
+    } finally {
+      returnTestSentence(testSentence);
+    }
   }
 
 
@@ -823,8 +884,7 @@ public class MaxentTagger implements Function<List<? extends HasWord>,ArrayList<
    * @return A Sentence of TaggedWord
    */
   public ArrayList<TaggedWord> apply(List<? extends HasWord> in) {
-    TestSentence testSentence = new TestSentence(this);
-    return testSentence.tagSentence(in, false);
+    return tagSentence(in, false);
   }
 
 
@@ -842,9 +902,13 @@ public class MaxentTagger implements Function<List<? extends HasWord>,ArrayList<
   public List<ArrayList<TaggedWord>> process(List<? extends List<? extends HasWord>> sentences) {
     List<ArrayList<TaggedWord>> taggedSentences = new ArrayList<ArrayList<TaggedWord>>();
 
-    TestSentence testSentence = new TestSentence(this);
-    for (List<? extends HasWord> sentence : sentences) {
-      taggedSentences.add(testSentence.tagSentence(sentence, false));
+    TestSentence testSentence = borrowTestSentence();
+    try {
+      for (List<? extends HasWord> sentence : sentences) {
+        taggedSentences.add(testSentence.tagSentence(sentence, false));
+      }
+    } finally {
+      returnTestSentence(testSentence);
     }
     return taggedSentences;
   }
@@ -858,8 +922,7 @@ public class MaxentTagger implements Function<List<? extends HasWord>,ArrayList<
    * @return tagged sentence
    */
   public ArrayList<TaggedWord> tagSentence(List<? extends HasWord> sentence) {
-    TestSentence testSentence = new TestSentence(this);
-    return testSentence.tagSentence(sentence, false);
+    return tagSentence(sentence, false);
   }
 
   /**
@@ -874,8 +937,12 @@ public class MaxentTagger implements Function<List<? extends HasWord>,ArrayList<
    */
   public ArrayList<TaggedWord> tagSentence(List<? extends HasWord> sentence,
                                            boolean reuseTags) {
-    TestSentence testSentence = new TestSentence(this);
-    return testSentence.tagSentence(sentence, reuseTags);
+    TestSentence testSentence = borrowTestSentence();
+    try {
+      return testSentence.tagSentence(sentence, reuseTags);
+    } finally {
+      returnTestSentence(testSentence);
+    }
   }
 
   /**
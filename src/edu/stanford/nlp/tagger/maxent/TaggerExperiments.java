@@ -34,7 +34,6 @@ import edu.stanford.nlp.util.Pair;
 import java.io.File;
 import java.io.IOException;
 import java.io.RandomAccessFile;
-import java.util.Map;
 import java.util.Set;
 import java.util.HashSet;
 import java.util.Arrays;
@@ -238,21 +237,7 @@ public class TaggerExperiments extends Experiments {
 
           // TODO: rearrange some of this code, such as not needing to
           // look up the tag # in the index
-          if (maxentTagger.fAssociations.size() <= fK.num) {
-            for (int i = maxentTagger.fAssociations.size(); i <= fK.num; ++i) {
-              maxentTagger.fAssociations.add(Generics.<String, int[]>newHashMap());
-            }
-          }
-          Map<String, int[]> fValueAssociations = maxentTagger.fAssociations.get(fK.num);
-          int[] fTagAssociations = fValueAssociations.get(fK.val);
-          if (fTagAssociations == null) {
-            fTagAssociations = new int[ySize];
-            for (int i = 0; i < ySize; ++i) {
-              fTagAssociations[i] = -1;
-            }
-            fValueAssociations.put(fK.val, fTagAssociations);
-          }
-          fTagAssociations[maxentTagger.tags.getIndex(fK.tag)] = numFeats;
+          maxentTagger.addAssociation(fK.num, fK.val, maxentTagger.tags.getIndex(fK.tag), numFeats);
 
           numFeats++;
         }
@@ -68,6 +68,22 @@ public class TestSentence implements SequenceModel {
   protected volatile Map<String,double[]> localScores = Generics.newHashMap();
   protected volatile double[][] localContextScores;
 
+  // The buffers below are kept from sentence to sentence, so that a
+  // TestSentence which is reused (see MaxentTagger.borrowTestSentence)
+  // allocates little beyond its results once it has warmed up.
+  /** The local word scores of this many words at most are cached */
+  private static final int MAX_LOCAL_SCORES = 20000;
+  /** Possible tags and their indices at each word, filled in on demand */
+  private String[][] tagsAt = new String[0][];
+  private int[][] tagIndicesAt = new int[0][];
+  private int[] naTagIndexArr;
+  /** Arrays that localContextScores entries are computed into */
+  private double[][] localContextBuffers = new double[0][];
+  /** Scratch array for the scores of the dynamic features */
+  private double[] dynamicScores = new double[0];
+  /** The Viterbi decoder, which also keeps its score arrays between calls */
+  private final ExactBestSequenceFinder bestSequenceFinder = new ExactBestSequenceFinder();
+
   protected final MaxentTagger maxentTagger;
 
   public TestSentence(MaxentTagger maxentTagger) {
@@ -102,9 +118,18 @@ public class TestSentence implements SequenceModel {
    */
   public ArrayList<TaggedWord> tagSentence(List<? extends HasWord> s,
                                            boolean reuseTags) {
-    this.origWords = new ArrayList<HasWord>(s);
+    if (origWords == null) {
+      origWords = new ArrayList<HasWord>(s);
+    } else {
+      origWords.clear();
+      origWords.addAll(s);
+    }
     int sz = s.size();
-    this.sent = new ArrayList<String>(sz + 1);
+    if (sent == null) {
+      sent = new ArrayList<String>(sz + 1);
+    } else {
+      sent.clear();
+    }
     for (int j = 0; j < sz; j++) {
       if (maxentTagger.wordFunction != null) {
         sent.add(maxentTagger.wordFunction.apply(s.get(j).word()));
@@ -113,7 +138,10 @@ public class TestSentence implements SequenceModel {
       }
     }
     sent.add(TaggerConstants.EOS_WORD);
+    this.originalTags = null;
     if (reuseTags) {
+      // the tags at a word can then differ between sentences
+      localScores.clear();
       this.originalTags = new ArrayList<String>(sz + 1);
       for (int j = 0; j < sz; ++j) {
         if (s.get(j) instanceof HasTag) {
@@ -145,7 +173,22 @@ public class TestSentence implements SequenceModel {
 
   protected void init() {
     //the eos are assumed already there
-    localContextScores = new double[size][];
+    if (localContextScores == null || localContextScores.length < size) {
+      localContextScores = new double[size][];
+    } else {
+      Arrays.fill(localContextScores, null);
+    }
+    if (tagsAt.length < size) {
+      tagsAt = new String[size][];
+      tagIndicesAt = new int[size][];
+      localContextBuffers = Arrays.copyOf(localContextBuffers, size);
+    } else {
+      Arrays.fill(tagsAt, null);
+      Arrays.fill(tagIndicesAt, null);
+    }
+    if (localScores.size() > MAX_LOCAL_SCORES) {
+      localScores.clear();
+    }
     for (int i = 0; i < size - 1; i++) {
       if (maxentTagger.dict.isUnknown(sent.get(i))) {
         numUnknown++;
@@ -215,8 +258,9 @@ public class TestSentence implements SequenceModel {
       endSizePairs = endSizePairs + size;
       // iterate over the sentence
       for (int current = 0; current < size; current++) {
-        History h = new History(start, end, current + start, pairs, maxentTagger.extractors);
-        String[] tags = stringTagsAt(h.current - h.start + leftWindow());
+        History h = history;
+        h.init(start, end, current + start);
+        String[] tags = tagsAt(h.current - h.start + leftWindow());
         double[] probs = getHistories(tags, h);
         ArrayMath.logNormalize(probs);
 
@@ -301,7 +345,7 @@ public class TestSentence implements SequenceModel {
   private void runTagInference() {
     this.initializeScorer();
 
-    BestSequenceFinder ti = new ExactBestSequenceFinder();
+    BestSequenceFinder ti = bestSequenceFinder;
       //new BeamBestSequenceFinder(50);
       //new KBestSequenceFinder()
     int[] bestTags = ti.bestSequence(this);
@@ -358,15 +402,15 @@ public class TestSentence implements SequenceModel {
   }
 
   private double[] getExactScores(History h) {
-    String[] tags = stringTagsAt(h.current - h.start + leftWindow());
+    int pos = h.current - h.start + leftWindow();
+    String[] tags = tagsAt(pos);
+    int[] tagIndices = getPossibleValues(pos);
     double[] histories = getHistories(tags, h); // log score for each tag
     ArrayMath.logNormalize(histories);
     double[] scores = new double[tags.length];
     for (int j = 0; j < tags.length; j++) {
       // score the j-th tag
-      String tag = tags[j];
-      int tagindex = maxentTagger.tags.getIndex(tag);
-      scores[j] = histories[tagindex];
+      scores[j] = histories[tagIndices[j]];
     }
     return scores;
   }
@@ -375,8 +419,9 @@ public class TestSentence implements SequenceModel {
   // (e.g., apple_CC) gets a default (constant) score instead of its exact score.
   // The scores of all other tags are computed exactly.
   private double[] getApproximateScores(History h) {
-    String[] tags = stringTagsAt(h.current - h.start + leftWindow());
-    double[] scores = getHistories(tags, h); // log score for each active tag, unnormalized
+    String[] tags = tagsAt(h.current - h.start + leftWindow());
+    // log score for each active tag, unnormalized; copied since getHistories reuses its array
+    double[] scores = getHistories(tags, h).clone();
 
     // Number of tags that get assigned a default score:
     double nDefault = maxentTagger.ySize - tags.length;
@@ -390,33 +435,45 @@ public class TestSentence implements SequenceModel {
   }
 
   // This precomputes scores of local features (localScores).
+  // The array returned is only valid until the next call.
   protected double[] getHistories(String[] tags, History h) {
     boolean rare = maxentTagger.isRare(ExtractorFrames.cWord.extract(h));
     Extractors ex = maxentTagger.extractors, exR = maxentTagger.extractorsRare;
     String w = pairs.getWord(h.current);
+    int numScores = (maxentTagger.defaultScore > 0) ? tags.length : maxentTagger.ySize;
     double[] lS, lcS;
     if((lS = localScores.get(w)) == null) {
-      lS = getHistories(tags, h, ex.local, rare ? exR.local : null);
+      lS = getHistories(tags, h, ex.local, rare ? exR.local : null, new double[numScores]);
       localScores.put(w,lS);
     }
     if((lcS = localContextScores[h.current]) == null) {
-      lcS = getHistories(tags, h, ex.localContext, rare ? exR.localContext : null);
+      lcS = localContextBuffers[h.current];
+      if (lcS == null || lcS.length != numScores) {
+        lcS = new double[numScores];
+        localContextBuffers[h.current] = lcS;
+      }
+      getHistories(tags, h, ex.localContext, rare ? exR.localContext : null, lcS);
       localContextScores[h.current] = lcS;
       ArrayMath.pairwiseAddInPlace(lcS,lS);
     }
-    double[] totalS = getHistories(tags, h, ex.dynamic, rare ? exR.dynamic : null);
+    if (dynamicScores.length != numScores) {
+      dynamicScores = new double[numScores];
+    }
+    double[] totalS = getHistories(tags, h, ex.dynamic, rare ? exR.dynamic : null, dynamicScores);
     ArrayMath.pairwiseAddInPlace(totalS,lcS);
     return totalS;
   }
 
-  private double[] getHistories(String[] tags, History h, List<Pair<Integer,Extractor>> extractors, List<Pair<Integer,Extractor>> extractorsRare) {
+  // Computes the scores into the given array, which is cleared first
+  private double[] getHistories(String[] tags, History h, List<Pair<Integer,Extractor>> extractors, List<Pair<Integer,Extractor>> extractorsRare, double[] scores) {
+    Arrays.fill(scores, 0.0);
     if(maxentTagger.defaultScore > 0)
-      return getApproximateHistories(tags, h, extractors, extractorsRare);
-    return getExactHistories(h, extractors, extractorsRare);
+      return getApproximateHistories(tags, h, extractors, extractorsRare, scores);
+    return getExactHistories(h, extractors, extractorsRare, scores);
   }
 
-  private double[] getExactHistories(History h, List<Pair<Integer,Extractor>> extractors, List<Pair<Integer,Extractor>> extractorsRare) {
-    double[] scores = new double[maxentTagger.ySize];
+  private double[] getExactHistories(History h, List<Pair<Integer,Extractor>> extractors, List<Pair<Integer,Extractor>> extractorsRare, double[] scores) {
+    double[] lambda = maxentTagger.getLambdaSolve().lambda;
     int szCommon = maxentTagger.extractors.getSize();
 
     for (Pair<Integer,Extractor> e : extractors) {
@@ -425,11 +482,8 @@ public class TestSentence implements SequenceModel {
       String val = ex.extract(h);
       int[] fAssociations = maxentTagger.fAssociations.get(kf).get(val);
       if (fAssociations != null) {
-        for (int i = 0; i < maxentTagger.ySize; i++) {
-          int fNum = fAssociations[i];
-          if (fNum > -1) {
-            scores[i] += maxentTagger.getLambdaSolve().lambda[fNum];
-          }
+        for (int i = 0; i < fAssociations.length; i += 2) {
+          scores[fAssociations[i]] += lambda[fAssociations[i + 1]];
         }
       }
     }
@@ -440,11 +494,8 @@ public class TestSentence implements SequenceModel {
         String val = ex.extract(h);
         int[] fAssociations = maxentTagger.fAssociations.get(kf+szCommon).get(val);
         if (fAssociations != null) {
-          for (int i = 0; i < maxentTagger.ySize; i++) {
-            int fNum = fAssociations[i];
-            if (fNum > -1) {
-              scores[i] += maxentTagger.getLambdaSolve().lambda[fNum];
-            }
+          for (int i = 0; i < fAssociations.length; i += 2) {
+            scores[fAssociations[i]] += lambda[fAssociations[i + 1]];
           }
         }
       }
@@ -453,10 +504,11 @@ public class TestSentence implements SequenceModel {
   }
 
   // Returns an unnormalized score (in log space) for each tag
-  private double[] getApproximateHistories(String[] tags, History h, List<Pair<Integer,Extractor>> extractors, List<Pair<Integer,Extractor>> extractorsRare) {
+  private double[] getApproximateHistories(String[] tags, History h, List<Pair<Integer,Extractor>> extractors, List<Pair<Integer,Extractor>> extractorsRare, double[] scores) {
 
-    double[] scores = new double[tags.length];
+    double[] lambda = maxentTagger.getLambdaSolve().lambda;
     int szCommon = maxentTagger.extractors.getSize();
+    int[] tagIndices = getPossibleValues(h.current - h.start + leftWindow());
 
     for (Pair<Integer,Extractor> e : extractors) {
       int kf = e.first();
@@ -465,11 +517,9 @@ public class TestSentence implements SequenceModel {
       int[] fAssociations = maxentTagger.fAssociations.get(kf).get(val);
       if (fAssociations != null) {
         for (int j = 0; j < tags.length; j++) {
-          String tag = tags[j];
-          int tagIndex = maxentTagger.tags.getIndex(tag);
-          int fNum = fAssociations[tagIndex];
+          int fNum = MaxentTagger.getAssociation(fAssociations, tagIndices[j]);
           if (fNum > -1) {
-            scores[j] += maxentTagger.getLambdaSolve().lambda[fNum];
+            scores[j] += lambda[fNum];
           }
         }
       }
@@ -482,11 +532,9 @@ public class TestSentence implements SequenceModel {
         int[] fAssociations = maxentTagger.fAssociations.get(szCommon+kf).get(val);
         if (fAssociations != null) {
           for (int j = 0; j < tags.length; j++) {
-            String tag = tags[j];
-            int tagIndex = maxentTagger.tags.getIndex(tag);
-            int fNum = fAssociations[tagIndex];
+            int fNum = MaxentTagger.getAssociation(fAssociations, tagIndices[j]);
             if (fNum > -1) {
-              scores[j] += maxentTagger.getLambdaSolve().lambda[fNum];
+              scores[j] += lambda[fNum];
             }
           }
         }
@@ -647,14 +695,41 @@ public class TestSentence implements SequenceModel {
   }
 
 
+  /**
+   * Returns the indices of the tags stringTagsAt(pos) gives.  They are
+   * cached for the current sentence, so the array returned must not be
+   * changed.
+   */
   @Override
   public int[] getPossibleValues(int pos) {
-    String[] arr1 = stringTagsAt(pos);
-    int[] arr = new int[arr1.length];
-    for (int i = 0; i < arr.length; i++) {
-      arr[i] = maxentTagger.tags.getIndex(arr1[i]);
+    if ((pos < leftWindow()) || (pos >= size + leftWindow())) {
+      if (naTagIndexArr == null) {
+        naTagIndexArr = new int[] { maxentTagger.tags.getIndex(naTag) };
+      }
+      return naTagIndexArr;
     }
+    int[] arr = tagIndicesAt[pos - leftWindow()];
+    if (arr == null) {
+      String[] arr1 = tagsAt(pos);
+      arr = new int[arr1.length];
+      for (int i = 0; i < arr.length; i++) {
+        arr[i] = maxentTagger.tags.getIndex(arr1[i]);
+      }
+      tagIndicesAt[pos - leftWindow()] = arr;
+    }
+    return arr;
+  }
 
+  /** stringTagsAt(pos), cached for the current sentence. */
+  private String[] tagsAt(int pos) {
+    if ((pos < leftWindow()) || (pos >= size + leftWindow())) {
+      return naTagArr;
+    }
+    String[] arr = tagsAt[pos - leftWindow()];
+    if (arr == null) {
+      arr = stringTagsAt(pos);
+      tagsAt[pos - leftWindow()] = arr;
+    }
     return arr;
   }
 
@@ -687,7 +762,6 @@ public class TestSentence implements SequenceModel {
     return getScores(history);
   }
 
-  // todo [cdm 2013]: Tagging could be sped up quite a bit here if we cached int arrays of tags by index, not Strings
   protected String[] stringTagsAt(int pos) {
     if ((pos < leftWindow()) || (pos >= size + leftWindow())) {
       return naTagArr;
@@ -1,7 +1,6 @@
 
 package edu.stanford.nlp.time;
 
-import edu.stanford.nlp.io.IOUtils;
 import edu.stanford.nlp.io.RuntimeIOException;
 import edu.stanford.nlp.ling.CoreAnnotations;
 import edu.stanford.nlp.ling.CoreLabel;
@@ -29,6 +28,15 @@ import java.util.regex.Pattern;
  * GUTIME/TimeML specifications can be found at:
  * <a href="http://www.timeml.org/site/tarsqi/modules/gutime/index.html">
  * http://www.timeml.org/site/tarsqi/modules/gutime/index.html</a>.
+ *
+ * By default a new perl process runs TimeTag.pl for each document.  If
+ * the gutime.worker property gives the command for a worker that speaks
+ * the {@link TimeTaggerWorkerPool} protocol, a pool of gutime.workers
+ * (default 1) long-lived workers is started instead and documents are
+ * sent to them.  A worker that takes more than gutime.workerTimeout
+ * milliseconds (default 60000; 0 for no limit) to return a document
+ * is replaced.  Each worker gets the GUTime input XML for a document,
+ * and the TimeTag.pl arguments for it (-FDNW or none).
  */
 public class GUTimeAnnotator implements Annotator {
   
@@ -36,11 +44,16 @@ public class GUTimeAnnotator implements Annotator {
   private static final String DEFAULT_PATH = DataFilePaths.convert(BASE_PATH);
   private final File gutimePath;
   private final boolean outputResults;
+  /** The long-lived workers to send documents to, or null to run GUTime for each one */
+  private final TimeTaggerWorkerPool workers;
   
   // if used in a pipeline or constructed with a Properties object,
   // this property tells the annotator where to find the script
   public static final String GUTIME_PATH_PROPERTY = "gutime.path";
   public static final String GUTIME_OUTPUT_RESULTS = "gutime.outputResults";
+  public static final String GUTIME_WORKER_PROPERTY = "gutime.worker";
+  public static final String GUTIME_WORKERS_PROPERTY = "gutime.workers";
+  public static final String GUTIME_TIMEOUT_PROPERTY = "gutime.workerTimeout";
 
   public GUTimeAnnotator() {
     this(new File(System.getProperty("gutime", DEFAULT_PATH)));
@@ -49,6 +62,7 @@ public class GUTimeAnnotator implements Annotator {
   public GUTimeAnnotator(File gutimePath) {
     this.gutimePath = gutimePath;
     this.outputResults = false;
+    this.workers = null;
   }
 
   public GUTimeAnnotator(String name, Properties props) {
@@ -59,6 +73,12 @@ public class GUTimeAnnotator implements Annotator {
 
     this.outputResults = 
       Boolean.valueOf(props.getProperty(GUTIME_OUTPUT_RESULTS, "false"));
+
+    String worker = props.getProperty(GUTIME_WORKER_PROPERTY);
+    this.workers = (worker == null) ? null :
+      new TimeTaggerWorkerPool(worker, Integer.parseInt(props.getProperty(GUTIME_WORKERS_PROPERTY, "1")),
+                               Long.parseLong(props.getProperty(GUTIME_TIMEOUT_PROPERTY,
+                                                                String.valueOf(TimeTaggerWorkerPool.DEFAULT_TIMEOUT_MILLIS))));
   }
 
   public void annotate(Annotation annotation) {
@@ -70,32 +90,80 @@ public class GUTimeAnnotator implements Annotator {
   }
 
   public void annotate(CoreMap document) throws IOException {
+    String input = XMLUtils.nodeToString(toInputXML(document), false) + '\n';
+    List<String> args = gutimeArgs(document);
+    String output;
+    if (workers != null) {
+      output = workers.process(input, args);
+    } else {
+      output = runGUTime(input, args);
+    }
+    setTimexes(document, input, output);
+  }
+
+  /**
+   * Annotates several documents.  With workers, they all go to the
+   * workers in one batch; otherwise they are done one at a time.
+   */
+  public void annotate(List<? extends CoreMap> documents) throws IOException {
+    if (workers == null) {
+      for (CoreMap document : documents) {
+        annotate(document);
+      }
+      return;
+    }
+    List<String> inputs = new ArrayList<String>();
+    List<List<String>> args = new ArrayList<List<String>>();
+    for (CoreMap document : documents) {
+      inputs.add(XMLUtils.nodeToString(toInputXML(document), false) + '\n');
+      args.add(gutimeArgs(document));
+    }
+    List<String> outputs = workers.processBatch(inputs, args);
+    for (int i = 0; i < documents.size(); i++) {
+      setTimexes(documents.get(i), inputs.get(i), outputs.get(i));
+    }
+  }
+
+  /** The TimeTag.pl arguments for the document, apart from the input file */
+  private static List<String> gutimeArgs(CoreMap document) {
+    boolean useFirstDate = 
+      (!document.has(CoreAnnotations.CalendarAnnotation.class) && !document.has(CoreAnnotations.DocDateAnnotation.class));
+    List<String> args = new ArrayList<String>();
+    if (useFirstDate)
+      args.add("-FDNW");
+    return args;
+  }
+
+  /** Runs GUTime in a new perl process on a temporary file holding the input */
+  private String runGUTime(String input, List<String> gutimeArgs) throws IOException {
     // write input file in GUTime format
-    Element inputXML = toInputXML(document);
     File inputFile = File.createTempFile("gutime", ".input");
 
     //Document doc = new Document(inputXML);
     PrintWriter inputWriter = new PrintWriter(inputFile);
-    inputWriter.println(XMLUtils.nodeToString(inputXML, false));
+    inputWriter.print(input);
    // new XMLOutputter().output(inputXML, inputWriter);
     inputWriter.close();
 
-    boolean useFirstDate = 
-      (!document.has(CoreAnnotations.CalendarAnnotation.class) && !document.has(CoreAnnotations.DocDateAnnotation.class));
-    
     ArrayList<String> args = new ArrayList<String>();
     args.add("perl");
     args.add("-I" + this.gutimePath.getPath());
     args.add(new File(this.gutimePath, "TimeTag.pl").getPath());
-    if (useFirstDate)
-      args.add("-FDNW");
+    args.addAll(gutimeArgs);
     args.add(inputFile.getPath());
     // run GUTime on the input file
     ProcessBuilder process = new ProcessBuilder(args);
 
     StringWriter outputWriter = new StringWriter();
-    SystemUtils.run(process, outputWriter, null);
-    String output = outputWriter.getBuffer().toString();
+    try {
+      SystemUtils.run(process, outputWriter, null);
+    } finally {
+      inputFile.delete();
+    }
+    return outputWriter.getBuffer().toString();
+  }
+
+  private void setTimexes(CoreMap document, String input, String output) {
     Pattern docClose = Pattern.compile("</DOC>.*", Pattern.DOTALL);
     output = docClose.matcher(output).replaceAll("</DOC>");
 
@@ -105,7 +173,7 @@ public class GUTimeAnnotator implements Annotator {
       outputXML = XMLUtils.parseElement(output);
     } catch (Exception ex) {
       throw new RuntimeException(String.format("error:\n%s\ninput:\n%s\noutput:\n%s",
-      		ex, IOUtils.slurpFile(inputFile), output), ex);
+      		ex, input, output), ex);
     }
     /*
     try {
@@ -114,7 +182,6 @@ public class GUTimeAnnotator implements Annotator {
       throw new RuntimeException(String.format("error:\n%s\ninput:\n%s\noutput:\n%s",
       		e, IOUtils.slurpFile(inputFile), output));
     } */
-    inputFile.delete();
     
     // get Timex annotations
     List<CoreMap> timexAnns = toTimexCoreMaps(outputXML, document);
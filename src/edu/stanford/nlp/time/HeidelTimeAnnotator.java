@@ -1,6 +1,5 @@
 package edu.stanford.nlp.time;
 
-import edu.stanford.nlp.io.IOUtils;
 import edu.stanford.nlp.io.RuntimeIOException;
 import edu.stanford.nlp.ling.CoreAnnotations;
 import edu.stanford.nlp.ling.CoreLabel;
@@ -32,6 +31,15 @@ import java.util.regex.Pattern;
  * <a href="http://www.timeml.org/site/tarsqi/modules/gutime/index.html">
  * http://www.timeml.org/site/tarsqi/modules/gutime/index.html</a>.
  *
+ * By default HeidelTime is run in a new JVM for each document.  If the
+ * heideltime.worker property gives the command for a worker that speaks
+ * the {@link TimeTaggerWorkerPool} protocol, a pool of heideltime.workers
+ * (default 1) long-lived workers is started instead and documents are
+ * sent to them.  A worker that takes more than heideltime.workerTimeout
+ * milliseconds (default 60000; 0 for no limit) to return a document
+ * is replaced.  Each worker gets the text of a document followed by a
+ * newline, and the HeidelTime arguments for it (-t NEWS and -dct).
+ *
  * TODO heideltime doesn't actually run on the NLP machines :( (TreeTagger doesn't run)
  * @author Gabor Angeli
  */
@@ -41,11 +49,16 @@ public class HeidelTimeAnnotator implements Annotator {
   private static final String DEFAULT_PATH = DataFilePaths.convert(BASE_PATH);
   private final File heideltimePath;
   private final boolean outputResults;
+  /** The long-lived workers to send documents to, or null to run HeidelTime for each one */
+  private final TimeTaggerWorkerPool workers;
 
   // if used in a pipeline or constructed with a Properties object,
   // this property tells the annotator where to find the script
   public static final String HEIDELTIME_PATH_PROPERTY = "heideltime.path";
   public static final String HEIDELTIME_OUTPUT_RESULTS = "heideltime.outputResults";
+  public static final String HEIDELTIME_WORKER_PROPERTY = "heideltime.worker";
+  public static final String HEIDELTIME_WORKERS_PROPERTY = "heideltime.workers";
+  public static final String HEIDELTIME_TIMEOUT_PROPERTY = "heideltime.workerTimeout";
 
   public HeidelTimeAnnotator() {
     this(new File(System.getProperty("heideltime", DEFAULT_PATH)));
@@ -54,6 +67,7 @@ public class HeidelTimeAnnotator implements Annotator {
   public HeidelTimeAnnotator(File heideltimePath) {
     this.heideltimePath = heideltimePath;
     this.outputResults = false;
+    this.workers = null;
   }
 
   public HeidelTimeAnnotator(String name, Properties props) {
@@ -64,6 +78,12 @@ public class HeidelTimeAnnotator implements Annotator {
 
     this.outputResults = 
       Boolean.valueOf(props.getProperty(HEIDELTIME_OUTPUT_RESULTS, "false"));
+
+    String worker = props.getProperty(HEIDELTIME_WORKER_PROPERTY);
+    this.workers = (worker == null) ? null :
+      new TimeTaggerWorkerPool(worker, Integer.parseInt(props.getProperty(HEIDELTIME_WORKERS_PROPERTY, "1")),
+                               Long.parseLong(props.getProperty(HEIDELTIME_TIMEOUT_PROPERTY,
+                                                                String.valueOf(TimeTaggerWorkerPool.DEFAULT_TIMEOUT_MILLIS))));
   }
 
   public void annotate(Annotation annotation) {
@@ -75,14 +95,42 @@ public class HeidelTimeAnnotator implements Annotator {
   }
 
   public void annotate(CoreMap document) throws IOException {
-    //--Create Input File
-    //(create file)
-    File inputFile = File.createTempFile("heideltime", ".input");
-    //(write to file)
-    PrintWriter inputWriter = new PrintWriter(inputFile);
-    inputWriter.println(document.get(CoreAnnotations.TextAnnotation.class));
-    inputWriter.close();
+    String input = document.get(CoreAnnotations.TextAnnotation.class) + '\n';
+    List<String> args = heideltimeArgs(document);
+    String output;
+    if (workers != null) {
+      output = workers.process(input, args);
+    } else {
+      output = runHeidelTime(input, args);
+    }
+    setTimexes(document, input, output);
+  }
 
+  /**
+   * Annotates several documents.  With workers, they all go to the
+   * workers in one batch; otherwise they are done one at a time.
+   */
+  public void annotate(List<? extends CoreMap> documents) throws IOException {
+    if (workers == null) {
+      for (CoreMap document : documents) {
+        annotate(document);
+      }
+      return;
+    }
+    List<String> inputs = new ArrayList<String>();
+    List<List<String>> args = new ArrayList<List<String>>();
+    for (CoreMap document : documents) {
+      inputs.add(document.get(CoreAnnotations.TextAnnotation.class) + '\n');
+      args.add(heideltimeArgs(document));
+    }
+    List<String> outputs = workers.processBatch(inputs, args);
+    for (int i = 0; i < documents.size(); i++) {
+      setTimexes(documents.get(i), inputs.get(i), outputs.get(i));
+    }
+  }
+
+  /** The HeidelTime arguments for the document, apart from the input file */
+  private static List<String> heideltimeArgs(CoreMap document) {
     //--Get Date
     //(error checks)
     if(!document.has(CoreAnnotations.CalendarAnnotation.class) && !document.has(CoreAnnotations.DocDateAnnotation.class)){
@@ -102,21 +150,43 @@ public class HeidelTimeAnnotator implements Annotator {
       }
     }
 
-    //--Build Command
-    ArrayList<String> args = new ArrayList<String>();
-    args.add("java");
-    args.add("-jar"); args.add(this.heideltimePath.getPath() + "/heideltime.jar");
+    List<String> args = new ArrayList<String>();
     args.add("-t"); args.add("NEWS");
     if(pubDate != null){
       args.add("-dct"); args.add(pubDate);
     }
+    return args;
+  }
+
+  /** Runs HeidelTime in a new JVM on a temporary file holding the input */
+  private String runHeidelTime(String input, List<String> heideltimeArgs) throws IOException {
+    //--Create Input File
+    //(create file)
+    File inputFile = File.createTempFile("heideltime", ".input");
+    //(write to file)
+    PrintWriter inputWriter = new PrintWriter(inputFile);
+    inputWriter.print(input);
+    inputWriter.close();
+
+    //--Build Command
+    ArrayList<String> args = new ArrayList<String>();
+    args.add("java");
+    args.add("-jar"); args.add(this.heideltimePath.getPath() + "/heideltime.jar");
+    args.addAll(heideltimeArgs);
     args.add(inputFile.getPath());
     // run HeidelTime on the input file
     ProcessBuilder process = new ProcessBuilder(args);
 
     StringWriter outputWriter = new StringWriter();
-    SystemUtils.run(process, outputWriter, null);
-    String output = outputWriter.getBuffer().toString();
+    try {
+      SystemUtils.run(process, outputWriter, null);
+    } finally {
+      inputFile.delete();
+    }
+    return outputWriter.getBuffer().toString();
+  }
+
+  private void setTimexes(CoreMap document, String input, String output) {
     Pattern docClose = Pattern.compile("</DOC>.*", Pattern.DOTALL);
     output = docClose.matcher(output).replaceAll("</DOC>").replaceAll("<!DOCTYPE TimeML SYSTEM \"TimeML.dtd\">",""); //TODO TimeML.dtd? FileNotFoundException if we leave it in
     Pattern badNestedTimex = Pattern.compile(Pattern.quote("<T</TIMEX3>IMEX3"));
@@ -131,9 +201,8 @@ public class HeidelTimeAnnotator implements Annotator {
       outputXML = XMLUtils.parseElement(output);
     } catch (Exception ex) {
       throw new RuntimeException(String.format("error:\n%s\ninput:\n%s\noutput:\n%s",
-      		ex, IOUtils.slurpFile(inputFile), output), ex);
+      		ex, input, output), ex);
     }
-    inputFile.delete();
     
     // get Timex annotations
     List<CoreMap> timexAnns = toTimexCoreMaps(outputXML, document);
@@ -28,6 +28,8 @@ public class Options {
   boolean includeNested = false;
   // Create range for all temporals and include range attribute in timex annotation
   boolean includeRange = false;
+  // Number of resolved temporals to remember (0 to resolve every expression afresh)
+  int resolutionCacheSize = 10000;
   // TODO: Add default country for holidays and default time format
   // would want a per document default as well
   String grammarFilename = null;
@@ -56,6 +58,8 @@ public class Options {
     teRelHeurLevel = RelativeHeuristicLevel.valueOf(
                        props.getProperty(name + ".teRelHeurLevel",
                                          teRelHeurLevel.toString()));
+    resolutionCacheSize = PropertiesUtils.getInt(props, name + ".resolutionCacheSize",
+                                                 resolutionCacheSize);
     verbose = PropertiesUtils.getBool(props, name + ".verbose", verbose);
 
     grammarFilename = props.getProperty(name + ".rules", DEFAULT_GRAMMAR_FILES);
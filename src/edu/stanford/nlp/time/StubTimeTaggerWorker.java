@@ -0,0 +1,95 @@
+package edu.stanford.nlp.time;
+
+import edu.stanford.nlp.util.StringUtils;
+import edu.stanford.nlp.util.XMLUtils;
+
+import java.io.*;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A stand-in time tagger that speaks the {@link TimeTaggerWorkerPool}
+ * protocol, for trying out the worker mode of HeidelTimeAnnotator and
+ * GUTimeAnnotator without either tool installed.  It marks every year
+ * from 1800 to 2099 as a DATE, and writes its output in the form the
+ * annotator expects.  For example, with the properties
+ * <pre>
+ * heideltime.worker = java -cp stanford-corenlp.jar edu.stanford.nlp.time.StubTimeTaggerWorker -format heideltime
+ * heideltime.workers = 2
+ * </pre>
+ * Usage: <code>java edu.stanford.nlp.time.StubTimeTaggerWorker [-format heideltime|gutime]</code>
+ */
+public class StubTimeTaggerWorker {
+
+  private static final Pattern YEAR = Pattern.compile("\\b(?:18|19|20)\\d\\d\\b");
+
+  private StubTimeTaggerWorker() {} // static main method only
+
+  /** The text with each year marked with a TIMEX3, escaped as XML */
+  private static String tag(String text) {
+    StringBuilder sb = new StringBuilder();
+    Matcher m = YEAR.matcher(text);
+    int offset = 0;
+    int tid = 1;
+    while (m.find()) {
+      sb.append(XMLUtils.escapeXML(text.substring(offset, m.start())));
+      sb.append("<TIMEX3 tid=\"t").append(tid++).append("\" type=\"DATE\" value=\"").append(m.group()).append("\">");
+      sb.append(m.group()).append("</TIMEX3>");
+      offset = m.end();
+    }
+    sb.append(XMLUtils.escapeXML(text.substring(offset)));
+    return sb.toString();
+  }
+
+  /** HeidelTime reads plain text and writes a TimeML element */
+  private static String heideltime(String input) {
+    return "<TimeML>" + tag(input) + "</TimeML>";
+  }
+
+  /** GUTime reads and writes a DOC element, whose text element has the
+   *  text of the document (in the output, with its TIMEX3s).
+   */
+  private static String gutime(String input) {
+    String text = edu.stanford.nlp.time.XMLUtils.parseElement(input).getElementsByTagName("text").item(0).getTextContent();
+    return "<DOC><text>" + tag(text) + "</text></DOC>\n";
+  }
+
+  private static void writeResult(Writer out, String status, String body) throws IOException {
+    out.write(status + ' ' + body.codePointCount(0, body.length()) + '\n');
+    out.write(body);
+  }
+
+  public static void main(String[] args) throws IOException {
+    Properties props = StringUtils.argsToProperties(args);
+    boolean gutime = props.getProperty("format", "heideltime").equalsIgnoreCase("gutime");
+    BufferedReader in = new BufferedReader(new InputStreamReader(System.in, TimeTaggerWorkerPool.UTF8));
+    Writer out = new BufferedWriter(new OutputStreamWriter(System.out, TimeTaggerWorkerPool.UTF8));
+    for (String line; (line = in.readLine()) != null; ) {
+      if (line.equals("QUIT")) {
+        break;
+      } else if (line.equals("PING")) {
+        out.write("PONG\n");
+      } else if (line.startsWith("BATCH ")) {
+        int numDocs = Integer.parseInt(line.substring(6));
+        for (int i = 0; i < numDocs; i++) {
+          String[] header = in.readLine().split(" ");
+          int numArgs = Integer.parseInt(header[1]);
+          for (int j = 0; j < numArgs; j++) {
+            in.readLine(); // the stub takes no notice of the tagger arguments
+          }
+          String input = TimeTaggerWorkerPool.readCodePoints(in, Integer.parseInt(header[2]));
+          try {
+            writeResult(out, "OK", gutime ? gutime(input) : heideltime(input));
+          } catch (RuntimeException e) {
+            writeResult(out, "ERROR", String.valueOf(e));
+          }
+        }
+      } else {
+        System.err.println("StubTimeTaggerWorker: ignoring unknown request: " + line);
+      }
+      out.flush();
+    }
+  }
+
+}
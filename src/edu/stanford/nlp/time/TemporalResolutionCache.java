@@ -0,0 +1,159 @@
+package edu.stanford.nlp.time;
+
+import edu.stanford.nlp.util.CacheMap;
+
+/**
+ * Remembers how temporals were resolved against a document date, so that
+ * documents which share a reference date (and the many repeated expressions
+ * in them, like "today" or "last year") don't resolve the same expression
+ * over and over.
+ * <br>
+ * Entries are keyed on the text of the expression, the temporal it was
+ * normalized to (its class and full string), the document date and the
+ * relative time flags, and the least recently used ones are dropped once
+ * the cache is full.
+ * <br>
+ * Resolved temporals are shared between the documents they are handed out
+ * to.  Timex ids are given out per object by a {@link TimeIndex}, so a
+ * cached temporal is only handed out once per time index; asking again
+ * for the same index gives a miss, and the temporal is resolved afresh.
+ */
+public class TemporalResolutionCache {
+
+  // Stands for an expression that resolves to itself
+  private static final Object UNCHANGED = new Object();
+
+  private final int maxSize;
+  private final CacheMap<Key, Object> cache;
+
+  private long hits = 0;
+  private long misses = 0;
+
+  public TemporalResolutionCache(int maxSize)
+  {
+    this.maxSize = maxSize;
+    this.cache = new CacheMap<Key, Object>(maxSize, 0.75f, true);
+  }
+
+  public int getMaxSize() {
+    return maxSize;
+  }
+
+  public synchronized int size() {
+    return cache.size();
+  }
+
+  public synchronized long getHits() {
+    return hits;
+  }
+
+  public synchronized long getMisses() {
+    return misses;
+  }
+
+  /**
+   * Fraction of lookups that were answered from the cache (0 if there
+   * haven't been any)
+   */
+  public synchronized double getHitRate() {
+    long lookups = hits + misses;
+    return (lookups > 0)? ((double) hits)/lookups: 0;
+  }
+
+  public synchronized void clear() {
+    cache.clear();
+    hits = 0;
+    misses = 0;
+  }
+
+  /**
+   * Resolves <code>temporal</code> against <code>docDate</code>, from the
+   * cache if the same expression has been resolved before and the result
+   * hasn't yet been handed out for <code>timeIndex</code>.
+   *
+   * @param text Text of the time expression
+   * @param temporal Temporal the expression was normalized to
+   * @param docDateStr Document date the temporal is resolved against
+   *   (as given, <code>null</code> if none)
+   * @param docDate The parsed document date
+   * @param flags Flags for resolving relative times
+   * @param timeIndex Time index the resolved temporal will be given ids in
+   * @return The resolved temporal (which is <code>temporal</code>
+   *   itself if resolving doesn't change it)
+   */
+  public Temporal resolve(String text, Temporal temporal, String docDateStr, Time docDate, int flags, TimeIndex timeIndex)
+  {
+    Key key = new Key(text, temporal, docDateStr, flags);
+    synchronized (this) {
+      Object cached = cache.get(key);
+      if (cached == UNCHANGED) {
+        hits++;
+        return temporal;
+      }
+      if (cached != null && timeIndex.cachedTemporals.add((Temporal) cached)) {
+        hits++;
+        return (Temporal) cached;
+      }
+      misses++;
+    }
+    Temporal resolved = temporal.resolve(docDate, flags);
+    if (resolved != null) {
+      synchronized (this) {
+        if (resolved == temporal) {
+          cache.put(key, UNCHANGED);
+        } else if (timeIndex.cachedTemporals.add(resolved)) {
+          cache.put(key, resolved);
+        }
+      }
+    }
+    return resolved;
+  }
+
+  @Override
+  public synchronized String toString() {
+    return "size: " + cache.size() + "/" + maxSize + ", hits: " + hits + ", misses: " + misses
+            + ", hit rate: " + getHitRate();
+  }
+
+  private static class Key {
+    final String text;
+    final Class<?> temporalClass;
+    final String temporalString;
+    final String docDate;
+    final int flags;
+    final int hashCode;
+
+    Key(String text, Temporal temporal, String docDate, int flags) {
+      this.text = text;
+      this.temporalClass = temporal.getClass();
+      this.temporalString = temporal.toString();
+      this.docDate = docDate;
+      this.flags = flags;
+      int h = (text != null)? text.hashCode(): 0;
+      h = 31*h + temporalClass.hashCode();
+      h = 31*h + ((temporalString != null)? temporalString.hashCode(): 0);
+      h = 31*h + ((docDate != null)? docDate.hashCode(): 0);
+      h = 31*h + flags;
+      this.hashCode = h;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) return true;
+      if (!(o instanceof Key)) return false;
+      Key key = (Key) o;
+      return hashCode == key.hashCode && flags == key.flags && temporalClass == key.temporalClass
+              && eq(text, key.text) && eq(temporalString, key.temporalString) && eq(docDate, key.docDate);
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+
+    private static boolean eq(String x, String y) {
+      return (x == null)? y == null: x.equals(y);
+    }
+  }
+
+}
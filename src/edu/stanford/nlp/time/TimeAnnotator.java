@@ -175,7 +175,6 @@ public class TimeAnnotator implements Annotator {
   }
 
   public void annotate(Annotation annotation) {
-        TimeIndex timeIndex = new TimeIndex();
     String docDate = annotation.get(CoreAnnotations.DocDateAnnotation.class);
     if(docDate == null){
       Calendar cal = annotation.get(CoreAnnotations.CalendarAnnotation.class);
@@ -186,6 +185,35 @@ public class TimeAnnotator implements Annotator {
         docDate = dateFormat.format(cal.getTime());
       }
     }
+    annotate(annotation, docDate);
+  }
+
+  /**
+   * Annotates a batch of documents which all have the same reference date,
+   * such as the articles of one day's newspaper.  Temporals resolved for one
+   * document are reused for the others through the extractor's
+   * {@link TemporalResolutionCache}, and the document dates of the
+   * annotations themselves are ignored.
+   *
+   * @param annotations The documents
+   * @param docDate Reference date for all of the documents (may be null)
+   */
+  public void annotate(Iterable<Annotation> annotations, String docDate) {
+    for (Annotation annotation:annotations) {
+      annotate(annotation, docDate);
+    }
+  }
+
+  /**
+   * Returns the cache of resolved temporals (with its hit rate),
+   * or null if resolved temporals aren't cached
+   */
+  public TemporalResolutionCache getResolutionCache() {
+    return timexExtractor.getResolutionCache();
+  }
+
+  private void annotate(Annotation annotation, String docDate) {
+    TimeIndex timeIndex = new TimeIndex();
     List<CoreMap> allTimeExpressions; // initialized below = null;
     List<CoreMap> sentences = annotation.get(CoreAnnotations.SentencesAnnotation.class);
     if (sentences != null) {
@@ -26,6 +26,9 @@ public class TimeExpressionExtractorImpl implements TimeExpressionExtractor {
 
   CoreMapExpressionExtractor expressionExtractor;
 
+  // Temporals already resolved against a document date (null if not caching)
+  TemporalResolutionCache resolutionCache;
+
   // Index of temporal object to ids
   //SUTime.TimeIndex timeIndex = new SUTime.TimeIndex();
 
@@ -64,6 +67,17 @@ public class TimeExpressionExtractorImpl implements TimeExpressionExtractor {
     }
     this.expressionExtractor = timexPatterns.createExtractor();
     this.expressionExtractor.setLogger(logger);
+    this.resolutionCache = (options.resolutionCacheSize > 0)?
+            new TemporalResolutionCache(options.resolutionCacheSize): null;
+  }
+
+  /**
+   * Returns the cache of resolved temporals (with its hit rate),
+   * or null if resolved temporals aren't cached
+   */
+  public TemporalResolutionCache getResolutionCache()
+  {
+    return resolutionCache;
   }
 
   public List<CoreMap> extractTimeExpressionCoreMaps(CoreMap annotation, String docDate)
@@ -74,7 +88,7 @@ public class TimeExpressionExtractorImpl implements TimeExpressionExtractor {
 
   public List<CoreMap> extractTimeExpressionCoreMaps(CoreMap annotation, String docDate, TimeIndex timeIndex)
   {
-    List<TimeExpression> timeExpressions = extractTimeExpressions(annotation, docDate);
+    List<TimeExpression> timeExpressions = extractTimeExpressions(annotation, docDate, timeIndex);
     return toCoreMaps(annotation, timeExpressions, timeIndex);
   }
 
@@ -133,6 +147,12 @@ public class TimeExpressionExtractorImpl implements TimeExpressionExtractor {
   }
 
   public List<TimeExpression> extractTimeExpressions(CoreMap annotation, String docDateStr)
+  {
+    // Without a time index, the resolved temporals can't be shared safely
+    return extractTimeExpressions(annotation, docDateStr, null);
+  }
+
+  private List<TimeExpression> extractTimeExpressions(CoreMap annotation, String docDateStr, TimeIndex timeIndex)
   {
     List<CoreMap> mergedNumbers = NumberNormalizer.findAndMergeNumbers(annotation);
     annotation.set(CoreAnnotations.NumerizedTokensAnnotation.class, mergedNumbers);
@@ -156,7 +176,7 @@ public class TimeExpressionExtractorImpl implements TimeExpressionExtractor {
     }
     // Some resolving is done even if docDate null...
     if ( /*docDate != null && */ timeExpressions != null) {
-      resolveTimeExpressions(annotation, timeExpressions, docDate);
+      resolveTimeExpressions(annotation, timeExpressions, docDateStr, docDate, timeIndex);
     }
     if (options.restrictToTimex3) {
       // Keep only TIMEX3 compatible timeExpressions
@@ -170,7 +190,7 @@ public class TimeExpressionExtractorImpl implements TimeExpressionExtractor {
             for (CoreMap child:children) {
               TimeExpression childTe = child.get(TimeExpression.Annotation.class);
               if (childTe != null) {
-                resolveTimeExpression(annotation, childTe, docDate);
+                resolveTimeExpression(annotation, childTe, docDateStr, docDate, timeIndex);
                 if (childTe.getTemporal() != null && childTe.getTemporal().getTimexValue() != null) {
                   kept.add(childTe);
                 }
@@ -199,18 +219,18 @@ public class TimeExpressionExtractorImpl implements TimeExpressionExtractor {
           }
         }
       }
-      resolveTimeExpressions(annotation, nestedTimeExpressions, docDate);
+      resolveTimeExpressions(annotation, nestedTimeExpressions, docDateStr, docDate, timeIndex);
       timeExpressions.addAll(nestedTimeExpressions);
     }
     Collections.sort(timeExpressions, MatchedExpression.EXPR_TOKEN_OFFSETS_NESTED_FIRST_COMPARATOR);
     // Some resolving is done even if docDate null...
     if ( /*docDate != null && */ timeExpressions != null) {
-      resolveTimeExpressions(annotation, timeExpressions, docDate);
+      resolveTimeExpressions(annotation, timeExpressions, docDateStr, docDate, timeIndex);
     }
     return timeExpressions;
   }
 
-  private void resolveTimeExpression(CoreMap annotation, TimeExpression te, Time docDate)
+  private void resolveTimeExpression(CoreMap annotation, TimeExpression te, String docDateStr, Time docDate, TimeIndex timeIndex)
   {
       Temporal temporal = te.getTemporal();
     if (temporal != null) {
@@ -218,7 +238,9 @@ public class TimeExpressionExtractorImpl implements TimeExpressionExtractor {
       try {
         int flags = timexPatterns.determineRelFlags(annotation, te);
         //int flags = 0;
-          Temporal grounded = temporal.resolve(docDate, flags);
+          Temporal grounded = (resolutionCache != null && timeIndex != null)?
+                resolutionCache.resolve(te.getText(), temporal, docDateStr, docDate, flags, timeIndex):
+                temporal.resolve(docDate, flags);
         if (grounded == null) {
           logger.warning("Error resolving " + temporal + ", using docDate=" + docDate);
         }
@@ -232,10 +254,10 @@ public class TimeExpressionExtractorImpl implements TimeExpressionExtractor {
     }
   }
 
-  private void resolveTimeExpressions(CoreMap annotation, List<TimeExpression> timeExpressions, Time docDate)
+  private void resolveTimeExpressions(CoreMap annotation, List<TimeExpression> timeExpressions, String docDateStr, Time docDate, TimeIndex timeIndex)
   {
     for (TimeExpression te:timeExpressions) {
-      resolveTimeExpression(annotation, te, docDate);
+      resolveTimeExpression(annotation, te, docDateStr, docDate, timeIndex);
     }
   }
 
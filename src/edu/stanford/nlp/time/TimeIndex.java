@@ -4,10 +4,16 @@ package edu.stanford.nlp.time;
 import edu.stanford.nlp.util.HashIndex;
 import edu.stanford.nlp.util.Index;
 
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
 // Index of time id to temporal object
 public class TimeIndex {
     Index<Temporal> temporalIndex = new HashIndex<Temporal>();
     Index<Temporal> temporalFuncIndex = new HashIndex<Temporal>();
+    // Temporals shared through a TemporalResolutionCache that have been handed out for this index
+    Set<Temporal> cachedTemporals = Collections.newSetFromMap(new IdentityHashMap<Temporal, Boolean>());
 
     public TimeIndex() {
         addTemporal(SUTime.TIME_REF);
@@ -16,6 +22,7 @@ public class TimeIndex {
     public void clear() {
         temporalIndex.clear();
         temporalFuncIndex.clear();
+        cachedTemporals.clear();
         addTemporal(SUTime.TIME_REF);
     }
 
@@ -0,0 +1,490 @@
+package edu.stanford.nlp.time;
+
+import edu.stanford.nlp.util.SystemUtils;
+
+import java.io.*;
+import java.nio.charset.Charset;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * A pool of long-lived external time tagger processes, so that tagging a
+ * document with HeidelTime or GUTime doesn't mean starting a new JVM or
+ * Perl interpreter for it.  Each worker is started once with a fixed
+ * command and then tags any number of documents, talking to the pool over
+ * its stdin and stdout in UTF-8:
+ * <pre>
+ * request:  BATCH n
+ *           then n documents, each:
+ *           DOC a c
+ *           a lines, the tagger arguments for this document
+ *           exactly c characters (code points) of input
+ * response: n results, in order, each:
+ *           OK c     or     ERROR c
+ *           exactly c characters of output (or of the error message)
+ *
+ * health check:  PING    answered by  PONG
+ * shut down:     QUIT    (a worker should also exit at the end of its input)
+ * </pre>
+ * Anything a worker writes to stderr is passed on to our System.err.
+ * A worker that has died, stops following the protocol, or takes longer
+ * than the timeout to send a result or answer a PING is replaced with a
+ * new one, and the request it was given is tried once more on the new
+ * one.  See {@link StubTimeTaggerWorker} for a worker that can be used for
+ * testing.
+ * <br>
+ * A pool can be used from several threads at once; each thread gets a
+ * worker of its own for each exchange.
+ *
+ * @see HeidelTimeAnnotator
+ * @see GUTimeAnnotator
+ */
+public class TimeTaggerWorkerPool {
+
+  /** How long a worker may take to send each result, by default */
+  public static final long DEFAULT_TIMEOUT_MILLIS = 60000;
+
+  private final List<String> command;
+  private final int numWorkers;
+  private final long timeoutMillis;
+  private final BlockingQueue<Worker> idleWorkers;
+
+  /**
+   * Starts <code>numWorkers</code> workers, each running the given command,
+   * with the default timeout.
+   */
+  public TimeTaggerWorkerPool(List<String> command, int numWorkers) {
+    this(command, numWorkers, DEFAULT_TIMEOUT_MILLIS);
+  }
+
+  /**
+   * Starts <code>numWorkers</code> workers, each running the given command.
+   *
+   * @param timeoutMillis How long a worker may take to send each result
+   *     or answer a PING before it is replaced, or 0 to wait for ever
+   */
+  public TimeTaggerWorkerPool(List<String> command, int numWorkers, long timeoutMillis) {
+    if (numWorkers < 1) {
+      throw new IllegalArgumentException("A worker pool needs at least one worker, not " + numWorkers);
+    }
+    if (timeoutMillis < 0) {
+      throw new IllegalArgumentException("A worker timeout can't be negative: " + timeoutMillis);
+    }
+    this.command = new ArrayList<String>(command);
+    this.numWorkers = numWorkers;
+    this.timeoutMillis = timeoutMillis;
+    idleWorkers = new LinkedBlockingQueue<Worker>();
+    for (int i = 0; i < numWorkers; i++) {
+      idleWorkers.add(newWorker());
+    }
+  }
+
+  /**
+   * Starts workers running a command given as a single string, with the
+   * arguments separated by whitespace (as in a properties file).
+   */
+  public TimeTaggerWorkerPool(String commandLine, int numWorkers) {
+    this(commandLine, numWorkers, DEFAULT_TIMEOUT_MILLIS);
+  }
+
+  public TimeTaggerWorkerPool(String commandLine, int numWorkers, long timeoutMillis) {
+    this(Arrays.asList(commandLine.trim().split("\\s+")), numWorkers, timeoutMillis);
+  }
+
+  private Worker newWorker() {
+    return new Worker(command, timeoutMillis);
+  }
+
+  public int numWorkers() {
+    return numWorkers;
+  }
+
+  /**
+   * Tags one document.
+   *
+   * @param input The document, in whatever form the tagger reads
+   * @param args The tagger arguments for this document
+   * @return The tagger output
+   */
+  public String process(String input, List<String> args) {
+    return processBatch(Collections.singletonList(input), Collections.singletonList(args)).get(0);
+  }
+
+  /**
+   * Tags several documents.  They are split into one batch per worker,
+   * each sent to its worker in a single exchange, and the batches are
+   * tagged in parallel.
+   *
+   * @param inputs The documents
+   * @param args The tagger arguments for each document
+   * @return The tagger output for each document, in the same order
+   */
+  public List<String> processBatch(List<String> inputs, List<List<String>> args) {
+    if (inputs.size() != args.size()) {
+      throw new IllegalArgumentException("Got " + inputs.size() + " documents but " + args.size() + " argument lists");
+    }
+    int numBatches = Math.min(numWorkers, inputs.size());
+    if (numBatches <= 1) {
+      return exchange(inputs, args);
+    }
+    final List<List<String>> outputs = new ArrayList<List<String>>(Collections.<List<String>>nCopies(numBatches, null));
+    final RuntimeException[] failures = new RuntimeException[numBatches];
+    List<Thread> threads = new ArrayList<Thread>();
+    int batchSize = (inputs.size() + numBatches - 1) / numBatches;
+    for (int batch = 0; batch < numBatches; batch++) {
+      final int index = batch;
+      int begin = Math.min(inputs.size(), batch * batchSize);
+      int end = Math.min(inputs.size(), begin + batchSize);
+      final List<String> batchInputs = inputs.subList(begin, end);
+      final List<List<String>> batchArgs = args.subList(begin, end);
+      Thread thread = new Thread() {
+        @Override
+        public void run() {
+          try {
+            outputs.set(index, exchange(batchInputs, batchArgs));
+          } catch (RuntimeException e) {
+            failures[index] = e;
+          }
+        }
+      };
+      thread.start();
+      threads.add(thread);
+    }
+    for (Thread thread : threads) {
+      try {
+        thread.join();
+      } catch (InterruptedException e) {
+        throw new SystemUtils.ProcessException(e);
+      }
+    }
+    List<String> results = new ArrayList<String>(inputs.size());
+    for (int batch = 0; batch < numBatches; batch++) {
+      if (failures[batch] != null) {
+        throw failures[batch];
+      }
+      results.addAll(outputs.get(batch));
+    }
+    return results;
+  }
+
+  /** Sends one batch to an idle worker, replacing the worker and trying
+   *  again once if it fails.
+   */
+  private List<String> exchange(List<String> inputs, List<List<String>> args) {
+    Worker worker = takeWorker();
+    try {
+      try {
+        return worker.exchange(inputs, args);
+      } catch (IOException e) {
+        System.err.println("TimeTaggerWorkerPool: restarting worker " + command + " after: " + e);
+        worker.destroy();
+        worker = newWorker();
+        try {
+          return worker.exchange(inputs, args);
+        } catch (IOException e2) {
+          worker.destroy();
+          worker = newWorker();
+          throw new SystemUtils.ProcessException(e2);
+        }
+      }
+    } finally {
+      idleWorkers.add(worker);
+    }
+  }
+
+  private Worker takeWorker() {
+    Worker worker;
+    try {
+      worker = idleWorkers.take();
+    } catch (InterruptedException e) {
+      throw new SystemUtils.ProcessException(e);
+    }
+    if ( ! worker.isAlive()) {
+      System.err.println("TimeTaggerWorkerPool: restarting worker " + command + ", which exited with value " + worker.exitValue());
+      worker.destroy();
+      worker = newWorker();
+    }
+    return worker;
+  }
+
+  /**
+   * Pings each idle worker, and replaces any that don't answer.  Workers
+   * that are busy are left alone.
+   *
+   * @return The number of workers that had to be replaced
+   */
+  public int checkHealth() {
+    List<Worker> workers = new ArrayList<Worker>();
+    idleWorkers.drainTo(workers);
+    int replaced = 0;
+    for (Worker worker : workers) {
+      if ( ! worker.ping()) {
+        worker.destroy();
+        worker = newWorker();
+        replaced++;
+      }
+      idleWorkers.add(worker);
+    }
+    return replaced;
+  }
+
+  /** Asks the idle workers to exit.  The pool can't be used afterwards. */
+  public void close() {
+    List<Worker> workers = new ArrayList<Worker>();
+    idleWorkers.drainTo(workers);
+    for (Worker worker : workers) {
+      worker.quit();
+    }
+  }
+
+
+  /** One external process, and the streams for talking to it */
+  private static class Worker {
+
+    private final Process process;
+    private final Writer toWorker;
+    private final BufferedReader fromWorker;
+    private final long timeoutMillis;
+    /** Reads from the worker, so that a read can be given up on */
+    private final ExecutorService reader;
+
+    Worker(List<String> command, long timeoutMillis) {
+      try {
+        process = new ProcessBuilder(command).start();
+      } catch (IOException e) {
+        throw new SystemUtils.ProcessException(e);
+      }
+      this.timeoutMillis = timeoutMillis;
+      reader = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        public Thread newThread(Runnable r) {
+          Thread thread = new Thread(r, "TimeTaggerWorkerPool reader");
+          thread.setDaemon(true);
+          return thread;
+        }
+      });
+      toWorker = new BufferedWriter(new OutputStreamWriter(process.getOutputStream(), UTF8));
+      fromWorker = new BufferedReader(new InputStreamReader(process.getInputStream(), UTF8));
+      // so that the worker never blocks writing to stderr
+      Thread errorThread = new Thread() {
+        @Override
+        public void run() {
+          BufferedReader errors = new BufferedReader(new InputStreamReader(process.getErrorStream()));
+          try {
+            for (String line; (line = errors.readLine()) != null; ) {
+              System.err.println(line);
+            }
+          } catch (IOException e) {
+            // the worker has gone away
+          }
+        }
+      };
+      errorThread.setDaemon(true);
+      errorThread.start();
+    }
+
+    boolean isAlive() {
+      try {
+        process.exitValue();
+        return false;
+      } catch (IllegalThreadStateException e) {
+        return true;
+      }
+    }
+
+    int exitValue() {
+      return process.exitValue();
+    }
+
+    List<String> exchange(final List<String> inputs, final List<List<String>> args) throws IOException {
+      // the worker writes each result as soon as it has it, so the request
+      // is written on a thread of its own: otherwise, once both pipes are
+      // full, each side would wait for the other to read
+      final IOException[] writeFailure = new IOException[1];
+      Thread writer = new Thread("TimeTaggerWorkerPool writer") {
+        @Override
+        public void run() {
+          try {
+            writeBatch(inputs, args);
+          } catch (IOException e) {
+            writeFailure[0] = e;
+          }
+        }
+      };
+      writer.setDaemon(true);
+      writer.start();
+
+      List<String> outputs = new ArrayList<String>(inputs.size());
+      String error;
+      try {
+        error = readResults(inputs.size(), outputs);
+      } catch (IOException e) {
+        destroyAndJoin(writer);
+        throw e;
+      } catch (RuntimeException e) {
+        // a garbled result header: the worker's output can't be trusted now
+        destroyAndJoin(writer);
+        throw new IOException("unreadable result from worker", e);
+      }
+      join(writer);
+      if (writeFailure[0] != null) {
+        throw writeFailure[0];
+      }
+      if (error != null) {
+        throw new SystemUtils.ProcessException("time tagger worker failed: " + error);
+      }
+      return outputs;
+    }
+
+    private void writeBatch(List<String> inputs, List<List<String>> args) throws IOException {
+      toWorker.write("BATCH " + inputs.size() + '\n');
+      for (int i = 0; i < inputs.size(); i++) {
+        String input = inputs.get(i);
+        List<String> docArgs = args.get(i);
+        toWorker.write("DOC " + docArgs.size() + ' ' + input.codePointCount(0, input.length()) + '\n');
+        for (String arg : docArgs) {
+          toWorker.write(arg);
+          toWorker.write('\n');
+        }
+        toWorker.write(input);
+      }
+      toWorker.flush();
+    }
+
+    /** Reads all the results before complaining about any, so that the
+     *  worker is ready for the next batch.
+     *
+     *  @return The first error message from the worker, or null if there was none
+     */
+    private String readResults(int numResults, List<String> outputs) throws IOException {
+      String error = null;
+      Callable<String[]> readResult = new Callable<String[]>() {
+        public String[] call() throws IOException {
+          return readResult();
+        }
+      };
+      for (int i = 0; i < numResults; i++) {
+        String[] result = withTimeout(readResult);
+        if (result[0].equals("ERROR") && error == null) {
+          error = result[1];
+        }
+        outputs.add(result[1]);
+      }
+      return error;
+    }
+
+    /** Reads one result.
+     *
+     *  @return The status (OK or ERROR) and the body of the result
+     */
+    private String[] readResult() throws IOException {
+      String header = fromWorker.readLine();
+      if (header == null) {
+        throw new EOFException("worker exited before returning all its results");
+      }
+      String[] fields = header.split(" ");
+      if (fields.length != 2 || ! (fields[0].equals("OK") || fields[0].equals("ERROR"))) {
+        throw new IOException("unexpected result header from worker: " + header);
+      }
+      String body = readCodePoints(fromWorker, Integer.parseInt(fields[1]));
+      return new String[] { fields[0], body };
+    }
+
+    /** Does a read from the worker, giving up once the timeout has passed.
+     *  A worker that doesn't answer in time is killed, which also ends the
+     *  read, and an IOException is thrown, as for a worker that died.
+     */
+    private <T> T withTimeout(Callable<T> read) throws IOException {
+      Future<T> future = reader.submit(read);
+      try {
+        if (timeoutMillis == 0) {
+          return future.get();
+        }
+        return future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+      } catch (TimeoutException e) {
+        destroy();
+        throw new IOException("worker did not answer within " + timeoutMillis + " ms");
+      } catch (ExecutionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof IOException) {
+          throw (IOException) cause;
+        } else if (cause instanceof RuntimeException) {
+          throw (RuntimeException) cause;
+        } else if (cause instanceof Error) {
+          throw (Error) cause;
+        }
+        throw new IOException(cause);
+      } catch (InterruptedException e) {
+        future.cancel(true);
+        throw new SystemUtils.ProcessException(e);
+      }
+    }
+
+    /** Kills the worker, which also unblocks a writer stuck on its stdin. */
+    private void destroyAndJoin(Thread writer) {
+      destroy();
+      join(writer);
+    }
+
+    private static void join(Thread thread) {
+      try {
+        thread.join();
+      } catch (InterruptedException e) {
+        throw new SystemUtils.ProcessException(e);
+      }
+    }
+
+    boolean ping() {
+      try {
+        toWorker.write("PING\n");
+        toWorker.flush();
+        return "PONG".equals(withTimeout(new Callable<String>() {
+          public String call() throws IOException {
+            return fromWorker.readLine();
+          }
+        }));
+      } catch (IOException e) {
+        return false;
+      }
+    }
+
+    void quit() {
+      try {
+        toWorker.write("QUIT\n");
+        toWorker.close();
+        reader.shutdown();
+      } catch (IOException e) {
+        destroy();
+      }
+    }
+
+    void destroy() {
+      process.destroy();
+      reader.shutdownNow();
+    }
+
+  } // end static class Worker
+
+
+  static final Charset UTF8 = Charset.forName("UTF-8");
+
+  /** Reads exactly <code>n</code> code points. */
+  static String readCodePoints(Reader reader, int n) throws IOException {
+    StringBuilder sb = new StringBuilder(n);
+    for (int count = 0; count < n; count++) {
+      int c = reader.read();
+      if (c < 0) {
+        throw new EOFException("expected " + n + " characters but got " + count);
+      }
+      sb.append((char) c);
+      if (Character.isHighSurrogate((char) c)) {
+        int low = reader.read();
+        if (low < 0) {
+          throw new EOFException("expected " + n + " characters but got " + count);
+        }
+        sb.append((char) low);
+      }
+    }
+    return sb.toString();
+  }
+
+}
@@ -35,6 +35,31 @@ public class AnnualNormalDistribution extends TimeDensityFunction {
                 / (2 * Math.pow(_standardDeviationSeconds.doubleValue(), 2)));
     }
 
+    /**
+     * The mean is moved into the year of each day just once per year of the
+     * grid, rather than once per day.
+     */
+    @Override
+    protected double[] computeDensities(DayGrid grid) {
+        double[] densities = new double[grid.size()];
+        int[] years = grid.getYears();
+        long[] seconds = grid.getSeconds();
+        DateTime mean = DateUtil.FromMilleniumTime(_meanSecondsMillTime.intValue());
+        double scale = _k * _mixture.doubleValue();
+        double twoVariance = 2 * Math.pow(_standardDeviationSeconds.doubleValue(), 2);
+        int year = 0;
+        long meanSeconds = 0;
+        for (int i = 0; i < densities.length; i++) {
+            if (i == 0 || years[i] != year) {
+                year = years[i];
+                meanSeconds = mean.year().setCopy(year).getMillis() / 1000;
+            }
+            double distanceSeconds = ModuloMathUtils.distUndermod(meanSeconds, seconds[i], 60 * 60 * 24 * 365);
+            densities[i] = scale * Math.exp(-Math.pow(distanceSeconds, 2) / twoVariance);
+        }
+        return densities;
+    }
+
     @Override
     public String getGNUPlot(String millTimeSecondsExpr) {
         String equation = _mixture + "/("
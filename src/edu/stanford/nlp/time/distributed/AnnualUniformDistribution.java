@@ -1,5 +1,6 @@
 package edu.stanford.nlp.time.distributed;
 
+import java.util.Arrays;
 import org.joda.time.DateTime;
 
 public class AnnualUniformDistribution extends TimeDensityFunction {
@@ -15,6 +16,13 @@ public class AnnualUniformDistribution extends TimeDensityFunction {
         return _mixtureCoefficient.doubleValue() / (60 * 60 * 24 * 365);
     }
 
+    @Override
+    protected double[] computeDensities(DayGrid grid) {
+        double[] densities = new double[grid.size()];
+        Arrays.fill(densities, _mixtureCoefficient.doubleValue() / (60 * 60 * 24 * 365));
+        return densities;
+    }
+
     @Override
     public String getGNUPlot(String millTimeSecondsExpr) {
         return _mixtureCoefficient.toString() + "/(60*60*24*366)";
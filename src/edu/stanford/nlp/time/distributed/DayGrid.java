@@ -0,0 +1,152 @@
+package edu.stanford.nlp.time.distributed;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeFieldType;
+import org.joda.time.Days;
+import org.joda.time.LocalDate;
+
+/**
+ * The days over which time densities are sampled, from midnight on the first
+ * day to midnight on the last, one sample per day.
+ * <br>
+ * Sample i is the day with epoch day (days since 1970-01-01)
+ * {@code getFirstEpochDay() + i}.  The calendar fields of the days are worked
+ * out once for the grid and kept in int arrays, so that a density can be
+ * evaluated over all the days with array arithmetic rather than by making and
+ * querying a DateTime for each of them.
+ * <br>
+ * A grid doesn't change once made, and can be shared by threads.
+ */
+public final class DayGrid {
+
+    private static final LocalDate s_epoch = new LocalDate(1970, 1, 1);
+
+    /**
+     * The grid densities were always sampled over, 2005 to 2014.
+     */
+    public static final DayGrid DEFAULT = new DayGrid(new LocalDate(2005, 1, 1), new LocalDate(2014, 12, 31));
+
+    private final LocalDate _first;
+    private final int _firstEpochDay;
+    private final DateTime[] _days;
+    private final int[] _years;
+    private final int[] _months;
+    private final int[] _daysOfMonth;
+    private final int[] _daysOfWeek;
+    private final long[] _seconds;
+    private final Map<DateTimeFieldType, int[]> _fields = new ConcurrentHashMap<DateTimeFieldType, int[]>();
+
+    /**
+     * The days from first to last, inclusive.
+     */
+    public DayGrid(LocalDate first, LocalDate last) {
+        int numberOfDays = Days.daysBetween(first, last).getDays() + 1;
+        if (numberOfDays < 1) {
+            throw new IllegalArgumentException("last day " + last + " is before first day " + first);
+        }
+        _first = first;
+        _firstEpochDay = Days.daysBetween(s_epoch, first).getDays();
+        _days = new DateTime[numberOfDays];
+        _years = new int[numberOfDays];
+        _months = new int[numberOfDays];
+        _daysOfMonth = new int[numberOfDays];
+        _daysOfWeek = new int[numberOfDays];
+        _seconds = new long[numberOfDays];
+        DateTime start = first.toDateTimeAtStartOfDay();
+        for (int i = 0; i < numberOfDays; i++) {
+            DateTime day = start.plusDays(i);
+            _days[i] = day;
+            _years[i] = day.getYear();
+            _months[i] = day.getMonthOfYear();
+            _daysOfMonth[i] = day.getDayOfMonth();
+            _daysOfWeek[i] = day.getDayOfWeek();
+            _seconds[i] = day.getMillis() / 1000;
+        }
+        _fields.put(DateTimeFieldType.year(), _years);
+        _fields.put(DateTimeFieldType.monthOfYear(), _months);
+        _fields.put(DateTimeFieldType.dayOfMonth(), _daysOfMonth);
+        _fields.put(DateTimeFieldType.dayOfWeek(), _daysOfWeek);
+    }
+
+    public int size() {
+        return _days.length;
+    }
+
+    public int getFirstEpochDay() {
+        return _firstEpochDay;
+    }
+
+    /**
+     * The index of the given day in the grid, or -1 if it is outside it.
+     */
+    public int indexOf(LocalDate day) {
+        int i = Days.daysBetween(_first, day).getDays();
+        return (i >= 0 && i < _days.length) ? i : -1;
+    }
+
+    /**
+     * Midnight at the start of day i.
+     */
+    public DateTime getDay(int i) {
+        return _days[i];
+    }
+
+    /**
+     * The year of each day.  The array is shared, and mustn't be changed.
+     */
+    public int[] getYears() {
+        return _years;
+    }
+
+    /**
+     * The seconds since 1970 at the start of each day.  The array is
+     * shared, and mustn't be changed.
+     */
+    public long[] getSeconds() {
+        return _seconds;
+    }
+
+    /**
+     * The value of the given field at the start of each day, as
+     * {@code getDay(i).get(fieldType)} would give it.  The array is made the
+     * first time a field is asked for, is shared, and mustn't be changed.
+     */
+    public int[] getField(DateTimeFieldType fieldType) {
+        int[] values = _fields.get(fieldType);
+        if (values == null) {
+            // two threads may both make it, but they are the same
+            values = new int[_days.length];
+            for (int i = 0; i < _days.length; i++) {
+                values[i] = _days[i].get(fieldType);
+            }
+            _fields.put(fieldType, values);
+        }
+        return values;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if ( ! (o instanceof DayGrid)) {
+            return false;
+        }
+        DayGrid other = (DayGrid) o;
+        return _firstEpochDay == other._firstEpochDay && _days.length == other._days.length
+                && _days[0].getZone().equals(other._days[0].getZone());
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * _firstEpochDay + _days.length;
+    }
+
+    @Override
+    public String toString() {
+        return "DayGrid[" + _first + " to " + _first.plusDays(_days.length - 1) + "]";
+    }
+
+}
@@ -181,6 +181,15 @@ public class DistributedMain {
     }
 
     public static void processText(AnnotationPipeline pipeline, String text, String date) throws IOException {
+        processText(pipeline, text, date, null, null);
+    }
+
+    /**
+     * As processText, also adding the density of each timex found to a
+     * time similarity index, with the given document id.
+     */
+    public static void processText(AnnotationPipeline pipeline, String text, String date,
+                                   TimeSimilarityIndex index, String docId) throws IOException {
 
         text = text.replace("{", "(").replace("}", ")");
 
@@ -248,6 +257,9 @@ public class DistributedMain {
                 System.out.println(
                         get1.toString()
                 );
+                if (index != null) {
+                    index.add(docId, get1);
+                }
             }
             
             if (false) {
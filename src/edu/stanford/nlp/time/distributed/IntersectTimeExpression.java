@@ -2,6 +2,7 @@ package edu.stanford.nlp.time.distributed;
 
 import edu.stanford.nlp.time.Time;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import org.joda.time.DateTime;
 
@@ -61,6 +62,23 @@ public class IntersectTimeExpression extends TimeDensityFunction {
         return density;
     }
 
+    /**
+     * The product of the densities of the parts.
+     */
+    @Override
+    protected double[] computeDensities(DayGrid grid) {
+        double[] densities = new double[grid.size()];
+        Arrays.fill(densities, 1);
+        for (TimeDensityFunction f : _models) {
+            double[] part = f.getDensities(grid);
+            for (int i = 0; i < densities.length; i++) {
+                // as in getDensity, once a density is zero it stays zero
+                densities[i] = (densities[i] == 0) ? 0 : densities[i] * part[i];
+            }
+        }
+        return densities;
+    }
+
     public String getGNUPlot(String millTimeSecondsExpr) {
 
         String expr = "";
@@ -44,6 +44,22 @@ public class SumTimeExpression extends TimeDensityFunction {
         return density;
     }
 
+    /**
+     * The sum of the normalized densities of the parts, each worked out just
+     * once for the grid.
+     */
+    @Override
+    protected double[] computeDensities(DayGrid grid) {
+        double[] densities = new double[grid.size()];
+        for (TimeDensityFunction f : _models) {
+            double[] normalized = f.getNormalizedDensities(grid);
+            for (int i = 0; i < densities.length; i++) {
+                densities[i] += normalized[i];
+            }
+        }
+        return densities;
+    }
+
     public String getGNUPlot(String millTimeSecondsExpr) {
 
         String expr = "(";
@@ -1,84 +1,159 @@
 package edu.stanford.nlp.time.distributed;
 
 import org.joda.time.DateTime;
-import org.joda.time.Days;
 
+/**
+ * A (not necessarily normalized) density over time, which is sampled once a
+ * day over a {@link DayGrid} for comparing densities.
+ * <br>
+ * Subclasses give the density at a time, and may also override
+ * {@link #computeDensities(DayGrid)} to work out the densities of all the
+ * days of a grid at once with array arithmetic, rather than by calling
+ * getDensity for each day.  The samples are worked out once per function and
+ * grid, and kept.
+ */
 public abstract class TimeDensityFunction {
 
     /**
-     * For the time being, the maximum range is hard-coded.
+     * The grid used by getTotalMass and getSimilarity when none is given.
      */
-    private static final DateTime s_startDay = new DateTime(2005,1,1,0,0);
-    private static final DateTime s_endDay = new DateTime(2014,12,31,0,0);
-    private static final int s_numberOfDays = Days.daysBetween(s_startDay, s_endDay).getDays() + 1;
-    private double _originalTotalMass;
-    
+    private static volatile DayGrid s_defaultGrid = DayGrid.DEFAULT;
+
+    /** The samples over one grid: the densities as given by the function,
+     *  their total, and the densities divided by the total.
+     */
+    private static class Samples {
+        final DayGrid grid;
+        final double[] densities;
+        final double totalMass;
+        final double[] normalized;
+        final boolean hasNegative;
+
+        Samples(DayGrid grid, double[] densities) {
+            this.grid = grid;
+            this.densities = densities;
+            double total = 0;
+            boolean negative = false;
+            for (double density : densities) {
+                negative |= density < 0;
+                total += density;
+            }
+            totalMass = total;
+            hasNegative = negative;
+            normalized = new double[densities.length];
+            for (int i = 0; i < densities.length; i++) {
+                normalized[i] = densities[i] / total;
+            }
+        }
+    }
+
+    private volatile Samples _samples = null;
+
     public abstract double getDensity(DateTime time);
-    
+
     public abstract String getGNUPlot(String millTimeSecondsExpr);
-    
+
+    public static DayGrid getDefaultGrid() {
+        return s_defaultGrid;
+    }
+
+    /**
+     * Sets the days densities are sampled over from now on.  Samples already
+     * taken over the old grid are dropped the next time they are asked for.
+     */
+    public static void setDefaultGrid(DayGrid grid) {
+        if (grid == null) {
+            throw new IllegalArgumentException("grid cannot be null");
+        }
+        s_defaultGrid = grid;
+    }
+
     public double getTotalMass() {
-        getDensities();
-        return _originalTotalMass;
+        return getSamples(s_defaultGrid).totalMass;
     }
-    
-    private double[] _densities = null;
-    
+
+    public double getTotalMass(DayGrid grid) {
+        return getSamples(grid).totalMass;
+    }
+
     /**
      * Derived classes need to call this method before any modifications are allowed.
      * @return if true, no modifications allowed, throw a ReadOnlyException
      */
     protected boolean getIsfinalized() {
-        return _densities != null;
+        return _samples != null;
     }
-    
-    private synchronized double[] getDensities() {
-        
-        if (_densities == null) {
-            _densities = new double[s_numberOfDays];
-            
-            double totalDensity = 0;
-            for (int i = 0; i < s_numberOfDays; i++) {
-                DateTime sampleDay  = s_startDay.plusDays(i);
-                double density = getDensity(sampleDay);
-                totalDensity += density;
-                _densities[i] = density;
-            }
-            
-            for (int i = 0; i < s_numberOfDays; i++) {
-                _densities[i] = _densities[i]/totalDensity;
+
+    /**
+     * Works out the (unnormalized) density at the start of each day of the
+     * grid.  This implementation calls getDensity for each day; subclasses
+     * can do better.
+     */
+    protected double[] computeDensities(DayGrid grid) {
+        double[] densities = new double[grid.size()];
+        for (int i = 0; i < densities.length; i++) {
+            densities[i] = getDensity(grid.getDay(i));
+        }
+        return densities;
+    }
+
+    private Samples getSamples(DayGrid grid) {
+        Samples samples = _samples;
+        if (samples == null || samples.grid != grid) {
+            synchronized (this) {
+                samples = _samples;
+                if (samples == null || ! samples.grid.equals(grid)) {
+                    samples = new Samples(grid, computeDensities(grid));
+                    _samples = samples;
+                }
             }
-            _originalTotalMass = totalDensity;
         }
-        
-        return _densities;
+        return samples;
+    }
+
+    /**
+     * The density at the start of each day of the grid, as computeDensities
+     * gives it.  The array is shared, and mustn't be changed.
+     */
+    protected double[] getDensities(DayGrid grid) {
+        return getSamples(grid).densities;
+    }
+
+    /**
+     * The density at the start of each day of the grid, divided by the total
+     * over the grid so that they sum to one.  The array is shared, and
+     * mustn't be changed.
+     */
+    protected double[] getNormalizedDensities(DayGrid grid) {
+        return getSamples(grid).normalized;
     }
-    
-    
+
     public static double getSimilarity(TimeDensityFunction x, TimeDensityFunction y) {
+        return getSimilarity(x, y, s_defaultGrid);
+    }
+
+    public static double getSimilarity(TimeDensityFunction x, TimeDensityFunction y, DayGrid grid) {
         // Similarity is simply the scalar product of the density vectors associated with the two time densities.
         // Effectively just multiplying the densities without re-normalizing.
-        
+
         if (x == null || y == null) {
             throw new IllegalArgumentException();
         }
-        
+
         // Getting the densities performs normalization if it has not already been done so.
-        double[] densitiesX = x.getDensities();
-        double[] densitiesY = y.getDensities();
-        
-        if (densitiesX.length != densitiesY.length) {
-                throw new RuntimeException("densities are not the same length.");
+        Samples samplesX = x.getSamples(grid);
+        Samples samplesY = y.getSamples(grid);
+        if (samplesX.hasNegative || samplesY.hasNegative) {
+            throw new RuntimeException("negative probability density detected!");
         }
-        
+        double[] densitiesX = samplesX.normalized;
+        double[] densitiesY = samplesY.normalized;
+
         double similarity = 0;
-        for (int i = 0; i < s_numberOfDays; i++) {
-            if (densitiesX[i] < 0 || densitiesY[i] < 0) {
-                throw new RuntimeException("negative probability density detected!");
-            }
+        for (int i = 0; i < densitiesX.length; i++) {
             similarity += densitiesX[i] * densitiesY[i];
         }
-        
+
         return similarity;
     }
 
@@ -86,7 +161,7 @@ public abstract class TimeDensityFunction {
     public String toString() {
         return this.getGNUPlot("x");
     }
-    
-    
-    
+
+
+
 }
@@ -1,5 +1,6 @@
 package edu.stanford.nlp.time.distributed;
 
+import java.util.Arrays;
 import org.joda.time.DateTime;
 import org.joda.time.DateTimeFieldType;
 import org.joda.time.Partial;
@@ -31,6 +32,27 @@ public class TimeDensityImpl extends TimeDensityFunction {
         return density;
     }
 
+    /**
+     * One for the days that have all the fields of the partial, zero for
+     * the others, found by comparing each field's values for the days of the
+     * grid in turn.
+     */
+    @Override
+    protected double[] computeDensities(DayGrid grid) {
+        double[] densities = new double[grid.size()];
+        Arrays.fill(densities, 1);
+        int[] values = _base.getValues();
+        DateTimeFieldType[] fieldTypes = _base.getFieldTypes();
+        for (int f = 0; f < fieldTypes.length; f++) {
+            int[] dayValues = grid.getField(fieldTypes[f]);
+            int value = values[f];
+            for (int i = 0; i < densities.length; i++) {
+                densities[i] = (dayValues[i] == value) ? densities[i] : 0;
+            }
+        }
+        return densities;
+    }
+
     @Override
     public String getGNUPlot(String millTimeSecondsExpr) {
         
@@ -0,0 +1,361 @@
+package edu.stanford.nlp.time.distributed;
+
+import edu.stanford.nlp.io.IOUtils;
+import edu.stanford.nlp.util.Pair;
+import java.io.*;
+import java.util.*;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import org.joda.time.LocalDate;
+
+/**
+ * An index of normalized time densities, for finding the ones most similar
+ * (in the sense of {@link TimeDensityFunction#getSimilarity}) to a query
+ * without comparing it with all of them.
+ * <br>
+ * Most timexes put their mass on a few days, or a season or two, of the
+ * grid, so each density is kept as the runs of days on which it is
+ * positive.  The grid is split into blocks of days, and each block lists
+ * the densities that have mass in it, with that mass.  A query only looks
+ * at the densities in the blocks where it has mass itself, and bounds
+ * their similarity by the query's largest value in each block times their
+ * mass there; exact similarities are only worked out for densities in
+ * order of that bound, until the bound can't beat the top k found so far.
+ * <br>
+ * Densities can be added at any time, for instance as
+ * {@link DistributedMain#processText} finds timexes, and an index can be
+ * saved to a file and loaded again.  An index isn't safe for adding to
+ * from several threads at once.
+ */
+public class TimeSimilarityIndex {
+
+    /** The number of days in each block of the grid. */
+    private static final int BLOCK_SIZE = 32;
+
+    /** What bounds are scaled by to allow for rounding. */
+    private static final double BOUND_SLACK = 1.0 + 1e-9;
+
+    private static final int FILE_VERSION = 1;
+
+    private final DayGrid _grid;
+    private final int _numberOfBlocks;
+
+    /** The id each density was added with. */
+    private final List<String> _ids = new ArrayList<String>();
+    /** For each density, the first and last day of each of its runs, in pairs. */
+    private final List<int[]> _runs = new ArrayList<int[]>();
+    /** For each density, its values on the days of its runs, in order. */
+    private final List<double[]> _values = new ArrayList<double[]>();
+
+    /** For each block, the densities with mass in it, in the order they were added. */
+    private final int[][] _blockEntries;
+    /** For each block, the mass in it of each of those densities. */
+    private final double[][] _blockMasses;
+    private final int[] _blockSizes;
+
+    /**
+     * An empty index over the default grid.
+     */
+    public TimeSimilarityIndex() {
+        this(TimeDensityFunction.getDefaultGrid());
+    }
+
+    /**
+     * An empty index over the given grid.
+     */
+    public TimeSimilarityIndex(DayGrid grid) {
+        _grid = grid;
+        _numberOfBlocks = (grid.size() + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        _blockEntries = new int[_numberOfBlocks][];
+        _blockMasses = new double[_numberOfBlocks][];
+        _blockSizes = new int[_numberOfBlocks];
+        for (int b = 0; b < _numberOfBlocks; b++) {
+            _blockEntries[b] = new int[4];
+            _blockMasses[b] = new double[4];
+        }
+    }
+
+    public DayGrid getGrid() {
+        return _grid;
+    }
+
+    /**
+     * The number of densities in the index.
+     */
+    public int size() {
+        return _ids.size();
+    }
+
+    /**
+     * The id density i was added with.
+     */
+    public String getId(int i) {
+        return _ids.get(i);
+    }
+
+    /**
+     * Adds the normalized samples of a density over the index's grid.
+     * A density with no mass on the grid is added, but is never similar to
+     * anything.
+     *
+     * @param id What to call the density, such as the document it came
+     *     from.  Ids needn't be different.
+     * @param density The density
+     * @return The number of the density in the index
+     */
+    public int add(String id, TimeDensityFunction density) {
+        double[] normalized = density.getNormalizedDensities(_grid);
+        int[] runs = new int[8];
+        int numberOfRuns = 0;
+        int numberOfValues = 0;
+        for (int i = 0; i < normalized.length; i++) {
+            if (normalized[i] < 0) {
+                throw new RuntimeException("negative probability density detected!");
+            }
+            // also leaves out the NaNs of a density with no mass
+            if (normalized[i] > 0) {
+                if (numberOfRuns > 0 && runs[2 * numberOfRuns - 1] == i - 1) {
+                    runs[2 * numberOfRuns - 1] = i;
+                } else {
+                    if (2 * numberOfRuns == runs.length) {
+                        runs = Arrays.copyOf(runs, 2 * runs.length);
+                    }
+                    runs[2 * numberOfRuns] = i;
+                    runs[2 * numberOfRuns + 1] = i;
+                    numberOfRuns++;
+                }
+                numberOfValues++;
+            }
+        }
+        double[] values = new double[numberOfValues];
+        int v = 0;
+        for (int r = 0; r < numberOfRuns; r++) {
+            for (int i = runs[2 * r]; i <= runs[2 * r + 1]; i++) {
+                values[v++] = normalized[i];
+            }
+        }
+        return add(id, Arrays.copyOf(runs, 2 * numberOfRuns), values);
+    }
+
+    private int add(String id, int[] runs, double[] values) {
+        int entry = _ids.size();
+        _ids.add(id);
+        _runs.add(runs);
+        _values.add(values);
+
+        int v = 0;
+        int block = -1;
+        double mass = 0;
+        for (int r = 0; r < runs.length; r += 2) {
+            for (int i = runs[r]; i <= runs[r + 1]; i++) {
+                int b = i / BLOCK_SIZE;
+                if (b != block) {
+                    if (block >= 0) {
+                        addToBlock(block, entry, mass);
+                    }
+                    block = b;
+                    mass = 0;
+                }
+                mass += values[v++];
+            }
+        }
+        if (block >= 0) {
+            addToBlock(block, entry, mass);
+        }
+        return entry;
+    }
+
+    private void addToBlock(int block, int entry, double mass) {
+        int n = _blockSizes[block];
+        if (n == _blockEntries[block].length) {
+            _blockEntries[block] = Arrays.copyOf(_blockEntries[block], 2 * n);
+            _blockMasses[block] = Arrays.copyOf(_blockMasses[block], 2 * n);
+        }
+        _blockEntries[block][n] = entry;
+        _blockMasses[block][n] = mass;
+        _blockSizes[block] = n + 1;
+    }
+
+    /**
+     * The similarity of density i in the index to the given normalized
+     * samples.  This is the same sum as getSimilarity works out, without the
+     * days on which density i is zero.
+     */
+    private double similarity(int i, double[] query) {
+        int[] runs = _runs.get(i);
+        double[] values = _values.get(i);
+        double similarity = 0;
+        int v = 0;
+        for (int r = 0; r < runs.length; r += 2) {
+            for (int day = runs[r]; day <= runs[r + 1]; day++) {
+                similarity += values[v++] * query[day];
+            }
+        }
+        return similarity;
+    }
+
+    /**
+     * The similarity of density i in the index to the given density, as
+     * {@link TimeDensityFunction#getSimilarity} would give it over the
+     * index's grid.
+     */
+    public double getSimilarity(int i, TimeDensityFunction query) {
+        return similarity(i, query.getNormalizedDensities(_grid));
+    }
+
+    /**
+     * Finds the k densities in the index most similar to the query.
+     * Densities with no similarity to it at all (no days on which both have
+     * mass) are never returned, so there may be fewer than k.
+     *
+     * @return The ids and similarities of the densities found, most similar
+     *     first, and in the order they were added if equally similar
+     */
+    public List<Pair<String, Double>> topK(TimeDensityFunction query, int k) {
+        List<Pair<String, Double>> results = new ArrayList<Pair<String, Double>>();
+        for (int i : topKEntries(query, k)) {
+            results.add(new Pair<String, Double>(_ids.get(i), getSimilarity(i, query)));
+        }
+        return results;
+    }
+
+    /**
+     * As topK, but gives the numbers of the densities in the index rather
+     * than their ids.
+     */
+    public List<Integer> topKEntries(TimeDensityFunction query, int k) {
+        double[] normalized = query.getNormalizedDensities(_grid);
+        if (k <= 0 || _ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        // bound the similarity of each density that shares a block with the query
+        final double[] bounds = new double[_ids.size()];
+        boolean[] seen = new boolean[_ids.size()];
+        List<Integer> candidates = new ArrayList<Integer>();
+        for (int b = 0; b < _numberOfBlocks; b++) {
+            double max = 0;
+            int end = Math.min(normalized.length, (b + 1) * BLOCK_SIZE);
+            for (int i = b * BLOCK_SIZE; i < end; i++) {
+                if (normalized[i] > max) {
+                    max = normalized[i];
+                }
+            }
+            if (max == 0) {
+                continue;
+            }
+            int[] entries = _blockEntries[b];
+            double[] masses = _blockMasses[b];
+            for (int n = 0; n < _blockSizes[b]; n++) {
+                if ( ! seen[entries[n]]) {
+                    seen[entries[n]] = true;
+                    candidates.add(entries[n]);
+                }
+                bounds[entries[n]] += max * masses[n];
+            }
+        }
+        Collections.sort(candidates, new Comparator<Integer>() {
+            public int compare(Integer x, Integer y) {
+                return Double.compare(bounds[y], bounds[x]);
+            }
+        });
+
+        // the best k so far, worst first
+        final double[] similarities = new double[_ids.size()];
+        PriorityQueue<Integer> best = new PriorityQueue<Integer>(k + 1, new Comparator<Integer>() {
+            public int compare(Integer x, Integer y) {
+                int cmp = Double.compare(similarities[x], similarities[y]);
+                return (cmp != 0) ? cmp : y - x;
+            }
+        });
+        for (int i : candidates) {
+            // the bound is a sum in another order, so may be a little low
+            if (best.size() == k && bounds[i] * BOUND_SLACK < similarities[best.peek()]) {
+                break;
+            }
+            double similarity = similarity(i, normalized);
+            if (similarity <= 0) {
+                continue;
+            }
+            similarities[i] = similarity;
+            best.add(i);
+            if (best.size() > k) {
+                best.poll();
+            }
+        }
+        Integer[] found = best.toArray(new Integer[best.size()]);
+        Arrays.sort(found, Collections.reverseOrder(best.comparator()));
+        return Arrays.asList(found);
+    }
+
+    /**
+     * Writes the index to a file, gzipped.  It can be read back with
+     * {@link #load}.
+     */
+    public void save(String filename) throws IOException {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(new FileOutputStream(filename))));
+        try {
+            out.writeInt(FILE_VERSION);
+            out.writeInt(_grid.getFirstEpochDay());
+            out.writeInt(_grid.size());
+            out.writeInt(_ids.size());
+            for (int i = 0; i < _ids.size(); i++) {
+                out.writeUTF(_ids.get(i));
+                int[] runs = _runs.get(i);
+                out.writeInt(runs.length / 2);
+                for (int day : runs) {
+                    out.writeInt(day);
+                }
+                for (double value : _values.get(i)) {
+                    out.writeDouble(value);
+                }
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Reads an index written by {@link #save}, from a file, URL or the
+     * classpath.
+     */
+    public static TimeSimilarityIndex load(String filename) throws IOException {
+        InputStream in = IOUtils.getInputStreamFromURLOrClasspathOrFileSystem(filename);
+        if ( ! filename.endsWith(".gz")) {
+            // save always gzips, whatever the file is called
+            in = new GZIPInputStream(in);
+        }
+        DataInputStream data = new DataInputStream(in);
+        try {
+            int version = data.readInt();
+            if (version != FILE_VERSION) {
+                throw new IOException(filename + " isn't a time similarity index (or is from another version)");
+            }
+            int firstEpochDay = data.readInt();
+            int numberOfDays = data.readInt();
+            LocalDate first = new LocalDate(1970, 1, 1).plusDays(firstEpochDay);
+            TimeSimilarityIndex index = new TimeSimilarityIndex(new DayGrid(first, first.plusDays(numberOfDays - 1)));
+            int numberOfEntries = data.readInt();
+            for (int i = 0; i < numberOfEntries; i++) {
+                String id = data.readUTF();
+                int[] runs = new int[2 * data.readInt()];
+                int numberOfValues = 0;
+                for (int r = 0; r < runs.length; r++) {
+                    runs[r] = data.readInt();
+                    if (r % 2 == 1) {
+                        numberOfValues += runs[r] - runs[r - 1] + 1;
+                    }
+                }
+                double[] values = new double[numberOfValues];
+                for (int v = 0; v < numberOfValues; v++) {
+                    values[v] = data.readDouble();
+                }
+                index.add(id, runs, values);
+            }
+            return index;
+        } finally {
+            data.close();
+        }
+    }
+
+}
@@ -376,8 +376,18 @@ public class GrammaticalRelation implements Comparable<GrammaticalRelation>, Ser
    */
   public boolean isApplicable(Tree t) {
     // System.err.println("Testing whether " + sourcePattern + " matches " + ((TreeGraphNode) t).toOneLineString());
-    return (sourcePattern != null) && (t.value() != null) &&
-             sourcePattern.matcher(t.value()).matches();
+    return isApplicable(t.value());
+  }
+
+  /** As isApplicable(Tree), for a node with the given value. */
+  boolean isApplicable(String value) {
+    return (sourcePattern != null) && (value != null) &&
+             sourcePattern.matcher(value).matches();
+  }
+
+  /** The patterns tried by getRelatedNodes, in order.  Not to be changed. */
+  List<TregexPattern> targetPatterns() {
+    return targetPatterns;
   }
 
   /** Returns whether this is equal to or an ancestor of gr in the grammatical relations hierarchy. */
@@ -483,6 +493,10 @@ public class GrammaticalRelation implements Comparable<GrammaticalRelation>, Ser
     return thisN.compareTo(oN);
   }
 
+  public Language getLanguage() {
+    return language;
+  }
+
   public String getLongName() {
     return longName;
   }
@@ -0,0 +1,273 @@
+package edu.stanford.nlp.trees;
+
+import edu.stanford.nlp.trees.tregex.TregexMatcher;
+import edu.stanford.nlp.trees.tregex.TregexPattern;
+import edu.stanford.nlp.util.CacheMap;
+import edu.stanford.nlp.util.Generics;
+import edu.stanford.nlp.util.Pair;
+
+import java.util.*;
+
+/**
+ * Finds, for a tree node, all the nodes it bears any of a list of
+ * {@link GrammaticalRelation}s to, giving the same answers as calling
+ * {@link GrammaticalRelation#isApplicable} and
+ * {@link GrammaticalRelation#getRelatedNodes} on each relation in turn.
+ * <br>
+ * Rather than every relation testing its source pattern and trying all
+ * its target patterns at every node, the matcher works out once for each
+ * distinct node value which relations apply there and which of their
+ * target patterns have a root description that can match it.  Target
+ * patterns that several relations share are only tried once per node.
+ * A relation whose class overrides isApplicable(Tree) or getRelatedNodes
+ * is left out of this, and those methods are called for it at every node.
+ * <br>
+ * Matchers are made once for each list of relations (see forRelations),
+ * and are safe to use from several threads.  Only the most recently used
+ * matchers, and the plans for a limited number of node values, are kept.
+ *
+ * @see GrammaticalStructure
+ */
+class GrammaticalRelationMatcher {
+
+  private static final int MAX_MATCHERS = 16;
+  private static final int MAX_PLANS = 10000;
+
+  /** The matchers made most recently, by the relations they were made for.
+   *  Synchronized on itself. */
+  private static final Map<RelationsKey, GrammaticalRelationMatcher> matchers =
+    new CacheMap<RelationsKey, GrammaticalRelationMatcher>(MAX_MATCHERS, 0.75f, true);
+
+  /** A list of relations which is only equal to a list of the very same
+   *  relation objects: GrammaticalRelation.equals only compares names,
+   *  and relations with the same names can have different patterns. */
+  private static class RelationsKey {
+    private final GrammaticalRelation[] relations;
+    private final int hash;
+
+    RelationsKey(List<GrammaticalRelation> relations) {
+      this.relations = relations.toArray(new GrammaticalRelation[relations.size()]);
+      int h = 1;
+      for (GrammaticalRelation relation : this.relations) {
+        h = 31 * h + System.identityHashCode(relation);
+      }
+      hash = h;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if ( ! (o instanceof RelationsKey)) {
+        return false;
+      }
+      GrammaticalRelation[] other = ((RelationsKey) o).relations;
+      if (other.length != relations.length) {
+        return false;
+      }
+      for (int i = 0; i < relations.length; i++) {
+        if (other[i] != relations[i]) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+  }
+
+  private final GrammaticalRelation[] relations;
+  /** Which relations have their own isApplicable(Tree) or getRelatedNodes */
+  private final boolean[] overridden;
+  /** The distinct target patterns of all the relations */
+  private final TregexPattern[] patterns;
+  /** For each relation, the indices in patterns of its target patterns, in order */
+  private final int[][] relationPatterns;
+
+  /** What to do at a node, by the node's value (for up to MAX_PLANS values) */
+  private final Map<String, NodePlan> plans = Generics.newConcurrentHashMap();
+  /** What to do at a node without a value: only try overridden relations */
+  private final NodePlan nullPlan;
+
+  /** The relations that apply at nodes with some value, and the patterns
+   *  that need to be tried there to find their targets.  Overridden
+   *  relations are always included, and checked at the node itself.
+   */
+  private static class NodePlan {
+    final int[] relations;
+    final int[] patterns;
+    /** Whether some relation that isn't overridden applies */
+    final boolean findsTargets;
+
+    NodePlan(int[] relations, int[] patterns, boolean findsTargets) {
+      this.relations = relations;
+      this.patterns = patterns;
+      this.findsTargets = findsTargets;
+    }
+  }
+
+  private GrammaticalRelationMatcher(List<GrammaticalRelation> relations) {
+    this.relations = relations.toArray(new GrammaticalRelation[relations.size()]);
+    overridden = new boolean[this.relations.length];
+    List<Integer> overriddenRelations = new ArrayList<Integer>();
+    relationPatterns = new int[this.relations.length][];
+    List<TregexPattern> patternList = new ArrayList<TregexPattern>();
+    // patterns are the same if their strings and languages are
+    Map<Pair<String, GrammaticalRelation.Language>, Integer> patternIndices = Generics.newHashMap();
+    for (int r = 0; r < this.relations.length; r++) {
+      GrammaticalRelation relation = this.relations[r];
+      if (isOverridden(relation)) {
+        overridden[r] = true;
+        overriddenRelations.add(r);
+        relationPatterns[r] = new int[0];
+        continue;
+      }
+      List<TregexPattern> targetPatterns = relation.targetPatterns();
+      relationPatterns[r] = new int[targetPatterns.size()];
+      for (int i = 0; i < targetPatterns.size(); i++) {
+        TregexPattern pattern = targetPatterns.get(i);
+        Pair<String, GrammaticalRelation.Language> key = new Pair<String, GrammaticalRelation.Language>(pattern.pattern(), relation.getLanguage());
+        Integer index = (pattern.pattern() == null) ? null : patternIndices.get(key);
+        if (index == null) {
+          index = patternList.size();
+          patternList.add(pattern);
+          if (pattern.pattern() != null) {
+            patternIndices.put(key, index);
+          }
+        }
+        relationPatterns[r][i] = index;
+      }
+    }
+    patterns = patternList.toArray(new TregexPattern[patternList.size()]);
+    nullPlan = new NodePlan(toArray(overriddenRelations), new int[0], false);
+  }
+
+  /** Whether the relation's class changes how it finds related nodes */
+  private static boolean isOverridden(GrammaticalRelation relation) {
+    if (relation.getClass() == GrammaticalRelation.class) {
+      return false;
+    }
+    try {
+      return relation.getClass().getMethod("isApplicable", Tree.class).getDeclaringClass() != GrammaticalRelation.class ||
+        relation.getClass().getMethod("getRelatedNodes", Tree.class, Tree.class).getDeclaringClass() != GrammaticalRelation.class;
+    } catch (NoSuchMethodException e) {
+      throw new AssertionError(e);
+    }
+  }
+
+  /** Returns a matcher for the given relations, which are tried in the
+   *  order they come in.  If the collection changes later, the matcher
+   *  doesn't, but asking again gives one for the new relations.
+   */
+  static GrammaticalRelationMatcher forRelations(Collection<GrammaticalRelation> relations) {
+    List<GrammaticalRelation> list = new ArrayList<GrammaticalRelation>(relations);
+    RelationsKey key = new RelationsKey(list);
+    GrammaticalRelationMatcher matcher;
+    synchronized (matchers) {
+      matcher = matchers.get(key);
+    }
+    if (matcher == null) {
+      // two threads may both make one, but they are the same
+      matcher = new GrammaticalRelationMatcher(list);
+      synchronized (matchers) {
+        matchers.put(key, matcher);
+      }
+    }
+    return matcher;
+  }
+
+  private NodePlan plan(String value) {
+    if (value == null) {
+      return nullPlan;
+    }
+    NodePlan plan = plans.get(value);
+    if (plan == null) {
+      List<Integer> planRelations = new ArrayList<Integer>();
+      Set<Integer> planPatterns = new TreeSet<Integer>();
+      boolean findsTargets = false;
+      for (int r = 0; r < relations.length; r++) {
+        if (overridden[r]) {
+          planRelations.add(r);
+        } else if (relations[r].isApplicable(value)) {
+          planRelations.add(r);
+          findsTargets = true;
+          for (int p : relationPatterns[r]) {
+            if (patterns[p].rootCanMatch(value)) {
+              planPatterns.add(p);
+            }
+          }
+        }
+      }
+      plan = new NodePlan(toArray(planRelations), toArray(planPatterns), findsTargets);
+      // node values come from the trees, so they are only cached up to a point
+      if (plans.size() < MAX_PLANS) {
+        plans.put(value, plan);
+      }
+    }
+    return plan;
+  }
+
+  private static int[] toArray(Collection<Integer> ints) {
+    int[] array = new int[ints.size()];
+    int i = 0;
+    for (int x : ints) {
+      array[i++] = x;
+    }
+    return array;
+  }
+
+  /** Returns each relation that node <code>t</code> bears to some node,
+   *  paired with that node, in the order that trying the relations one at
+   *  a time with getRelatedNodes would find them.
+   *
+   *  @param t The node to find relations for
+   *  @param root The root of the tree t is in
+   *  @return The (relation, related node) pairs
+   */
+  List<Pair<GrammaticalRelation, Tree>> relatedNodes(Tree t, Tree root) {
+    NodePlan plan = plan(t.value());
+    if (plan.relations.length == 0) {
+      return Collections.emptyList();
+    }
+    if (plan.findsTargets && root.value() == null) {
+      root.setValue("ROOT");  // as in getRelatedNodes
+    }
+    // the targets found by each pattern tried here (null for the others)
+    List<List<Tree>> targets = new ArrayList<List<Tree>>(Collections.<List<Tree>>nCopies(patterns.length, null));
+    for (int p : plan.patterns) {
+      List<Tree> found = new ArrayList<Tree>();
+      TregexMatcher m = patterns[p].matcher(root);
+      while (m.findAt(t)) {
+        found.add(m.getNode("target"));
+      }
+      targets.set(p, found);
+    }
+    List<Pair<GrammaticalRelation, Tree>> related = new ArrayList<Pair<GrammaticalRelation, Tree>>();
+    Set<Tree> nodes = new LinkedHashSet<Tree>();
+    for (int r : plan.relations) {
+      if (overridden[r]) {
+        if (relations[r].isApplicable(t)) {
+          for (Tree node : relations[r].getRelatedNodes(t, root)) {
+            related.add(new Pair<GrammaticalRelation, Tree>(relations[r], node));
+          }
+        }
+        continue;
+      }
+      nodes.clear();
+      for (int p : relationPatterns[r]) {
+        if (targets.get(p) != null) {
+          nodes.addAll(targets.get(p));
+        }
+      }
+      for (Tree node : nodes) {
+        related.add(new Pair<GrammaticalRelation, Tree>(relations[r], node));
+      }
+    }
+    return related;
+  }
+
+}
@@ -21,6 +21,7 @@ import edu.stanford.nlp.util.Filter;
 import edu.stanford.nlp.util.Filters;
 import edu.stanford.nlp.util.Function;
 import edu.stanford.nlp.util.Generics;
+import edu.stanford.nlp.util.Pair;
 import edu.stanford.nlp.util.ReflectionLoading;
 import edu.stanford.nlp.util.StringUtils;
 
@@ -105,7 +106,7 @@ public abstract class GrammaticalStructure extends TreeGraph {
       relationsLock.lock();
     }
     try {
-      analyzeNode(root, root, relations);
+      analyzeNode(root, root, GrammaticalRelationMatcher.forRelations(relations));
     }
     finally {
       if (relationsLock != null) {
@@ -236,16 +237,14 @@ public abstract class GrammaticalStructure extends TreeGraph {
 
 
   // cdm dec 2009: I changed this to automatically fail on preterminal nodes, since they shouldn't match for GR parent patterns.  Should speed it up.
-  private static void analyzeNode(TreeGraphNode t, TreeGraphNode root, Collection<GrammaticalRelation> relations) {
+  // The matcher finds the nodes t bears each relation to, as the relations'
+  // own isApplicable and getRelatedNodes would, but in one pass.
+  private static void analyzeNode(TreeGraphNode t, TreeGraphNode root, GrammaticalRelationMatcher relations) {
     // if (t.numChildren() > 0) {          // don't do leaves
     if (t.isPhrasal()) {    // don't do leaves or preterminals!
       TreeGraphNode tHigh = t.highestNodeWithSameHead();
-      for (GrammaticalRelation egr : relations) {
-        if (egr.isApplicable(t)) {
-          for (Tree u : egr.getRelatedNodes(t, root)) {
-            tHigh.addArc(GrammaticalRelation.getAnnotationClass(egr), (TreeGraphNode) u);
-          }
-        }
+      for (Pair<GrammaticalRelation, Tree> related : relations.relatedNodes(t, root)) {
+        tHigh.addArc(GrammaticalRelation.getAnnotationClass(related.first()), (TreeGraphNode) related.second());
       }
       // now recurse into children
       for (TreeGraphNode kid : t.children()) {
@@ -606,7 +605,13 @@ public abstract class GrammaticalStructure extends TreeGraph {
    * @return The typed dependencies of this grammatical structure
    */
   public List<TypedDependency> typedDependencies(boolean includeExtras) {
-    List<TypedDependency> deps = new ArrayList<TypedDependency>(includeExtras ? allTypedDependencies : typedDependencies);
+    List<TypedDependency> source = includeExtras ? allTypedDependencies : typedDependencies;
+    // the dependencies are copied since correcting and collapsing change
+    // them in place, and this structure may be asked for several views
+    List<TypedDependency> deps = new ArrayList<TypedDependency>(source.size());
+    for (TypedDependency td : source) {
+      deps.add(new TypedDependency(td));
+    }
     correctDependencies(deps);
     return deps;
   }
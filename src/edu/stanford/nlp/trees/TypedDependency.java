@@ -27,6 +27,16 @@ public class TypedDependency implements Comparable<TypedDependency>, Serializabl
     this.dep = dep;
   }
 
+  /** Copy constructor.  The copy has the same relation, governor, dependent
+   *  and extra status, and can be changed without changing the original.
+   */
+  public TypedDependency(TypedDependency other) {
+    this.reln = other.reln;
+    this.gov = other.gov;
+    this.dep = other.dep;
+    this.extra = other.extra;
+  }
+
   public GrammaticalRelation reln() {
     return reln;
   }
@@ -171,6 +171,42 @@ class DescriptionPattern extends TregexPattern {
     return changesVariables;
   }
 
+  /** Checks the description the same way as DescriptionMatcher does,
+   *  except that it leaves out captured variables, which can only make a
+   *  node fail.  Only the root of a pattern can be checked in isolation.
+   */
+  @Override
+  public boolean rootCanMatch(String value) {
+    if (rel != Relation.ROOT || descriptionMode == null) {
+      return true;
+    }
+    boolean found;
+    if (value == null) {
+      found = false;
+    } else {
+      if (basicCatFunction != null) {
+        value = basicCatFunction.apply(value);
+      }
+      switch (descriptionMode) {
+      case EXACT:
+        found = value.equals(exactMatch);
+        break;
+      case PATTERN:
+        found = descPattern.matcher(value).find();
+        break;
+      case ANYTHING:
+        found = true;
+        break;
+      case STRINGS:
+        found = stringFilter.accept(value);
+        break;
+      default:
+        throw new IllegalArgumentException("Unexpected match mode");
+      }
+    }
+    return found != negDesc;
+  }
+
   @Override
   public TregexMatcher matcher(Tree root, Tree tree,
                                IdentityHashMap<Tree, Tree> nodesToParents,
@@ -448,6 +448,20 @@ public abstract class TregexPattern implements Serializable {
     return patternString;
   }
 
+  /**
+   * Returns whether this pattern could match at a node whose value is
+   * <code>value</code>, judging only by the description of the root node
+   * of the pattern.  If this returns false, a matcher will never match at
+   * such a node, so callers that try a pattern at many nodes can skip it
+   * there.  If it returns true, the pattern may or may not match.
+   *
+   * @param value The value of a tree node (may be null)
+   * @return false if the pattern surely can't match at such a node
+   */
+  public boolean rootCanMatch(String value) {
+    return true;
+  }
+
   public void setPatternString(String patternString) {
     this.patternString = patternString;
   }
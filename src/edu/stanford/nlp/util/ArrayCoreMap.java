@@ -1,7 +1,9 @@
 package edu.stanford.nlp.util;
 
 import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
 import java.util.AbstractSet;
 import java.util.ArrayList;
@@ -40,6 +42,20 @@ import edu.stanford.nlp.util.logging.Redwood.RedwoodChannels;
  * as a key in a HashMap.
  * </p>
  *
+ * <p>
+ * A value that is expensive to compute and often not needed can be given
+ * with {@link #setLazy}, and is then only computed when it is first read.
+ * </p>
+ *
+ * <p>
+ * A subclass can keep the values of a few keys that nearly all of its
+ * instances have in fixed slots of its own (fields, say) instead of in the
+ * arrays, by overriding {@link #slotOf}, {@link #slotKey},
+ * {@link #slotValue} and {@link #setSlotValue}.  Those keys are then found
+ * without a search, and take no room in the arrays.  The map still
+ * remembers the order all its keys were set in.
+ * </p>
+ *
  * @author dramage
  * @author rafferty
  */
@@ -57,6 +73,24 @@ public class ArrayCoreMap implements CoreMap, Serializable {
   /** Total number of elements actually in keys,values */
   private int size; // = 0;
 
+  /** Maximum number of keys that a subclass can keep in slots */
+  protected static final int MAX_SLOTS = 8;
+
+  /**
+   * The slots that have been set, in the order they were set: 4 bits for
+   * each (the slot number plus one), starting with the lowest, and ending
+   * with 0.  -1 means the slots are not being used, and all keys are in
+   * the arrays (this only happens if the arrays get too big to record the
+   * positions of the slots among them).
+   */
+  private int slotOrder; // = 0;
+
+  /**
+   * For each slot in slotOrder, 8 bits giving how many of the keys in the
+   * arrays come before it.
+   */
+  private long slotPositions; // = 0;
+
   /**
    * Default constructor - initializes with default initial annotation
    * capacity of 4.
@@ -81,14 +115,15 @@ public class ArrayCoreMap implements CoreMap, Serializable {
    * @param other The ArrayCoreMap to copy. It may not be null.
    */
   public ArrayCoreMap(ArrayCoreMap other) {
-    size = other.size;
+    size = other.size();
     keys = ErasureUtils.uncheckedCast(new Class[size]);
     values = new Object[size];
 
     for (int i = 0; i < size; i++) {
-      this.keys[i] = other.keys[i];
-      this.values[i] = other.values[i];
+      this.keys[i] = ErasureUtils.uncheckedCast(other.keyAt(i));
+      this.values[i] = other.rawValueAt(i);
     }
+    moveKeysToSlots();
   }
 
   /**
@@ -109,6 +144,7 @@ public class ArrayCoreMap implements CoreMap, Serializable {
       this.values[i] = other.get(key);
       i++;
     }
+    moveKeysToSlots();
   }
 
   /**
@@ -117,9 +153,15 @@ public class ArrayCoreMap implements CoreMap, Serializable {
   @Override
   @SuppressWarnings("unchecked")
   public <VALUE> VALUE get(Class<? extends Key<VALUE>> key) {
+    if (slotOrder != -1) {
+      int slot = slotOf(key);
+      if (slot >= 0) {
+        return (VALUE)slotted(slot);
+      }
+    }
     for (int i = 0; i < size; i++) {
       if (key == keys[i]) {
-        return (VALUE)values[i];
+        return (VALUE)value(i);
       }
     }
     return null;
@@ -132,6 +174,12 @@ public class ArrayCoreMap implements CoreMap, Serializable {
    */
   @Override
   public <VALUE> boolean has(Class<? extends Key<VALUE>> key) {
+    if (slotOrder != -1) {
+      int slot = slotOf(key);
+      if (slot >= 0) {
+        return slotIndex(slot) >= 0;
+      }
+    }
     for (int i = 0; i < size; i++) {
       if (keys[i] == key) {
         return true;
@@ -147,11 +195,40 @@ public class ArrayCoreMap implements CoreMap, Serializable {
   @Override
   @SuppressWarnings("unchecked")
   public <VALUE> VALUE set(Class<? extends Key<VALUE>> key, VALUE value) {
+    return (VALUE)setValue(key, value);
+  }
 
+  /**
+   * Sets the value of the given key to be made by the given factory when
+   * it is first read (by get or otherwise), rather than now.  The factory
+   * is called at most once, even if this map is copied, and the value
+   * then replaces it.  All values are made before the map is serialized,
+   * so the factory itself is never written out.  If the key is set again
+   * or removed before the value is ever read, the value is never made, and
+   * set or remove returns null for it.
+   *
+   * @param key The key to set
+   * @param factory Makes the value of the key
+   */
+  public <VALUE> void setLazy(Class<? extends Key<VALUE>> key, Factory<? extends VALUE> factory) {
+    setValue(key, new LazyValue(factory));
+  }
+
+  /** Stores the given value (which may be a LazyValue) for the key, and
+   *  returns the old one (without making it, if it was never read).
+   */
+  @SuppressWarnings("unchecked")
+  private Object setValue(Class<? extends Key<?>> key, Object value) {
+    if (slotOrder != -1) {
+      int slot = slotOf(key);
+      if (slot >= 0) {
+        return setSlotted(slot, value);
+      }
+    }
     // search array for existing value to replace
     for (int i = 0; i < size; i++) {
       if (keys[i] == key) {
-        VALUE rv = (VALUE)values[i];
+        Object rv = madeValue(values[i]);
         values[i] = value;
         return rv;
       }
@@ -191,29 +268,28 @@ public class ArrayCoreMap implements CoreMap, Serializable {
 
           @Override
           public boolean hasNext() {
-            return i < size;
+            return i < ArrayCoreMap.this.size();
           }
 
           @Override
           public Class<?> next() {
-            try {
-              return keys[i++];
-            } catch (ArrayIndexOutOfBoundsException aioobe) {
+            if (i >= ArrayCoreMap.this.size()) {
               throw new NoSuchElementException("ArrayCoreMap keySet iterator exhausted");
             }
+            return keyAt(i++);
           }
 
           @Override
           @SuppressWarnings("unchecked")
           public void remove() {
-            ArrayCoreMap.this.remove((Class)keys[i]);
+            ArrayCoreMap.this.remove((Class)keyAt(--i));
           }
         };
       }
 
       @Override
       public int size() {
-        return size;
+        return ArrayCoreMap.this.size();
       }
     };
   }
@@ -224,16 +300,29 @@ public class ArrayCoreMap implements CoreMap, Serializable {
   @Override
   @SuppressWarnings("unchecked")
   public <VALUE> VALUE remove(Class<? extends Key<VALUE>> key) {
+    if (slotOrder != -1) {
+      int slot = slotOf(key);
+      if (slot >= 0) {
+        return (VALUE)removeSlotted(slot);
+      }
+    }
 
     Object rv = null;
     for (int i = 0; i < size; i++) {
       if (keys[i] == key) {
-        rv = values[i];
+        rv = madeValue(values[i]);
         if (i < size - 1) {
           System.arraycopy(keys,   i+1, keys,   i, size-(i+1));
           System.arraycopy(values, i+1, values, i, size-(i+1));
         }
         size--;
+        // the slots after it are now after one fewer key in the arrays
+        for (int j = 0, n = slotCount(); j < n; j++) {
+          int position = slotPosition(j);
+          if (position > i) {
+            slotPositions -= 1L << (8 * j);
+          }
+        }
         break;
       }
     }
@@ -245,15 +334,11 @@ public class ArrayCoreMap implements CoreMap, Serializable {
    */
   @Override
   public <VALUE> boolean containsKey(Class<? extends Key<VALUE>> key) {
-    for (int i = 0; i < size; i++) {
-      if (keys[i] == key) {
-        return true;
-      }
-    }
-    return false;
+    return has(key);
   }
 
 
+
   /**
    * Reduces memory consumption to the minimum for representing the values
    * currently stored stored in this object.
@@ -279,13 +364,293 @@ public class ArrayCoreMap implements CoreMap, Serializable {
     values = newVals;
   }
 
+  /**
+   * Returns the value at position i of the arrays, first making it if it
+   * was set with setLazy.
+   */
+  private Object value(int i) {
+    Object value = values[i];
+    if (value instanceof LazyValue) {
+      value = ((LazyValue) value).get();
+      values[i] = value;
+    }
+    return value;
+  }
+
+  /**
+   * Returns the given stored value, or, if it is a LazyValue, what it has
+   * made so far (null if it hasn't been read).  This is what set and
+   * remove return for a value they replace, so that replacing a lazy value
+   * doesn't make it.
+   */
+  private static Object madeValue(Object stored) {
+    return (stored instanceof LazyValue) ? ((LazyValue) stored).peek() : stored;
+  }
+
+  /** A value set with setLazy that hasn't been read yet.  Copies of the
+   *  map share it, so it is made only once.
+   */
+  private static class LazyValue {
+
+    private Factory<?> factory;
+    private Object value;
+
+    LazyValue(Factory<?> factory) {
+      this.factory = factory;
+    }
+
+    synchronized Object get() {
+      if (factory != null) {
+        value = factory.create();
+        factory = null;
+      }
+      return value;
+    }
+
+    /** The value if it has been made, or else null. */
+    synchronized Object peek() {
+      return value;
+    }
+
+  } // end static class LazyValue
+
+  //
+  // fixed slots
+  //
+
+  /**
+   * Returns the slot the value of the given key is kept in, between 0 and
+   * MAX_SLOTS - 1, or -1 if it is kept in the arrays.  This must always
+   * give the same answer for the same key.  By default all keys are kept
+   * in the arrays.
+   */
+  protected int slotOf(Class<?> key) {
+    return -1;
+  }
+
+  /*
+   * slotKey, slotValue and setSlotValue are only ever called with a slot
+   * that slotOf has returned for some key.  So they are never reached in a
+   * map that doesn't override slotOf, and a subclass that does override it
+   * must override all three as well.
+   */
+
+  /** Returns the key whose value is kept in the given slot. */
+  protected Class<?> slotKey(int slot) {
+    throw new UnsupportedOperationException(getClass().getName() + " has slots but doesn't override slotKey");
+  }
+
+  /** Returns what is in the given slot (null if nothing has been set). */
+  protected Object slotValue(int slot) {
+    throw new UnsupportedOperationException(getClass().getName() + " has slots but doesn't override slotValue");
+  }
+
+  /** Puts the given value in the given slot. */
+  protected void setSlotValue(int slot, Object value) {
+    throw new UnsupportedOperationException(getClass().getName() + " has slots but doesn't override setSlotValue");
+  }
+
+  /**
+   * Returns the value of the key kept in the given slot, as get would.
+   * Subclasses can use this to get the value of a key they keep in a slot
+   * without looking up its slot.
+   */
+  protected final Object getSlotted(int slot) {
+    if (slotOrder == -1) {
+      return get(ErasureUtils.<Class<? extends Key<Object>>>uncheckedCast(slotKey(slot)));
+    }
+    return slotted(slot);
+  }
+
+  /**
+   * Returns the value in the given slot, first making it if it was set
+   * with setLazy.
+   */
+  private Object slotted(int slot) {
+    Object value = slotValue(slot);
+    if (value instanceof LazyValue) {
+      value = ((LazyValue) value).get();
+      setSlotValue(slot, value);
+    }
+    return value;
+  }
+
+  /**
+   * Sets the value of the key kept in the given slot, and returns the old
+   * one, as set would.  Subclasses can use this to set the value of a key
+   * they keep in a slot without looking up its slot.
+   */
+  protected final Object setSlotted(int slot, Object value) {
+    if (slotOrder == -1) {
+      return setValue(ErasureUtils.<Class<? extends Key<?>>>uncheckedCast(slotKey(slot)), value);
+    }
+    if (slotIndex(slot) >= 0) {
+      Object rv = madeValue(slotValue(slot));
+      setSlotValue(slot, value);
+      return rv;
+    }
+    if (size > 0xff) {
+      // too many keys in the arrays to record where the slot comes among them
+      stopUsingSlots();
+      return setValue(ErasureUtils.<Class<? extends Key<?>>>uncheckedCast(slotKey(slot)), value);
+    }
+    int n = slotCount();
+    slotOrder |= (slot + 1) << (4 * n);
+    slotPositions |= ((long) size) << (8 * n);
+    setSlotValue(slot, value);
+    return null;
+  }
+
+  private Object removeSlotted(int slot) {
+    int j = slotIndex(slot);
+    if (j < 0) {
+      return null;
+    }
+    Object rv = madeValue(slotValue(slot));
+    setSlotValue(slot, null);
+    slotOrder = (int) removeField(slotOrder & 0xffffffffL, j, 4);
+    slotPositions = removeField(slotPositions, j, 8);
+    return rv;
+  }
+
+  /** Removes the j'th field of the given width from bits, moving down the ones above it. */
+  private static long removeField(long bits, int j, int width) {
+    long below = bits & ((1L << (j * width)) - 1);
+    long above = ((j + 1) * width < 64) ? (bits >>> ((j + 1) * width)) << (j * width) : 0;
+    return below | above;
+  }
+
+  /** The number of slots that have been set. */
+  private int slotCount() {
+    if (slotOrder == -1) {
+      return 0;
+    }
+    int n = 0;
+    while (n < MAX_SLOTS && ((slotOrder >>> (4 * n)) & 0xf) != 0) {
+      n++;
+    }
+    return n;
+  }
+
+  /** Where the given slot comes in slotOrder, or -1 if it hasn't been set. */
+  private int slotIndex(int slot) {
+    int order = slotOrder;
+    for (int j = 0; j < MAX_SLOTS && order != 0; j++, order >>>= 4) {
+      if ((order & 0xf) == slot + 1) {
+        return j;
+      }
+    }
+    return -1;
+  }
+
+  /** The number of keys in the arrays that come before the j'th slot set. */
+  private int slotPosition(int j) {
+    return (int) (slotPositions >>> (8 * j)) & 0xff;
+  }
+
+  /** The slot set j'th. */
+  private int slotAt(int j) {
+    return ((slotOrder >>> (4 * j)) & 0xf) - 1;
+  }
+
+  /**
+   * Returns where the i'th key set is kept: the slot number if it is in a
+   * slot, or -1 - its index if it is in the arrays.
+   */
+  private int locate(int i) {
+    int arrayIndex = i;
+    for (int j = 0, n = slotCount(); j < n; j++) {
+      int place = slotPosition(j) + j;
+      if (place == i) {
+        return slotAt(j);
+      } else if (place < i) {
+        arrayIndex--;
+      } else {
+        break;
+      }
+    }
+    return -1 - arrayIndex;
+  }
+
+  /** Returns the i'th key, in the order they were set. */
+  private Class<?> keyAt(int i) {
+    int where = locate(i);
+    return (where >= 0) ? slotKey(where) : keys[-1 - where];
+  }
+
+  /** Returns the value of the i'th key, first making it if it was set with setLazy. */
+  private Object valueAt(int i) {
+    int where = locate(i);
+    return (where >= 0) ? slotted(where) : value(-1 - where);
+  }
+
+  /** Returns the value of the i'th key as it is stored (which may be a LazyValue). */
+  private Object rawValueAt(int i) {
+    int where = locate(i);
+    return (where >= 0) ? slotValue(where) : values[-1 - where];
+  }
+
+  /**
+   * Moves the values of any keys that should be kept in slots out of the
+   * arrays, keeping the order of the keys.  Subclasses that keep keys in
+   * slots need to call this after they are filled in some way other than
+   * through set, such as when they are read from an old serialized form.
+   */
+  protected final void moveKeysToSlots() {
+    if (slotOrder == -1) {
+      return;
+    }
+    boolean misplaced = false;
+    for (int i = 0; i < size && ! misplaced; i++) {
+      misplaced = slotOf(keys[i]) >= 0;
+    }
+    if ( ! misplaced) {
+      return;
+    }
+    int total = size();
+    Class<?>[] oldKeys = new Class<?>[total];
+    Object[] oldValues = new Object[total];
+    for (int i = 0; i < total; i++) {
+      oldKeys[i] = keyAt(i);
+      oldValues[i] = rawValueAt(i);
+    }
+    for (int j = 0, n = slotCount(); j < n; j++) {
+      setSlotValue(slotAt(j), null);
+    }
+    slotOrder = 0;
+    slotPositions = 0;
+    size = 0;
+    for (int i = 0; i < total; i++) {
+      setValue(ErasureUtils.<Class<? extends Key<?>>>uncheckedCast(oldKeys[i]), oldValues[i]);
+    }
+  }
+
+  /** Moves the values in the slots into the arrays, and keeps all keys there from now on. */
+  private void stopUsingSlots() {
+    int total = size();
+    Class<?>[] newKeys = new Class<?>[total + 4];
+    Object[] newVals = new Object[total + 4];
+    for (int i = 0; i < total; i++) {
+      newKeys[i] = keyAt(i);
+      newVals[i] = rawValueAt(i);
+    }
+    for (int j = 0, n = slotCount(); j < n; j++) {
+      setSlotValue(slotAt(j), null);
+    }
+    keys = ErasureUtils.uncheckedCast(newKeys);
+    values = newVals;
+    size = total;
+    slotOrder = -1;
+    slotPositions = 0;
+  }
+
   /**
    * Returns the number of elements in this map.
    * @return The number of elements in this map.
    */
   @Override
   public int size() {
-    return size;
+    return size + slotCount();
   }
 
   /**
@@ -314,11 +679,11 @@ public class ArrayCoreMap implements CoreMap, Serializable {
     calledSet.add(this);
 
     StringBuilder s = new StringBuilder("[");
-    for (int i = 0; i < size; i++) {
-      s.append(keys[i].getSimpleName());
+    for (int i = 0, total = size(); i < total; i++) {
+      s.append(keyAt(i).getSimpleName());
       s.append('=');
-      s.append(values[i]);
-      if (i < size-1) {
+      s.append(valueAt(i));
+      if (i < total-1) {
         s.append(' ');
       }
     }
@@ -350,8 +715,8 @@ public class ArrayCoreMap implements CoreMap, Serializable {
    */
   public String toShorterString(String... what) {
     StringBuilder s = new StringBuilder("[");
-    for (int i = 0; i < size; i++) {
-      String name = keys[i].getSimpleName();
+    for (int i = 0, total = size(); i < total; i++) {
+      String name = keyAt(i).getSimpleName();
       int annoIdx = name.lastIndexOf("Annotation");
       if (annoIdx >= 0) {
         name = name.substring(0, annoIdx);
@@ -374,7 +739,7 @@ public class ArrayCoreMap implements CoreMap, Serializable {
         }
         s.append(name);
         s.append('=');
-        s.append(values[i]);
+        s.append(valueAt(i));
       }
     }
     s.append(']');
@@ -400,10 +765,10 @@ public class ArrayCoreMap implements CoreMap, Serializable {
 
   public String toShortString(char separator, String... what) {
     StringBuilder s = new StringBuilder();
-    for (int i = 0; i < size; i++) {
+    for (int i = 0, total = size(); i < total; i++) {
       boolean include;
       if (what.length > 0) {
-        String name = keys[i].getSimpleName();
+        String name = keyAt(i).getSimpleName();
         int annoIdx = name.lastIndexOf("Annotation");
         if (annoIdx >= 0) {
           name = name.substring(0, annoIdx);
@@ -422,7 +787,7 @@ public class ArrayCoreMap implements CoreMap, Serializable {
         if (s.length() > 0) {
           s.append(separator);
         }
-        s.append(values[i]);
+        s.append(valueAt(i));
       }
     }
     String answer = s.toString();
@@ -518,34 +883,38 @@ public class ArrayCoreMap implements CoreMap, Serializable {
     calledMap.put(this, other, true);
     calledMap.put(other, this, true);
 
-    if (this.size != other.size) {
+    int total = this.size();
+    if (total != other.size()) {
       result = false;
     } else {
-    for (int i = 0; i < this.size; i++) {
-      // test if other contains this key,value pair
-      boolean matched = false;
-      for (int j = 0; j < other.size; j++) {
-        if (this.keys[i] == other.keys[j]) {
-          if ((this.values[i] == null && other.values[j] != null) ||
-              (this.values[i] != null && other.values[j] == null)) {
-            matched = false;
-            break;
-          }
+      for (int i = 0; i < total; i++) {
+        // test if other contains this key,value pair
+        boolean matched = false;
+        Class<?> key = this.keyAt(i);
+        for (int j = 0; j < total; j++) {
+          if (key == other.keyAt(j)) {
+            Object thisValue = this.valueAt(i);
+            Object otherValue = other.valueAt(j);
+            if ((thisValue == null && otherValue != null) ||
+                (thisValue != null && otherValue == null)) {
+              matched = false;
+              break;
+            }
 
-          if ((this.values[i] == null && other.values[j] == null) ||
-              (this.values[i].equals(other.values[j]))) {
-            matched = true;
-            break;
+            if ((thisValue == null && otherValue == null) ||
+                (thisValue.equals(otherValue))) {
+              matched = true;
+              break;
+            }
           }
         }
-      }
 
-      if (!matched) {
-        result = false;
-        break;
+        if (!matched) {
+          result = false;
+          break;
+        }
       }
     }
-    }
 
     if (createdCalledMap) {
       equalsCalled.set(null);
@@ -586,9 +955,10 @@ public class ArrayCoreMap implements CoreMap, Serializable {
 
     int keysCode = 0;
     int valuesCode = 0;
-    for (int i = 0; i < size; i++) {
-      keysCode += keys[i].hashCode();
-      valuesCode += (values[i] != null ? values[i].hashCode() : 0);
+    for (int i = 0, total = size(); i < total; i++) {
+      keysCode += keyAt(i).hashCode();
+      Object value = valueAt(i);
+      valuesCode += (value != null ? value.hashCode() : 0);
     }
 
     if (createdCalledSet) {
@@ -611,14 +981,62 @@ public class ArrayCoreMap implements CoreMap, Serializable {
   private static final long serialVersionUID = 1L;
 
   /**
-   * Overridden serialization method: compacts our map before writing.
+   * The serialized form is the keys and values in the order they were
+   * set, all in the arrays, whether or not a subclass keeps some of them
+   * in slots.  This is the form from before there were slots, so maps
+   * serialized with or without slots can be read by either.
+   */
+  private static final ObjectStreamField[] serialPersistentFields = {
+    new ObjectStreamField("keys", Class[].class),
+    new ObjectStreamField("values", Object[].class),
+    new ObjectStreamField("size", Integer.TYPE),
+  };
+
+  /**
+   * Overridden serialization method: compacts our map and makes any lazy
+   * values before writing.
    *
    * @param out Stream to write to
    * @throws IOException If IO error
    */
   private void writeObject(ObjectOutputStream out) throws IOException {
     compact();
-    out.defaultWriteObject();
+    for (int i = 0; i < size; i++) {
+      value(i);
+    }
+    Class<?>[] allKeys = keys;
+    Object[] allValues = values;
+    int n = slotCount();
+    if (n > 0) {
+      for (int j = 0; j < n; j++) {
+        slotted(slotAt(j));
+      }
+      int total = size();
+      allKeys = new Class<?>[total];
+      allValues = new Object[total];
+      for (int i = 0; i < total; i++) {
+        allKeys[i] = keyAt(i);
+        allValues[i] = rawValueAt(i);
+      }
+    }
+    ObjectOutputStream.PutField fields = out.putFields();
+    fields.put("keys", allKeys);
+    fields.put("values", allValues);
+    fields.put("size", allKeys.length);
+    out.writeFields();
+  }
+
+  /**
+   * Reads the keys and values back into the arrays.  A subclass that keeps
+   * keys in slots moves them there with {@link #moveKeysToSlots}.
+   */
+  private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+    ObjectInputStream.GetField fields = in.readFields();
+    keys = ErasureUtils.uncheckedCast(fields.get("keys", null));
+    values = (Object[]) fields.get("values", null);
+    size = fields.get("size", 0);
+    slotOrder = 0;
+    slotPositions = 0;
   }
 
   // TODO: make prettyLog work in the situation of loops